@@ -0,0 +1,65 @@
+package com.example.userservice.benchmark;
+
+import com.example.userservice.autocomplete.AutocompleteIndex;
+import com.example.userservice.entity.User;
+import com.example.userservice.entity.UserView;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.LongStream;
+
+/**
+ * Подсказки по индексу в памяти: короткий префикс с тысячами совпадений, длинный префикс
+ * и запрос из двух слов, где кандидатов приходится проверять.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class AutocompleteBenchmark {
+
+    private static final String[] FIRST = {"Алексей", "Мария", "Иван", "Ольга", "Alex", "Maria", "John", "Anna"};
+    private static final String[] LAST = {"Иванов", "Петрова", "Смирнов", "Smith", "Stone", "Brown", "Kuznetsov"};
+
+    @Param({"1000000"})
+    private int users;
+
+    private AutocompleteIndex index;
+
+    @Setup
+    public void setUp() {
+        Instant created = Instant.parse("2024-01-01T00:00:00Z");
+        index = AutocompleteIndex.build(LongStream.range(0, users).mapToObj(i -> new User(i,
+                FIRST[(int) (i % FIRST.length)] + " " + LAST[(int) (i / FIRST.length % LAST.length)],
+                "user" + i + "@example.com", null, created)));
+    }
+
+    @Benchmark
+    public List<UserView> shortPrefix() {
+        return index.suggest("al", AutocompleteIndex.DEFAULT_LIMIT);
+    }
+
+    @Benchmark
+    public List<UserView> longPrefix() {
+        return index.suggest("user12345", AutocompleteIndex.DEFAULT_LIMIT);
+    }
+
+    @Benchmark
+    public List<UserView> twoWords() {
+        return index.suggest("ма sto", AutocompleteIndex.DEFAULT_LIMIT);
+    }
+}
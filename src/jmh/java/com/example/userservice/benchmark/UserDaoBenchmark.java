@@ -0,0 +1,126 @@
+package com.example.userservice.benchmark;
+
+import com.example.userservice.dao.UserDao;
+import com.example.userservice.dao.UserDaoImpl;
+import com.example.userservice.entity.User;
+import com.example.userservice.util.HibernateUtil;
+import org.hibernate.Session;
+import org.hibernate.Transaction;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.sql.Statement;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * {@link UserDaoImpl} против локального PostgreSQL, без второго уровня кэша — измеряется путь до базы.
+ * Бенчмарк сам создаёт и удаляет схему (hbm2ddl create-drop), поэтому нужна отдельная база:
+ * <pre>
+ *   createdb user_service_bench
+ *   mvn -Pjmh test-compile exec:exec -Djmh.args="UserDaoBenchmark -prof gc" \
+ *       -Djmh.jvmArgs="-Dhibernate.connection.url=jdbc:postgresql://localhost:5432/user_service_bench"
+ * </pre>
+ * Остальные настройки подключения берутся из hibernate.cfg.xml и так же перекрываются через -Dhibernate.*.
+ * Параметр rows показывает, что поиск по id и по email не деградирует с ростом таблицы.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 3)
+@Measurement(iterations = 5, time = 3)
+@Fork(1)
+public class UserDaoBenchmark {
+
+    private static final String DEFAULT_URL = "jdbc:postgresql://localhost:5432/user_service_bench";
+
+    @Param({"10000", "1000000"})
+    public int rows;
+
+    private UserDao dao;
+    private final AtomicLong emailSequence = new AtomicLong();
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        setDefault("hibernate.connection.url", DEFAULT_URL);
+        setDefault("hibernate.hbm2ddl.auto", "create-drop");
+        setDefault("hibernate.show_sql", "false");
+        setDefault("hibernate.cache.use_second_level_cache", "false");
+        setDefault("hibernate.cache.use_query_cache", "false");
+        fillTable();
+        dao = new UserDaoImpl(HibernateUtil.getSessionFactory());
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        HibernateUtil.shutdown();
+    }
+
+    private static void setDefault(String name, String value) {
+        if (System.getProperty(name) == null) {
+            System.setProperty(name, value);
+        }
+    }
+
+    // сбой посреди заполнения откатывается закрытием сессии
+    private void fillTable() {
+        try (Session session = HibernateUtil.getSessionFactory().openSession()) {
+            Transaction tx = session.beginTransaction();
+            session.doWork(connection -> {
+                try (Statement st = connection.createStatement()) {
+                    st.execute("TRUNCATE users");
+                    st.execute("""
+                            INSERT INTO users (id, name, email, email_normalized, age, created_at)
+                            SELECT g, 'User ' || g, 'user' || g || '@example.com', 'user' || g || '@example.com',
+                                   20 + g %% 50, now()
+                            FROM generate_series(1, %d) g""".formatted(rows));
+                    st.execute("SELECT setval('users_id_seq', %d)".formatted(rows + 1000));
+                }
+            });
+            tx.commit();
+            session.doWork(connection -> {
+                try (Statement st = connection.createStatement()) {
+                    st.execute("ANALYZE users");
+                }
+            });
+        }
+    }
+
+    private long randomId() {
+        return ThreadLocalRandom.current().nextLong(1, rows + 1);
+    }
+
+    @Benchmark
+    public Optional<User> findById() {
+        return dao.findById(randomId());
+    }
+
+    @Benchmark
+    public Optional<User> findByEmail() {
+        return dao.findByEmail("User" + randomId() + "@Example.com");
+    }
+
+    @Benchmark
+    public List<User> findPage() {
+        return dao.findPage(randomId(), 100);
+    }
+
+    @Benchmark
+    public User create() {
+        return dao.create(new User("Bench", "bench-" + emailSequence.incrementAndGet() + "@example.com", 30));
+    }
+}
@@ -0,0 +1,120 @@
+package com.example.userservice.benchmark;
+
+import com.example.userservice.entity.User;
+import com.example.userservice.util.UserJsonWriter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Запись массива пользователей в поток: {@link UserJsonWriter} против универсальной записи через отражение,
+ * которая собирает строку по полям и кодирует её в байты целиком — так устроены типичные мапперы.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class UserJsonBenchmark {
+
+    @Param({"1000"})
+    public int users;
+
+    private final List<User> list = new ArrayList<>();
+    private final OutputStream out = OutputStream.nullOutputStream();
+    private Field[] fields;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        Instant now = Instant.parse("2024-05-01T10:15:30.123456Z");
+        for (int i = 1; i <= users; i++) {
+            list.add(new User((long) i, "Пользователь " + i, "user" + i + "@example.com", 20 + i % 50, now));
+        }
+        List<Field> serializable = new ArrayList<>();
+        for (Field field : User.class.getDeclaredFields()) {
+            if (!Modifier.isStatic(field.getModifiers()) && !field.getName().equals("emailNormalized")) {
+                field.setAccessible(true);
+                serializable.add(field);
+            }
+        }
+        fields = serializable.toArray(Field[]::new);
+    }
+
+    @Benchmark
+    public long writer() throws IOException {
+        UserJsonWriter writer = new UserJsonWriter(out);
+        long count = writer.writeArray(list.iterator());
+        writer.flush();
+        return count;
+    }
+
+    @Benchmark
+    public int reflective() throws IOException, IllegalAccessException {
+        StringBuilder sb = new StringBuilder();
+        sb.append('[');
+        for (int i = 0; i < list.size(); i++) {
+            if (i > 0) {
+                sb.append(',');
+            }
+            appendReflective(sb, list.get(i));
+        }
+        sb.append(']');
+        byte[] bytes = sb.toString().getBytes(StandardCharsets.UTF_8);
+        out.write(bytes);
+        return bytes.length;
+    }
+
+    private void appendReflective(StringBuilder sb, Object bean) throws IllegalAccessException {
+        sb.append('{');
+        for (int i = 0; i < fields.length; i++) {
+            if (i > 0) {
+                sb.append(',');
+            }
+            sb.append('"').append(fields[i].getName()).append("\":");
+            Object value = fields[i].get(bean);
+            if (value == null) {
+                sb.append("null");
+            } else if (value instanceof Number) {
+                sb.append(value);
+            } else {
+                appendEscaped(sb, value.toString());
+            }
+        }
+        sb.append('}');
+    }
+
+    private static void appendEscaped(StringBuilder sb, String value) {
+        sb.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"' || c == '\\') {
+                sb.append('\\').append(c);
+            } else if (c < 0x20) {
+                sb.append(String.format("\\u%04x", (int) c));
+            } else {
+                sb.append(c);
+            }
+        }
+        sb.append('"');
+    }
+}
@@ -0,0 +1,69 @@
+package com.example.userservice.benchmark;
+
+import com.example.userservice.dao.InMemoryUserDao;
+import com.example.userservice.entity.User;
+import com.example.userservice.service.UserService;
+import com.example.userservice.service.UserServiceImpl;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Optional;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Сервисный слой поверх DAO в памяти: валидация, логирование и обвязка без стоимости базы.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class UserServiceBenchmark {
+
+    @Param({"100000"})
+    public int users;
+
+    private UserService service;
+    private final AtomicLong emailSequence = new AtomicLong();
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        service = new UserServiceImpl(new InMemoryUserDao());
+        for (int i = 1; i <= users; i++) {
+            service.createUser(new User("User " + i, email(i), 20 + i % 50));
+        }
+        emailSequence.set(users);
+    }
+
+    private static String email(long i) {
+        return "user" + i + "@example.com";
+    }
+
+    @Benchmark
+    public User createUser() {
+        return service.createUser(new User("New user", email(emailSequence.incrementAndGet()), 30));
+    }
+
+    @Benchmark
+    public Optional<User> getUserById() {
+        return service.getUserById(ThreadLocalRandom.current().nextLong(1, users + 1));
+    }
+
+    @Benchmark
+    public Optional<User> getUserByEmail() {
+        return service.getUserByEmail(email(ThreadLocalRandom.current().nextLong(1, users + 1)));
+    }
+}
@@ -0,0 +1,42 @@
+package com.example.userservice.benchmark;
+
+import com.example.userservice.entity.User;
+import com.example.userservice.service.UserValidator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Валидация пользователя; emailStringMatches — прежняя проверка через String.matches для сравнения.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class UserValidatorBenchmark {
+
+    private static final String EMAIL_REGEX = "^[A-Za-z0-9+_.-]+@[A-Za-z0-9.-]+$";
+
+    private final User user = new User("Alexey Ivanov", "alexey.ivanov+test@mail.example.com", 30);
+
+    @Benchmark
+    public User validate() {
+        UserValidator.validate(user);
+        return user;
+    }
+
+    @Benchmark
+    public boolean emailStringMatches() {
+        return user.getEmail().matches(EMAIL_REGEX);
+    }
+}
@@ -1,29 +1,92 @@
 package com.example.userservice;
 
+import com.example.userservice.analytics.UserSnapshot;
+import com.example.userservice.analytics.UserSnapshotLoader;
+import com.example.userservice.autocomplete.AutocompleteIndex;
+import com.example.userservice.bulk.ExportReport;
+import com.example.userservice.bulk.FileFormat;
+import com.example.userservice.bulk.ImportReport;
+import com.example.userservice.bulk.UserExporter;
+import com.example.userservice.bulk.UserImporter;
+import com.example.userservice.controller.UserController;
+import com.example.userservice.controller.UserHttpServer;
+import com.example.userservice.dao.BatchingUserDao;
+import com.example.userservice.dao.MetricsUserDao;
+import com.example.userservice.dao.ReplicaRoutingUserDao;
 import com.example.userservice.dao.UserDao;
 import com.example.userservice.dao.UserDaoImpl;
 import com.example.userservice.entity.User;
+import com.example.userservice.entity.UserPatch;
+import com.example.userservice.metrics.MetricsRegistry;
+import com.example.userservice.service.CachingUserService;
+import com.example.userservice.service.MetricsUserService;
 import com.example.userservice.service.UserService;
 import com.example.userservice.service.UserServiceImpl;
 import com.example.userservice.util.HibernateUtil;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.util.List;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.InetSocketAddress;
+import java.nio.file.Path;
+import java.time.Duration;
 import java.util.Optional;
+import java.util.OptionalDouble;
 import java.util.Scanner;
+import java.util.concurrent.CountDownLatch;
+import java.util.stream.Stream;
 
 public class App {
 
     private static final Logger log = LoggerFactory.getLogger(App.class);
+    private static final int LIST_FETCH_SIZE = 500;
+    private static final int INDEX_FETCH_SIZE = 10_000;
+    private static final int DEFAULT_HTTP_PORT = 8080;
+    private static final int SQL_DUMP_LIMIT = 20;
+    private static final long CACHE_MAX_SIZE = 10_000;
+    private static final Duration CACHE_TTL = Duration.ofMinutes(5);
+    // счётчики для дашбордов: отставание на полминуты дешевле запроса на каждое обновление страницы
+    private static final Duration AGGREGATE_CACHE_TTL = Duration.ofSeconds(30);
+    // сколько записанный пользователь читается из основной базы, а не из отстающей реплики
+    private static final Duration READ_YOUR_WRITES_WINDOW = Duration.ofSeconds(2);
+    private static final MetricsRegistry metrics = new MetricsRegistry().exposeViaJmx();
+    private static final UserServiceImpl serviceImpl;
+    private static final CachingUserService cachingUserService;
     private static final UserService userService;
 
     static {
-        UserDao userDao = new UserDaoImpl();
-        userService = new UserServiceImpl(userDao);
+        // одновременные чтения по id (HTTP-сервер) склеиваются в пачки;
+        // метрики снаружи каждой цепочки — задержка, которую видит вызывающий
+        UserDao primaryDao = batching(HibernateUtil.getSessionFactory());
+        UserDao userDao = new MetricsUserDao(HibernateUtil.getReplicaSessionFactory()
+                .<UserDao>map(replica -> new ReplicaRoutingUserDao(primaryDao,
+                        batching(replica), READ_YOUR_WRITES_WINDOW))
+                .orElse(primaryDao), metrics);
+        serviceImpl = new UserServiceImpl(userDao);
+        cachingUserService = new CachingUserService(serviceImpl, CACHE_MAX_SIZE, CACHE_TTL, AGGREGATE_CACHE_TTL);
+        userService = new MetricsUserService(cachingUserService, metrics);
+    }
+
+    // пачки читаются не больше чем в столько потоков, сколько соединений в пуле этой базы
+    private static BatchingUserDao batching(SessionFactory factory) {
+        UserDaoImpl dao = new UserDaoImpl(factory);
+        return HibernateUtil.getPoolMetrics(factory)
+                .map(pool -> new BatchingUserDao(dao, pool.maxSize()))
+                .orElseGet(() -> new BatchingUserDao(dao));
     }
 
     public static void main(String[] args) {
+        if (args.length > 0) {
+            try {
+                runCommand(args);
+            } finally {
+                HibernateUtil.shutdown();
+            }
+            return;
+        }
         try (Scanner sc = new Scanner(System.in)) {
             boolean running = true;
 
@@ -39,6 +102,9 @@ public class App {
                         case "4" -> listAllUsers();
                         case "5" -> updateUser(sc);
                         case "6" -> deleteUser(sc);
+                        case "7" -> printPoolMetrics();
+                        case "8" -> printCacheStats();
+                        case "9" -> printMetrics();
                         case "0" -> {
                             log.info("Выход из программы...");
                             System.out.println("Выход из программы...");
@@ -62,6 +128,169 @@ public class App {
         }
     }
 
+    private static void runCommand(String[] args) {
+        switch (args[0]) {
+            case "import" -> importUsers(args);
+            case "export" -> exportUsers(args);
+            case "serve" -> serve(args);
+            case "stats" -> printStats(args);
+            default -> {
+                System.out.println("Неизвестная команда: " + args[0]);
+                printUsage();
+            }
+        }
+    }
+
+    private static void printUsage() {
+        System.out.println("""
+                Использование:
+                  (без аргументов)                          интерактивное меню
+                  import <файл.csv|файл.ndjson> [--update] [--errors=<файл>]
+                                                            массовая загрузка пользователей через COPY
+                  export <файл.csv|файл.ndjson> [--sharded] [--threads=N]
+                                                            параллельная выгрузка таблицы users
+                  serve [--port=8080] [--max-requests=N]    HTTP-сервер /users до Ctrl+C
+                  stats [--bucket=10]                       сводка по снимку таблицы users""");
+    }
+
+    private static void serve(String[] args) {
+        int port = DEFAULT_HTTP_PORT;
+        int maxRequests = UserHttpServer.DEFAULT_MAX_CONCURRENT_REQUESTS;
+        for (int i = 1; i < args.length; i++) {
+            if (args[i].startsWith("--port=")) {
+                port = Integer.parseInt(args[i].substring("--port=".length()));
+            } else if (args[i].startsWith("--max-requests=")) {
+                maxRequests = Integer.parseInt(args[i].substring("--max-requests=".length()));
+            } else {
+                printUsage();
+                return;
+            }
+        }
+
+        // индекс строится до старта сервера: записей через этот процесс между загрузкой и подпиской нет
+        long started = System.nanoTime();
+        AutocompleteIndex autocomplete;
+        try (Stream<User> users = userService.streamAllUsers(INDEX_FETCH_SIZE)) {
+            autocomplete = AutocompleteIndex.build(users);
+        }
+        serviceImpl.addChangeListener(autocomplete);
+        log.info("Индекс подсказок построен: {} пользователей, {} термов, ~{} байт, {} мс", autocomplete.size(),
+                autocomplete.termCount(), autocomplete.memoryBytes(), (System.nanoTime() - started) / 1_000_000);
+
+        CountDownLatch stopped = new CountDownLatch(1);
+        try (UserHttpServer server = new UserHttpServer(
+                new UserController(userService, autocomplete), new InetSocketAddress(port), maxRequests)) {
+            // Ctrl+C / SIGTERM: хук ждёт, пока main закроет сервер и SessionFactory
+            Thread mainThread = Thread.currentThread();
+            Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+                stopped.countDown();
+                try {
+                    mainThread.join();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }));
+            server.start();
+            System.out.println("HTTP-сервер слушает порт " + server.port() + ", Ctrl+C для остановки");
+            stopped.await();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Не удалось запустить HTTP-сервер на порту " + port, e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void importUsers(String[] args) {
+        if (args.length < 2) {
+            printUsage();
+            return;
+        }
+        Path source = Path.of(args[1]);
+        Path errors = Path.of(args[1] + ".errors");
+        UserImporter.ConflictPolicy policy = UserImporter.ConflictPolicy.SKIP;
+        for (int i = 2; i < args.length; i++) {
+            if (args[i].equals("--update")) {
+                policy = UserImporter.ConflictPolicy.UPDATE;
+            } else if (args[i].startsWith("--errors=")) {
+                errors = Path.of(args[i].substring("--errors=".length()));
+            } else {
+                printUsage();
+                return;
+            }
+        }
+
+        ImportReport report = new UserImporter().importFile(source, errors, policy);
+        System.out.printf("""
+                        Прочитано строк: %d
+                        Отклонено: %d (см. %s)
+                        Повторов email в файле: %d
+                        Добавлено: %d
+                        Обновлено: %d
+                        Пропущено существующих: %d
+                        Время: %d мс, %.0f строк/с%n""",
+                report.read(), report.rejected(), errors, report.duplicatesInFile(),
+                report.inserted(), report.updated(), report.skippedExisting(),
+                report.elapsed().toMillis(), report.rowsPerSecond());
+    }
+
+    private static void exportUsers(String[] args) {
+        if (args.length < 2) {
+            printUsage();
+            return;
+        }
+        Path target = Path.of(args[1]);
+        UserExporter.Layout layout = UserExporter.Layout.SINGLE_FILE;
+        Integer threads = null;
+        for (int i = 2; i < args.length; i++) {
+            if (args[i].equals("--sharded")) {
+                layout = UserExporter.Layout.SHARDED;
+            } else if (args[i].startsWith("--threads=")) {
+                threads = Integer.parseInt(args[i].substring("--threads=".length()));
+            } else {
+                printUsage();
+                return;
+            }
+        }
+
+        UserExporter exporter = threads == null
+                ? new UserExporter()
+                : new UserExporter(HibernateUtil.getSessionFactory(), threads);
+        ExportReport report = exporter.export(target, FileFormat.of(target), layout);
+        System.out.printf("""
+                        Выгружено строк: %d
+                        Файлов: %d, байт: %d
+                        Время: %d мс, %.0f строк/с%n""",
+                report.rows(), report.files().size(), report.bytes(),
+                report.elapsed().toMillis(), report.rowsPerSecond());
+    }
+
+    private static void printStats(String[] args) {
+        int bucket = 10;
+        for (int i = 1; i < args.length; i++) {
+            if (args[i].startsWith("--bucket=")) {
+                bucket = Integer.parseInt(args[i].substring("--bucket=".length()));
+            } else {
+                printUsage();
+                return;
+            }
+        }
+
+        UserSnapshot snapshot = new UserSnapshotLoader().load();
+        OptionalDouble averageAge = snapshot.averageAge();
+        System.out.printf("""
+                        Пользователей: %d (снимок ~%d байт)
+                        Без возраста: %d
+                        Средний возраст: %s%n""",
+                snapshot.size(), snapshot.memoryBytes(), snapshot.countWithoutAge(),
+                averageAge.isPresent() ? "%.1f".formatted(averageAge.getAsDouble()) : "—");
+        System.out.println("Возраст:");
+        int width = bucket;
+        snapshot.ageHistogram(bucket).forEach((from, count) ->
+                System.out.printf("  %d–%d: %d%n", from, from + width - 1, count));
+        System.out.println("Регистрации по дням (UTC):");
+        snapshot.signupsByDay().forEach((day, count) -> System.out.printf("  %s: %d%n", day, count));
+    }
+
     private static void printMenu() {
         System.out.println("""
                 ===== User Service =====
@@ -71,6 +300,9 @@ public class App {
                 4) Показать всех пользователей
                 5) Обновить пользователя
                 6) Удалить пользователя
+                7) Статистика пула соединений
+                8) Статистика кэша пользователей
+                9) Метрики операций
                 0) Выход
                 Выберите пункт:""");
     }
@@ -113,11 +345,15 @@ public class App {
     }
 
     private static void listAllUsers() {
-        List<User> users = userService.getAllUsers();
-        if (users.isEmpty()) {
+        long[] count = {0};
+        try (Stream<User> users = userService.streamAllUsers(LIST_FETCH_SIZE)) {
+            users.forEach(user -> {
+                System.out.println(user);
+                count[0]++;
+            });
+        }
+        if (count[0] == 0) {
             System.out.println("Список пользователей пуст.");
-        } else {
-            users.forEach(System.out::println);
         }
     }
 
@@ -133,27 +369,72 @@ public class App {
 
         User user = optUser.get();
         System.out.println("Текущие данные: " + user);
+        // в UPDATE уйдут только введённые поля; если за это время запись изменили, обновление отклонится
+        UserPatch changes = UserPatch.create();
+        if (user.getVersion() != null) {
+            changes.expectedVersion(user.getVersion());
+        }
 
         System.out.print("Новое имя (Enter — оставить без изменений): ");
         String name = sc.nextLine().trim();
         if (!name.isEmpty()) {
-            user.setName(name);
+            changes.name(name);
         }
 
         System.out.print("Новый email (Enter — оставить без изменений): ");
         String email = sc.nextLine().trim();
         if (!email.isEmpty()) {
-            user.setEmail(email);
+            changes.email(email);
         }
 
         System.out.print("Новый возраст (Enter — оставить без изменений): ");
         String ageStr = sc.nextLine().trim();
         if (!ageStr.isEmpty()) {
-            user.setAge(Integer.parseInt(ageStr));
+            changes.age(Integer.parseInt(ageStr));
         }
 
-        userService.updateUser(user);
-        System.out.println("Пользователь обновлён.");
+        if (userService.patchUser(id, changes)) {
+            System.out.println("Пользователь обновлён.");
+        } else {
+            System.out.println("Пользователь не найден.");
+        }
+    }
+
+    private static void printPoolMetrics() {
+        HibernateUtil.getPoolMetrics().ifPresentOrElse(
+                System.out::println,
+                () -> System.out.println("Пул соединений не используется.")
+        );
+        HibernateUtil.getReplicaSessionFactory()
+                .flatMap(HibernateUtil::getPoolMetrics)
+                .ifPresent(replica -> System.out.println("Реплика: " + replica));
+    }
+
+    private static void printCacheStats() {
+        System.out.println("Записей в кэше: " + cachingUserService.estimatedSize());
+        System.out.println("По ID: " + cachingUserService.idCacheStats());
+        System.out.println("По email: " + cachingUserService.emailCacheStats());
+        System.out.println("Агрегаты: " + cachingUserService.aggregateCacheStats());
+        HibernateUtil.getCacheStatistics().forEach((region, stats) ->
+                System.out.printf("L2 %s: записей %d, попаданий %d, промахов %d, записано %d%n",
+                        region, stats.getElementCountInMemory(), stats.getHitCount(),
+                        stats.getMissCount(), stats.getPutCount()));
+    }
+
+    private static void printMetrics() {
+        System.out.print(metrics.dump());
+        HibernateUtil.getSqlStatistics().ifPresent(sql -> {
+            System.out.println("SQL, самые затратные запросы:");
+            System.out.print(sql.dump(SQL_DUMP_LIMIT));
+        });
+        Statistics hibernate = HibernateUtil.getSessionFactory().getStatistics();
+        if (hibernate.isStatisticsEnabled()) {
+            System.out.printf("Hibernate: подготовлено запросов %d, загружено сущностей %d, "
+                            + "выполнено HQL %d, самый долгий HQL %d мс: %s%n",
+                    hibernate.getPrepareStatementCount(), hibernate.getEntityLoadCount(),
+                    hibernate.getQueryExecutionCount(), hibernate.getQueryExecutionMaxTime(),
+                    hibernate.getQueryExecutionMaxTimeQueryString());
+        }
     }
 
     private static void deleteUser(Scanner sc) {
@@ -0,0 +1,29 @@
+package com.example.userservice.analytics;
+
+import java.util.Arrays;
+
+/**
+ * Битовая карта поверх {@code long[]}: 1 бит на строку.
+ */
+final class Bitmap {
+
+    private Bitmap() {
+    }
+
+    static int words(int bits) {
+        return Math.max(1, (bits + 63) >>> 6);
+    }
+
+    static boolean get(long[] words, int index) {
+        return (words[index >>> 6] & (1L << index)) != 0;
+    }
+
+    static void set(long[] words, int index) {
+        words[index >>> 6] |= 1L << index;
+    }
+
+    static long[] ensure(long[] words, int index) {
+        int needed = (index >>> 6) + 1;
+        return needed <= words.length ? words : Arrays.copyOf(words, Math.max(needed, words.length * 2));
+    }
+}
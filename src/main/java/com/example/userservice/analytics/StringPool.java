@@ -0,0 +1,69 @@
+package com.example.userservice.analytics;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Строки одной колонки, уложенные подряд в общий массив байтов UTF-8 со смещениями:
+ * вместо объекта String на каждое значение — два массива на всю колонку. Строка i занимает
+ * {@code data[offsets[i]..offsets[i + 1])}; null отмечается в битовой карте {@code nulls}.
+ */
+final class StringPool {
+
+    private final byte[] data;
+    private final int[] offsets;
+    private final long[] nulls;
+
+    private StringPool(byte[] data, int[] offsets, long[] nulls) {
+        this.data = data;
+        this.offsets = offsets;
+        this.nulls = nulls;
+    }
+
+    int size() {
+        return offsets.length - 1;
+    }
+
+    String get(int index) {
+        if (Bitmap.get(nulls, index)) {
+            return null;
+        }
+        return new String(data, offsets[index], offsets[index + 1] - offsets[index], StandardCharsets.UTF_8);
+    }
+
+    long bytes() {
+        return data.length + 4L * offsets.length + 8L * nulls.length;
+    }
+
+    static final class Builder {
+        private byte[] data = new byte[1024];
+        private int[] offsets = new int[65];
+        private long[] nulls = new long[1];
+        private int size;
+        private int length;
+
+        int add(String value) {
+            if (size + 2 > offsets.length) {
+                offsets = Arrays.copyOf(offsets, offsets.length * 2);
+            }
+            nulls = Bitmap.ensure(nulls, size);
+            if (value == null) {
+                Bitmap.set(nulls, size);
+            } else {
+                byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+                if (length + bytes.length > data.length) {
+                    data = Arrays.copyOf(data, Math.max(data.length * 2, length + bytes.length));
+                }
+                System.arraycopy(bytes, 0, data, length, bytes.length);
+                length += bytes.length;
+            }
+            offsets[++size] = length;
+            return size - 1;
+        }
+
+        StringPool build() {
+            return new StringPool(Arrays.copyOf(data, length), Arrays.copyOf(offsets, size + 1),
+                    Arrays.copyOf(nulls, Bitmap.words(size)));
+        }
+    }
+}
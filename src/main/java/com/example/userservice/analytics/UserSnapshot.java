@@ -0,0 +1,278 @@
+package com.example.userservice.analytics;
+
+import com.example.userservice.entity.User;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.IntSummaryStatistics;
+import java.util.LongSummaryStatistics;
+import java.util.Map;
+import java.util.OptionalDouble;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.function.IntToLongFunction;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+/**
+ * Неизменяемый снимок таблицы users по колонкам для аналитики: id — {@code long[]}, возраст — {@code int[]}
+ * с битовой картой null, createdAt — секунды эпохи в {@code long[]}, имена — коды в словаре,
+ * email — байты UTF-8 со смещениями. Объекты {@link User} не создаются, пока их не попросят явно.
+ * <p>
+ * Агрегаты считаются параллельными стримами по номерам строк в общем fork-join пуле.
+ * Строки лежат в порядке добавления; снимок, загруженный {@link UserSnapshotLoader}, упорядочен по id.
+ */
+public final class UserSnapshot {
+
+    private static final long SECONDS_PER_DAY = 86_400;
+    // до стольких корзин счётчики каждого листа fork-join — плотный long[]; при более широком диапазоне
+    // (один выброс вроде возраста 2e9 или даты в 9999 году) массив на лист исчерпал бы память — там HashMap
+    private static final int MAX_DENSE_BUCKETS = 4096;
+
+    private final int size;
+    private final long[] ids;
+    private final int[] ages;
+    private final long[] ageNulls;
+    private final long[] createdAt;
+    private final long[] createdAtNulls;
+    private final int[] nameCodes;
+    private final StringPool names;
+    private final StringPool emails;
+    private final Instant takenAt;
+
+    private UserSnapshot(Builder builder) {
+        this.size = builder.size;
+        this.ids = Arrays.copyOf(builder.ids, size);
+        this.ages = Arrays.copyOf(builder.ages, size);
+        this.ageNulls = Arrays.copyOf(builder.ageNulls, Bitmap.words(size));
+        this.createdAt = Arrays.copyOf(builder.createdAt, size);
+        this.createdAtNulls = Arrays.copyOf(builder.createdAtNulls, Bitmap.words(size));
+        this.nameCodes = Arrays.copyOf(builder.nameCodes, size);
+        this.names = builder.names.build();
+        this.emails = builder.emails.build();
+        this.takenAt = builder.takenAt;
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    public static UserSnapshot from(Stream<User> users) {
+        Builder builder = builder();
+        users.forEach(builder::add);
+        return builder.build();
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public Instant takenAt() {
+        return takenAt;
+    }
+
+    public long id(int row) {
+        return ids[row];
+    }
+
+    public Integer age(int row) {
+        return Bitmap.get(ageNulls, row) ? null : ages[row];
+    }
+
+    public Instant createdAt(int row) {
+        return Bitmap.get(createdAtNulls, row) ? null : Instant.ofEpochSecond(createdAt[row]);
+    }
+
+    public String name(int row) {
+        return names.get(nameCodes[row]);
+    }
+
+    public String email(int row) {
+        return emails.get(row);
+    }
+
+    /**
+     * Строка снимка как {@link User}; createdAt — с точностью до секунды.
+     */
+    public User user(int row) {
+        return new User(ids[row], name(row), email(row), age(row), createdAt(row));
+    }
+
+    /**
+     * Примерный объём колонок в байтах (без заголовков массивов).
+     */
+    public long memoryBytes() {
+        return 8L * size * 2 + 4L * size * 2 + 8L * (ageNulls.length + createdAtNulls.length)
+                + names.bytes() + emails.bytes();
+    }
+
+    private IntStream rows() {
+        return IntStream.range(0, size).parallel();
+    }
+
+    private IntStream rowsWithAge() {
+        return rows().filter(row -> !Bitmap.get(ageNulls, row));
+    }
+
+    private IntStream rowsWithCreatedAt() {
+        return rows().filter(row -> !Bitmap.get(createdAtNulls, row));
+    }
+
+    public long countAgeBetween(int minInclusive, int maxInclusive) {
+        return rowsWithAge().filter(row -> ages[row] >= minInclusive && ages[row] <= maxInclusive).count();
+    }
+
+    public long countWithoutAge() {
+        return rows().filter(row -> Bitmap.get(ageNulls, row)).count();
+    }
+
+    public OptionalDouble averageAge() {
+        return rowsWithAge().map(row -> ages[row]).average();
+    }
+
+    /**
+     * id пользователей с возрастом в диапазоне, в порядке строк снимка.
+     */
+    public long[] idsWithAgeBetween(int minInclusive, int maxInclusive) {
+        return rowsWithAge()
+                .filter(row -> ages[row] >= minInclusive && ages[row] <= maxInclusive)
+                .mapToLong(row -> ids[row])
+                .toArray();
+    }
+
+    public long countCreatedBetween(Instant fromInclusive, Instant toExclusive) {
+        long from = fromInclusive.getEpochSecond();
+        // секунды в снимке усечены, поэтому граница с дробной частью относится к следующей секунде
+        long to = toExclusive.getEpochSecond() + (toExclusive.getNano() > 0 ? 1 : 0);
+        return rowsWithCreatedAt().filter(row -> createdAt[row] >= from && createdAt[row] < to).count();
+    }
+
+    /**
+     * Гистограмма возраста: ключ — нижняя граница корзины шириной {@code bucketWidth}, пустые корзины пропущены.
+     */
+    public SortedMap<Integer, Long> ageHistogram(int bucketWidth) {
+        if (bucketWidth <= 0) {
+            throw new IllegalArgumentException("Ширина корзины должна быть положительной");
+        }
+        IntSummaryStatistics range = rowsWithAge().map(row -> ages[row]).summaryStatistics();
+        SortedMap<Integer, Long> histogram = new TreeMap<>();
+        if (range.getCount() == 0) {
+            return histogram;
+        }
+        countBuckets(rowsWithAge(), row -> Math.floorDiv(ages[row], bucketWidth),
+                Math.floorDiv(range.getMin(), bucketWidth), Math.floorDiv(range.getMax(), bucketWidth))
+                .forEach((bucket, count) -> histogram.put((int) (bucket * bucketWidth), count));
+        return histogram;
+    }
+
+    /**
+     * Регистрации по дням (UTC), дни без регистраций пропущены.
+     */
+    public SortedMap<LocalDate, Long> signupsByDay() {
+        LongSummaryStatistics range = rowsWithCreatedAt().mapToLong(row -> createdAt[row]).summaryStatistics();
+        SortedMap<LocalDate, Long> byDay = new TreeMap<>();
+        if (range.getCount() == 0) {
+            return byDay;
+        }
+        countBuckets(rowsWithCreatedAt(), row -> Math.floorDiv(createdAt[row], SECONDS_PER_DAY),
+                Math.floorDiv(range.getMin(), SECONDS_PER_DAY), Math.floorDiv(range.getMax(), SECONDS_PER_DAY))
+                .forEach((day, count) -> byDay.put(LocalDate.ofEpochDay(day), count));
+        return byDay;
+    }
+
+    /**
+     * Число строк по корзинам {@code bucketOf} в диапазоне {@code [first, last]}, пустые корзины пропущены.
+     */
+    private static SortedMap<Long, Long> countBuckets(IntStream rows, IntToLongFunction bucketOf,
+                                                      long first, long last) {
+        SortedMap<Long, Long> result = new TreeMap<>();
+        if (last - first < MAX_DENSE_BUCKETS) {
+            int buckets = (int) (last - first + 1);
+            long[] counts = rows.collect(() -> new long[buckets],
+                    (acc, row) -> acc[(int) (bucketOf.applyAsLong(row) - first)]++,
+                    UserSnapshot::addInto);
+            for (int i = 0; i < buckets; i++) {
+                if (counts[i] > 0) {
+                    result.put(first + i, counts[i]);
+                }
+            }
+            return result;
+        }
+        Map<Long, long[]> counts = rows.collect(HashMap::new,
+                (acc, row) -> acc.computeIfAbsent(bucketOf.applyAsLong(row), bucket -> new long[1])[0]++,
+                (target, source) -> source.forEach(
+                        (bucket, count) -> target.computeIfAbsent(bucket, b -> new long[1])[0] += count[0]));
+        counts.forEach((bucket, count) -> result.put(bucket, count[0]));
+        return result;
+    }
+
+    private static void addInto(long[] target, long[] source) {
+        for (int i = 0; i < target.length; i++) {
+            target[i] += source[i];
+        }
+    }
+
+    /**
+     * Накопитель строк; рабочие массивы растут удвоением и обрезаются в {@link #build()}.
+     */
+    public static final class Builder {
+        private int size;
+        private long[] ids = new long[1024];
+        private int[] ages = new int[1024];
+        private long[] ageNulls = new long[16];
+        private long[] createdAt = new long[1024];
+        private long[] createdAtNulls = new long[16];
+        private int[] nameCodes = new int[1024];
+        // словарь нужен только на время загрузки: в снимке остаются коды
+        private final Map<String, Integer> nameDictionary = new HashMap<>();
+        private final StringPool.Builder names = new StringPool.Builder();
+        private final StringPool.Builder emails = new StringPool.Builder();
+        private final Instant takenAt = Instant.now();
+
+        private Builder() {
+        }
+
+        public Builder add(User user) {
+            return add(user.getId(), user.getName(), user.getEmail(), user.getAge(), user.getCreatedAt());
+        }
+
+        public Builder add(long id, String name, String email, Integer age, Instant created) {
+            if (size == ids.length) {
+                int capacity = size * 2;
+                ids = Arrays.copyOf(ids, capacity);
+                ages = Arrays.copyOf(ages, capacity);
+                createdAt = Arrays.copyOf(createdAt, capacity);
+                nameCodes = Arrays.copyOf(nameCodes, capacity);
+            }
+            ageNulls = Bitmap.ensure(ageNulls, size);
+            createdAtNulls = Bitmap.ensure(createdAtNulls, size);
+
+            ids[size] = id;
+            if (age == null) {
+                Bitmap.set(ageNulls, size);
+            } else {
+                ages[size] = age;
+            }
+            if (created == null) {
+                Bitmap.set(createdAtNulls, size);
+            } else {
+                createdAt[size] = created.getEpochSecond();
+            }
+            Integer code = nameDictionary.get(name);
+            if (code == null) {
+                code = names.add(name);
+                nameDictionary.put(name, code);
+            }
+            nameCodes[size] = code;
+            emails.add(email);
+            size++;
+            return this;
+        }
+
+        public UserSnapshot build() {
+            return new UserSnapshot(this);
+        }
+    }
+}
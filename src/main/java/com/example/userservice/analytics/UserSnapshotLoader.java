@@ -0,0 +1,73 @@
+package com.example.userservice.analytics;
+
+import com.example.userservice.dao.DaoException;
+import com.example.userservice.util.HibernateUtil;
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+import org.hibernate.Transaction;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+
+/**
+ * Строит {@link UserSnapshot} одним проходом курсора по таблице users: строки сразу раскладываются
+ * по колонкам, сущности {@code User} и контекст персистентности не участвуют.
+ */
+public class UserSnapshotLoader {
+
+    private static final Logger log = LoggerFactory.getLogger(UserSnapshotLoader.class);
+
+    private static final int CURSOR_FETCH_SIZE = 10_000;
+
+    private static final String SELECT_ALL =
+            "SELECT id, name, email, age, created_at FROM users ORDER BY id";
+
+    private final SessionFactory sessionFactory;
+
+    public UserSnapshotLoader() {
+        this(HibernateUtil.getSessionFactory());
+    }
+
+    public UserSnapshotLoader(SessionFactory sessionFactory) {
+        this.sessionFactory = sessionFactory;
+    }
+
+    public UserSnapshot load() {
+        long started = System.nanoTime();
+        Transaction tx = null;
+        try (Session session = sessionFactory.openSession()) {
+            // курсор PostgreSQL работает только внутри транзакции
+            tx = session.beginTransaction();
+            UserSnapshot snapshot = session.doReturningWork(UserSnapshotLoader::read);
+            tx.commit();
+            log.info("Снимок пользователей построен: {} строк, ~{} байт, {} мс", snapshot.size(),
+                    snapshot.memoryBytes(), (System.nanoTime() - started) / 1_000_000);
+            return snapshot;
+        } catch (Exception e) {
+            if (tx != null && tx.isActive()) tx.rollback();
+            throw new DaoException("Ошибка при построении снимка пользователей", e);
+        }
+    }
+
+    private static UserSnapshot read(Connection connection) throws SQLException {
+        UserSnapshot.Builder builder = UserSnapshot.builder();
+        try (PreparedStatement ps = connection.prepareStatement(SELECT_ALL)) {
+            ps.setFetchSize(CURSOR_FETCH_SIZE);
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    int age = rs.getInt(4);
+                    Integer nullableAge = rs.wasNull() ? null : age;
+                    Timestamp createdAt = rs.getTimestamp(5);
+                    builder.add(rs.getLong(1), rs.getString(2), rs.getString(3), nullableAge,
+                            createdAt == null ? null : createdAt.toInstant());
+                }
+            }
+        }
+        return builder.build();
+    }
+}
@@ -0,0 +1,363 @@
+package com.example.userservice.autocomplete;
+
+import com.example.userservice.entity.User;
+import com.example.userservice.entity.UserPatch;
+import com.example.userservice.entity.UserView;
+import com.example.userservice.service.UserChangeListener;
+import com.example.userservice.util.ConcurrentLongMap;
+
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.stream.Stream;
+
+/**
+ * Индекс подсказок по имени и email, целиком в памяти процесса: запрос по префиксу не ходит в базу.
+ * <p>
+ * Словарь — отсортированные термы в {@link ConcurrentSkipListMap}, у каждого терма — отсортированный
+ * {@code long[]} id пользователей. Префикс превращается в диапазон словаря, поэтому поиск стоит
+ * O(log T) плюс просмотр первых подходящих термов и от размера таблицы почти не зависит.
+ * Термы пользователя: слова имени, email целиком и части email до {@code @}, всё в нижнем регистре.
+ * Домен отдельным термом не индексируется — у {@code gmail} были бы списки на всю таблицу.
+ * <p>
+ * Массивы id при изменении копируются целиком (copy-on-write): читатели не блокируются и видят либо
+ * старый, либо новый список. Изменения одного пользователя упорядочены блокировкой его полосы.
+ * Индекс видит только записи, прошедшие через сервис этого процесса (см. {@link UserChangeListener}).
+ */
+public final class AutocompleteIndex implements UserChangeListener {
+
+    public static final int DEFAULT_LIMIT = 10;
+    public static final int MAX_LIMIT = 100;
+
+    // сколько id просматривать ради одного запроса из нескольких слов, прежде чем сдаться
+    private static final int MAX_CANDIDATES = 10_000;
+    private static final int LOCK_STRIPES = 64;
+    private static final char MAX_CHAR = Character.MAX_VALUE;
+
+    // примерные размеры объектов JVM со сжатыми указателями
+    private static final int SKIP_LIST_NODE_BYTES = 48;
+    private static final int STRING_BYTES = 40;
+    private static final int ARRAY_HEADER_BYTES = 16;
+    private static final int VIEW_BYTES = 48;
+    private static final int MAP_SLOT_BYTES = 24;
+
+    private final ConcurrentSkipListMap<String, long[]> terms;
+    private final ConcurrentLongMap<UserView> users;
+    private final Object[] locks = new Object[LOCK_STRIPES];
+
+    private AutocompleteIndex(ConcurrentSkipListMap<String, long[]> terms, ConcurrentLongMap<UserView> users) {
+        this.terms = terms;
+        this.users = users;
+        for (int i = 0; i < LOCK_STRIPES; i++) {
+            locks[i] = new Object();
+        }
+    }
+
+    public AutocompleteIndex() {
+        this(new ConcurrentSkipListMap<>(), new ConcurrentLongMap<>());
+    }
+
+    /**
+     * Строит индекс одним проходом по потоку пользователей. Списки id сначала копятся в растущих
+     * массивах и сортируются один раз в конце, а не копируются на каждое добавление.
+     */
+    public static AutocompleteIndex build(Stream<User> source) {
+        Map<String, Postings> postings = new HashMap<>();
+        ConcurrentLongMap<UserView> users = new ConcurrentLongMap<>();
+        source.forEach(user -> {
+            UserView view = UserView.of(user);
+            users.put(view.id(), view);
+            for (String term : terms(view.name(), view.email())) {
+                postings.computeIfAbsent(term, t -> new Postings()).add(view.id());
+            }
+        });
+        TreeMap<String, long[]> sorted = new TreeMap<>();
+        postings.forEach((term, ids) -> sorted.put(term, ids.toSortedArray()));
+        return new AutocompleteIndex(new ConcurrentSkipListMap<>(sorted), users);
+    }
+
+    /**
+     * До {@code limit} пользователей, у которых каждое слово запроса — начало какого-либо терма.
+     * Порядок — по терму самого длинного слова запроса, при равных термах — по id; точное совпадение
+     * с термом идёт раньше его продолжений.
+     */
+    public List<UserView> suggest(String query, int limit) {
+        if (limit <= 0 || limit > MAX_LIMIT) {
+            throw new IllegalArgumentException("Число подсказок должно быть от 1 до " + MAX_LIMIT);
+        }
+        String[] words = query == null ? new String[0] : normalize(query).trim().split("\\s+");
+        String leading = longest(words);
+        if (leading.isEmpty()) {
+            return List.of();
+        }
+        ConcurrentNavigableMap<String, long[]> range = terms.subMap(leading, true, leading + MAX_CHAR, false);
+        List<UserView> result = new ArrayList<>(limit);
+        long[] seen = new long[limit];
+        int candidates = 0;
+        for (long[] ids : range.values()) {
+            for (long id : ids) {
+                if (contains(seen, result.size(), id)) {
+                    continue;
+                }
+                if (++candidates > MAX_CANDIDATES) {
+                    return result;
+                }
+                UserView user = users.get(id);
+                if (user != null && matchesAll(user, words)) {
+                    seen[result.size()] = id;
+                    result.add(user);
+                    if (result.size() == limit) {
+                        return result;
+                    }
+                }
+            }
+        }
+        return result;
+    }
+
+    public long size() {
+        return users.size();
+    }
+
+    public int termCount() {
+        return terms.size();
+    }
+
+    /**
+     * Примерный объём индекса в байтах: узлы словаря, строки термов, массивы id и записи пользователей.
+     * Считается проходом по индексу, для отчётов, а не для каждого запроса.
+     */
+    public long memoryBytes() {
+        long bytes = 0;
+        for (Map.Entry<String, long[]> term : terms.entrySet()) {
+            bytes += SKIP_LIST_NODE_BYTES + stringBytes(term.getKey())
+                    + ARRAY_HEADER_BYTES + 8L * term.getValue().length;
+        }
+        for (UserView user : users.values()) {
+            bytes += MAP_SLOT_BYTES + VIEW_BYTES + stringBytes(user.name()) + stringBytes(user.email());
+        }
+        return bytes;
+    }
+
+    @Override
+    public void userSaved(User user) {
+        if (user.getId() == null) {
+            return;
+        }
+        long id = user.getId();
+        synchronized (lock(id)) {
+            UserView previous = users.get(id);
+            // полная запись не всегда несёт время создания — оно не меняется, берём из индекса
+            long createdAt = user.getCreatedAt() != null
+                    ? ChronoUnit.MICROS.between(Instant.EPOCH, user.getCreatedAt())
+                    : previous != null ? previous.createdAtEpochMicros() : 0;
+            replace(id, previous, new UserView(id, user.getName(), user.getEmail(), user.getAge(), createdAt));
+        }
+    }
+
+    /**
+     * Пользователь, которого в индексе нет, пропускается: по частичному изменению его не восстановить.
+     */
+    @Override
+    public void userPatched(long id, UserPatch patch) {
+        synchronized (lock(id)) {
+            UserView previous = users.get(id);
+            if (previous == null) {
+                return;
+            }
+            UserView view = new UserView(id,
+                    patch.getName().orElse(previous.name()),
+                    patch.getEmail().orElse(previous.email()),
+                    patch.isAgeSet() ? patch.getAge() : previous.age(),
+                    previous.createdAtEpochMicros());
+            replace(id, previous, view);
+        }
+    }
+
+    @Override
+    public void userDeleted(long id) {
+        synchronized (lock(id)) {
+            UserView previous = users.remove(id);
+            if (previous != null) {
+                for (String term : terms(previous.name(), previous.email())) {
+                    removePosting(term, id);
+                }
+            }
+        }
+    }
+
+    private void replace(long id, UserView previous, UserView view) {
+        List<String> before = previous == null ? List.of() : terms(previous.name(), previous.email());
+        List<String> after = terms(view.name(), view.email());
+        // сначала новые термы, потом запись и удаление старых: поиск не теряет пользователя посреди изменения
+        for (String term : after) {
+            if (!before.contains(term)) {
+                addPosting(term, id);
+            }
+        }
+        users.put(id, view);
+        for (String term : before) {
+            if (!after.contains(term)) {
+                removePosting(term, id);
+            }
+        }
+    }
+
+    private void addPosting(String term, long id) {
+        terms.compute(term, (t, ids) -> {
+            if (ids == null) {
+                return new long[]{id};
+            }
+            int at = Arrays.binarySearch(ids, id);
+            if (at >= 0) {
+                return ids;
+            }
+            int insert = -at - 1;
+            long[] copy = new long[ids.length + 1];
+            System.arraycopy(ids, 0, copy, 0, insert);
+            copy[insert] = id;
+            System.arraycopy(ids, insert, copy, insert + 1, ids.length - insert);
+            return copy;
+        });
+    }
+
+    private void removePosting(String term, long id) {
+        terms.computeIfPresent(term, (t, ids) -> {
+            int at = Arrays.binarySearch(ids, id);
+            if (at < 0) {
+                return ids;
+            }
+            if (ids.length == 1) {
+                return null;
+            }
+            long[] copy = new long[ids.length - 1];
+            System.arraycopy(ids, 0, copy, 0, at);
+            System.arraycopy(ids, at + 1, copy, at, ids.length - at - 1);
+            return copy;
+        });
+    }
+
+    private Object lock(long id) {
+        return locks[(int) (id & (LOCK_STRIPES - 1))];
+    }
+
+    /**
+     * Термы пользователя без повторов.
+     */
+    static List<String> terms(String name, String email) {
+        List<String> result = new ArrayList<>(8);
+        if (name != null) {
+            addWords(result, normalize(name));
+        }
+        if (email != null) {
+            String normalized = normalize(email);
+            addTerm(result, normalized);
+            int at = normalized.indexOf('@');
+            addWords(result, at < 0 ? normalized : normalized.substring(0, at));
+        }
+        return result;
+    }
+
+    private static void addWords(List<String> result, String text) {
+        int start = -1;
+        for (int i = 0; i <= text.length(); i++) {
+            boolean wordChar = i < text.length() && Character.isLetterOrDigit(text.charAt(i));
+            if (wordChar && start < 0) {
+                start = i;
+            } else if (!wordChar && start >= 0) {
+                addTerm(result, text.substring(start, i));
+                start = -1;
+            }
+        }
+    }
+
+    private static void addTerm(List<String> result, String term) {
+        if (!term.isEmpty() && !result.contains(term)) {
+            result.add(term);
+        }
+    }
+
+    private static boolean matchesAll(UserView user, String[] words) {
+        if (words.length == 1) {
+            return true;
+        }
+        List<String> userTerms = terms(user.name(), user.email());
+        for (String word : words) {
+            if (word.isEmpty()) {
+                continue;
+            }
+            boolean found = false;
+            for (String term : userTerms) {
+                if (term.startsWith(word)) {
+                    found = true;
+                    break;
+                }
+            }
+            if (!found) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static String longest(String[] words) {
+        String longest = "";
+        for (String word : words) {
+            if (word.length() > longest.length()) {
+                longest = word;
+            }
+        }
+        return longest;
+    }
+
+    private static boolean contains(long[] ids, int size, long id) {
+        for (int i = 0; i < size; i++) {
+            if (ids[i] == id) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static String normalize(String text) {
+        return text.toLowerCase(Locale.ROOT);
+    }
+
+    private static long stringBytes(String value) {
+        // компактные строки: латиница — байт на символ, остальное — два
+        if (value == null) {
+            return 0;
+        }
+        int bytesPerChar = value.chars().allMatch(c -> c < 256) ? 1 : 2;
+        return STRING_BYTES + (long) bytesPerChar * value.length();
+    }
+
+    /**
+     * Растущий список id одного терма на время построения индекса.
+     */
+    private static final class Postings {
+        private long[] ids = new long[4];
+        private int size;
+
+        void add(long id) {
+            if (size == ids.length) {
+                ids = Arrays.copyOf(ids, size * 2);
+            }
+            ids[size++] = id;
+        }
+
+        long[] toSortedArray() {
+            long[] sorted = Arrays.copyOf(ids, size);
+            Arrays.sort(sorted);
+            return sorted;
+        }
+    }
+}
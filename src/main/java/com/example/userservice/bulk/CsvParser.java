@@ -0,0 +1,88 @@
+package com.example.userservice.bulk;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Разбор записи CSV (RFC 4180): поля в кавычках, "" внутри кавычек. Поле в кавычках может содержать
+ * перевод строки — читающий склеивает строки файла, пока {@link #endsInsideQuotes} не вернёт false.
+ */
+final class CsvParser {
+
+    private CsvParser() {
+    }
+
+    static List<String> parseLine(String line) {
+        List<String> fields = new ArrayList<>(4);
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        boolean wasQuoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c == '"') {
+                    if (i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                        field.append('"');
+                        i++;
+                    } else {
+                        quoted = false;
+                    }
+                } else {
+                    field.append(c);
+                }
+            } else if (c == '"' && field.isEmpty() && !wasQuoted) {
+                quoted = true;
+                wasQuoted = true;
+            } else if (c == ',') {
+                fields.add(field.toString());
+                field.setLength(0);
+                wasQuoted = false;
+            } else {
+                field.append(c);
+            }
+        }
+        if (quoted) {
+            throw new IllegalArgumentException("Незакрытая кавычка в строке CSV");
+        }
+        fields.add(field.toString());
+        return fields;
+    }
+
+    /**
+     * Осталась ли открытой кавычка в конце текста — по тем же правилам, что и {@link #parseLine}.
+     */
+    static boolean endsInsideQuotes(String record) {
+        boolean quoted = false;
+        boolean fieldStart = true;
+        for (int i = 0; i < record.length(); i++) {
+            char c = record.charAt(i);
+            if (quoted) {
+                if (c == '"') {
+                    if (i + 1 < record.length() && record.charAt(i + 1) == '"') {
+                        i++;
+                    } else {
+                        quoted = false;
+                    }
+                }
+            } else if (c == '"' && fieldStart) {
+                quoted = true;
+                fieldStart = false;
+            } else {
+                fieldStart = c == ',';
+            }
+        }
+        return quoted;
+    }
+
+    static void appendQuoted(StringBuilder out, String value) {
+        out.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"') {
+                out.append('"');
+            }
+            out.append(c);
+        }
+        out.append('"');
+    }
+}
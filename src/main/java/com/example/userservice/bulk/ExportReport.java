@@ -0,0 +1,13 @@
+package com.example.userservice.bulk;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+
+public record ExportReport(long rows, long bytes, List<Path> files, int ranges, Duration elapsed) {
+
+    public double rowsPerSecond() {
+        long millis = Math.max(1, elapsed.toMillis());
+        return rows * 1000.0 / millis;
+    }
+}
@@ -0,0 +1,30 @@
+package com.example.userservice.bulk;
+
+import java.nio.file.Path;
+import java.util.Locale;
+
+public enum FileFormat {
+    CSV("csv"),
+    NDJSON("ndjson");
+
+    private final String extension;
+
+    FileFormat(String extension) {
+        this.extension = extension;
+    }
+
+    public String extension() {
+        return extension;
+    }
+
+    public static FileFormat of(Path file) {
+        String name = file.getFileName().toString().toLowerCase(Locale.ROOT);
+        if (name.endsWith(".csv")) {
+            return CSV;
+        }
+        if (name.endsWith(".ndjson") || name.endsWith(".jsonl") || name.endsWith(".json")) {
+            return NDJSON;
+        }
+        throw new IllegalArgumentException("Неизвестный формат файла: " + file.getFileName());
+    }
+}
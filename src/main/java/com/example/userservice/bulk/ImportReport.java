@@ -0,0 +1,17 @@
+package com.example.userservice.bulk;
+
+import java.time.Duration;
+
+public record ImportReport(long read,
+                           long rejected,
+                           long duplicatesInFile,
+                           long inserted,
+                           long updated,
+                           long skippedExisting,
+                           Duration elapsed) {
+
+    public double rowsPerSecond() {
+        long millis = Math.max(1, elapsed.toMillis());
+        return read * 1000.0 / millis;
+    }
+}
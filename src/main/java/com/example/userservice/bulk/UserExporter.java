@@ -0,0 +1,349 @@
+package com.example.userservice.bulk;
+
+import com.example.userservice.dao.DaoException;
+import com.example.userservice.util.HibernateUtil;
+import com.example.userservice.util.UserJsonWriter;
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+import org.hibernate.Transaction;
+import org.postgresql.PGConnection;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+/**
+ * Параллельная выгрузка таблицы users: диапазон id делится на куски, каждый кусок читается
+ * на своём соединении из пула (CSV — через COPY TO STDOUT, NDJSON — курсором) и пишется в свой файл.
+ * Для {@link Layout#SINGLE_FILE} куски затем склеиваются по порядку через {@link FileChannel#transferTo}.
+ * <p>
+ * Все куски читаются из одного снимка базы: отдельная транзакция REPEATABLE READ экспортирует его через
+ * {@code pg_export_snapshot()} и держит до конца выгрузки, а каждый поток начинает свою транзакцию
+ * с {@code SET TRANSACTION SNAPSHOT}. Поэтому выгрузка согласована, как один SELECT, хотя идёт
+ * параллельно: строка, перенесённая или удалённая во время выгрузки, не пропадёт и не задвоится.
+ * Если выгрузка не удалась, уже записанные файлы удаляются.
+ */
+public class UserExporter {
+
+    private static final Logger log = LoggerFactory.getLogger(UserExporter.class);
+
+    private static final int RANGES_PER_WORKER = 4;
+    private static final int WRITE_BUFFER_BYTES = 256 * 1024;
+    private static final int CURSOR_FETCH_SIZE = 1000;
+    // сколько ждать потоки, ещё пишущие файлы, прежде чем удалить результат неудачной выгрузки
+    private static final int CLEANUP_WAIT_SECONDS = 30;
+
+    static final String CSV_HEADER = "id,name,email,age,created_at\n";
+
+    private static final String COPY_RANGE = """
+            COPY (SELECT id, name, email, age, created_at FROM users
+                  WHERE id >= %d AND id < %d ORDER BY id)
+            TO STDOUT WITH (FORMAT csv)""";
+
+    private static final String SELECT_RANGE =
+            "SELECT id, name, email, age, created_at FROM users WHERE id >= ? AND id < ? ORDER BY id";
+
+    private static final String EXPORT_SNAPSHOT = "SELECT pg_export_snapshot(), min(id), max(id) FROM users";
+    private static final Pattern SNAPSHOT_ID = Pattern.compile("[0-9A-Fa-f-]+");
+
+    public enum Layout {
+        /** Один файл, строки упорядочены по id. */
+        SINGLE_FILE,
+        /** По файлу на каждый непустой диапазон id: base-00000.ext, base-00001.ext, ... */
+        SHARDED
+    }
+
+    record IdRange(long from, long to) {
+    }
+
+    // minId == null — таблица пуста
+    private record Snapshot(String id, Long minId, Long maxId) {
+    }
+
+    private final SessionFactory sessionFactory;
+    private final int parallelism;
+
+    public UserExporter() {
+        this(HibernateUtil.getSessionFactory());
+    }
+
+    public UserExporter(SessionFactory sessionFactory) {
+        this(sessionFactory, defaultParallelism(sessionFactory));
+    }
+
+    public UserExporter(SessionFactory sessionFactory, int parallelism) {
+        if (parallelism <= 0) {
+            throw new IllegalArgumentException("Число потоков выгрузки должно быть положительным");
+        }
+        this.sessionFactory = sessionFactory;
+        this.parallelism = parallelism;
+    }
+
+    // по потоку на ядро; одно соединение пула держит снимок, ещё одно оставляем остальным запросам
+    static int defaultParallelism(SessionFactory sessionFactory) {
+        int cores = Runtime.getRuntime().availableProcessors();
+        return HibernateUtil.getPoolMetrics(sessionFactory)
+                .map(pool -> Math.max(1, Math.min(cores, pool.maxSize() - 2)))
+                .orElse(cores);
+    }
+
+    public ExportReport export(Path target, FileFormat format, Layout layout) {
+        long started = System.nanoTime();
+        Transaction tx = null;
+        try (Session session = sessionFactory.openSession()) {
+            try {
+                tx = session.beginTransaction();
+                Snapshot snapshot = exportSnapshot(session);
+                ExportReport report = export(snapshot, target, format, layout, started);
+                // транзакция только держала снимок
+                tx.commit();
+                return report;
+            } catch (RuntimeException e) {
+                if (tx != null && tx.isActive()) tx.rollback();
+                throw e;
+            }
+        }
+    }
+
+    private ExportReport export(Snapshot snapshot, Path target, FileFormat format, Layout layout, long started) {
+        boolean sharded = layout == Layout.SHARDED;
+        List<IdRange> ranges = snapshot.minId() == null
+                ? List.of()
+                : split(snapshot.minId(), snapshot.maxId(), parallelism * RANGES_PER_WORKER);
+        List<Path> parts = new ArrayList<>(ranges.size());
+        for (int i = 0; i < ranges.size(); i++) {
+            parts.add(sharded ? shardPath(target, i, format) : target.resolveSibling(target.getFileName() + ".part" + i));
+        }
+        // файлы, которые потоки успели открыть: при ошибке удаляются только они
+        Set<Path> created = ConcurrentHashMap.newKeySet();
+        boolean completed = false;
+
+        ExecutorService pool = Executors.newFixedThreadPool(parallelism);
+        try {
+            List<Future<Long>> results = new ArrayList<>(ranges.size());
+            for (int i = 0; i < ranges.size(); i++) {
+                IdRange range = ranges.get(i);
+                Path part = parts.get(i);
+                results.add(pool.submit(() -> exportRange(snapshot.id(), range, part, format, sharded, created)));
+            }
+            long rows = 0;
+            List<Path> files = new ArrayList<>();
+            for (int i = 0; i < results.size(); i++) {
+                long partRows = results.get(i).get();
+                rows += partRows;
+                if (sharded) {
+                    if (partRows == 0) {
+                        Files.delete(parts.get(i));
+                    } else {
+                        files.add(parts.get(i));
+                    }
+                }
+            }
+            if (!sharded) {
+                concatenate(parts, target, format);
+                files.add(target);
+            }
+            long bytes = 0;
+            for (Path file : files) {
+                bytes += Files.size(file);
+            }
+            ExportReport report = new ExportReport(rows, bytes, files, ranges.size(),
+                    Duration.ofNanos(System.nanoTime() - started));
+            log.info("Экспорт в {} завершён: {} строк, {} байт, {} диапазонов, {} потоков, {} строк/с",
+                    target, rows, bytes, ranges.size(), parallelism, Math.round(report.rowsPerSecond()));
+            completed = true;
+            return report;
+        } catch (ExecutionException e) {
+            throw new DaoException("Ошибка при экспорте пользователей", e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new DaoException("Экспорт пользователей прерван", e);
+        } catch (IOException e) {
+            throw new DaoException("Ошибка записи файла экспорта", e);
+        } finally {
+            pool.shutdownNow();
+            if (!sharded) {
+                parts.forEach(UserExporter::deleteQuietly);
+            } else if (!completed) {
+                // шарды неудачной выгрузки выглядели бы как полный результат
+                awaitQuietly(pool);
+                created.forEach(UserExporter::deleteQuietly);
+            }
+        }
+    }
+
+    private static Snapshot exportSnapshot(Session session) {
+        try {
+            return session.doReturningWork(connection -> {
+                try (Statement st = connection.createStatement()) {
+                    st.execute("SET TRANSACTION ISOLATION LEVEL REPEATABLE READ");
+                    try (ResultSet rs = st.executeQuery(EXPORT_SNAPSHOT)) {
+                        rs.next();
+                        long min = rs.getLong(2);
+                        Long minId = rs.wasNull() ? null : min;
+                        return new Snapshot(rs.getString(1), minId, minId == null ? null : rs.getLong(3));
+                    }
+                }
+            });
+        } catch (Exception e) {
+            throw new DaoException("Ошибка при определении диапазона id", e);
+        }
+    }
+
+    static List<IdRange> split(long minId, long maxId, int count) {
+        long span = Math.max(1, (maxId - minId + count) / count);
+        List<IdRange> ranges = new ArrayList<>(count);
+        for (long from = minId; from <= maxId; from += span) {
+            ranges.add(new IdRange(from, Math.min(from + span, maxId + 1)));
+        }
+        return ranges;
+    }
+
+    private long exportRange(String snapshotId, IdRange range, Path file, FileFormat format, boolean withHeader,
+                             Set<Path> created) throws IOException {
+        Transaction tx = null;
+        try (Session session = sessionFactory.openSession();
+             FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE,
+                     StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+             OutputStream out = new BufferedOutputStream(Channels.newOutputStream(channel), WRITE_BUFFER_BYTES)) {
+            created.add(file);
+            if (withHeader && format == FileFormat.CSV) {
+                out.write(CSV_HEADER.getBytes(StandardCharsets.US_ASCII));
+            }
+            tx = session.beginTransaction();
+            long rows = session.doReturningWork(connection -> {
+                useSnapshot(connection, snapshotId);
+                return format == FileFormat.CSV
+                        ? copyRange(connection, range, out)
+                        : cursorRange(connection, range, out);
+            });
+            tx.commit();
+            return rows;
+        } catch (RuntimeException e) {
+            if (tx != null && tx.isActive()) tx.rollback();
+            throw e;
+        }
+    }
+
+    // должно быть первым в транзакции, до любого запроса
+    private static void useSnapshot(Connection connection, String snapshotId) throws SQLException {
+        // SET не принимает параметров; идентификатор приходит из pg_export_snapshot(), но проверяем формат
+        if (!SNAPSHOT_ID.matcher(snapshotId).matches()) {
+            throw new SQLException("Некорректный идентификатор снимка: " + snapshotId);
+        }
+        try (Statement st = connection.createStatement()) {
+            st.execute("SET TRANSACTION ISOLATION LEVEL REPEATABLE READ");
+            st.execute("SET TRANSACTION SNAPSHOT '" + snapshotId + "'");
+        }
+    }
+
+    private static long copyRange(Connection connection, IdRange range, OutputStream out) throws SQLException {
+        try (Statement st = connection.createStatement()) {
+            st.execute("SET LOCAL TimeZone = 'UTC'");
+        }
+        try {
+            return connection.unwrap(PGConnection.class).getCopyAPI()
+                    .copyOut(COPY_RANGE.formatted(range.from(), range.to()), out);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static long cursorRange(Connection connection, IdRange range, OutputStream out) throws SQLException {
+        try (PreparedStatement ps = connection.prepareStatement(SELECT_RANGE)) {
+            ps.setFetchSize(CURSOR_FETCH_SIZE);
+            ps.setLong(1, range.from());
+            ps.setLong(2, range.to());
+            long rows = 0;
+            // out уже буферизован; писатель лишь кодирует поля в байты без промежуточных строк
+            UserJsonWriter writer = new UserJsonWriter(out);
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    int age = rs.getInt(4);
+                    Integer nullableAge = rs.wasNull() ? null : age;
+                    Timestamp createdAt = rs.getTimestamp(5);
+                    writer.writeUser(rs.getLong(1), rs.getString(2), rs.getString(3),
+                            nullableAge, createdAt == null ? null : createdAt.toInstant()).newLine();
+                    rows++;
+                }
+                writer.flush();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            return rows;
+        }
+    }
+
+    private static void concatenate(List<Path> parts, Path target, FileFormat format) throws IOException {
+        try (FileChannel out = FileChannel.open(target, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            if (format == FileFormat.CSV) {
+                ByteBuffer header = ByteBuffer.wrap(CSV_HEADER.getBytes(StandardCharsets.US_ASCII));
+                while (header.hasRemaining()) {
+                    out.write(header);
+                }
+            }
+            for (Path part : parts) {
+                try (FileChannel in = FileChannel.open(part, StandardOpenOption.READ)) {
+                    long size = in.size();
+                    long position = 0;
+                    while (position < size) {
+                        position += in.transferTo(position, size - position, out);
+                    }
+                }
+            }
+        }
+    }
+
+    private static Path shardPath(Path target, int index, FileFormat format) {
+        String name = target.getFileName().toString();
+        int dot = name.lastIndexOf('.');
+        String base = dot > 0 ? name.substring(0, dot) : name;
+        return target.resolveSibling("%s-%05d.%s".formatted(base, index, format.extension()));
+    }
+
+    private static void awaitQuietly(ExecutorService pool) {
+        try {
+            if (!pool.awaitTermination(CLEANUP_WAIT_SECONDS, TimeUnit.SECONDS)) {
+                log.warn("Потоки экспорта не завершились за {} с, часть файлов может остаться", CLEANUP_WAIT_SECONDS);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void deleteQuietly(Path path) {
+        try {
+            Files.deleteIfExists(path);
+        } catch (IOException e) {
+            log.warn("Не удалось удалить временный файл {}", path, e);
+        }
+    }
+}
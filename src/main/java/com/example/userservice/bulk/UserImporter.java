@@ -0,0 +1,277 @@
+package com.example.userservice.bulk;
+
+import com.example.userservice.dao.DaoException;
+import com.example.userservice.entity.User;
+import com.example.userservice.service.UserValidator;
+import com.example.userservice.util.HibernateUtil;
+import com.example.userservice.util.UserJson;
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+import org.hibernate.Transaction;
+import org.postgresql.PGConnection;
+import org.postgresql.copy.CopyIn;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Массовая загрузка пользователей из CSV/NDJSON через COPY во временную таблицу
+ * с последующим слиянием в users одним INSERT ... SELECT.
+ * Строки, не прошедшие проверку {@link UserValidator}, пишутся в файл ошибок и в COPY не попадают.
+ */
+public class UserImporter {
+
+    private static final Logger log = LoggerFactory.getLogger(UserImporter.class);
+
+    // шаг users_id_seq; должен совпадать с allocationSize генератора в User
+    static final int ID_ALLOCATION_SIZE = 50;
+
+    private static final int COPY_BUFFER_CHARS = 64 * 1024;
+    // дальше запись с незакрытой кавычкой не склеивается: это битая строка, а не имя с переводом строки
+    private static final int MAX_RECORD_CHARS = 64 * 1024;
+    private static final String MERGE_WORK_MEM = "256MB";
+
+    private static final String CREATE_STAGING = """
+            CREATE TEMP TABLE users_import (
+                line_no BIGINT NOT NULL,
+                name VARCHAR(200) NOT NULL,
+                email VARCHAR(255) NOT NULL,
+                email_normalized VARCHAR(255) NOT NULL,
+                age INTEGER
+            ) ON COMMIT DROP""";
+
+    private static final String COPY_STAGING =
+            "COPY users_import (line_no, name, email, email_normalized, age) FROM STDIN WITH (FORMAT csv)";
+
+    // при повторе email (без учёта регистра) внутри файла побеждает последняя строка
+    private static final String DEDUPLICATED = """
+            SELECT DISTINCT ON (email_normalized) line_no, name, email, email_normalized, age
+            FROM users_import
+            ORDER BY email_normalized, line_no DESC""";
+
+    private static final String UPDATE_EXISTING = """
+            UPDATE users u SET name = s.name, age = s.age, version = u.version + 1
+            FROM (%s) s
+            WHERE u.email_normalized = s.email_normalized""".formatted(DEDUPLICATED);
+
+    // Hibernate выдаёт id блоками (hi - 49 .. hi), поэтому и здесь берём по одному nextval на блок;
+    // вставка в порядке email держит вставки в уникальный индекс email последовательными
+    private static final String INSERT_NEW = """
+            WITH fresh AS (
+                SELECT row_number() OVER (ORDER BY s.email_normalized) - 1 AS rn,
+                       s.name, s.email, s.email_normalized, s.age
+                FROM (%1$s) s
+                WHERE NOT EXISTS (SELECT 1 FROM users u WHERE u.email_normalized = s.email_normalized)
+            ),
+            blocks AS (
+                SELECT g AS block, nextval('users_id_seq') AS hi
+                FROM generate_series(0, (SELECT (count(*) + %2$d - 1) / %2$d - 1 FROM fresh)) g
+            )
+            INSERT INTO users (id, name, email, email_normalized, age, created_at)
+            SELECT b.hi - %2$d + 1 + f.rn %% %2$d, f.name, f.email, f.email_normalized, f.age, current_timestamp
+            FROM fresh f
+            JOIN blocks b ON b.block = f.rn / %2$d
+            ON CONFLICT (email_normalized) DO NOTHING""".formatted(DEDUPLICATED, ID_ALLOCATION_SIZE);
+
+    // первый nextval новой последовательности (1) дал бы блок с отрицательными id
+    private static final String SKIP_INITIAL_SEQUENCE_VALUE =
+            "SELECT CASE WHEN is_called THEN 0 ELSE nextval('users_id_seq') END FROM users_id_seq";
+
+    public enum ConflictPolicy {
+        /** Существующих пользователей с тем же email не трогаем. */
+        SKIP,
+        /** Обновляем имя и возраст существующих пользователей с тем же email. */
+        UPDATE
+    }
+
+    private final SessionFactory sessionFactory;
+
+    public UserImporter() {
+        this(HibernateUtil.getSessionFactory());
+    }
+
+    public UserImporter(SessionFactory sessionFactory) {
+        this.sessionFactory = sessionFactory;
+    }
+
+    public ImportReport importFile(Path source, Path errorFile, ConflictPolicy policy) {
+        FileFormat format = FileFormat.of(source);
+        long started = System.nanoTime();
+        Transaction tx = null;
+        try (Session session = sessionFactory.openSession();
+             BufferedReader reader = Files.newBufferedReader(source, StandardCharsets.UTF_8);
+             BufferedWriter errors = Files.newBufferedWriter(errorFile, StandardCharsets.UTF_8)) {
+            tx = session.beginTransaction();
+            ImportReport report = session.doReturningWork(
+                    connection -> load(connection, reader, errors, format, policy, started));
+            tx.commit();
+            // данные писались в обход Hibernate, закэшированные копии пользователей и результаты запросов устарели
+            sessionFactory.getCache().evictEntityData(User.class);
+            sessionFactory.getCache().evictQueryRegions();
+            log.info("Импорт {} завершён: прочитано {}, отклонено {}, добавлено {}, обновлено {}, {} строк/с",
+                    source, report.read(), report.rejected(), report.inserted(), report.updated(),
+                    Math.round(report.rowsPerSecond()));
+            return report;
+        } catch (Exception e) {
+            if (tx != null && tx.isActive()) tx.rollback();
+            throw new DaoException("Ошибка при импорте пользователей из " + source, e);
+        }
+    }
+
+    private ImportReport load(Connection connection, BufferedReader reader, BufferedWriter errors,
+                              FileFormat format, ConflictPolicy policy, long started) throws SQLException {
+        try (Statement st = connection.createStatement()) {
+            st.execute(CREATE_STAGING);
+        }
+
+        RowCounts counts = copyToStaging(connection, reader, errors, format);
+
+        try (Statement st = connection.createStatement()) {
+            // временные таблицы не анализируются автоматически, без статистики планировщик ошибается
+            st.execute("ANALYZE users_import");
+            st.execute("SET LOCAL work_mem = '" + MERGE_WORK_MEM + "'");
+            long distinct = queryLong(st, "SELECT count(DISTINCT email_normalized) FROM users_import");
+            long updated = policy == ConflictPolicy.UPDATE ? st.executeUpdate(UPDATE_EXISTING) : 0;
+            st.execute(SKIP_INITIAL_SEQUENCE_VALUE);
+            long inserted = st.executeUpdate(INSERT_NEW);
+            return new ImportReport(
+                    counts.read,
+                    counts.rejected,
+                    counts.accepted - distinct,
+                    inserted,
+                    updated,
+                    distinct - inserted - updated,
+                    Duration.ofNanos(System.nanoTime() - started));
+        }
+    }
+
+    private RowCounts copyToStaging(Connection connection, BufferedReader reader, BufferedWriter errors,
+                                    FileFormat format) throws SQLException {
+        CopyIn copyIn = connection.unwrap(PGConnection.class).getCopyAPI().copyIn(COPY_STAGING);
+        try {
+            RowCounts counts = new RowCounts();
+            StringBuilder buffer = new StringBuilder(COPY_BUFFER_CHARS + 1024);
+            RowParser parser = format == FileFormat.NDJSON ? UserJson::parse : null;
+            long lineNo = 0;
+            String line;
+            while ((line = reader.readLine()) != null) {
+                lineNo++;
+                if (line.isBlank()) {
+                    continue;
+                }
+                if (parser == null) {
+                    parser = csvParser(line);
+                    continue;
+                }
+                long recordLineNo = lineNo;
+                String record = line;
+                if (format == FileFormat.CSV) {
+                    // перевод строки внутри кавычек (экспорт пишет имена как есть) продолжает запись
+                    while (record.length() < MAX_RECORD_CHARS && CsvParser.endsInsideQuotes(record)
+                            && (line = reader.readLine()) != null) {
+                        lineNo++;
+                        record = record + "\n" + line;
+                    }
+                }
+                counts.read++;
+                try {
+                    User user = parser.parse(record);
+                    UserValidator.validate(user);
+                    appendRow(buffer, recordLineNo, user);
+                    counts.accepted++;
+                } catch (IllegalArgumentException e) {
+                    counts.rejected++;
+                    // файл ошибок — по строке на запись
+                    errors.write(recordLineNo + "\t" + e.getMessage() + "\t" + record.replace("\n", "\\n"));
+                    errors.newLine();
+                }
+                if (buffer.length() >= COPY_BUFFER_CHARS) {
+                    flush(copyIn, buffer);
+                }
+            }
+            flush(copyIn, buffer);
+            copyIn.endCopy();
+            return counts;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            if (copyIn.isActive()) {
+                copyIn.cancelCopy();
+            }
+        }
+    }
+
+    private static RowParser csvParser(String headerLine) {
+        List<String> header = CsvParser.parseLine(headerLine).stream()
+                .map(h -> h.trim().toLowerCase(Locale.ROOT))
+                .toList();
+        int nameIdx = header.indexOf("name");
+        int emailIdx = header.indexOf("email");
+        int ageIdx = header.indexOf("age");
+        if (nameIdx < 0 || emailIdx < 0) {
+            throw new IllegalArgumentException("В заголовке CSV должны быть колонки name и email");
+        }
+        return line -> {
+            List<String> fields = CsvParser.parseLine(line);
+            if (fields.size() != header.size()) {
+                throw new IllegalArgumentException("Ожидалось " + header.size() + " колонок, получено " + fields.size());
+            }
+            String age = ageIdx < 0 ? "" : fields.get(ageIdx).trim();
+            return new User(fields.get(nameIdx), fields.get(emailIdx), age.isEmpty() ? null : Integer.valueOf(age));
+        };
+    }
+
+    private static void appendRow(StringBuilder buffer, long lineNo, User user) {
+        buffer.append(lineNo).append(',');
+        CsvParser.appendQuoted(buffer, user.getName());
+        buffer.append(',');
+        CsvParser.appendQuoted(buffer, user.getEmail());
+        buffer.append(',');
+        CsvParser.appendQuoted(buffer, user.getEmailNormalized());
+        buffer.append(',');
+        if (user.getAge() != null) {
+            buffer.append(user.getAge().intValue());
+        }
+        buffer.append('\n');
+    }
+
+    private static void flush(CopyIn copyIn, StringBuilder buffer) throws SQLException {
+        if (!buffer.isEmpty()) {
+            byte[] bytes = buffer.toString().getBytes(StandardCharsets.UTF_8);
+            copyIn.writeToCopy(bytes, 0, bytes.length);
+            buffer.setLength(0);
+        }
+    }
+
+    private static long queryLong(Statement st, String sql) throws SQLException {
+        try (ResultSet rs = st.executeQuery(sql)) {
+            rs.next();
+            return rs.getLong(1);
+        }
+    }
+
+    @FunctionalInterface
+    private interface RowParser {
+        User parse(String line);
+    }
+
+    private static final class RowCounts {
+        long read;
+        long accepted;
+        long rejected;
+    }
+}
@@ -1,21 +1,44 @@
 package com.example.userservice.controller;
 
+import com.example.userservice.autocomplete.AutocompleteIndex;
 import com.example.userservice.dao.UserDao;
 import com.example.userservice.dao.UserDaoImpl;
+import com.example.userservice.dao.UserQuery;
+import com.example.userservice.dao.UserSearchPage;
 import com.example.userservice.entity.User;
+import com.example.userservice.entity.UserPatch;
+import com.example.userservice.entity.UserView;
 import com.example.userservice.service.UserService;
 import com.example.userservice.service.UserServiceImpl;
 
+import java.time.Instant;
+import java.time.LocalDate;
 import java.util.List;
 import java.util.Optional;
+import java.util.SortedMap;
+import java.util.stream.Stream;
 
 public class UserController {
 
     private final UserService userService;
+    private final AutocompleteIndex autocomplete;
 
     public UserController() {
         UserDao userDao = new UserDaoImpl(); // твоя реализация DAO
         this.userService = new UserServiceImpl(userDao);
+        this.autocomplete = null;
+    }
+
+    public UserController(UserService userService) {
+        this(userService, null);
+    }
+
+    /**
+     * @param autocomplete индекс подсказок; null — подсказки отключены
+     */
+    public UserController(UserService userService, AutocompleteIndex autocomplete) {
+        this.userService = userService;
+        this.autocomplete = autocomplete;
     }
 
     public Optional<User> getUser(Long id) {
@@ -26,10 +49,65 @@ public class UserController {
         return userService.getAllUsers();
     }
 
+    public Stream<User> streamAllUsers(int fetchSize) {
+        return userService.streamAllUsers(fetchSize);
+    }
+
+    public List<User> getUsersPage(Long afterId, int limit) {
+        return userService.getUsersPage(afterId, limit);
+    }
+
+    public Optional<UserView> getUserView(Long id) {
+        return userService.getUserView(id);
+    }
+
+    public List<UserView> getUserViewsPage(Long afterId, int limit) {
+        return userService.getUserViewsPage(afterId, limit);
+    }
+
+    public UserSearchPage searchUsers(UserQuery query) {
+        return userService.searchUsers(query);
+    }
+
+    public long countUsers() {
+        return userService.countUsers();
+    }
+
+    public long countByAgeRange(int minInclusive, int maxInclusive) {
+        return userService.countByAgeRange(minInclusive, maxInclusive);
+    }
+
+    public SortedMap<Integer, Long> getAgeHistogram(int bucketWidth) {
+        return userService.getAgeHistogram(bucketWidth);
+    }
+
+    public SortedMap<LocalDate, Long> getSignupsByDay(Instant from, Instant to) {
+        return userService.getSignupsByDay(from, to);
+    }
+
+    public boolean isAutocompleteEnabled() {
+        return autocomplete != null;
+    }
+
+    public List<UserView> suggestUsers(String query, int limit) {
+        if (autocomplete == null) {
+            throw new IllegalStateException("Индекс подсказок не построен");
+        }
+        return autocomplete.suggest(query, limit);
+    }
+
     public User createUser(User user) {
         return userService.createUser(user);
     }
 
+    public User updateUser(User user) {
+        return userService.updateUser(user);
+    }
+
+    public boolean patchUser(Long id, UserPatch changes) {
+        return userService.patchUser(id, changes);
+    }
+
     public boolean deleteUser(Long id) {
         return userService.deleteUser(id);
     }
@@ -0,0 +1,503 @@
+package com.example.userservice.controller;
+
+import com.example.userservice.autocomplete.AutocompleteIndex;
+import com.example.userservice.dao.DaoException;
+import com.example.userservice.dao.UserQuery;
+import com.example.userservice.dao.UserSearchPage;
+import com.example.userservice.entity.User;
+import com.example.userservice.entity.UserPatch;
+import com.example.userservice.entity.UserView;
+import com.example.userservice.util.UserJson;
+import com.example.userservice.util.UserJsonReader;
+import com.example.userservice.util.UserJsonWriter;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.hibernate.ObjectNotFoundException;
+import org.hibernate.StaleObjectStateException;
+import org.hibernate.exception.ConstraintViolationException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.format.DateTimeParseException;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Stream;
+
+/**
+ * Встроенный HTTP/1.1-сервер поверх {@link UserController} (JSON, keep-alive по умолчанию):
+ * <pre>
+ *   GET    /users?afterId=&amp;limit=   страница пользователей по возрастанию id
+ *   GET    /users/all                 все пользователи, потоком из курсора
+ *   GET    /users/search?...          поиск (name, namePrefix, minAge, maxAge, createdFrom, createdBefore,
+ *                                     sort=id|created_at|name, order=asc|desc, limit, after);
+ *                                     токен следующей страницы — в заголовке X-Next-Page
+ *   GET    /users/suggest?q=&amp;limit=   подсказки по началу слов имени и email из индекса в памяти
+ *   GET    /users/stats/count?minAge=&amp;maxAge=
+ *                                     число пользователей, при заданных границах — в диапазоне возраста
+ *   GET    /users/stats/ages?bucket=10   гистограмма возраста {"20":5,...}
+ *   GET    /users/stats/signups?from=&amp;to=
+ *                                     регистрации по дням (UTC) {"2024-01-01":3,...}
+ *   POST   /users                     создание
+ *   GET    /users/{id}                чтение; версия пользователя — в заголовке ETag
+ *   PUT    /users/{id}                замена name/email/age без чтения строки, ответ 204;
+ *                                     с If-Match — только если версия не изменилась
+ *   DELETE /users/{id}                удаление
+ * </pre>
+ * Каждый запрос обрабатывается в своём виртуальном потоке. Число одновременно обрабатываемых запросов
+ * ограничено; сверх лимита сервер сразу отвечает 429 с Retry-After, а не копит очередь.
+ * Списки пишутся через {@link UserJsonWriter} прямо в тело ответа (chunked), без сборки строки.
+ */
+public class UserHttpServer implements AutoCloseable {
+
+    private static final Logger log = LoggerFactory.getLogger(UserHttpServer.class);
+
+    public static final int DEFAULT_MAX_CONCURRENT_REQUESTS = 256;
+    static final int DEFAULT_PAGE_SIZE = 100;
+    static final int MAX_BODY_BYTES = 64 * 1024;
+    static final int STREAM_FETCH_SIZE = 1000;
+
+    private static final String USERS_PATH = "/users";
+    private static final String ALL_PATH = "/all";
+    private static final String SEARCH_PATH = "/search";
+    private static final String SUGGEST_PATH = "/suggest";
+    private static final String STATS_PATH = "/stats/";
+    private static final int DEFAULT_AGE_BUCKET = 10;
+    static final String NEXT_PAGE_HEADER = "X-Next-Page";
+    private static final int SINGLE_USER_BYTES = 256;
+    private static final String JSON = "application/json; charset=utf-8";
+    private static final int BACKLOG = 1024;
+    private static final int STOP_DELAY_SECONDS = 2;
+    private static final String EMAIL_CONSTRAINT = "uk_users_email";
+
+    private final UserController controller;
+    private final HttpServer server;
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+    private final Semaphore requestPermits;
+    private final int maxConcurrentRequests;
+    private final LongAdder rejectedRequests = new LongAdder();
+
+    public UserHttpServer(UserController controller, InetSocketAddress address, int maxConcurrentRequests)
+            throws IOException {
+        if (maxConcurrentRequests <= 0) {
+            throw new IllegalArgumentException("Лимит одновременных запросов должен быть положительным");
+        }
+        this.controller = controller;
+        this.maxConcurrentRequests = maxConcurrentRequests;
+        this.requestPermits = new Semaphore(maxConcurrentRequests);
+        this.server = HttpServer.create(address, BACKLOG);
+        server.createContext(USERS_PATH, this::handle);
+        server.setExecutor(executor);
+    }
+
+    public void start() {
+        server.start();
+        log.info("HTTP-сервер запущен на порту {}", port());
+    }
+
+    public int port() {
+        return server.getAddress().getPort();
+    }
+
+    public long rejectedRequests() {
+        return rejectedRequests.sum();
+    }
+
+    @Override
+    public void close() {
+        // забираем все разрешения: текущие запросы дорабатывают, новые получают 429;
+        // stop с задержкой ждал бы ещё и простаивающие keep-alive соединения
+        try {
+            if (!requestPermits.tryAcquire(maxConcurrentRequests, STOP_DELAY_SECONDS, TimeUnit.SECONDS)) {
+                log.warn("Не все запросы завершились за {} с, сервер останавливается принудительно", STOP_DELAY_SECONDS);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        server.stop(0);
+        executor.close();
+        log.info("HTTP-сервер остановлен");
+    }
+
+    private void handle(HttpExchange exchange) {
+        try (exchange) {
+            if (!requestPermits.tryAcquire()) {
+                rejectedRequests.increment();
+                exchange.getResponseHeaders().set("Retry-After", "1");
+                send(exchange, 429, UserJson.writeError("Сервер перегружен, повторите запрос позже"));
+                return;
+            }
+            try {
+                route(exchange);
+            } catch (HttpError e) {
+                send(exchange, e.status, UserJson.writeError(e.getMessage()));
+            } catch (IllegalArgumentException e) {
+                send(exchange, 400, UserJson.writeError(e.getMessage()));
+            } catch (DaoException e) {
+                HttpError error = clientError(e);
+                if (error == null) {
+                    log.error("Ошибка обработки запроса {} {}", exchange.getRequestMethod(), exchange.getRequestURI(), e);
+                    send(exchange, 500, UserJson.writeError("Внутренняя ошибка сервера"));
+                } else {
+                    send(exchange, error.status, UserJson.writeError(error.getMessage()));
+                }
+            } catch (Exception e) {
+                log.error("Ошибка обработки запроса {} {}", exchange.getRequestMethod(), exchange.getRequestURI(), e);
+                send(exchange, 500, UserJson.writeError("Внутренняя ошибка сервера"));
+            } finally {
+                requestPermits.release();
+            }
+        } catch (IOException e) {
+            log.debug("Не удалось отправить ответ: {}", e.getMessage());
+        }
+    }
+
+    private void route(HttpExchange exchange) throws IOException {
+        String path = exchange.getRequestURI().getPath();
+        String method = exchange.getRequestMethod();
+        String rest = path.substring(USERS_PATH.length());
+        if (rest.isEmpty() || rest.equals("/")) {
+            switch (method) {
+                case "GET" -> list(exchange);
+                case "POST" -> create(exchange);
+                default -> methodNotAllowed(exchange, "GET, POST");
+            }
+            return;
+        }
+        if (rest.equals(ALL_PATH)) {
+            if (method.equals("GET")) {
+                all(exchange);
+            } else {
+                methodNotAllowed(exchange, "GET");
+            }
+            return;
+        }
+        if (rest.equals(SEARCH_PATH)) {
+            if (method.equals("GET")) {
+                search(exchange);
+            } else {
+                methodNotAllowed(exchange, "GET");
+            }
+            return;
+        }
+        if (rest.startsWith(STATS_PATH)) {
+            if (method.equals("GET")) {
+                stats(exchange, rest.substring(STATS_PATH.length()));
+            } else {
+                methodNotAllowed(exchange, "GET");
+            }
+            return;
+        }
+        if (rest.equals(SUGGEST_PATH)) {
+            if (method.equals("GET")) {
+                suggest(exchange);
+            } else {
+                methodNotAllowed(exchange, "GET");
+            }
+            return;
+        }
+        Long id = parseId(rest);
+        switch (method) {
+            case "GET" -> get(exchange, id);
+            case "PUT" -> update(exchange, id);
+            case "DELETE" -> delete(exchange, id);
+            default -> methodNotAllowed(exchange, "GET, PUT, DELETE");
+        }
+    }
+
+    private void list(HttpExchange exchange) throws IOException {
+        Map<String, String> params = queryParams(exchange);
+        Long afterId = params.containsKey("afterId") ? parseLong(params.get("afterId"), "afterId") : null;
+        int limit = params.containsKey("limit")
+                ? (int) Math.min(parseLong(params.get("limit"), "limit"), Integer.MAX_VALUE)
+                : DEFAULT_PAGE_SIZE;
+        // страница только отображается — проекции вместо сущностей
+        List<UserView> page = controller.getUserViewsPage(afterId, limit);
+        sendViews(exchange, page.iterator());
+    }
+
+    private void all(HttpExchange exchange) throws IOException {
+        try (Stream<User> users = controller.streamAllUsers(STREAM_FETCH_SIZE)) {
+            sendUsers(exchange, users.iterator());
+        }
+    }
+
+    private void search(HttpExchange exchange) throws IOException {
+        Map<String, String> params = queryParams(exchange);
+        UserQuery query = UserQuery.create()
+                .nameContains(params.get("name"))
+                .nameStartsWith(params.get("namePrefix"))
+                .ageBetween(parseInt(params.get("minAge"), "minAge"), parseInt(params.get("maxAge"), "maxAge"))
+                .createdBetween(parseInstant(params.get("createdFrom"), "createdFrom"),
+                        parseInstant(params.get("createdBefore"), "createdBefore"))
+                .sortBy(parseSort(params.getOrDefault("sort", "id")), parseDescending(params.get("order")))
+                .after(params.get("after"));
+        if (params.containsKey("limit")) {
+            query.limit((int) Math.min(parseLong(params.get("limit"), "limit"), Integer.MAX_VALUE));
+        }
+        UserSearchPage page = controller.searchUsers(query);
+        if (page.hasNext()) {
+            exchange.getResponseHeaders().set(NEXT_PAGE_HEADER, page.next());
+        }
+        sendViews(exchange, page.users().iterator());
+    }
+
+    private void suggest(HttpExchange exchange) throws IOException {
+        if (!controller.isAutocompleteEnabled()) {
+            throw new HttpError(404, "Подсказки не включены");
+        }
+        Map<String, String> params = queryParams(exchange);
+        int limit = params.containsKey("limit")
+                ? (int) Math.min(parseLong(params.get("limit"), "limit"), Integer.MAX_VALUE)
+                : AutocompleteIndex.DEFAULT_LIMIT;
+        sendViews(exchange, controller.suggestUsers(params.getOrDefault("q", ""), limit).iterator());
+    }
+
+    // агрегаты считаются в базе, а не выборкой всех строк
+    private void stats(HttpExchange exchange, String name) throws IOException {
+        Map<String, String> params = queryParams(exchange);
+        String json = switch (name) {
+            case "count" -> {
+                Integer minAge = parseInt(params.get("minAge"), "minAge");
+                Integer maxAge = parseInt(params.get("maxAge"), "maxAge");
+                yield UserJson.writeCount(minAge == null && maxAge == null
+                        ? controller.countUsers()
+                        : controller.countByAgeRange(minAge == null ? 0 : minAge,
+                        maxAge == null ? Integer.MAX_VALUE : maxAge));
+            }
+            case "ages" -> {
+                Integer bucket = parseInt(params.get("bucket"), "bucket");
+                yield UserJson.writeCounts(controller.getAgeHistogram(bucket == null ? DEFAULT_AGE_BUCKET : bucket));
+            }
+            case "signups" -> UserJson.writeCounts(controller.getSignupsByDay(
+                    parseInstant(params.get("from"), "from"), parseInstant(params.get("to"), "to")));
+            default -> throw new HttpError(404, "Не найдено");
+        };
+        send(exchange, 200, json);
+    }
+
+    private void create(HttpExchange exchange) throws IOException {
+        User created = controller.createUser(UserJsonReader.read(readBody(exchange)));
+        exchange.getResponseHeaders().set("Location", USERS_PATH + "/" + created.getId());
+        setETag(exchange, created.getVersion());
+        sendUser(exchange, 201, created);
+    }
+
+    // сущность, а не проекция: ETag с версией нужен клиенту для условного PUT
+    private void get(HttpExchange exchange, Long id) throws IOException {
+        User user = controller.getUser(id).orElseThrow(() -> notFound(id));
+        setETag(exchange, user.getVersion());
+        sendUser(exchange, 200, user);
+    }
+
+    // createdAt и прочее не меняются, поэтому строка не читается: UPDATE только заданных полей
+    private void update(HttpExchange exchange, Long id) throws IOException {
+        UserPatch patch = UserPatch.of(UserJsonReader.read(readBody(exchange)));
+        Long expectedVersion = parseIfMatch(exchange.getRequestHeaders().getFirst("If-Match"));
+        if (expectedVersion != null) {
+            patch.expectedVersion(expectedVersion);
+        }
+        if (!controller.patchUser(id, patch)) {
+            throw notFound(id);
+        }
+        if (expectedVersion != null) {
+            setETag(exchange, expectedVersion + 1);
+        }
+        exchange.sendResponseHeaders(204, -1);
+    }
+
+    private void delete(HttpExchange exchange, Long id) throws IOException {
+        if (!controller.deleteUser(id)) {
+            throw notFound(id);
+        }
+        exchange.sendResponseHeaders(204, -1);
+    }
+
+    private static void setETag(HttpExchange exchange, Long version) {
+        if (version != null) {
+            exchange.getResponseHeaders().set("ETag", "\"" + version + "\"");
+        }
+    }
+
+    // "7" или W/"7"; * — любая существующая версия
+    private static Long parseIfMatch(String value) {
+        if (value == null || value.isBlank() || value.strip().equals("*")) {
+            return null;
+        }
+        String tag = value.strip();
+        if (tag.startsWith("W/")) {
+            tag = tag.substring(2);
+        }
+        if (tag.length() < 3 || tag.length() > 20 || !tag.startsWith("\"") || !tag.endsWith("\"")
+                || !tag.substring(1, tag.length() - 1).chars().allMatch(Character::isDigit)) {
+            throw new IllegalArgumentException("Некорректный заголовок If-Match");
+        }
+        return Long.valueOf(tag.substring(1, tag.length() - 1));
+    }
+
+    private static void methodNotAllowed(HttpExchange exchange, String allowed) throws IOException {
+        exchange.getResponseHeaders().set("Allow", allowed);
+        send(exchange, 405, UserJson.writeError("Метод не поддерживается"));
+    }
+
+    private static byte[] readBody(HttpExchange exchange) throws IOException {
+        try (InputStream in = exchange.getRequestBody()) {
+            byte[] body = in.readNBytes(MAX_BODY_BYTES + 1);
+            if (body.length > MAX_BODY_BYTES) {
+                throw new HttpError(413, "Тело запроса больше " + MAX_BODY_BYTES + " байт");
+            }
+            return body;
+        }
+    }
+
+    private static void send(HttpExchange exchange, int status, String json) throws IOException {
+        byte[] bytes = json.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", JSON);
+        exchange.sendResponseHeaders(status, bytes.length);
+        exchange.getResponseBody().write(bytes);
+    }
+
+    private static void sendUser(HttpExchange exchange, int status, User user) throws IOException {
+        ByteArrayOutputStream body = new ByteArrayOutputStream(SINGLE_USER_BYTES);
+        new UserJsonWriter(body, SINGLE_USER_BYTES).writeUser(user).flush();
+        sendBody(exchange, status, body);
+    }
+
+    private static void sendBody(HttpExchange exchange, int status, ByteArrayOutputStream body) throws IOException {
+        exchange.getResponseHeaders().set("Content-Type", JSON);
+        exchange.sendResponseHeaders(status, body.size());
+        body.writeTo(exchange.getResponseBody());
+    }
+
+    private static void sendUsers(HttpExchange exchange, Iterator<User> users) throws IOException {
+        exchange.getResponseHeaders().set("Content-Type", JSON);
+        // длина заранее неизвестна — chunked
+        exchange.sendResponseHeaders(200, 0);
+        UserJsonWriter writer = new UserJsonWriter(exchange.getResponseBody());
+        writer.writeArray(users);
+        writer.flush();
+    }
+
+    private static void sendViews(HttpExchange exchange, Iterator<UserView> users) throws IOException {
+        exchange.getResponseHeaders().set("Content-Type", JSON);
+        exchange.sendResponseHeaders(200, 0);
+        UserJsonWriter writer = new UserJsonWriter(exchange.getResponseBody());
+        writer.writeViewArray(users);
+        writer.flush();
+    }
+
+    private static Long parseId(String rest) {
+        String value = rest.substring(1);
+        if (value.isEmpty() || value.length() > 18 || !value.chars().allMatch(Character::isDigit)) {
+            throw new HttpError(404, "Не найдено");
+        }
+        return Long.valueOf(value);
+    }
+
+    private static long parseLong(String value, String name) {
+        try {
+            return Long.parseLong(value);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Некорректное значение параметра " + name);
+        }
+    }
+
+    private static Integer parseInt(String value, String name) {
+        if (value == null || value.isEmpty()) {
+            return null;
+        }
+        try {
+            return Integer.valueOf(value);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Некорректное значение параметра " + name);
+        }
+    }
+
+    private static Instant parseInstant(String value, String name) {
+        if (value == null || value.isEmpty()) {
+            return null;
+        }
+        try {
+            return Instant.parse(value);
+        } catch (DateTimeParseException e) {
+            throw new IllegalArgumentException("Некорректное значение параметра " + name);
+        }
+    }
+
+    private static UserQuery.SortBy parseSort(String value) {
+        return switch (value) {
+            case "id" -> UserQuery.SortBy.ID;
+            case "created_at" -> UserQuery.SortBy.CREATED_AT;
+            case "name" -> UserQuery.SortBy.NAME;
+            default -> throw new IllegalArgumentException("Некорректное значение параметра sort");
+        };
+    }
+
+    private static boolean parseDescending(String value) {
+        if (value == null || value.equals("asc")) {
+            return false;
+        }
+        if (value.equals("desc")) {
+            return true;
+        }
+        throw new IllegalArgumentException("Некорректное значение параметра order");
+    }
+
+    private static Map<String, String> queryParams(HttpExchange exchange) {
+        String query = exchange.getRequestURI().getRawQuery();
+        Map<String, String> params = new HashMap<>();
+        if (query == null || query.isEmpty()) {
+            return params;
+        }
+        for (String pair : query.split("&")) {
+            int eq = pair.indexOf('=');
+            String key = eq < 0 ? pair : pair.substring(0, eq);
+            String value = eq < 0 ? "" : pair.substring(eq + 1);
+            params.put(URLDecoder.decode(key, StandardCharsets.UTF_8), URLDecoder.decode(value, StandardCharsets.UTF_8));
+        }
+        return params;
+    }
+
+    // ошибки DAO, вызванные самим запросом, а не сбоем базы
+    private static HttpError clientError(DaoException e) {
+        for (Throwable cause = e.getCause(); cause != null; cause = cause.getCause()) {
+            if (cause instanceof ConstraintViolationException violation
+                    && EMAIL_CONSTRAINT.equalsIgnoreCase(violation.getConstraintName())) {
+                return new HttpError(409, "Пользователь с таким email уже существует");
+            }
+            if (cause instanceof StaleObjectStateException) {
+                return new HttpError(412, "Пользователь уже изменён, перечитайте данные");
+            }
+            if (cause instanceof ObjectNotFoundException notFound && notFound.getIdentifier() instanceof Long id) {
+                return notFound(id);
+            }
+        }
+        return null;
+    }
+
+    private static HttpError notFound(Long id) {
+        return new HttpError(404, "Пользователь с ID " + id + " не найден");
+    }
+
+    private static final class HttpError extends RuntimeException {
+        private final int status;
+
+        HttpError(int status, String message) {
+            super(message);
+            this.status = status;
+        }
+    }
+}
@@ -0,0 +1,291 @@
+package com.example.userservice.dao;
+
+import com.example.userservice.entity.User;
+import com.example.userservice.entity.UserPatch;
+import com.example.userservice.entity.UserView;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.SortedMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Декоратор {@link UserDao}, склеивающий одновременные {@link #findById} в один {@link UserDao#findByIds}.
+ * Первый id открывает окно: пачка уходит в базу по истечении окна или сразу, как только набралось
+ * {@code maxBatchSize} id. Повторный запрос id, который уже ждёт ответа, получает тот же результат,
+ * а не новый запрос. Каждый вызывающий получает свою копию пользователя.
+ * Запись через этот DAO отцепляет уже отправленное чтение своего id: оно могло прочитать строку
+ * до записи, и чтения после неё идут новым запросом.
+ * <p>
+ * Пачки читаются не больше чем в {@code loaderThreads} потоков — по числу соединений пула; лишние
+ * пачки ждут в очереди, а не занимают соединения. Остальные методы просто делегируются.
+ */
+public class BatchingUserDao implements UserDao, AutoCloseable {
+
+    static final int DEFAULT_MAX_BATCH_SIZE = 100;
+    static final Duration DEFAULT_WINDOW = Duration.ofMillis(1);
+    // размер пула соединений по умолчанию (hibernate.hikari.maximumPoolSize)
+    static final int DEFAULT_LOADER_THREADS = 10;
+
+    private final UserDao delegate;
+    private final int maxBatchSize;
+    private final long windowNanos;
+
+    // отправленные в базу пачки; ещё не отправленные лежат в batch
+    private final Map<Long, CompletableFuture<Optional<User>>> inFlight = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService timer = Executors.newSingleThreadScheduledExecutor(
+            Thread.ofPlatform().name("user-batch-timer").daemon().factory());
+    // пачки читаются в платформенных потоках: ждущий findById может быть виртуальным потоком,
+    // прикреплённым к носителю (synchronized внутри compute кэша), и загрузчику в виртуальном потоке
+    // тогда может не достаться свободного носителя
+    private final ExecutorService loaders;
+
+    private final Object lock = new Object();
+    private Map<Long, CompletableFuture<Optional<User>>> batch = new LinkedHashMap<>();
+    private ScheduledFuture<?> windowTimer;
+
+    public BatchingUserDao(UserDao delegate) {
+        this(delegate, DEFAULT_LOADER_THREADS);
+    }
+
+    public BatchingUserDao(UserDao delegate, int loaderThreads) {
+        this(delegate, DEFAULT_MAX_BATCH_SIZE, DEFAULT_WINDOW, loaderThreads);
+    }
+
+    public BatchingUserDao(UserDao delegate, int maxBatchSize, Duration window) {
+        this(delegate, maxBatchSize, window, DEFAULT_LOADER_THREADS);
+    }
+
+    public BatchingUserDao(UserDao delegate, int maxBatchSize, Duration window, int loaderThreads) {
+        if (maxBatchSize <= 0) {
+            throw new IllegalArgumentException("Размер пачки должен быть положительным");
+        }
+        if (loaderThreads <= 0) {
+            throw new IllegalArgumentException("Число потоков загрузки должно быть положительным");
+        }
+        this.delegate = delegate;
+        this.maxBatchSize = maxBatchSize;
+        this.windowNanos = window.toNanos();
+        this.loaders = Executors.newFixedThreadPool(loaderThreads,
+                Thread.ofPlatform().name("user-batch-loader-", 0).daemon().factory());
+    }
+
+    @Override
+    public Optional<User> findById(Long id) {
+        if (id == null) {
+            return delegate.findById(null);
+        }
+        try {
+            return load(id).join().map(User::new);
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof DaoException dao) {
+                throw dao;
+            }
+            throw new DaoException("Ошибка при поиске пользователя по ID", e.getCause());
+        }
+    }
+
+    private CompletableFuture<Optional<User>> load(Long id) {
+        Map<Long, CompletableFuture<Optional<User>>> full = null;
+        CompletableFuture<Optional<User>> result;
+        synchronized (lock) {
+            result = batch.get(id);
+            if (result == null) {
+                result = inFlight.get(id);
+            }
+            if (result != null) {
+                return result;
+            }
+            result = new CompletableFuture<>();
+            batch.put(id, result);
+            if (batch.size() >= maxBatchSize) {
+                full = takeBatch();
+            } else if (batch.size() == 1) {
+                windowTimer = timer.schedule(this::dispatchPending, windowNanos, TimeUnit.NANOSECONDS);
+            }
+        }
+        if (full != null) {
+            dispatch(full);
+        }
+        return result;
+    }
+
+    private void dispatchPending() {
+        Map<Long, CompletableFuture<Optional<User>>> ids;
+        synchronized (lock) {
+            if (batch.isEmpty()) {
+                return;
+            }
+            ids = takeBatch();
+        }
+        dispatch(ids);
+    }
+
+    // вызывается под lock
+    private Map<Long, CompletableFuture<Optional<User>>> takeBatch() {
+        Map<Long, CompletableFuture<Optional<User>>> taken = batch;
+        batch = new LinkedHashMap<>();
+        inFlight.putAll(taken);
+        if (windowTimer != null) {
+            windowTimer.cancel(false);
+            windowTimer = null;
+        }
+        return taken;
+    }
+
+    private void dispatch(Map<Long, CompletableFuture<Optional<User>>> pending) {
+        loaders.execute(() -> {
+            Map<Long, User> found = new HashMap<>();
+            try {
+                for (User user : delegate.findByIds(List.copyOf(pending.keySet()))) {
+                    found.put(user.getId(), user);
+                }
+            } catch (Throwable e) {
+                pending.forEach((id, future) -> {
+                    inFlight.remove(id, future);
+                    future.completeExceptionally(e);
+                });
+                return;
+            }
+            pending.forEach((id, future) -> {
+                // запись могла уже отцепить это чтение, а новое — занять место
+                inFlight.remove(id, future);
+                future.complete(Optional.ofNullable(found.get(id)));
+            });
+        });
+    }
+
+    // после записи новые findById не присоединяются к чтению, отправленному до неё
+    private void forget(Long id) {
+        if (id != null) {
+            inFlight.remove(id);
+        }
+    }
+
+    @Override
+    public User create(User user) {
+        return delegate.create(user);
+    }
+
+    @Override
+    public List<Long> createAll(Collection<User> users) {
+        return delegate.createAll(users);
+    }
+
+    @Override
+    public List<User> findByIds(Collection<Long> ids) {
+        return delegate.findByIds(ids);
+    }
+
+    @Override
+    public Optional<User> findByEmail(String email) {
+        return delegate.findByEmail(email);
+    }
+
+    @Override
+    public List<User> findByEmails(Collection<String> emails) {
+        return delegate.findByEmails(emails);
+    }
+
+    @Override
+    public List<User> findAll() {
+        return delegate.findAll();
+    }
+
+    @Override
+    public Stream<User> streamAll(int fetchSize) {
+        return delegate.streamAll(fetchSize);
+    }
+
+    @Override
+    public List<User> findPage(Long afterId, int limit) {
+        return delegate.findPage(afterId, limit);
+    }
+
+    @Override
+    public Optional<UserView> findViewById(Long id) {
+        return delegate.findViewById(id);
+    }
+
+    @Override
+    public List<UserView> findViewPage(Long afterId, int limit) {
+        return delegate.findViewPage(afterId, limit);
+    }
+
+    @Override
+    public UserSearchPage search(UserQuery query) {
+        return delegate.search(query);
+    }
+
+    @Override
+    public long count() {
+        return delegate.count();
+    }
+
+    @Override
+    public long countByAgeBetween(int minInclusive, int maxInclusive) {
+        return delegate.countByAgeBetween(minInclusive, maxInclusive);
+    }
+
+    @Override
+    public SortedMap<Integer, Long> ageHistogram(int bucketWidth) {
+        return delegate.ageHistogram(bucketWidth);
+    }
+
+    @Override
+    public SortedMap<LocalDate, Long> signupsByDay(Instant from, Instant to) {
+        return delegate.signupsByDay(from, to);
+    }
+
+    @Override
+    public void update(User user) {
+        try {
+            delegate.update(user);
+        } finally {
+            if (user != null) {
+                forget(user.getId());
+            }
+        }
+    }
+
+    @Override
+    public int patch(Long id, UserPatch patch) {
+        try {
+            return delegate.patch(id, patch);
+        } finally {
+            forget(id);
+        }
+    }
+
+    @Override
+    public int deleteById(Long id) {
+        try {
+            return delegate.deleteById(id);
+        } finally {
+            forget(id);
+        }
+    }
+
+    @Override
+    public void close() {
+        timer.shutdownNow();
+        // ждущие окна запросы отправляем сразу, чтобы никто не завис на join
+        dispatchPending();
+        loaders.shutdown();
+    }
+}
@@ -0,0 +1,389 @@
+package com.example.userservice.dao;
+
+import com.example.userservice.entity.User;
+import com.example.userservice.entity.UserPatch;
+import com.example.userservice.entity.UserView;
+import com.example.userservice.util.ConcurrentLongMap;
+import org.hibernate.ObjectNotFoundException;
+import org.hibernate.StaleObjectStateException;
+import org.hibernate.exception.ConstraintViolationException;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.PriorityQueue;
+import java.util.SortedMap;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * {@link UserDao} целиком в памяти — для встраиваемого режима без PostgreSQL, бенчмарков и быстрых тестов.
+ * <p>
+ * Пользователи лежат в {@link ConcurrentLongMap} по примитивному id, рядом — индекс по нормализованному email.
+ * Уникальность email проверяется так же, как ограничение {@code uk_users_email}: дубликат без учёта регистра
+ * приводит к {@link DaoException} с {@link ConstraintViolationException} внутри. Изменения одного id
+ * сериализуются полосатой блокировкой, чтение идёт без блокировок. Наружу, как и из базы, отдаются копии.
+ * Версия для оптимистической блокировки ведётся так же, как колонкой {@code version}.
+ */
+public class InMemoryUserDao implements UserDao {
+
+    static final String EMAIL_CONSTRAINT = "uk_users_email";
+    private static final int LOCK_STRIPES = 256;
+
+    private final ConcurrentLongMap<User> users = new ConcurrentLongMap<>();
+    private final ConcurrentHashMap<String, User> byEmail = new ConcurrentHashMap<>();
+    private final AtomicLong ids = new AtomicLong();
+    private final Object[] locks = new Object[LOCK_STRIPES];
+
+    public InMemoryUserDao() {
+        for (int i = 0; i < LOCK_STRIPES; i++) {
+            locks[i] = new Object();
+        }
+    }
+
+    @Override
+    public User create(User user) {
+        User stored = insert(user);
+        user.setId(stored.getId());
+        user.setCreatedAt(stored.getCreatedAt());
+        user.setVersion(stored.getVersion());
+        return user;
+    }
+
+    @Override
+    public List<Long> createAll(Collection<User> users) {
+        // всё или ничего, как одна транзакция в базе
+        List<User> inserted = new ArrayList<>(users.size());
+        try {
+            for (User user : users) {
+                inserted.add(insert(user));
+            }
+        } catch (RuntimeException e) {
+            inserted.forEach(stored -> deleteById(stored.getId()));
+            throw e;
+        }
+        List<Long> result = new ArrayList<>(inserted.size());
+        int i = 0;
+        for (User user : users) {
+            User stored = inserted.get(i++);
+            user.setId(stored.getId());
+            user.setCreatedAt(stored.getCreatedAt());
+            user.setVersion(stored.getVersion());
+            result.add(stored.getId());
+        }
+        return result;
+    }
+
+    private User insert(User user) {
+        // точность created_at в базе — микросекунды
+        User stored = new User(ids.incrementAndGet(), user.getName(), user.getEmail(), user.getAge(),
+                Instant.now().truncatedTo(ChronoUnit.MICROS));
+        stored.setVersion(0L);
+        if (byEmail.putIfAbsent(stored.getEmailNormalized(), stored) != null) {
+            throw duplicateEmail("Ошибка при создании пользователя", user.getEmail());
+        }
+        users.put(stored.getId(), stored);
+        return stored;
+    }
+
+    @Override
+    public Optional<User> findById(Long id) {
+        if (id == null) {
+            return Optional.empty();
+        }
+        return Optional.ofNullable(users.get(id)).map(User::new);
+    }
+
+    @Override
+    public List<User> findByIds(Collection<Long> ids) {
+        List<User> found = new ArrayList<>(ids.size());
+        for (Long id : new LinkedHashSet<>(ids)) {
+            User user = id == null ? null : users.get(id);
+            if (user != null) {
+                found.add(new User(user));
+            }
+        }
+        return found;
+    }
+
+    @Override
+    public Optional<User> findByEmail(String email) {
+        if (email == null) {
+            return Optional.empty();
+        }
+        return Optional.ofNullable(byEmail.get(User.normalizeEmail(email))).map(User::new);
+    }
+
+    @Override
+    public List<User> findByEmails(Collection<String> emails) {
+        List<User> found = new ArrayList<>();
+        emails.stream()
+                .filter(Objects::nonNull)
+                .map(User::normalizeEmail)
+                .distinct()
+                .map(byEmail::get)
+                .filter(Objects::nonNull)
+                .forEach(user -> found.add(new User(user)));
+        return found;
+    }
+
+    @Override
+    public List<User> findAll() {
+        List<User> all = users.values();
+        all.replaceAll(User::new);
+        return all;
+    }
+
+    /**
+     * Ленивый обход по возрастанию id страницами по {@code fetchSize}, как курсор в базе:
+     * весь набор в памяти не копируется.
+     */
+    @Override
+    public Stream<User> streamAll(int fetchSize) {
+        if (fetchSize <= 0) {
+            throw new IllegalArgumentException("Размер порции должен быть положительным");
+        }
+        Spliterator<User> pages = new Spliterators.AbstractSpliterator<>(Long.MAX_VALUE,
+                Spliterator.ORDERED | Spliterator.NONNULL) {
+            private List<User> page = List.of();
+            private int index;
+            private long afterId;
+            private boolean exhausted;
+
+            @Override
+            public boolean tryAdvance(Consumer<? super User> action) {
+                if (index == page.size()) {
+                    if (exhausted) {
+                        return false;
+                    }
+                    page = findPage(afterId, fetchSize);
+                    index = 0;
+                    exhausted = page.size() < fetchSize;
+                    if (page.isEmpty()) {
+                        return false;
+                    }
+                    afterId = page.get(page.size() - 1).getId();
+                }
+                action.accept(page.get(index++));
+                return true;
+            }
+        };
+        return StreamSupport.stream(pages, false);
+    }
+
+    @Override
+    public List<User> findPage(Long afterId, int limit) {
+        long from = afterId == null ? 0 : afterId;
+        long maxId = ids.get();
+        if (limit <= 0 || from >= maxId) {
+            return List.of();
+        }
+        List<User> page = new ArrayList<>(Math.min(limit, 1024));
+        long range = maxId - from;
+        if (range <= 2 * users.size() + limit) {
+            // id выдаются подряд: пока дыр от удалений немного, дешевле пройти по ключам
+            for (long id = from + 1; id <= maxId && page.size() < limit; id++) {
+                User user = users.get(id);
+                if (user != null) {
+                    page.add(new User(user));
+                }
+            }
+            return page;
+        }
+        // разреженный диапазон: отбираем limit наименьших id одним проходом
+        PriorityQueue<User> smallest = new PriorityQueue<>(Comparator.comparing(User::getId).reversed());
+        for (User user : users.values()) {
+            if (user.getId() > from) {
+                smallest.add(user);
+                if (smallest.size() > limit) {
+                    smallest.poll();
+                }
+            }
+        }
+        smallest.forEach(user -> page.add(new User(user)));
+        page.sort(Comparator.comparing(User::getId));
+        return page;
+    }
+
+    @Override
+    public Optional<UserView> findViewById(Long id) {
+        return Optional.ofNullable(id == null ? null : users.get(id)).map(UserView::of);
+    }
+
+    @Override
+    public List<UserView> findViewPage(Long afterId, int limit) {
+        // findPage уже отдаёт копии, а проекция из копии ничего не стоит по сравнению с обходом
+        return findPage(afterId, limit).stream().map(UserView::of).toList();
+    }
+
+    /**
+     * Полный проход с фильтром и сортировкой в памяти. Имена сравниваются {@link String#compareTo},
+     * а не по правилам сортировки базы.
+     */
+    @Override
+    public UserSearchPage search(UserQuery query) {
+        Keyset position = query.getAfter()
+                .map(token -> Keyset.decode(token, query.getSortBy(), query.isDescending()))
+                .orElse(null);
+        Comparator<UserView> order = switch (query.getSortBy()) {
+            case ID -> Comparator.comparingLong(UserView::id);
+            case CREATED_AT -> Comparator.comparingLong(UserView::createdAtEpochMicros)
+                    .thenComparingLong(UserView::id);
+            case NAME -> Comparator.comparing(UserView::name).thenComparingLong(UserView::id);
+        };
+        if (query.isDescending()) {
+            order = order.reversed();
+        }
+        UserView after = position == null ? null : switch (query.getSortBy()) {
+            case ID -> new UserView(position.id(), null, null, null, 0);
+            case CREATED_AT -> new UserView(position.id(), null, null, null, position.createdAtMicros());
+            case NAME -> new UserView(position.id(), position.key(), null, null, 0);
+        };
+        Comparator<UserView> sortOrder = order;
+        List<UserView> rows = users.values().stream()
+                .map(UserView::of)
+                .filter(user -> matches(user, query))
+                .filter(user -> after == null || sortOrder.compare(user, after) > 0)
+                .sorted(sortOrder)
+                .limit(query.getLimit() + 1L)
+                .toList();
+        return UserSearchPage.fromRows(rows, query);
+    }
+
+    private static boolean matches(UserView user, UserQuery query) {
+        String name = user.name().toLowerCase(Locale.ROOT);
+        return query.getNameStartsWith().map(prefix -> name.startsWith(prefix.toLowerCase(Locale.ROOT))).orElse(true)
+                && query.getNameContains().map(part -> name.contains(part.toLowerCase(Locale.ROOT))).orElse(true)
+                && query.getMinAge().map(min -> user.age() != null && user.age() >= min).orElse(true)
+                && query.getMaxAge().map(max -> user.age() != null && user.age() <= max).orElse(true)
+                && query.getCreatedFrom().map(from -> !user.createdAt().isBefore(from)).orElse(true)
+                && query.getCreatedBefore().map(before -> user.createdAt().isBefore(before)).orElse(true);
+    }
+
+    @Override
+    public long count() {
+        return users.size();
+    }
+
+    @Override
+    public long countByAgeBetween(int minInclusive, int maxInclusive) {
+        return users.values().stream()
+                .filter(user -> user.getAge() != null && user.getAge() >= minInclusive && user.getAge() <= maxInclusive)
+                .count();
+    }
+
+    @Override
+    public SortedMap<Integer, Long> ageHistogram(int bucketWidth) {
+        if (bucketWidth <= 0) {
+            throw new IllegalArgumentException("Ширина корзины должна быть положительной");
+        }
+        return users.values().stream()
+                .filter(user -> user.getAge() != null)
+                .collect(Collectors.groupingBy(user -> Math.floorDiv(user.getAge(), bucketWidth) * bucketWidth,
+                        TreeMap::new, Collectors.counting()));
+    }
+
+    @Override
+    public SortedMap<LocalDate, Long> signupsByDay(Instant from, Instant to) {
+        return users.values().stream()
+                .map(User::getCreatedAt)
+                .filter(created -> (from == null || !created.isBefore(from)) && (to == null || created.isBefore(to)))
+                .collect(Collectors.groupingBy(created -> LocalDate.ofInstant(created, ZoneOffset.UTC),
+                        TreeMap::new, Collectors.counting()));
+    }
+
+    @Override
+    public void update(User user) {
+        if (user.getId() == null) {
+            throw new DaoException("Ошибка при обновлении пользователя",
+                    new IllegalArgumentException("У пользователя нет id"));
+        }
+        if (apply(user.getId(), UserPatch.of(user)) == 0) {
+            throw new DaoException("Ошибка при обновлении пользователя",
+                    new ObjectNotFoundException(User.class.getName(), user.getId()));
+        }
+        if (user.getVersion() != null) {
+            user.setVersion(user.getVersion() + 1);
+        }
+    }
+
+    @Override
+    public int patch(Long id, UserPatch patch) {
+        if (patch.isEmpty()) {
+            throw new IllegalArgumentException("Нет изменяемых полей");
+        }
+        return id == null ? 0 : apply(id, patch);
+    }
+
+    private int apply(long id, UserPatch patch) {
+        synchronized (lockFor(id)) {
+            User current = users.get(id);
+            if (current == null) {
+                return 0;
+            }
+            if (patch.getExpectedVersion().filter(version -> !version.equals(current.getVersion())).isPresent()) {
+                throw new DaoException("Пользователь с ID " + id + " уже изменён, перечитайте данные",
+                        new StaleObjectStateException(User.class.getName(), id));
+            }
+            // created_at в базе не обновляется
+            User updated = new User(current);
+            patch.applyTo(updated);
+            updated.setVersion(current.getVersion() + 1);
+            String email = updated.getEmailNormalized();
+            if (email.equals(current.getEmailNormalized())) {
+                byEmail.replace(email, current, updated);
+            } else {
+                if (byEmail.putIfAbsent(email, updated) != null) {
+                    throw duplicateEmail("Ошибка при обновлении пользователя", updated.getEmail());
+                }
+                byEmail.remove(current.getEmailNormalized(), current);
+            }
+            users.replace(id, current, updated);
+            return 1;
+        }
+    }
+
+    @Override
+    public int deleteById(Long id) {
+        if (id == null) {
+            return 0;
+        }
+        synchronized (lockFor(id)) {
+            User removed = users.remove(id);
+            if (removed == null) {
+                return 0;
+            }
+            byEmail.remove(removed.getEmailNormalized(), removed);
+            return 1;
+        }
+    }
+
+    public long size() {
+        return users.size();
+    }
+
+    private Object lockFor(long id) {
+        return locks[(int) (id & (LOCK_STRIPES - 1))];
+    }
+
+    private static DaoException duplicateEmail(String message, String email) {
+        return new DaoException(message, new ConstraintViolationException(
+                "Пользователь с email " + email + " уже существует", null, EMAIL_CONSTRAINT));
+    }
+}
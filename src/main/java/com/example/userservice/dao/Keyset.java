@@ -0,0 +1,66 @@
+package com.example.userservice.dao;
+
+import com.example.userservice.entity.UserView;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.Base64;
+
+/**
+ * Позиция в выдаче поиска: ключ сортировки и id последней отданной строки. Наружу уходит
+ * непрозрачным токеном; вместе с позицией в нём записана сортировка, чтобы токен нельзя было
+ * применить к выдаче в другом порядке.
+ */
+record Keyset(UserQuery.SortBy sortBy, boolean descending, long id, String key) {
+
+    static Keyset after(UserView last, UserQuery.SortBy sortBy, boolean descending) {
+        String key = switch (sortBy) {
+            case ID -> "";
+            case CREATED_AT -> Long.toString(last.createdAtEpochMicros());
+            case NAME -> last.name();
+        };
+        return new Keyset(sortBy, descending, last.id(), key);
+    }
+
+    static Keyset decode(String token, UserQuery.SortBy sortBy, boolean descending) {
+        String[] parts;
+        try {
+            parts = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8).split(":", 4);
+        } catch (IllegalArgumentException e) {
+            throw invalid();
+        }
+        if (parts.length != 4) {
+            throw invalid();
+        }
+        if (!parts[0].equals(sortBy.name()) || !parts[1].equals(descending ? "d" : "a")) {
+            throw new IllegalArgumentException("Токен продолжения получен для другой сортировки");
+        }
+        try {
+            Keyset keyset = new Keyset(sortBy, descending, Long.parseLong(parts[2]), parts[3]);
+            if (sortBy == UserQuery.SortBy.CREATED_AT) {
+                keyset.createdAtMicros();
+            }
+            return keyset;
+        } catch (NumberFormatException e) {
+            throw invalid();
+        }
+    }
+
+    String encode() {
+        String raw = sortBy.name() + ":" + (descending ? "d" : "a") + ":" + id + ":" + key;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    long createdAtMicros() {
+        return Long.parseLong(key);
+    }
+
+    Instant createdAt() {
+        return Instant.EPOCH.plus(createdAtMicros(), ChronoUnit.MICROS);
+    }
+
+    private static IllegalArgumentException invalid() {
+        return new IllegalArgumentException("Некорректный токен продолжения");
+    }
+}
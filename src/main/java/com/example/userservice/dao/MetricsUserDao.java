@@ -0,0 +1,162 @@
+package com.example.userservice.dao;
+
+import com.example.userservice.entity.User;
+import com.example.userservice.entity.UserPatch;
+import com.example.userservice.entity.UserView;
+import com.example.userservice.metrics.MetricsRegistry;
+import com.example.userservice.metrics.OperationMetrics;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.SortedMap;
+import java.util.stream.Stream;
+
+/**
+ * Декоратор {@link UserDao}, который замеряет каждый метод в {@link MetricsRegistry}
+ * под именами {@code UserDao.<метод>}. Для {@link #streamAll} замеряется только открытие курсора:
+ * чтение строк идёт уже у вызывающего.
+ */
+public class MetricsUserDao implements UserDao {
+
+    private final UserDao delegate;
+    private final OperationMetrics create;
+    private final OperationMetrics createAll;
+    private final OperationMetrics findById;
+    private final OperationMetrics findByIds;
+    private final OperationMetrics findByEmail;
+    private final OperationMetrics findByEmails;
+    private final OperationMetrics findAll;
+    private final OperationMetrics streamAll;
+    private final OperationMetrics findPage;
+    private final OperationMetrics findViewById;
+    private final OperationMetrics findViewPage;
+    private final OperationMetrics search;
+    private final OperationMetrics count;
+    private final OperationMetrics countByAgeBetween;
+    private final OperationMetrics ageHistogram;
+    private final OperationMetrics signupsByDay;
+    private final OperationMetrics update;
+    private final OperationMetrics patch;
+    private final OperationMetrics deleteById;
+
+    public MetricsUserDao(UserDao delegate, MetricsRegistry registry) {
+        this.delegate = delegate;
+        this.create = registry.operation("UserDao.create");
+        this.createAll = registry.operation("UserDao.createAll");
+        this.findById = registry.operation("UserDao.findById");
+        this.findByIds = registry.operation("UserDao.findByIds");
+        this.findByEmail = registry.operation("UserDao.findByEmail");
+        this.findByEmails = registry.operation("UserDao.findByEmails");
+        this.findAll = registry.operation("UserDao.findAll");
+        this.streamAll = registry.operation("UserDao.streamAll");
+        this.findPage = registry.operation("UserDao.findPage");
+        this.findViewById = registry.operation("UserDao.findViewById");
+        this.findViewPage = registry.operation("UserDao.findViewPage");
+        this.search = registry.operation("UserDao.search");
+        this.count = registry.operation("UserDao.count");
+        this.countByAgeBetween = registry.operation("UserDao.countByAgeBetween");
+        this.ageHistogram = registry.operation("UserDao.ageHistogram");
+        this.signupsByDay = registry.operation("UserDao.signupsByDay");
+        this.update = registry.operation("UserDao.update");
+        this.patch = registry.operation("UserDao.patch");
+        this.deleteById = registry.operation("UserDao.deleteById");
+    }
+
+    @Override
+    public User create(User user) {
+        return create.record(() -> delegate.create(user));
+    }
+
+    @Override
+    public List<Long> createAll(Collection<User> users) {
+        return createAll.record(() -> delegate.createAll(users));
+    }
+
+    @Override
+    public Optional<User> findById(Long id) {
+        return findById.record(() -> delegate.findById(id));
+    }
+
+    @Override
+    public List<User> findByIds(Collection<Long> ids) {
+        return findByIds.record(() -> delegate.findByIds(ids));
+    }
+
+    @Override
+    public Optional<User> findByEmail(String email) {
+        return findByEmail.record(() -> delegate.findByEmail(email));
+    }
+
+    @Override
+    public List<User> findByEmails(Collection<String> emails) {
+        return findByEmails.record(() -> delegate.findByEmails(emails));
+    }
+
+    @Override
+    public List<User> findAll() {
+        return findAll.record(delegate::findAll);
+    }
+
+    @Override
+    public Stream<User> streamAll(int fetchSize) {
+        return streamAll.record(() -> delegate.streamAll(fetchSize));
+    }
+
+    @Override
+    public List<User> findPage(Long afterId, int limit) {
+        return findPage.record(() -> delegate.findPage(afterId, limit));
+    }
+
+    @Override
+    public Optional<UserView> findViewById(Long id) {
+        return findViewById.record(() -> delegate.findViewById(id));
+    }
+
+    @Override
+    public List<UserView> findViewPage(Long afterId, int limit) {
+        return findViewPage.record(() -> delegate.findViewPage(afterId, limit));
+    }
+
+    @Override
+    public UserSearchPage search(UserQuery query) {
+        return search.record(() -> delegate.search(query));
+    }
+
+    @Override
+    public long count() {
+        return count.record(delegate::count);
+    }
+
+    @Override
+    public long countByAgeBetween(int minInclusive, int maxInclusive) {
+        return countByAgeBetween.record(() -> delegate.countByAgeBetween(minInclusive, maxInclusive));
+    }
+
+    @Override
+    public SortedMap<Integer, Long> ageHistogram(int bucketWidth) {
+        return ageHistogram.record(() -> delegate.ageHistogram(bucketWidth));
+    }
+
+    @Override
+    public SortedMap<LocalDate, Long> signupsByDay(Instant from, Instant to) {
+        return signupsByDay.record(() -> delegate.signupsByDay(from, to));
+    }
+
+    @Override
+    public void update(User user) {
+        update.record(() -> delegate.update(user));
+    }
+
+    @Override
+    public int patch(Long id, UserPatch changes) {
+        return patch.record(() -> delegate.patch(id, changes));
+    }
+
+    @Override
+    public int deleteById(Long id) {
+        return deleteById.record(() -> delegate.deleteById(id));
+    }
+}
@@ -0,0 +1,273 @@
+package com.example.userservice.dao;
+
+import com.example.userservice.entity.User;
+import com.example.userservice.entity.UserPatch;
+import com.example.userservice.entity.UserView;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.SortedMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+import java.util.function.LongSupplier;
+import java.util.stream.Stream;
+
+/**
+ * Декоратор, разводящий запросы между основной базой и репликой: запись всегда идёт в {@code primary},
+ * чтение — в {@code replica}.
+ * <p>
+ * Реплика отстаёт от основной базы, поэтому пользователи, записанные через этот DAO за последние
+ * {@code readYourWrites}, читаются по id и email из основной базы. Окно привязано к пользователю, а не
+ * к потоку: каждый HTTP-запрос идёт в новом виртуальном потоке, и следующее чтение того же клиента
+ * пришло бы из другого. Списки, поиск и агрегаты по-прежнему читаются из реплики и могут отставать
+ * на её лаг; поиск по прежнему email после его смены или удаления — тоже.
+ * Если реплика ответила ошибкой, чтение повторяется в основной базе, а следующие {@code retryAfter}
+ * все чтения идут туда же.
+ */
+public class ReplicaRoutingUserDao implements UserDao {
+
+    private static final Logger log = LoggerFactory.getLogger(ReplicaRoutingUserDao.class);
+
+    static final Duration DEFAULT_RETRY_AFTER = Duration.ofSeconds(5);
+    // раз в столько записей из окна выметаются истёкшие отметки; без записей карты не растут
+    private static final int SWEEP_EVERY = 1024;
+
+    private final UserDao primary;
+    private final UserDao replica;
+    private final long readYourWritesNanos;
+    private final long retryAfterNanos;
+    private final LongSupplier nanoClock;
+
+    // время последней записи по id и нормализованному email
+    private final Map<Long, Long> writtenIds = new ConcurrentHashMap<>();
+    private final Map<String, Long> writtenEmails = new ConcurrentHashMap<>();
+    private final AtomicLong writes = new AtomicLong();
+    private volatile long replicaDownUntil;
+    private volatile boolean replicaDown;
+
+    private final LongAdder replicaReads = new LongAdder();
+    private final LongAdder primaryReads = new LongAdder();
+    private final LongAdder fallbacks = new LongAdder();
+
+    public ReplicaRoutingUserDao(UserDao primary, UserDao replica, Duration readYourWrites) {
+        this(primary, replica, readYourWrites, DEFAULT_RETRY_AFTER, System::nanoTime);
+    }
+
+    ReplicaRoutingUserDao(UserDao primary, UserDao replica, Duration readYourWrites, Duration retryAfter,
+                          LongSupplier nanoClock) {
+        if (readYourWrites.isNegative() || retryAfter.isNegative()) {
+            throw new IllegalArgumentException("Интервалы не могут быть отрицательными");
+        }
+        this.primary = primary;
+        this.replica = replica;
+        this.readYourWritesNanos = readYourWrites.toNanos();
+        this.retryAfterNanos = retryAfter.toNanos();
+        this.nanoClock = nanoClock;
+    }
+
+    @Override
+    public User create(User user) {
+        User created = primary.create(user);
+        markWrite(created.getId(), created.getEmail());
+        return created;
+    }
+
+    @Override
+    public List<Long> createAll(Collection<User> users) {
+        List<Long> ids = primary.createAll(users);
+        ids.forEach(id -> markWrite(id, null));
+        users.forEach(user -> markWrite(null, user.getEmail()));
+        return ids;
+    }
+
+    @Override
+    public Optional<User> findById(Long id) {
+        return read(recentlyWritten(writtenIds, id), dao -> dao.findById(id));
+    }
+
+    @Override
+    public List<User> findByIds(Collection<Long> ids) {
+        boolean written = ids != null && ids.stream().anyMatch(id -> recentlyWritten(writtenIds, id));
+        return read(written, dao -> dao.findByIds(ids));
+    }
+
+    @Override
+    public Optional<User> findByEmail(String email) {
+        return read(recentlyWritten(writtenEmails, User.normalizeEmail(email)), dao -> dao.findByEmail(email));
+    }
+
+    @Override
+    public List<User> findByEmails(Collection<String> emails) {
+        boolean written = emails != null && emails.stream()
+                .anyMatch(email -> recentlyWritten(writtenEmails, User.normalizeEmail(email)));
+        return read(written, dao -> dao.findByEmails(emails));
+    }
+
+    @Override
+    public List<User> findAll() {
+        return read(UserDao::findAll);
+    }
+
+    // ошибка посреди уже открытого потока не повторяется: часть строк вызывающий уже получил
+    @Override
+    public Stream<User> streamAll(int fetchSize) {
+        return read(dao -> dao.streamAll(fetchSize));
+    }
+
+    @Override
+    public List<User> findPage(Long afterId, int limit) {
+        return read(dao -> dao.findPage(afterId, limit));
+    }
+
+    @Override
+    public Optional<UserView> findViewById(Long id) {
+        return read(recentlyWritten(writtenIds, id), dao -> dao.findViewById(id));
+    }
+
+    @Override
+    public List<UserView> findViewPage(Long afterId, int limit) {
+        return read(dao -> dao.findViewPage(afterId, limit));
+    }
+
+    @Override
+    public UserSearchPage search(UserQuery query) {
+        return read(dao -> dao.search(query));
+    }
+
+    @Override
+    public long count() {
+        return read(UserDao::count);
+    }
+
+    @Override
+    public long countByAgeBetween(int minInclusive, int maxInclusive) {
+        return read(dao -> dao.countByAgeBetween(minInclusive, maxInclusive));
+    }
+
+    @Override
+    public SortedMap<Integer, Long> ageHistogram(int bucketWidth) {
+        return read(dao -> dao.ageHistogram(bucketWidth));
+    }
+
+    @Override
+    public SortedMap<LocalDate, Long> signupsByDay(Instant from, Instant to) {
+        return read(dao -> dao.signupsByDay(from, to));
+    }
+
+    @Override
+    public void update(User user) {
+        try {
+            primary.update(user);
+        } finally {
+            markWrite(user.getId(), user.getEmail());
+        }
+    }
+
+    @Override
+    public int patch(Long id, UserPatch patch) {
+        try {
+            return primary.patch(id, patch);
+        } finally {
+            markWrite(id, patch.getEmail().orElse(null));
+        }
+    }
+
+    @Override
+    public int deleteById(Long id) {
+        try {
+            return primary.deleteById(id);
+        } finally {
+            markWrite(id, null);
+        }
+    }
+
+    public long replicaReads() {
+        return replicaReads.sum();
+    }
+
+    public long primaryReads() {
+        return primaryReads.sum();
+    }
+
+    /**
+     * Сколько чтений пришлось повторить в основной базе из-за ошибки реплики.
+     */
+    public long fallbacks() {
+        return fallbacks.sum();
+    }
+
+    private <T> T read(Function<UserDao, T> query) {
+        return read(false, query);
+    }
+
+    private <T> T read(boolean recentlyWritten, Function<UserDao, T> query) {
+        if (recentlyWritten || !useReplica(nanoClock.getAsLong())) {
+            primaryReads.increment();
+            return query.apply(primary);
+        }
+        try {
+            T result = query.apply(replica);
+            replicaReads.increment();
+            return result;
+        } catch (DaoException e) {
+            replicaDownUntil = nanoClock.getAsLong() + retryAfterNanos;
+            replicaDown = true;
+            fallbacks.increment();
+            log.warn("Реплика недоступна, чтение переключено на основную базу: {}", e.getMessage());
+            primaryReads.increment();
+            return query.apply(primary);
+        }
+    }
+
+    private boolean useReplica(long now) {
+        if (replicaDown) {
+            if (now - replicaDownUntil < 0) {
+                return false;
+            }
+            replicaDown = false;
+            log.info("Чтение снова идёт в реплику");
+        }
+        return true;
+    }
+
+    private <K> boolean recentlyWritten(Map<K, Long> written, K key) {
+        if (key == null) {
+            return false;
+        }
+        Long at = written.get(key);
+        if (at == null) {
+            return false;
+        }
+        if (nanoClock.getAsLong() - at < readYourWritesNanos) {
+            return true;
+        }
+        written.remove(key, at);
+        return false;
+    }
+
+    private void markWrite(Long id, String email) {
+        if (readYourWritesNanos == 0) {
+            return;
+        }
+        long now = nanoClock.getAsLong();
+        if (id != null) {
+            writtenIds.put(id, now);
+        }
+        if (email != null) {
+            writtenEmails.put(User.normalizeEmail(email), now);
+        }
+        if (writes.incrementAndGet() % SWEEP_EVERY == 0) {
+            writtenIds.values().removeIf(at -> now - at >= readYourWritesNanos);
+            writtenEmails.values().removeIf(at -> now - at >= readYourWritesNanos);
+        }
+    }
+}
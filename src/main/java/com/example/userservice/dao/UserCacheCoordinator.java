@@ -0,0 +1,85 @@
+package com.example.userservice.dao;
+
+import com.example.userservice.entity.User;
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+import org.hibernate.cache.spi.TimestampsCache;
+import org.hibernate.cache.spi.access.EntityDataAccess;
+import org.hibernate.cache.spi.access.SoftLock;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.engine.spi.SharedSessionContractImplementor;
+import org.hibernate.persister.entity.EntityPersister;
+
+import java.util.Arrays;
+
+/**
+ * Согласует запись в users через JDBC с кэшем второго уровня так же, как это делает сам Hibernate
+ * для своих update и delete. До изменения запись пользователя в регионе блокируется, после коммита
+ * отпускается с отметкой времени: чтение, начатое до коммита, старую строку в кэш уже не положит,
+ * а начатое после — положит новую. Остальные пользователи региона не затрагиваются.
+ * <p>
+ * Кэш запросов сбрасывается через метки времени таблицы, тоже до и после коммита, и только если
+ * запись его действительно меняет.
+ */
+final class UserCacheCoordinator {
+
+    private final SessionFactoryImplementor factory;
+    private final EntityPersister persister;
+    // null — User не кэшируется во втором уровне
+    private final EntityDataAccess entities;
+    private final String[] spaces;
+
+    UserCacheCoordinator(SessionFactory sessionFactory) {
+        this.factory = sessionFactory.unwrap(SessionFactoryImplementor.class);
+        this.persister = factory.getMappingMetamodel().getEntityDescriptor(User.class);
+        this.entities = persister.canWriteToCache() ? persister.getCacheAccessStrategy() : null;
+        this.spaces = Arrays.stream(persister.getPropertySpaces()).map(String::valueOf).toArray(String[]::new);
+    }
+
+    /**
+     * Блокирует запись пользователя в кэше; вызывать до изменения строки, {@link Lock#release()} — после
+     * коммита или отката.
+     */
+    Lock lock(Session session, Long id) {
+        SharedSessionContractImplementor events = session.unwrap(SharedSessionContractImplementor.class);
+        if (entities == null) {
+            return new Lock(events, null, null);
+        }
+        Object key = entities.generateCacheKey(id, persister, factory, null);
+        // без версии: после снятия блокировки кэш примет только строки, прочитанные позже
+        return new Lock(events, key, entities.lockItem(events, key, null));
+    }
+
+    final class Lock {
+        private final SharedSessionContractImplementor session;
+        private final Object key;
+        private final SoftLock softLock;
+        private boolean queriesInvalidated;
+
+        private Lock(SharedSessionContractImplementor session, Object key, SoftLock softLock) {
+            this.session = session;
+            this.key = key;
+            this.softLock = softLock;
+        }
+
+        /**
+         * Запись меняет результаты закэшированных запросов (например, по email); вызывать до коммита.
+         */
+        void invalidateQueries() {
+            TimestampsCache timestamps = factory.getCache().getTimestampsCache();
+            if (!queriesInvalidated && timestamps != null) {
+                timestamps.preInvalidate(spaces, session);
+                queriesInvalidated = true;
+            }
+        }
+
+        void release() {
+            if (softLock != null) {
+                entities.unlockItem(session, key, softLock);
+            }
+            if (queriesInvalidated) {
+                factory.getCache().getTimestampsCache().invalidate(spaces, session);
+            }
+        }
+    }
+}
@@ -1,20 +1,115 @@
 package com.example.userservice.dao;
 
 import com.example.userservice.entity.User;
+import com.example.userservice.entity.UserPatch;
+import com.example.userservice.entity.UserView;
 
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.SortedMap;
+import java.util.stream.Stream;
 
 public interface UserDao {
-    Long create(User user);
+    /**
+     * Сохраняет пользователя одним INSERT и возвращает тот же объект с заполненными id и createdAt,
+     * так что перечитывать его из базы не нужно.
+     */
+    User create(User user);
+
+    /**
+     * Вставка нескольких пользователей в одной транзакции JDBC-батчами.
+     * Возвращает id в порядке обхода коллекции.
+     */
+    List<Long> createAll(Collection<User> users);
 
     Optional<User> findById(Long id);
 
+    /**
+     * Пользователи с указанными id; большие наборы читаются порциями, уже закэшированные берутся из кэша.
+     * Порядок не гарантирован, отсутствующих id в результате нет.
+     */
+    List<User> findByIds(Collection<Long> ids);
+
     Optional<User> findByEmail(String email);
 
+    /**
+     * Пользователи с указанными email (без учёта регистра), порциями по несколько запросов на весь набор.
+     * Порядок не гарантирован, ненайденных email в результате нет.
+     */
+    List<User> findByEmails(Collection<String> emails);
+
     List<User> findAll();
 
+    /**
+     * Потоковое чтение всей таблицы через серверный курсор.
+     * Поток держит открытую сессию, поэтому его обязательно закрывать (try-with-resources).
+     */
+    Stream<User> streamAll(int fetchSize);
+
+    /**
+     * Страница пользователей с id больше {@code afterId} (keyset-пагинация), упорядоченная по id.
+     * Для первой страницы {@code afterId} равен null.
+     */
+    List<User> findPage(Long afterId, int limit);
+
+    /**
+     * Проекция пользователя для отображения, без загрузки сущности.
+     */
+    Optional<UserView> findViewById(Long id);
+
+    /**
+     * То же, что {@link #findPage}, но проекциями: строки не проходят через persistence context.
+     */
+    List<UserView> findViewPage(Long afterId, int limit);
+
+    /**
+     * Поиск по фильтрам {@code query} с keyset-пагинацией: сортировка идёт по индексированной колонке,
+     * а продолжение — по токену с последней строки, без OFFSET. Некорректный токен —
+     * {@link IllegalArgumentException}.
+     */
+    UserSearchPage search(UserQuery query);
+
+    /**
+     * Число пользователей; считается в базе, строки не передаются.
+     */
+    long count();
+
+    /**
+     * Число пользователей с возрастом от {@code minInclusive} до {@code maxInclusive}; без возраста не считаются.
+     */
+    long countByAgeBetween(int minInclusive, int maxInclusive);
+
+    /**
+     * Гистограмма возраста одним GROUP BY: ключ — нижняя граница корзины шириной {@code bucketWidth},
+     * пустые корзины и пользователи без возраста пропущены.
+     */
+    SortedMap<Integer, Long> ageHistogram(int bucketWidth);
+
+    /**
+     * Регистрации по дням (UTC) за период {@code [from, to)}; любую границу можно не задавать (null).
+     * Дни без регистраций пропущены.
+     */
+    SortedMap<LocalDate, Long> signupsByDay(Instant from, Instant to);
+
+    /**
+     * Записывает name, email и age одним UPDATE без предварительного чтения строки.
+     * Если у пользователя есть версия, она проверяется и после записи увеличивается на 1 и в объекте.
+     * Отсутствующий id — {@link DaoException} с {@link org.hibernate.ObjectNotFoundException} внутри.
+     */
     void update(User user);
 
-    void deleteById(Long id);
+    /**
+     * Частичное обновление: одним UPDATE пишутся только заданные в {@code patch} поля, версия строки
+     * увеличивается. Возвращает число изменённых строк (0 — пользователя нет). Если задана ожидаемая версия,
+     * а строку уже обновили, бросает {@link DaoException} с {@link org.hibernate.StaleObjectStateException} внутри.
+     */
+    int patch(Long id, UserPatch patch);
+
+    /**
+     * Удаление одним DELETE без предварительной загрузки. Возвращает число удалённых строк (0 или 1).
+     */
+    int deleteById(Long id);
 }
@@ -1,34 +1,94 @@
 package com.example.userservice.dao;
 
 import com.example.userservice.entity.User;
+import com.example.userservice.entity.UserPatch;
+import com.example.userservice.entity.UserView;
 import com.example.userservice.util.HibernateUtil;
+import org.hibernate.ObjectNotFoundException;
 import org.hibernate.Session;
 import org.hibernate.SessionFactory;
+import org.hibernate.StaleObjectStateException;
+import org.hibernate.StatelessSession;
 import org.hibernate.Transaction;
+import org.hibernate.cfg.AvailableSettings;
+import org.hibernate.query.NativeQuery;
+import org.hibernate.query.SelectionQuery;
 
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Types;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.stream.Stream;
 
 public class UserDaoImpl implements UserDao {
 
+    private static final int DEFAULT_BATCH_SIZE = 50;
+    // ключей на один запрос мульти-чтения: далеко от лимита PostgreSQL в 32767 bind-параметров
+    static final int ID_CHUNK_SIZE = 1000;
+
+    private static final String AGE_HISTOGRAM_SQL = """
+            SELECT CAST(floor(age / CAST(:width AS numeric)) AS integer) AS bucket, count(*) AS users
+            FROM users
+            WHERE age IS NOT NULL
+            GROUP BY 1
+            ORDER BY 1""";
+
+    // created_at без зоны хранит время в поясе сессии, который драйвер берёт из JVM: день считается в UTC,
+    // как в UserSnapshot, а границы передаются тем же локальным временем, чтобы работал индекс по created_at
+    private static final String SIGNUPS_BY_DAY_SQL = """
+            SELECT CAST(timezone('UTC', CAST(created_at AS timestamptz)) AS date) AS day, count(*) AS signups
+            FROM users
+            WHERE %s
+            GROUP BY 1
+            ORDER BY 1""";
+
     private final SessionFactory sessionFactory;
+    private final int batchSize;
+    private final UserCacheCoordinator cache;
 
     public UserDaoImpl() {
-        this.sessionFactory = HibernateUtil.getSessionFactory();
+        this(HibernateUtil.getSessionFactory());
     }
 
     public UserDaoImpl(SessionFactory sessionFactory) {
+        this(sessionFactory, configuredBatchSize(sessionFactory));
+    }
+
+    public UserDaoImpl(SessionFactory sessionFactory, int batchSize) {
+        if (batchSize <= 0) {
+            throw new IllegalArgumentException("Размер батча должен быть положительным");
+        }
         this.sessionFactory = sessionFactory;
+        this.batchSize = batchSize;
+        this.cache = new UserCacheCoordinator(sessionFactory);
+    }
+
+    private static int configuredBatchSize(SessionFactory sessionFactory) {
+        Object value = sessionFactory.getProperties().get(AvailableSettings.STATEMENT_BATCH_SIZE);
+        return value == null ? DEFAULT_BATCH_SIZE : Integer.parseInt(value.toString());
     }
 
     @Override
-    public Long create(User user) {
+    public User create(User user) {
         Transaction tx = null;
         try (Session session = sessionFactory.openSession()) {
             tx = session.beginTransaction();
-            Long id = (Long) session.save(user);
+            // id берётся из уже выделенного блока последовательности, createdAt проставляет Hibernate
+            // с точностью колонки — после коммита объект совпадает со строкой в базе
+            session.persist(user);
             tx.commit();
-            return id;
+            return user;
         } catch (Exception e) {
             if (tx != null) tx.rollback();
             throw new DaoException("Ошибка при создании пользователя", e);
@@ -36,30 +96,108 @@ public class UserDaoImpl implements UserDao {
     }
 
     @Override
-    public Optional<User> findById(Long id) {
+    public List<Long> createAll(Collection<User> users) {
+        Transaction tx = null;
         try (Session session = sessionFactory.openSession()) {
+            session.setJdbcBatchSize(batchSize);
+            tx = session.beginTransaction();
+            List<Long> ids = new ArrayList<>(users.size());
+            int count = 0;
+            for (User user : users) {
+                session.persist(user);
+                ids.add(user.getId());
+                // сбрасываем батч и отпускаем сущности, чтобы persistence context не рос
+                if (++count % batchSize == 0) {
+                    session.flush();
+                    session.clear();
+                }
+            }
+            tx.commit();
+            return ids;
+        } catch (Exception e) {
+            if (tx != null) tx.rollback();
+            throw new DaoException("Ошибка при пакетном создании пользователей", e);
+        }
+    }
+
+    // чтения не меняют сущности: read-only сессия не хранит их снимки для dirty checking,
+    // а второй уровень кэша, в отличие от StatelessSession, продолжает работать
+    private Session openReadOnlySession() {
+        Session session = sessionFactory.openSession();
+        session.setDefaultReadOnly(true);
+        return session;
+    }
+
+    @Override
+    public Optional<User> findById(Long id) {
+        try (Session session = openReadOnlySession()) {
             return Optional.ofNullable(session.get(User.class, id));
         } catch (Exception e) {
             throw new DaoException("Ошибка при поиске пользователя по ID", e);
         }
     }
 
+    @Override
+    public List<User> findByIds(Collection<Long> ids) {
+        if (ids.isEmpty()) {
+            return List.of();
+        }
+        try (Session session = openReadOnlySession()) {
+            // multiLoad сначала смотрит во второй уровень кэша, а в базу идёт порциями по ID_CHUNK_SIZE;
+            // на PostgreSQL порция передаётся одним параметром-массивом (id = any(?))
+            return session.byMultipleIds(User.class)
+                    .withBatchSize(ID_CHUNK_SIZE)
+                    .enableOrderedReturn(false)
+                    .multiLoad(List.copyOf(new LinkedHashSet<>(ids)));
+        } catch (Exception e) {
+            throw new DaoException("Ошибка при поиске пользователей по списку ID", e);
+        }
+    }
+
     @Override
     public Optional<User> findByEmail(String email) {
-        try (Session session = sessionFactory.openSession()) {
-            User user = session.createQuery(
-                            "from User where lower(email) = :email", User.class)
-                    .setParameter("email", email.toLowerCase())
+        try (Session session = openReadOnlySession()) {
+            // в кэше запросов только id: сама строка берётся из региона сущности, который блокируется
+            // при записи, поэтому запрос устаревает лишь при смене email, а не при любом изменении
+            Long id = session.createQuery(
+                            "select id from User where emailNormalized = :email", Long.class)
+                    .setParameter("email", User.normalizeEmail(email))
+                    .setCacheable(true)
+                    .setCacheRegion(User.EMAIL_QUERY_CACHE_REGION)
                     .uniqueResult();
-            return Optional.ofNullable(user);
+            return id == null ? Optional.empty() : Optional.ofNullable(session.get(User.class, id));
         } catch (Exception e) {
             throw new DaoException("Ошибка при поиске пользователя по email", e);
         }
     }
 
+    @Override
+    public List<User> findByEmails(Collection<String> emails) {
+        List<String> keys = emails.stream()
+                .filter(Objects::nonNull)
+                .map(User::normalizeEmail)
+                .distinct()
+                .toList();
+        if (keys.isEmpty()) {
+            return List.of();
+        }
+        // списки в кэш не попадают, поэтому читаем без persistence context вовсе
+        try (StatelessSession session = sessionFactory.openStatelessSession()) {
+            List<User> users = new ArrayList<>(keys.size());
+            for (int from = 0; from < keys.size(); from += ID_CHUNK_SIZE) {
+                users.addAll(session.createQuery("from User where emailNormalized in :emails", User.class)
+                        .setParameterList("emails", keys.subList(from, Math.min(from + ID_CHUNK_SIZE, keys.size())))
+                        .list());
+            }
+            return users;
+        } catch (Exception e) {
+            throw new DaoException("Ошибка при поиске пользователей по списку email", e);
+        }
+    }
+
     @Override
     public List<User> findAll() {
-        try (Session session = sessionFactory.openSession()) {
+        try (StatelessSession session = sessionFactory.openStatelessSession()) {
             return session.createQuery("from User", User.class).list();
         } catch (Exception e) {
             throw new DaoException("Ошибка при получении списка пользователей", e);
@@ -67,31 +205,339 @@ public class UserDaoImpl implements UserDao {
     }
 
     @Override
-    public void update(User user) {
+    public Stream<User> streamAll(int fetchSize) {
+        // StatelessSession не ведёт persistence context, поэтому память не растёт с размером таблицы;
+        // транзакция нужна, чтобы драйвер PostgreSQL читал курсором порциями по fetchSize
+        StatelessSession session = sessionFactory.openStatelessSession();
         Transaction tx = null;
-        try (Session session = sessionFactory.openSession()) {
+        try {
             tx = session.beginTransaction();
-            session.merge(user);
-            tx.commit();
+            Transaction cursorTx = tx;
+            return session.createQuery("from User order by id", User.class)
+                    .setFetchSize(fetchSize)
+                    .setReadOnly(true)
+                    .stream()
+                    .onClose(() -> {
+                        try {
+                            cursorTx.commit();
+                        } finally {
+                            session.close();
+                        }
+                    });
         } catch (Exception e) {
             if (tx != null) tx.rollback();
+            session.close();
+            throw new DaoException("Ошибка при потоковом чтении пользователей", e);
+        }
+    }
+
+    @Override
+    public List<User> findPage(Long afterId, int limit) {
+        try (StatelessSession session = sessionFactory.openStatelessSession()) {
+            return session.createQuery("from User where id > :afterId order by id", User.class)
+                    .setParameter("afterId", afterId == null ? 0L : afterId)
+                    .setMaxResults(limit)
+                    .list();
+        } catch (Exception e) {
+            throw new DaoException("Ошибка при получении страницы пользователей", e);
+        }
+    }
+
+    @Override
+    public Optional<UserView> findViewById(Long id) {
+        try (StatelessSession session = sessionFactory.openStatelessSession()) {
+            return Optional.ofNullable(session.createQuery(UserView.SELECT + " where u.id = :id", UserView.class)
+                    .setParameter("id", id)
+                    .uniqueResult());
+        } catch (Exception e) {
+            throw new DaoException("Ошибка при поиске пользователя по ID", e);
+        }
+    }
+
+    @Override
+    public List<UserView> findViewPage(Long afterId, int limit) {
+        try (StatelessSession session = sessionFactory.openStatelessSession()) {
+            return session.createQuery(UserView.SELECT + " where u.id > :afterId order by u.id", UserView.class)
+                    .setParameter("afterId", afterId == null ? 0L : afterId)
+                    .setMaxResults(limit)
+                    .list();
+        } catch (Exception e) {
+            throw new DaoException("Ошибка при получении страницы пользователей", e);
+        }
+    }
+
+    @Override
+    public UserSearchPage search(UserQuery query) {
+        Keyset position = query.getAfter()
+                .map(token -> Keyset.decode(token, query.getSortBy(), query.isDescending()))
+                .orElse(null);
+        try (StatelessSession session = sessionFactory.openStatelessSession()) {
+            SelectionQuery<UserView> select = session.createSelectionQuery(searchHql(query, position), UserView.class);
+            query.getNameStartsWith().ifPresent(prefix -> select.setParameter("namePrefix", escapeLike(prefix) + "%"));
+            query.getNameContains().ifPresent(part -> select.setParameter("nameContains", "%" + escapeLike(part) + "%"));
+            query.getMinAge().ifPresent(age -> select.setParameter("minAge", age));
+            query.getMaxAge().ifPresent(age -> select.setParameter("maxAge", age));
+            query.getCreatedFrom().ifPresent(from -> select.setParameter("createdFrom", from));
+            query.getCreatedBefore().ifPresent(before -> select.setParameter("createdBefore", before));
+            if (position != null) {
+                select.setParameter("afterId", position.id());
+                switch (query.getSortBy()) {
+                    case CREATED_AT -> select.setParameter("afterKey", position.createdAt());
+                    case NAME -> select.setParameter("afterKey", position.key());
+                    case ID -> {
+                    }
+                }
+            }
+            // строка сверх страницы показывает, есть ли следующая
+            return UserSearchPage.fromRows(select.setMaxResults(query.getLimit() + 1).list(), query);
+        } catch (Exception e) {
+            throw new DaoException("Ошибка при поиске пользователей", e);
+        }
+    }
+
+    static String searchHql(UserQuery query, Keyset position) {
+        List<String> where = new ArrayList<>();
+        // ilike с шаблоном от начала или с % с обеих сторон обслуживает триграммный индекс по name
+        query.getNameStartsWith().ifPresent(prefix -> where.add("u.name ilike :namePrefix escape '!'"));
+        query.getNameContains().ifPresent(part -> where.add("u.name ilike :nameContains escape '!'"));
+        query.getMinAge().ifPresent(age -> where.add("u.age >= :minAge"));
+        query.getMaxAge().ifPresent(age -> where.add("u.age <= :maxAge"));
+        query.getCreatedFrom().ifPresent(from -> where.add("u.createdAt >= :createdFrom"));
+        query.getCreatedBefore().ifPresent(before -> where.add("u.createdAt < :createdBefore"));
+        String column = switch (query.getSortBy()) {
+            case ID -> null;
+            case CREATED_AT -> "u.createdAt";
+            case NAME -> "u.name";
+        };
+        String direction = query.isDescending() ? " desc" : "";
+        if (position != null) {
+            String after = query.isDescending() ? "<" : ">";
+            if (column == null) {
+                where.add("u.id " + after + " :afterId");
+            } else {
+                // нестрогое условие на ведущую колонку отдаёт индексу диапазон, строгое отсекает уже выданное
+                where.add(column + " " + after + "= :afterKey and (" + column + " " + after + " :afterKey or u.id "
+                        + after + " :afterId)");
+            }
+        }
+        StringBuilder hql = new StringBuilder(UserView.SELECT);
+        if (!where.isEmpty()) {
+            hql.append(" where ").append(String.join(" and ", where));
+        }
+        hql.append(" order by ");
+        if (column != null) {
+            hql.append(column).append(direction).append(", ");
+        }
+        return hql.append("u.id").append(direction).toString();
+    }
+
+    private static String escapeLike(String value) {
+        return value.replace("!", "!!").replace("%", "!%").replace("_", "!_");
+    }
+
+    @Override
+    public long count() {
+        try (StatelessSession session = sessionFactory.openStatelessSession()) {
+            return session.createQuery("select count(*) from User", Long.class).getSingleResult();
+        } catch (Exception e) {
+            throw new DaoException("Ошибка при подсчёте пользователей", e);
+        }
+    }
+
+    @Override
+    public long countByAgeBetween(int minInclusive, int maxInclusive) {
+        try (StatelessSession session = sessionFactory.openStatelessSession()) {
+            return session.createQuery("select count(*) from User where age between :min and :max", Long.class)
+                    .setParameter("min", minInclusive)
+                    .setParameter("max", maxInclusive)
+                    .getSingleResult();
+        } catch (Exception e) {
+            throw new DaoException("Ошибка при подсчёте пользователей по возрасту", e);
+        }
+    }
+
+    @Override
+    public SortedMap<Integer, Long> ageHistogram(int bucketWidth) {
+        if (bucketWidth <= 0) {
+            throw new IllegalArgumentException("Ширина корзины должна быть положительной");
+        }
+        try (StatelessSession session = sessionFactory.openStatelessSession()) {
+            SortedMap<Integer, Long> histogram = new TreeMap<>();
+            session.createNativeQuery(AGE_HISTOGRAM_SQL, Object[].class)
+                    .setParameter("width", bucketWidth)
+                    .addScalar("bucket", Integer.class)
+                    .addScalar("users", Long.class)
+                    .list()
+                    .forEach(row -> histogram.put((Integer) row[0] * bucketWidth, (Long) row[1]));
+            return histogram;
+        } catch (Exception e) {
+            throw new DaoException("Ошибка при построении гистограммы возраста", e);
+        }
+    }
+
+    @Override
+    public SortedMap<LocalDate, Long> signupsByDay(Instant from, Instant to) {
+        List<String> where = new ArrayList<>(2);
+        if (from != null) {
+            where.add("created_at >= :from");
+        }
+        if (to != null) {
+            where.add("created_at < :to");
+        }
+        String sql = SIGNUPS_BY_DAY_SQL.formatted(where.isEmpty() ? "TRUE" : String.join(" AND ", where));
+        try (StatelessSession session = sessionFactory.openStatelessSession()) {
+            NativeQuery<Object[]> query = session.createNativeQuery(sql, Object[].class)
+                    .addScalar("day", LocalDate.class)
+                    .addScalar("signups", Long.class);
+            if (from != null) {
+                query.setParameter("from", LocalDateTime.ofInstant(from, ZoneId.systemDefault()));
+            }
+            if (to != null) {
+                query.setParameter("to", LocalDateTime.ofInstant(to, ZoneId.systemDefault()));
+            }
+            SortedMap<LocalDate, Long> byDay = new TreeMap<>();
+            query.list().forEach(row -> byDay.put((LocalDate) row[0], (Long) row[1]));
+            return byDay;
+        } catch (Exception e) {
+            throw new DaoException("Ошибка при подсчёте регистраций по дням", e);
+        }
+    }
+
+    @Override
+    public void update(User user) {
+        // merge сначала перечитал бы строку; вызывающий и так держит её целиком
+        if (user.getId() == null) {
+            throw new DaoException("Ошибка при обновлении пользователя",
+                    new IllegalArgumentException("У пользователя нет id"));
+        }
+        if (executePatch(user.getId(), UserPatch.of(user)) == 0) {
+            throw new DaoException("Ошибка при обновлении пользователя",
+                    new ObjectNotFoundException(User.class.getName(), user.getId()));
+        }
+        if (user.getVersion() != null) {
+            user.setVersion(user.getVersion() + 1);
+        }
+    }
+
+    @Override
+    public int patch(Long id, UserPatch patch) {
+        if (patch.isEmpty()) {
+            throw new IllegalArgumentException("Нет изменяемых полей");
+        }
+        return executePatch(id, patch);
+    }
+
+    // UPDATE через JDBC, в отличие от merge, не читает строку. HQL-UPDATE тоже не читал бы, но Hibernate
+    // сбросил бы после него весь регион users; здесь блокируется и сбрасывается только этот пользователь
+    private int executePatch(Long id, UserPatch patch) {
+        Transaction tx = null;
+        PatchResult result;
+        boolean stale;
+        try (Session session = sessionFactory.openSession()) {
+            UserCacheCoordinator.Lock cacheLock = cache.lock(session, id);
+            try {
+                tx = session.beginTransaction();
+                result = session.doReturningWork(connection -> {
+                    try (PreparedStatement update = connection.prepareStatement(patchSql(patch))) {
+                        int index = 1;
+                        update.setLong(index++, id);
+                        if (patch.getExpectedVersion().isPresent()) {
+                            update.setLong(index++, patch.getExpectedVersion().get());
+                        }
+                        if (patch.getName().isPresent()) {
+                            update.setString(index++, patch.getName().get());
+                        }
+                        if (patch.getEmail().isPresent()) {
+                            update.setString(index++, patch.getEmail().get());
+                            update.setString(index++, User.normalizeEmail(patch.getEmail().get()));
+                        }
+                        if (patch.isAgeSet()) {
+                            update.setObject(index, patch.getAge(), Types.INTEGER);
+                        }
+                        try (ResultSet rows = update.executeQuery()) {
+                            return rows.next() ? new PatchResult(1, rows.getString(1)) : new PatchResult(0, null);
+                        }
+                    }
+                });
+                // запрос по email закэширован по нормализованному адресу: сбрасываем, только если он другой
+                if (result.updated() > 0 && patch.getEmail().isPresent()
+                        && !User.normalizeEmail(patch.getEmail().get()).equals(result.previousEmail())) {
+                    cacheLock.invalidateQueries();
+                }
+                // 0 строк при заданной версии: отличаем «нет пользователя» от «его уже изменили»
+                stale = result.updated() == 0 && patch.getExpectedVersion().isPresent()
+                        && session.createQuery("select count(*) from User where id = :id", Long.class)
+                        .setParameter("id", id)
+                        .getSingleResult() > 0;
+                tx.commit();
+            } catch (RuntimeException e) {
+                // откатываем до закрытия сессии: после него соединение уже отдано
+                if (tx != null && tx.isActive()) tx.rollback();
+                throw e;
+            } finally {
+                cacheLock.release();
+            }
+        } catch (Exception e) {
             throw new DaoException("Ошибка при обновлении пользователя", e);
         }
+        if (stale) {
+            throw new DaoException("Пользователь с ID " + id + " уже изменён, перечитайте данные",
+                    new StaleObjectStateException(User.class.getName(), id));
+        }
+        return result.updated();
     }
 
+    /**
+     * UPDATE, возвращающий прежний нормализованный email: строка блокируется в CTE, поэтому значение
+     * то, что было непосредственно перед изменением. Параметры: id, [версия], затем изменяемые поля.
+     */
+    static String patchSql(UserPatch patch) {
+        StringBuilder sql = new StringBuilder("WITH previous AS (SELECT id, email_normalized FROM users WHERE id = ?");
+        if (patch.getExpectedVersion().isPresent()) {
+            sql.append(" AND version = ?");
+        }
+        sql.append(" FOR UPDATE) UPDATE users SET version = users.version + 1");
+        if (patch.getName().isPresent()) {
+            sql.append(", name = ?");
+        }
+        if (patch.getEmail().isPresent()) {
+            sql.append(", email = ?, email_normalized = ?");
+        }
+        if (patch.isAgeSet()) {
+            sql.append(", age = ?");
+        }
+        sql.append(" FROM previous WHERE users.id = previous.id RETURNING previous.email_normalized");
+        return sql.toString();
+    }
+
+    private record PatchResult(int updated, String previousEmail) {
+    }
+
+    // DELETE через JDBC по той же причине, что и UPDATE: HQL-delete сбросил бы весь регион users
     @Override
-    public void deleteById(Long id) {
+    public int deleteById(Long id) {
         Transaction tx = null;
+        int deleted;
         try (Session session = sessionFactory.openSession()) {
-            tx = session.beginTransaction();
-            User u = session.get(User.class, id);
-            if (u != null) {
-                session.remove(u);
+            UserCacheCoordinator.Lock cacheLock = cache.lock(session, id);
+            try {
+                tx = session.beginTransaction();
+                deleted = session.doReturningWork(connection -> {
+                    try (PreparedStatement delete = connection.prepareStatement("DELETE FROM users WHERE id = ?")) {
+                        delete.setLong(1, id);
+                        return delete.executeUpdate();
+                    }
+                });
+                tx.commit();
+            } catch (RuntimeException e) {
+                if (tx != null && tx.isActive()) tx.rollback();
+                throw e;
+            } finally {
+                cacheLock.release();
             }
-            tx.commit();
         } catch (Exception e) {
-            if (tx != null) tx.rollback();
             throw new DaoException("Ошибка при удалении пользователя", e);
         }
+        return deleted;
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,157 @@
+package com.example.userservice.dao;
+
+import java.time.Instant;
+import java.util.Optional;
+
+/**
+ * Условия поиска пользователей для {@link UserDao#search}: фильтры по имени (начало или подстрока,
+ * без учёта регистра), диапазону возраста и времени создания, сортировка по индексированной колонке.
+ * Страницы продолжаются не смещением, а токеном из {@link UserSearchPage#next()}: следующая страница
+ * начинается строго после последней строки предыдущей, сколько бы страниц ни было пролистано.
+ */
+public final class UserQuery {
+
+    public static final int DEFAULT_LIMIT = 50;
+    public static final int MAX_LIMIT = 1000;
+
+    /**
+     * Порядок выдачи; при равенстве ключа строки упорядочены по id. У каждого варианта есть индекс
+     * {@code (колонка, id)}, поэтому страница читается из индекса без сортировки всей выборки.
+     */
+    public enum SortBy {
+        ID, CREATED_AT, NAME
+    }
+
+    private String nameStartsWith;
+    private String nameContains;
+    private Integer minAge;
+    private Integer maxAge;
+    private Instant createdFrom;
+    private Instant createdBefore;
+    private SortBy sortBy = SortBy.ID;
+    private boolean descending;
+    private int limit = DEFAULT_LIMIT;
+    private String after;
+
+    public static UserQuery create() {
+        return new UserQuery();
+    }
+
+    public UserQuery nameStartsWith(String prefix) {
+        this.nameStartsWith = blankToNull(prefix);
+        return this;
+    }
+
+    public UserQuery nameContains(String fragment) {
+        this.nameContains = blankToNull(fragment);
+        return this;
+    }
+
+    /**
+     * Возраст от {@code min} до {@code max} включительно; любую границу можно не задавать (null).
+     * Пользователи без возраста под фильтр с границами не попадают.
+     */
+    public UserQuery ageBetween(Integer min, Integer max) {
+        if (min != null && max != null && min > max) {
+            throw new IllegalArgumentException("Минимальный возраст больше максимального");
+        }
+        this.minAge = min;
+        this.maxAge = max;
+        return this;
+    }
+
+    /**
+     * Создан не раньше {@code from} и строго раньше {@code before}; любую границу можно не задавать.
+     */
+    public UserQuery createdBetween(Instant from, Instant before) {
+        if (from != null && before != null && !from.isBefore(before)) {
+            throw new IllegalArgumentException("Начало периода должно быть раньше конца");
+        }
+        this.createdFrom = from;
+        this.createdBefore = before;
+        return this;
+    }
+
+    public UserQuery sortBy(SortBy sortBy, boolean descending) {
+        if (sortBy == null) {
+            throw new IllegalArgumentException("Не задана сортировка");
+        }
+        this.sortBy = sortBy;
+        this.descending = descending;
+        return this;
+    }
+
+    public UserQuery limit(int limit) {
+        if (limit <= 0 || limit > MAX_LIMIT) {
+            throw new IllegalArgumentException("Размер страницы должен быть от 1 до " + MAX_LIMIT);
+        }
+        this.limit = limit;
+        return this;
+    }
+
+    /**
+     * Продолжение после страницы, вернувшей этот токен; null — первая страница.
+     * Токен действителен только для той же сортировки.
+     */
+    public UserQuery after(String token) {
+        this.after = blankToNull(token);
+        return this;
+    }
+
+    public Optional<String> getNameStartsWith() {
+        return Optional.ofNullable(nameStartsWith);
+    }
+
+    public Optional<String> getNameContains() {
+        return Optional.ofNullable(nameContains);
+    }
+
+    public Optional<Integer> getMinAge() {
+        return Optional.ofNullable(minAge);
+    }
+
+    public Optional<Integer> getMaxAge() {
+        return Optional.ofNullable(maxAge);
+    }
+
+    public Optional<Instant> getCreatedFrom() {
+        return Optional.ofNullable(createdFrom);
+    }
+
+    public Optional<Instant> getCreatedBefore() {
+        return Optional.ofNullable(createdBefore);
+    }
+
+    public SortBy getSortBy() {
+        return sortBy;
+    }
+
+    public boolean isDescending() {
+        return descending;
+    }
+
+    public int getLimit() {
+        return limit;
+    }
+
+    public Optional<String> getAfter() {
+        return Optional.ofNullable(after);
+    }
+
+    private static String blankToNull(String value) {
+        return value == null || value.isBlank() ? null : value;
+    }
+
+    @Override
+    public String toString() {
+        return "UserQuery{" +
+                (nameStartsWith != null ? "nameStartsWith='" + nameStartsWith + "', " : "") +
+                (nameContains != null ? "nameContains='" + nameContains + "', " : "") +
+                (minAge != null || maxAge != null ? "age=[" + minAge + ", " + maxAge + "], " : "") +
+                (createdFrom != null || createdBefore != null ? "created=[" + createdFrom + ", " + createdBefore + "), " : "") +
+                "sortBy=" + sortBy + (descending ? " desc" : "") +
+                ", limit=" + limit +
+                (after != null ? ", after=" + after : "") +
+                '}';
+    }
+}
@@ -0,0 +1,28 @@
+package com.example.userservice.dao;
+
+import com.example.userservice.entity.UserView;
+
+import java.util.List;
+
+/**
+ * Страница результатов {@link UserDao#search}; {@code next} — токен для {@link UserQuery#after},
+ * null на последней странице.
+ */
+public record UserSearchPage(List<UserView> users, String next) {
+
+    public boolean hasNext() {
+        return next != null;
+    }
+
+    /**
+     * Страница из {@code limit + 1} прочитанных строк: лишняя строка лишь показывает, что дальше есть ещё.
+     */
+    static UserSearchPage fromRows(List<UserView> rows, UserQuery query) {
+        if (rows.size() <= query.getLimit()) {
+            return new UserSearchPage(List.copyOf(rows), null);
+        }
+        List<UserView> page = List.copyOf(rows.subList(0, query.getLimit()));
+        Keyset last = Keyset.after(page.get(page.size() - 1), query.getSortBy(), query.isDescending());
+        return new UserSearchPage(page, last.encode());
+    }
+}
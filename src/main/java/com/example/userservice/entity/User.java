@@ -1,39 +1,81 @@
 package com.example.userservice.entity;
 
 import jakarta.persistence.*;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+import org.hibernate.annotations.ColumnDefault;
 import org.hibernate.annotations.CreationTimestamp;
 
 import java.time.Instant;
+import java.util.Locale;
 
 @Entity
-@Table(name = "users", uniqueConstraints = {@UniqueConstraint(name = "uk_users_email", columnNames = "email")})
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = User.CACHE_REGION)
+@Table(name = "users",
+        uniqueConstraints = {@UniqueConstraint(name = "uk_users_email", columnNames = "email_normalized")},
+        // индексы поиска; триграммный индекс по name есть только в миграции V4
+        indexes = {@Index(name = "idx_users_created_at", columnList = "created_at, id"),
+                @Index(name = "idx_users_name", columnList = "name, id")})
 
 public class User {
+    public static final String CACHE_REGION = "users";
+    public static final String EMAIL_QUERY_CACHE_REGION = "users-by-email";
+
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "users_id_seq")
+    @SequenceGenerator(name = "users_id_seq", sequenceName = "users_id_seq", allocationSize = 50)
     private Long id;
 
     @Column(nullable = false, length = 200)
     private String name;
 
-    @Column(nullable = false, length = 255, unique = true)
+    @Column(nullable = false, length = 255)
     private String email;
 
+    // ключ поиска и уникальности: email без пробелов по краям и в нижнем регистре, выставляется в setEmail
+    @Column(name = "email_normalized", nullable = false, length = 255)
+    private String emailNormalized;
+
     private Integer age;
 
     @CreationTimestamp
     @Column(name = "created_at", updatable = false, nullable = false)
     private Instant createdAt;
 
+    // оптимистическая блокировка: растёт на каждом UPDATE; у объектов, собранных не из базы, — null
+    @Version
+    @ColumnDefault("0")
+    @Column(nullable = false)
+    private Long version;
+
     public User() {
     }
 
     public User(String name, String email, Integer age) {
         this.name = name;
-        this.email = email;
+        setEmail(email);
         this.age = age;
     }
 
+    public User(Long id, String name, String email, Integer age, Instant createdAt) {
+        this.id = id;
+        this.name = name;
+        setEmail(email);
+        this.age = age;
+        this.createdAt = createdAt;
+    }
+
+    public User(User other) {
+        this.id = other.id;
+        this.name = other.name;
+        this.email = other.email;
+        this.emailNormalized = other.emailNormalized;
+        this.age = other.age;
+        this.createdAt = other.createdAt;
+        this.version = other.version;
+    }
+
     public Long getId() {
         return id;
     }
@@ -46,6 +88,10 @@ public class User {
         return email;
     }
 
+    public String getEmailNormalized() {
+        return emailNormalized;
+    }
+
     public Integer getAge() {
         return age;
     }
@@ -54,18 +100,39 @@ public class User {
         return createdAt;
     }
 
+    public Long getVersion() {
+        return version;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
     public void setName(String name) {
         this.name = name;
     }
 
     public void setEmail(String email) {
         this.email = email;
+        this.emailNormalized = normalizeEmail(email);
     }
 
     public void setAge(Integer age) {
         this.age = age;
     }
 
+    public void setCreatedAt(Instant createdAt) {
+        this.createdAt = createdAt;
+    }
+
+    public void setVersion(Long version) {
+        this.version = version;
+    }
+
+    public static String normalizeEmail(String email) {
+        return email == null ? null : email.trim().toLowerCase(Locale.ROOT);
+    }
+
     @Override
     public String toString() {
         return "User{" +
@@ -0,0 +1,101 @@
+package com.example.userservice.entity;
+
+import java.util.Optional;
+
+/**
+ * Частичное изменение пользователя: в UPDATE попадают только заданные поля.
+ * Возраст можно явно сбросить в null — поэтому «задан» хранится отдельно от значения.
+ * Если задана ожидаемая версия, изменение применяется, только пока строку никто не обновил
+ * (оптимистическая блокировка по {@link User#getVersion()}).
+ */
+public final class UserPatch {
+
+    private String name;
+    private String email;
+    private Integer age;
+    private boolean ageSet;
+    private Long expectedVersion;
+
+    public static UserPatch create() {
+        return new UserPatch();
+    }
+
+    /**
+     * Все изменяемые поля пользователя; ожидаемая версия — его текущая версия, если она известна.
+     */
+    public static UserPatch of(User user) {
+        UserPatch patch = create().name(user.getName()).email(user.getEmail()).age(user.getAge());
+        patch.expectedVersion = user.getVersion();
+        return patch;
+    }
+
+    public UserPatch name(String name) {
+        this.name = name;
+        return this;
+    }
+
+    public UserPatch email(String email) {
+        this.email = email;
+        return this;
+    }
+
+    public UserPatch age(Integer age) {
+        this.age = age;
+        this.ageSet = true;
+        return this;
+    }
+
+    public UserPatch expectedVersion(long version) {
+        this.expectedVersion = version;
+        return this;
+    }
+
+    public Optional<String> getName() {
+        return Optional.ofNullable(name);
+    }
+
+    public Optional<String> getEmail() {
+        return Optional.ofNullable(email);
+    }
+
+    public boolean isAgeSet() {
+        return ageSet;
+    }
+
+    public Integer getAge() {
+        return age;
+    }
+
+    public Optional<Long> getExpectedVersion() {
+        return Optional.ofNullable(expectedVersion);
+    }
+
+    public boolean isEmpty() {
+        return name == null && email == null && !ageSet;
+    }
+
+    /**
+     * Применяет изменения к объекту в памяти (для хранилищ без SQL и для кэшей).
+     */
+    public void applyTo(User user) {
+        if (name != null) {
+            user.setName(name);
+        }
+        if (email != null) {
+            user.setEmail(email);
+        }
+        if (ageSet) {
+            user.setAge(age);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "UserPatch{" +
+                (name != null ? "name='" + name + "', " : "") +
+                (email != null ? "email='" + email + "', " : "") +
+                (ageSet ? "age=" + age + ", " : "") +
+                "expectedVersion=" + expectedVersion +
+                '}';
+    }
+}
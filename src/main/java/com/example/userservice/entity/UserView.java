@@ -0,0 +1,34 @@
+package com.example.userservice.entity;
+
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+
+/**
+ * Неизменяемая проекция пользователя только для отображения. Собирается прямо из строки результата
+ * конструктором в HQL ({@code select new ...}), минуя persistence context: ни снимков для dirty checking,
+ * ни прокси, ни записей в кэше сессии.
+ * <p>
+ * Возраст в базе необязателен, поэтому остаётся {@link Integer}: реальные значения берутся из кэша
+ * {@link Integer#valueOf(int)} и новых объектов не создают. Время создания хранится в микросекундах
+ * от эпохи — с точностью колонки {@code created_at}.
+ */
+public record UserView(long id, String name, String email, Integer age, long createdAtEpochMicros) {
+
+    public static final String SELECT = "select new " + UserView.class.getName()
+            + "(u.id, u.name, u.email, u.age, u.createdAt) from User u";
+
+    /**
+     * Для конструктора в HQL: Hibernate передаёт поля сущности в их собственных типах.
+     */
+    public UserView(Long id, String name, String email, Integer age, Instant createdAt) {
+        this(id, name, email, age, ChronoUnit.MICROS.between(Instant.EPOCH, createdAt));
+    }
+
+    public static UserView of(User user) {
+        return new UserView(user.getId(), user.getName(), user.getEmail(), user.getAge(), user.getCreatedAt());
+    }
+
+    public Instant createdAt() {
+        return Instant.EPOCH.plus(createdAtEpochMicros, ChronoUnit.MICROS);
+    }
+}
@@ -0,0 +1,147 @@
+package com.example.userservice.metrics;
+
+import com.example.userservice.util.LatencyHistogram;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Реестр метрик операций по имени вида {@code UserDao.findById}. Операции заводятся один раз
+ * при создании декораторов, дальше запись идёт напрямую в {@link OperationMetrics} без поиска по имени.
+ */
+public class MetricsRegistry {
+
+    private static final Logger log = LoggerFactory.getLogger(MetricsRegistry.class);
+
+    static final String JMX_DOMAIN = "com.example.userservice";
+
+    private final ConcurrentHashMap<String, OperationMetrics> operations = new ConcurrentHashMap<>();
+    private volatile boolean jmx;
+
+    public OperationMetrics operation(String name) {
+        return operations.computeIfAbsent(name, key -> {
+            OperationMetrics metrics = new OperationMetrics(key);
+            if (jmx) {
+                register(metrics);
+            }
+            return metrics;
+        });
+    }
+
+    /**
+     * Публикует уже заведённые и все последующие операции в платформенном MBeanServer.
+     */
+    public MetricsRegistry exposeViaJmx() {
+        jmx = true;
+        operations.values().forEach(this::register);
+        return this;
+    }
+
+    public List<OperationMetrics.Snapshot> snapshot() {
+        return operations.values().stream()
+                .map(OperationMetrics::snapshot)
+                .sorted(Comparator.comparing(OperationMetrics.Snapshot::name))
+                .toList();
+    }
+
+    /**
+     * Текстовая сводка: операции по убыванию суммарного времени, ошибки — строкой под операцией.
+     */
+    public String dump() {
+        StringBuilder sb = new StringBuilder(String.format("%-34s %9s %7s %10s %9s %9s %9s %9s%n",
+                "операция", "вызовов", "ошибок", "всего мс", "p50 мкс", "p99 мкс", "p999 мкс", "max мкс"));
+        snapshot().stream()
+                .filter(op -> op.calls() > 0)
+                .sorted(Comparator.comparingLong(OperationMetrics.Snapshot::totalNanos).reversed())
+                .forEach(op -> {
+                    LatencyHistogram.Snapshot latency = op.latency();
+                    sb.append(String.format("%-34s %9d %7d %10d %9d %9d %9d %9d%n",
+                            op.name(), op.calls(), op.errors(), TimeUnit.NANOSECONDS.toMillis(op.totalNanos()),
+                            micros(latency.percentile(0.50)), micros(latency.percentile(0.99)),
+                            micros(latency.percentile(0.999)), micros(latency.max())));
+                    if (!op.errorsByCause().isEmpty()) {
+                        sb.append("    ошибки: ").append(op.errorsByCause()).append(System.lineSeparator());
+                    }
+                });
+        return sb.toString();
+    }
+
+    private void register(OperationMetrics metrics) {
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        try {
+            ObjectName name = objectName(metrics.name());
+            // повторная регистрация (второй реестр в том же процессе) заменяет прежний бин
+            if (server.isRegistered(name)) {
+                server.unregisterMBean(name);
+            }
+            server.registerMBean(new OperationBean(metrics), name);
+        } catch (JMException e) {
+            log.warn("Не удалось зарегистрировать метрики {} в JMX", metrics.name(), e);
+        }
+    }
+
+    static ObjectName objectName(String operation) throws JMException {
+        return new ObjectName(JMX_DOMAIN + ":type=Operation,name=" + ObjectName.quote(operation));
+    }
+
+    private static long micros(long nanos) {
+        return TimeUnit.NANOSECONDS.toMicros(nanos);
+    }
+
+    private record OperationBean(OperationMetrics metrics) implements OperationMXBean {
+
+        @Override
+        public long getCalls() {
+            return metrics.snapshot().calls();
+        }
+
+        @Override
+        public long getErrors() {
+            return metrics.snapshot().errors();
+        }
+
+        @Override
+        public Map<String, Long> getErrorsByCause() {
+            return metrics.snapshot().errorsByCause();
+        }
+
+        @Override
+        public double getMeanMicros() {
+            return metrics.snapshot().latency().mean() / 1_000;
+        }
+
+        @Override
+        public long getP50Micros() {
+            return micros(metrics.snapshot().latency().percentile(0.50));
+        }
+
+        @Override
+        public long getP99Micros() {
+            return micros(metrics.snapshot().latency().percentile(0.99));
+        }
+
+        @Override
+        public long getP999Micros() {
+            return micros(metrics.snapshot().latency().percentile(0.999));
+        }
+
+        @Override
+        public long getMaxMicros() {
+            return micros(metrics.snapshot().latency().max());
+        }
+
+        @Override
+        public long getTotalMillis() {
+            return TimeUnit.NANOSECONDS.toMillis(metrics.snapshot().totalNanos());
+        }
+    }
+}
@@ -0,0 +1,28 @@
+package com.example.userservice.metrics;
+
+import java.util.Map;
+
+/**
+ * Метрики операции в JMX: {@code com.example.userservice:type=Operation,name=<Интерфейс.метод>}.
+ * Задержки — в микросекундах, перцентили с точностью корзины гистограммы (~12%).
+ */
+public interface OperationMXBean {
+
+    long getCalls();
+
+    long getErrors();
+
+    Map<String, Long> getErrorsByCause();
+
+    double getMeanMicros();
+
+    long getP50Micros();
+
+    long getP99Micros();
+
+    long getP999Micros();
+
+    long getMaxMicros();
+
+    long getTotalMillis();
+}
@@ -0,0 +1,88 @@
+package com.example.userservice.metrics;
+
+import com.example.userservice.dao.DaoException;
+import com.example.userservice.util.LatencyHistogram;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Счётчики одной операции: число вызовов, ошибки по причине и гистограмма задержек.
+ * Гистограмма и счётчики полосатые ({@link LatencyHistogram}, {@link LongAdder}),
+ * так что запись из многих потоков не упирается в одну ячейку.
+ */
+public final class OperationMetrics {
+
+    private final String name;
+    private final LatencyHistogram latency = new LatencyHistogram();
+    private final LongAdder errors = new LongAdder();
+    private final ConcurrentHashMap<String, LongAdder> errorsByCause = new ConcurrentHashMap<>();
+
+    OperationMetrics(String name) {
+        this.name = name;
+    }
+
+    public String name() {
+        return name;
+    }
+
+    /**
+     * Выполняет вызов и записывает его длительность; исключение учитывается как ошибка и пробрасывается дальше.
+     */
+    public <T> T record(Supplier<T> call) {
+        long started = System.nanoTime();
+        try {
+            T result = call.get();
+            latency.record(System.nanoTime() - started);
+            return result;
+        } catch (RuntimeException | Error e) {
+            latency.record(System.nanoTime() - started);
+            recordError(e);
+            throw e;
+        }
+    }
+
+    public void record(Runnable call) {
+        record(() -> {
+            call.run();
+            return null;
+        });
+    }
+
+    void recordError(Throwable error) {
+        errors.increment();
+        errorsByCause.computeIfAbsent(causeOf(error), key -> new LongAdder()).increment();
+    }
+
+    // для DaoException интересна исходная причина (нарушение ограничения, таймаут, ...), а не сама обёртка
+    static String causeOf(Throwable error) {
+        if (error instanceof DaoException && error.getCause() != null) {
+            return error.getCause().getClass().getSimpleName();
+        }
+        return error.getClass().getSimpleName();
+    }
+
+    public Snapshot snapshot() {
+        Map<String, Long> causes = new TreeMap<>();
+        errorsByCause.forEach((cause, count) -> causes.put(cause, count.sum()));
+        return new Snapshot(name, errors.sum(), causes, latency.snapshot());
+    }
+
+    /**
+     * Срез метрик; число вызовов равно числу записей в гистограмме, ошибки в него входят.
+     */
+    public record Snapshot(String name, long errors, Map<String, Long> errorsByCause,
+                           LatencyHistogram.Snapshot latency) {
+
+        public long calls() {
+            return latency.count();
+        }
+
+        public long totalNanos() {
+            return Math.round(latency.mean() * latency.count());
+        }
+    }
+}
@@ -0,0 +1,172 @@
+package com.example.userservice.service;
+
+import com.example.userservice.entity.User;
+import com.example.userservice.util.HibernateUtil;
+import com.example.userservice.util.PoolMetrics;
+import com.example.userservice.util.QueryDeadline;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Асинхронная обёртка над {@link UserService}: каждый вызов выполняется в своём виртуальном потоке,
+ * а число одновременных обращений к базе ограничено семафором по размеру пула соединений —
+ * лишние вызовы ждут разрешения в виртуальных потоках, а не в очереди пула.
+ * <p>
+ * У каждого вызова есть дедлайн (он же покрывает ожидание разрешения). По истечении дедлайна или при
+ * {@code cancel} возвращённого future оно сразу завершается {@link TimeoutException} или
+ * {@link java.util.concurrent.CancellationException}. Прерывается только поток, который ещё ждёт разрешения:
+ * прерывание виртуального потока, заблокированного на чтении сокета, закрывает сокет, и пул терял бы
+ * соединение. Начавшийся вызов дорабатывает, разрешение освобождается после него, а сами запросы
+ * ограничены дедлайном на стороне базы через {@link QueryDeadline}.
+ */
+public class AsyncUserService implements AutoCloseable {
+
+    private static final Logger log = LoggerFactory.getLogger(AsyncUserService.class);
+
+    static final Duration DEFAULT_TIMEOUT = Duration.ofSeconds(5);
+    private static final int FALLBACK_CONCURRENCY = 10;
+
+    // состояние вызова: ждёт разрешения, выполняется, брошен по таймауту или отмене до начала
+    private static final int WAITING = 0;
+    private static final int RUNNING = 1;
+    private static final int ABANDONED = 2;
+
+    private final UserService delegate;
+    private final Semaphore dbPermits;
+    private final Duration defaultTimeout;
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+
+    public AsyncUserService(UserService delegate) {
+        this(delegate, poolSize(), DEFAULT_TIMEOUT);
+    }
+
+    public AsyncUserService(UserService delegate, int maxConcurrency, Duration defaultTimeout) {
+        if (maxConcurrency <= 0) {
+            throw new IllegalArgumentException("Число одновременных запросов должно быть положительным");
+        }
+        if (defaultTimeout.isNegative() || defaultTimeout.isZero()) {
+            throw new IllegalArgumentException("Таймаут должен быть положительным");
+        }
+        this.delegate = delegate;
+        this.dbPermits = new Semaphore(maxConcurrency, true);
+        this.defaultTimeout = defaultTimeout;
+    }
+
+    private static int poolSize() {
+        return HibernateUtil.getPoolMetrics()
+                .map(PoolMetrics::maxSize)
+                .orElse(FALLBACK_CONCURRENCY);
+    }
+
+    public CompletableFuture<Optional<User>> getUserById(Long id) {
+        return getUserById(id, defaultTimeout);
+    }
+
+    public CompletableFuture<Optional<User>> getUserById(Long id, Duration timeout) {
+        return submit(timeout, () -> delegate.getUserById(id));
+    }
+
+    public CompletableFuture<Optional<User>> getUserByEmail(String email) {
+        return getUserByEmail(email, defaultTimeout);
+    }
+
+    public CompletableFuture<Optional<User>> getUserByEmail(String email, Duration timeout) {
+        return submit(timeout, () -> delegate.getUserByEmail(email));
+    }
+
+    public CompletableFuture<List<User>> getUsersPage(Long afterId, int limit) {
+        return getUsersPage(afterId, limit, defaultTimeout);
+    }
+
+    public CompletableFuture<List<User>> getUsersPage(Long afterId, int limit, Duration timeout) {
+        return submit(timeout, () -> delegate.getUsersPage(afterId, limit));
+    }
+
+    public CompletableFuture<User> createUser(User user) {
+        return submit(defaultTimeout, () -> delegate.createUser(user));
+    }
+
+    public CompletableFuture<User> updateUser(User user) {
+        return submit(defaultTimeout, () -> delegate.updateUser(user));
+    }
+
+    public CompletableFuture<Boolean> deleteUser(Long id) {
+        return submit(defaultTimeout, () -> delegate.deleteUser(id));
+    }
+
+    public int availablePermits() {
+        return dbPermits.availablePermits();
+    }
+
+    public int queueLength() {
+        return dbPermits.getQueueLength();
+    }
+
+    private <T> CompletableFuture<T> submit(Duration timeout, Supplier<T> call) {
+        long deadline = System.nanoTime() + timeout.toNanos();
+        CompletableFuture<T> result = new CompletableFuture<>();
+        AtomicInteger state = new AtomicInteger(WAITING);
+        Future<?> task = executor.submit(() -> run(call, deadline, state, result));
+        result.orTimeout(timeout.toNanos(), TimeUnit.NANOSECONDS)
+                .whenComplete((value, error) -> {
+                    // прерываем только ожидание разрешения; выполняющийся вызов не трогаем
+                    if (error != null && state.compareAndSet(WAITING, ABANDONED)) {
+                        task.cancel(true);
+                    }
+                });
+        return result;
+    }
+
+    private <T> void run(Supplier<T> call, long deadline, AtomicInteger state, CompletableFuture<T> result) {
+        try {
+            if (!dbPermits.tryAcquire(deadline - System.nanoTime(), TimeUnit.NANOSECONDS)) {
+                result.completeExceptionally(new TimeoutException("Истекло время ожидания свободного соединения"));
+                return;
+            }
+        } catch (InterruptedException e) {
+            // future уже завершён таймаутом или отменой
+            return;
+        }
+        if (!state.compareAndSet(WAITING, RUNNING)) {
+            // future завершился, пока ждали разрешения
+            dbPermits.release();
+            return;
+        }
+        T value = null;
+        Throwable failure = null;
+        try {
+            value = QueryDeadline.call(deadline, call);
+        } catch (Throwable e) {
+            failure = e;
+        } finally {
+            // разрешение отдаём до завершения future: к моменту, когда вызывающий увидит результат, оно уже свободно
+            dbPermits.release();
+        }
+        if (failure == null) {
+            result.complete(value);
+        } else if (!result.completeExceptionally(failure)) {
+            log.debug("Ошибка в уже завершённом асинхронном вызове: {}", failure.toString());
+        }
+    }
+
+    /**
+     * Новые вызовы больше не принимаются; начатые дорабатывают, ждущие разрешения — до своего дедлайна.
+     */
+    @Override
+    public void close() {
+        executor.shutdown();
+    }
+}
@@ -0,0 +1,324 @@
+package com.example.userservice.service;
+
+import com.example.userservice.dao.UserQuery;
+import com.example.userservice.dao.UserSearchPage;
+import com.example.userservice.entity.User;
+import com.example.userservice.entity.UserPatch;
+import com.example.userservice.entity.UserView;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+/**
+ * Кэширующий декоратор {@link UserService} для чтения по id и email.
+ * В кэше лежат копии пользователей, наружу тоже отдаются копии: сущность изменяемая,
+ * и вызывающий код не должен портить закэшированное состояние.
+ * Индекс email хранит только id; при чтении email закэшированного пользователя сверяется с ключом,
+ * поэтому после смены email устаревшая запись индекса просто даёт промах.
+ * Сами пользователи попадают в кэш только через загрузку по id: {@code get} с загрузчиком атомарен
+ * относительно {@code invalidate}, а {@code put} после ответа делегата мог бы вернуть в кэш версию,
+ * которую параллельное изменение или удаление уже сбросило.
+ * <p>
+ * Агрегаты (число пользователей, гистограммы) можно кэшировать отдельно с коротким TTL: записи их
+ * не сбрасывают, так что значения отстают от базы не больше чем на этот TTL.
+ */
+public class CachingUserService implements UserService {
+
+    // разных агрегатов немного: по одному на набор параметров, которые запрашивают дашборды
+    private static final int MAX_AGGREGATES = 1_000;
+
+    private final UserService delegate;
+    private final Cache<Long, User> usersById;
+    private final Cache<String, Long> idsByEmail;
+    // null — агрегаты не кэшируются
+    private final Cache<AggregateKey, Object> aggregates;
+
+    public CachingUserService(UserService delegate, long maxSize, Duration ttl) {
+        this(delegate, maxSize, ttl, Duration.ZERO);
+    }
+
+    /**
+     * @param aggregateTtl сколько хранить результаты агрегатов; {@link Duration#ZERO} — не кэшировать
+     */
+    public CachingUserService(UserService delegate, long maxSize, Duration ttl, Duration aggregateTtl) {
+        this.delegate = delegate;
+        this.usersById = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build();
+        this.idsByEmail = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build();
+        this.aggregates = aggregateTtl.isZero() ? null : Caffeine.newBuilder()
+                .maximumSize(MAX_AGGREGATES)
+                .expireAfterWrite(aggregateTtl)
+                .recordStats()
+                .build();
+    }
+
+    @Override
+    public Optional<User> getUserById(Long id) {
+        if (id == null) {
+            return delegate.getUserById(null);
+        }
+        // get с загрузчиком схлопывает одновременные промахи по одному id в один запрос
+        User cached = usersById.get(id, this::load);
+        return Optional.ofNullable(cached).map(User::new);
+    }
+
+    @Override
+    public Optional<User> getUserByEmail(String email) {
+        if (email == null || email.isBlank()) {
+            return delegate.getUserByEmail(email);
+        }
+        String key = User.normalizeEmail(email);
+        Long id = idsByEmail.getIfPresent(key);
+        if (id != null) {
+            User cached = usersById.get(id, this::load);
+            if (cached != null && cached.getEmailNormalized().equals(key)) {
+                return Optional.of(new User(cached));
+            }
+        }
+        Optional<User> user = delegate.getUserByEmail(email);
+        user.ifPresent(this::rememberEmail);
+        return user;
+    }
+
+    @Override
+    public Map<Long, User> getUsersByIds(Collection<Long> ids) {
+        if (ids == null) {
+            return delegate.getUsersByIds(null);
+        }
+        List<Long> keys = ids.stream().filter(Objects::nonNull).toList();
+        // как и для email: getAll положил бы промахи обычным put, поэтому они догружаются одним вызовом
+        // делегата мимо кэша и попадут в него при следующем чтении по id
+        Map<Long, User> cached = usersById.getAllPresent(keys);
+        Set<Long> missing = new LinkedHashSet<>();
+        for (Long id : keys) {
+            if (!cached.containsKey(id)) {
+                missing.add(id);
+            }
+        }
+        Map<Long, User> loaded = missing.isEmpty() ? Map.of() : delegate.getUsersByIds(missing);
+        Map<Long, User> result = new LinkedHashMap<>();
+        for (Long id : keys) {
+            User user = cached.get(id);
+            if (user != null) {
+                result.put(id, new User(user));
+            } else if (loaded.containsKey(id)) {
+                result.put(id, loaded.get(id));
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public Map<String, User> getUsersByEmails(Collection<String> emails) {
+        if (emails == null) {
+            return delegate.getUsersByEmails(null);
+        }
+        List<String> keys = emails.stream()
+                .filter(email -> email != null && !email.isBlank())
+                .toList();
+        Map<String, Long> knownIds = new HashMap<>();
+        for (String email : keys) {
+            Long id = idsByEmail.getIfPresent(User.normalizeEmail(email));
+            if (id != null) {
+                knownIds.put(email, id);
+            }
+        }
+        // только то, что уже в кэше: getAll кладёт загруженное обычным put, а промахи дешевле спросить по email
+        Map<Long, User> known = usersById.getAllPresent(knownIds.values());
+        Map<String, User> result = new LinkedHashMap<>();
+        List<String> missing = new ArrayList<>();
+        for (String email : keys) {
+            User cached = known.get(knownIds.get(email));
+            if (cached != null && cached.getEmailNormalized().equals(User.normalizeEmail(email))) {
+                result.put(email, new User(cached));
+            } else {
+                missing.add(email);
+            }
+        }
+        if (!missing.isEmpty()) {
+            delegate.getUsersByEmails(missing).forEach((email, user) -> {
+                rememberEmail(user);
+                result.put(email, user);
+            });
+        }
+        return result;
+    }
+
+    @Override
+    public List<User> getAllUsers() {
+        return delegate.getAllUsers();
+    }
+
+    @Override
+    public Stream<User> streamAllUsers(int fetchSize) {
+        return delegate.streamAllUsers(fetchSize);
+    }
+
+    @Override
+    public List<User> getUsersPage(Long afterId, int limit) {
+        return delegate.getUsersPage(afterId, limit);
+    }
+
+    // попадание в кэш дешевле любого запроса, а промах заполняет кэш, поэтому проекция строится
+    // из закэшированной сущности; копировать её не нужно — UserView неизменяем
+    @Override
+    public Optional<UserView> getUserView(Long id) {
+        if (id == null) {
+            return delegate.getUserView(null);
+        }
+        User cached = usersById.get(id, this::load);
+        return Optional.ofNullable(cached).map(UserView::of);
+    }
+
+    @Override
+    public List<UserView> getUserViewsPage(Long afterId, int limit) {
+        return delegate.getUserViewsPage(afterId, limit);
+    }
+
+    @Override
+    public UserSearchPage searchUsers(UserQuery query) {
+        return delegate.searchUsers(query);
+    }
+
+    @Override
+    public long countUsers() {
+        return aggregate(new AggregateKey("count", null, null), delegate::countUsers);
+    }
+
+    @Override
+    public long countByAgeRange(int minInclusive, int maxInclusive) {
+        return aggregate(new AggregateKey("countByAgeRange", minInclusive, maxInclusive),
+                () -> delegate.countByAgeRange(minInclusive, maxInclusive));
+    }
+
+    @Override
+    public SortedMap<Integer, Long> getAgeHistogram(int bucketWidth) {
+        return aggregate(new AggregateKey("ageHistogram", bucketWidth, null),
+                () -> Collections.unmodifiableSortedMap(delegate.getAgeHistogram(bucketWidth)));
+    }
+
+    @Override
+    public SortedMap<LocalDate, Long> getSignupsByDay(Instant from, Instant to) {
+        return aggregate(new AggregateKey("signupsByDay", from, to),
+                () -> Collections.unmodifiableSortedMap(delegate.getSignupsByDay(from, to)));
+    }
+
+    @Override
+    public User createUser(User user) {
+        User created = delegate.createUser(user);
+        rememberEmail(created);
+        return created;
+    }
+
+    @Override
+    public List<User> createUsers(Collection<User> users) {
+        // промахи не кэшируются, поэтому новые пользователи не могут оказаться в кэше устаревшими
+        return delegate.createUsers(users);
+    }
+
+    @Override
+    public User updateUser(User user) {
+        try {
+            return delegate.updateUser(user);
+        } finally {
+            if (user != null && user.getId() != null) {
+                usersById.invalidate(user.getId());
+            }
+        }
+    }
+
+    @Override
+    public boolean patchUser(Long id, UserPatch changes) {
+        try {
+            return delegate.patchUser(id, changes);
+        } finally {
+            if (id != null) {
+                usersById.invalidate(id);
+            }
+        }
+    }
+
+    @Override
+    public boolean deleteUser(Long id) {
+        try {
+            return delegate.deleteUser(id);
+        } finally {
+            if (id != null) {
+                usersById.invalidate(id);
+            }
+        }
+    }
+
+    public CacheStats idCacheStats() {
+        return usersById.stats();
+    }
+
+    public CacheStats emailCacheStats() {
+        return idsByEmail.stats();
+    }
+
+    public CacheStats aggregateCacheStats() {
+        return aggregates == null ? CacheStats.empty() : aggregates.stats();
+    }
+
+    public long estimatedSize() {
+        return usersById.estimatedSize();
+    }
+
+    public void invalidateAll() {
+        usersById.invalidateAll();
+        idsByEmail.invalidateAll();
+        if (aggregates != null) {
+            aggregates.invalidateAll();
+        }
+    }
+
+    // get с загрузчиком: одновременные промахи по одному агрегату дают один запрос;
+    // исключение загрузчика (в том числе ошибка валидации) не кэшируется
+    @SuppressWarnings("unchecked")
+    private <T> T aggregate(AggregateKey key, Supplier<T> query) {
+        if (aggregates == null) {
+            return query.get();
+        }
+        return (T) aggregates.get(key, k -> query.get());
+    }
+
+    private record AggregateKey(String name, Object first, Object second) {
+    }
+
+    private User load(Long id) {
+        return delegate.getUserById(id).map(User::new).orElse(null);
+    }
+
+    // только id: пользователь загрузится по нему при следующем чтении
+    private void rememberEmail(User user) {
+        if (user.getId() != null && user.getEmail() != null) {
+            idsByEmail.put(user.getEmailNormalized(), user.getId());
+        }
+    }
+}
@@ -0,0 +1,166 @@
+package com.example.userservice.service;
+
+import com.example.userservice.dao.UserQuery;
+import com.example.userservice.dao.UserSearchPage;
+import com.example.userservice.entity.User;
+import com.example.userservice.entity.UserPatch;
+import com.example.userservice.entity.UserView;
+import com.example.userservice.metrics.MetricsRegistry;
+import com.example.userservice.metrics.OperationMetrics;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.SortedMap;
+import java.util.stream.Stream;
+
+/**
+ * Декоратор {@link UserService}, который замеряет каждый метод в {@link MetricsRegistry}
+ * под именами {@code UserService.<метод>}. Поверх {@link CachingUserService} он показывает задержку
+ * с учётом попаданий в кэш — ту, что видит вызывающий.
+ */
+public class MetricsUserService implements UserService {
+
+    private final UserService delegate;
+    private final OperationMetrics getUserById;
+    private final OperationMetrics getUserByEmail;
+    private final OperationMetrics getUsersByIds;
+    private final OperationMetrics getUsersByEmails;
+    private final OperationMetrics getAllUsers;
+    private final OperationMetrics streamAllUsers;
+    private final OperationMetrics getUsersPage;
+    private final OperationMetrics getUserView;
+    private final OperationMetrics getUserViewsPage;
+    private final OperationMetrics searchUsers;
+    private final OperationMetrics countUsers;
+    private final OperationMetrics countByAgeRange;
+    private final OperationMetrics getAgeHistogram;
+    private final OperationMetrics getSignupsByDay;
+    private final OperationMetrics createUser;
+    private final OperationMetrics createUsers;
+    private final OperationMetrics updateUser;
+    private final OperationMetrics patchUser;
+    private final OperationMetrics deleteUser;
+
+    public MetricsUserService(UserService delegate, MetricsRegistry registry) {
+        this.delegate = delegate;
+        this.getUserById = registry.operation("UserService.getUserById");
+        this.getUserByEmail = registry.operation("UserService.getUserByEmail");
+        this.getUsersByIds = registry.operation("UserService.getUsersByIds");
+        this.getUsersByEmails = registry.operation("UserService.getUsersByEmails");
+        this.getAllUsers = registry.operation("UserService.getAllUsers");
+        this.streamAllUsers = registry.operation("UserService.streamAllUsers");
+        this.getUsersPage = registry.operation("UserService.getUsersPage");
+        this.getUserView = registry.operation("UserService.getUserView");
+        this.getUserViewsPage = registry.operation("UserService.getUserViewsPage");
+        this.searchUsers = registry.operation("UserService.searchUsers");
+        this.countUsers = registry.operation("UserService.countUsers");
+        this.countByAgeRange = registry.operation("UserService.countByAgeRange");
+        this.getAgeHistogram = registry.operation("UserService.getAgeHistogram");
+        this.getSignupsByDay = registry.operation("UserService.getSignupsByDay");
+        this.createUser = registry.operation("UserService.createUser");
+        this.createUsers = registry.operation("UserService.createUsers");
+        this.updateUser = registry.operation("UserService.updateUser");
+        this.patchUser = registry.operation("UserService.patchUser");
+        this.deleteUser = registry.operation("UserService.deleteUser");
+    }
+
+    @Override
+    public Optional<User> getUserById(Long id) {
+        return getUserById.record(() -> delegate.getUserById(id));
+    }
+
+    @Override
+    public Optional<User> getUserByEmail(String email) {
+        return getUserByEmail.record(() -> delegate.getUserByEmail(email));
+    }
+
+    @Override
+    public Map<Long, User> getUsersByIds(Collection<Long> ids) {
+        return getUsersByIds.record(() -> delegate.getUsersByIds(ids));
+    }
+
+    @Override
+    public Map<String, User> getUsersByEmails(Collection<String> emails) {
+        return getUsersByEmails.record(() -> delegate.getUsersByEmails(emails));
+    }
+
+    @Override
+    public List<User> getAllUsers() {
+        return getAllUsers.record(delegate::getAllUsers);
+    }
+
+    // замеряется открытие потока, а не его чтение
+    @Override
+    public Stream<User> streamAllUsers(int fetchSize) {
+        return streamAllUsers.record(() -> delegate.streamAllUsers(fetchSize));
+    }
+
+    @Override
+    public List<User> getUsersPage(Long afterId, int limit) {
+        return getUsersPage.record(() -> delegate.getUsersPage(afterId, limit));
+    }
+
+    @Override
+    public Optional<UserView> getUserView(Long id) {
+        return getUserView.record(() -> delegate.getUserView(id));
+    }
+
+    @Override
+    public List<UserView> getUserViewsPage(Long afterId, int limit) {
+        return getUserViewsPage.record(() -> delegate.getUserViewsPage(afterId, limit));
+    }
+
+    @Override
+    public UserSearchPage searchUsers(UserQuery query) {
+        return searchUsers.record(() -> delegate.searchUsers(query));
+    }
+
+    @Override
+    public long countUsers() {
+        return countUsers.record(delegate::countUsers);
+    }
+
+    @Override
+    public long countByAgeRange(int minInclusive, int maxInclusive) {
+        return countByAgeRange.record(() -> delegate.countByAgeRange(minInclusive, maxInclusive));
+    }
+
+    @Override
+    public SortedMap<Integer, Long> getAgeHistogram(int bucketWidth) {
+        return getAgeHistogram.record(() -> delegate.getAgeHistogram(bucketWidth));
+    }
+
+    @Override
+    public SortedMap<LocalDate, Long> getSignupsByDay(Instant from, Instant to) {
+        return getSignupsByDay.record(() -> delegate.getSignupsByDay(from, to));
+    }
+
+    @Override
+    public User createUser(User user) {
+        return createUser.record(() -> delegate.createUser(user));
+    }
+
+    @Override
+    public List<User> createUsers(Collection<User> users) {
+        return createUsers.record(() -> delegate.createUsers(users));
+    }
+
+    @Override
+    public User updateUser(User user) {
+        return updateUser.record(() -> delegate.updateUser(user));
+    }
+
+    @Override
+    public boolean patchUser(Long id, UserPatch changes) {
+        return patchUser.record(() -> delegate.patchUser(id, changes));
+    }
+
+    @Override
+    public boolean deleteUser(Long id) {
+        return deleteUser.record(() -> delegate.deleteUser(id));
+    }
+}
@@ -0,0 +1,21 @@
+package com.example.userservice.service;
+
+import com.example.userservice.entity.User;
+import com.example.userservice.entity.UserPatch;
+
+/**
+ * Подписчик на изменения, прошедшие через {@link UserServiceImpl}: вызывается в потоке записи
+ * после её успешного завершения. Исключение подписчика записывается в лог и на запись не влияет.
+ * Массовые загрузки мимо сервиса (UserImporter) сюда не попадают.
+ */
+public interface UserChangeListener {
+
+    /**
+     * Пользователь создан или записан целиком; объект — сохранённое состояние с id.
+     */
+    void userSaved(User user);
+
+    void userPatched(long id, UserPatch patch);
+
+    void userDeleted(long id);
+}
@@ -1,20 +1,89 @@
 package com.example.userservice.service;
 
+import com.example.userservice.dao.UserQuery;
+import com.example.userservice.dao.UserSearchPage;
 import com.example.userservice.entity.User;
+import com.example.userservice.entity.UserPatch;
+import com.example.userservice.entity.UserView;
 
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.SortedMap;
+import java.util.stream.Stream;
 
 public interface UserService {
     Optional<User> getUserById(Long id);
 
     Optional<User> getUserByEmail(String email);
 
+    /**
+     * Пользователи по списку id; ключ результата — id из запроса, ненайденных id в нём нет.
+     */
+    Map<Long, User> getUsersByIds(Collection<Long> ids);
+
+    /**
+     * Пользователи по списку email; ключ результата — email в том виде, в каком он пришёл в запросе.
+     */
+    Map<String, User> getUsersByEmails(Collection<String> emails);
+
     List<User> getAllUsers();
 
+    Stream<User> streamAllUsers(int fetchSize);
+
+    List<User> getUsersPage(Long afterId, int limit);
+
+    /**
+     * Пользователь для отображения — неизменяемая проекция вместо сущности.
+     */
+    Optional<UserView> getUserView(Long id);
+
+    /**
+     * То же, что {@link #getUsersPage}, но проекциями.
+     */
+    List<UserView> getUserViewsPage(Long afterId, int limit);
+
+    /**
+     * Поиск по фильтрам с постраничной выдачей; следующая страница — тот же запрос
+     * с {@link UserQuery#after} из {@link UserSearchPage#next()}.
+     */
+    UserSearchPage searchUsers(UserQuery query);
+
+    /**
+     * Число пользователей, посчитанное в базе: вместо {@code getAllUsers().size()}.
+     */
+    long countUsers();
+
+    /**
+     * Число пользователей с возрастом от {@code minInclusive} до {@code maxInclusive} включительно.
+     */
+    long countByAgeRange(int minInclusive, int maxInclusive);
+
+    /**
+     * Гистограмма возраста: ключ — нижняя граница корзины шириной {@code bucketWidth}, пустые корзины пропущены.
+     */
+    SortedMap<Integer, Long> getAgeHistogram(int bucketWidth);
+
+    /**
+     * Регистрации по дням (UTC) за период {@code [from, to)}; null — граница не задана.
+     */
+    SortedMap<LocalDate, Long> getSignupsByDay(Instant from, Instant to);
+
     User createUser(User user);
 
+    List<User> createUsers(Collection<User> users);
+
     User updateUser(User user);
 
+    /**
+     * Меняет только заданные поля одним UPDATE, без предварительного чтения строки.
+     *
+     * @return false, если пользователя с таким id нет
+     */
+    boolean patchUser(Long id, UserPatch changes);
+
     boolean deleteUser(Long id);
 }
\ No newline at end of file
@@ -1,29 +1,67 @@
 package com.example.userservice.service;
 
 import com.example.userservice.dao.UserDao;
+import com.example.userservice.dao.UserQuery;
+import com.example.userservice.dao.UserSearchPage;
 import com.example.userservice.entity.User;
+import com.example.userservice.entity.UserPatch;
+import com.example.userservice.entity.UserView;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.SortedMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 
 public class UserServiceImpl implements UserService {
 
     private static final Logger log = LoggerFactory.getLogger(UserServiceImpl.class);
 
+    static final int MAX_PAGE_SIZE = 1000;
+
     private final UserDao userDao;
+    private final List<UserChangeListener> listeners = new CopyOnWriteArrayList<>();
 
     public UserServiceImpl(UserDao userDao) {
         this.userDao = userDao;
     }
 
+    public void addChangeListener(UserChangeListener listener) {
+        listeners.add(listener);
+    }
+
     @Override
     public User createUser(User user) {
         validateUser(user);
-        Long id = userDao.create(user);
-        return userDao.findById(id)
-                .orElseThrow(() -> new RuntimeException("Ошибка при создании пользователя"));
+        User created = userDao.create(user);
+        log.info("Пользователь с ID {} создан", created.getId());
+        notifyListeners(listener -> listener.userSaved(created));
+        return created;
+    }
+
+    @Override
+    public List<User> createUsers(Collection<User> users) {
+        if (users == null) {
+            throw new IllegalArgumentException("Список пользователей не может быть null");
+        }
+        users.forEach(this::validateUser);
+        if (users.isEmpty()) {
+            return List.of();
+        }
+        userDao.createAll(users);
+        log.info("Создано {} пользователей", users.size());
+        users.forEach(created -> notifyListeners(listener -> listener.userSaved(created)));
+        return new ArrayList<>(users);
     }
 
     @Override
@@ -52,6 +90,54 @@ public class UserServiceImpl implements UserService {
         return user;
     }
 
+    @Override
+    public Map<Long, User> getUsersByIds(Collection<Long> ids) {
+        if (ids == null) {
+            throw new IllegalArgumentException("Список ID не может быть null");
+        }
+        List<Long> valid = ids.stream().filter(this::isValidId).toList();
+        if (valid.isEmpty()) {
+            return Map.of();
+        }
+        Map<Long, User> byId = new HashMap<>();
+        for (User user : userDao.findByIds(valid)) {
+            byId.put(user.getId(), user);
+        }
+        Map<Long, User> result = new LinkedHashMap<>();
+        for (Long id : valid) {
+            User user = byId.get(id);
+            if (user != null) {
+                result.put(id, user);
+            }
+        }
+        log.info("Найдено {} пользователей из {} запрошенных ID", result.size(), valid.size());
+        return result;
+    }
+
+    @Override
+    public Map<String, User> getUsersByEmails(Collection<String> emails) {
+        if (emails == null) {
+            throw new IllegalArgumentException("Список email не может быть null");
+        }
+        List<String> valid = emails.stream().filter(e -> e != null && !e.isBlank()).toList();
+        if (valid.isEmpty()) {
+            return Map.of();
+        }
+        Map<String, User> byEmail = new HashMap<>();
+        for (User user : userDao.findByEmails(valid)) {
+            byEmail.put(user.getEmailNormalized(), user);
+        }
+        Map<String, User> result = new LinkedHashMap<>();
+        for (String email : valid) {
+            User user = byEmail.get(User.normalizeEmail(email));
+            if (user != null) {
+                result.put(email, user);
+            }
+        }
+        log.info("Найдено {} пользователей из {} запрошенных email", result.size(), valid.size());
+        return result;
+    }
+
     @Override
     public List<User> getAllUsers() {
         List<User> users = userDao.findAll();
@@ -63,6 +149,87 @@ public class UserServiceImpl implements UserService {
         return users;
     }
 
+    @Override
+    public Stream<User> streamAllUsers(int fetchSize) {
+        if (fetchSize <= 0) {
+            throw new IllegalArgumentException("Размер порции должен быть положительным");
+        }
+        return userDao.streamAll(fetchSize);
+    }
+
+    @Override
+    public List<User> getUsersPage(Long afterId, int limit) {
+        validatePage(afterId, limit);
+        List<User> page = userDao.findPage(afterId, limit);
+        log.info("Получена страница из {} пользователей после ID {}", page.size(), afterId);
+        return page;
+    }
+
+    @Override
+    public Optional<UserView> getUserView(Long id) {
+        if (!isValidId(id)) {
+            log.warn("Некорректный ID пользователя для поиска: {}", id);
+            return Optional.empty();
+        }
+        Optional<UserView> view = userDao.findViewById(id);
+        if (view.isPresent()) {
+            log.info("Пользователь с ID {} найден", id);
+        } else {
+            log.warn("Пользователь с ID {} не найден", id);
+        }
+        return view;
+    }
+
+    @Override
+    public List<UserView> getUserViewsPage(Long afterId, int limit) {
+        validatePage(afterId, limit);
+        List<UserView> page = userDao.findViewPage(afterId, limit);
+        log.info("Получена страница из {} пользователей после ID {}", page.size(), afterId);
+        return page;
+    }
+
+    @Override
+    public UserSearchPage searchUsers(UserQuery query) {
+        if (query == null) {
+            throw new IllegalArgumentException("Условия поиска не могут быть null");
+        }
+        UserSearchPage page = userDao.search(query);
+        log.info("Поиск {}: найдено {} пользователей{}", query, page.users().size(),
+                page.hasNext() ? ", есть следующая страница" : "");
+        return page;
+    }
+
+    @Override
+    public long countUsers() {
+        long count = userDao.count();
+        log.info("Всего пользователей: {}", count);
+        return count;
+    }
+
+    @Override
+    public long countByAgeRange(int minInclusive, int maxInclusive) {
+        if (minInclusive > maxInclusive) {
+            throw new IllegalArgumentException("Минимальный возраст больше максимального");
+        }
+        return userDao.countByAgeBetween(minInclusive, maxInclusive);
+    }
+
+    @Override
+    public SortedMap<Integer, Long> getAgeHistogram(int bucketWidth) {
+        if (bucketWidth <= 0) {
+            throw new IllegalArgumentException("Ширина корзины должна быть положительной");
+        }
+        return userDao.ageHistogram(bucketWidth);
+    }
+
+    @Override
+    public SortedMap<LocalDate, Long> getSignupsByDay(Instant from, Instant to) {
+        if (from != null && to != null && !from.isBefore(to)) {
+            throw new IllegalArgumentException("Начало периода должно быть раньше конца");
+        }
+        return userDao.signupsByDay(from, to);
+    }
+
     @Override
     public User updateUser(User user) {
         validateUser(user);
@@ -71,19 +238,37 @@ public class UserServiceImpl implements UserService {
         }
         userDao.update(user);
         log.info("Пользователь с ID {} обновлён", user.getId());
+        notifyListeners(listener -> listener.userSaved(user));
         return user;
     }
 
+    @Override
+    public boolean patchUser(Long id, UserPatch changes) {
+        if (!isValidId(id)) {
+            throw new IllegalArgumentException("ID пользователя обязателен для обновления");
+        }
+        UserValidator.validate(changes);
+        if (changes.isEmpty()) {
+            return userDao.findById(id).isPresent();
+        }
+        if (userDao.patch(id, changes) > 0) {
+            log.info("Пользователь с ID {} обновлён: {}", id, changes);
+            notifyListeners(listener -> listener.userPatched(id, changes));
+            return true;
+        }
+        log.warn("Пользователь с ID {} не найден для обновления", id);
+        return false;
+    }
+
     @Override
     public boolean deleteUser(Long id) {
         if (!isValidId(id)) {
             log.warn("Некорректный ID для удаления: {}", id);
             return false;
         }
-        Optional<User> existing = userDao.findById(id);
-        if (existing.isPresent()) {
-            userDao.deleteById(id);
+        if (userDao.deleteById(id) > 0) {
             log.info("Пользователь с ID {} удалён", id);
+            notifyListeners(listener -> listener.userDeleted(id));
             return true;
         } else {
             log.warn("Пользователь с ID {} не найден для удаления", id);
@@ -91,6 +276,25 @@ public class UserServiceImpl implements UserService {
         }
     }
 
+    private void notifyListeners(Consumer<UserChangeListener> event) {
+        for (UserChangeListener listener : listeners) {
+            try {
+                event.accept(listener);
+            } catch (RuntimeException e) {
+                log.warn("Подписчик на изменения пользователей завершился с ошибкой: {}", e.getMessage(), e);
+            }
+        }
+    }
+
+    private static void validatePage(Long afterId, int limit) {
+        if (afterId != null && afterId < 0) {
+            throw new IllegalArgumentException("Некорректный ID для пагинации");
+        }
+        if (limit <= 0 || limit > MAX_PAGE_SIZE) {
+            throw new IllegalArgumentException("Размер страницы должен быть от 1 до " + MAX_PAGE_SIZE);
+        }
+    }
+
     private boolean isValidId(Long id) {
         return id != null && id > 0;
     }
@@ -104,14 +308,6 @@ public class UserServiceImpl implements UserService {
     }
 
     private void validateUser(User user) {
-        if (user == null) {
-            throw new IllegalArgumentException("Пользователь не может быть null");
-        }
-        if (user.getName() == null || user.getName().isBlank() || user.getName().length() < 2) {
-            throw new IllegalArgumentException("Имя должно содержать минимум 2 символа и не быть пустым");
-        }
-        if (user.getEmail() == null || !user.getEmail().matches("^[A-Za-z0-9+_.-]+@[A-Za-z0-9.-]+$")) {
-            throw new IllegalArgumentException("Некорректный email");
-        }
+        UserValidator.validate(user);
     }
 }
\ No newline at end of file
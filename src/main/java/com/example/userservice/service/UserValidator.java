@@ -0,0 +1,55 @@
+package com.example.userservice.service;
+
+import com.example.userservice.entity.User;
+import com.example.userservice.entity.UserPatch;
+
+import java.util.regex.Pattern;
+
+public final class UserValidator {
+
+    public static final int MAX_NAME_LENGTH = 200;
+    public static final int MAX_EMAIL_LENGTH = 255;
+
+    // String.matches компилировал бы выражение заново на каждый вызов
+    static final Pattern EMAIL_PATTERN = Pattern.compile("^[A-Za-z0-9+_.-]+@[A-Za-z0-9.-]+$");
+
+    private UserValidator() {
+    }
+
+    public static void validate(User user) {
+        if (user == null) {
+            throw new IllegalArgumentException("Пользователь не может быть null");
+        }
+        validateName(user.getName());
+        validateEmail(user.getEmail());
+    }
+
+    /**
+     * Проверяет только заданные в изменении поля — по тем же правилам, что и целого пользователя.
+     */
+    public static void validate(UserPatch patch) {
+        if (patch == null) {
+            throw new IllegalArgumentException("Изменения не могут быть null");
+        }
+        patch.getName().ifPresent(UserValidator::validateName);
+        patch.getEmail().ifPresent(UserValidator::validateEmail);
+    }
+
+    private static void validateName(String name) {
+        if (name == null || name.isBlank() || name.length() < 2) {
+            throw new IllegalArgumentException("Имя должно содержать минимум 2 символа и не быть пустым");
+        }
+        if (name.length() > MAX_NAME_LENGTH) {
+            throw new IllegalArgumentException("Имя не должно быть длиннее " + MAX_NAME_LENGTH + " символов");
+        }
+    }
+
+    private static void validateEmail(String email) {
+        if (email == null || !EMAIL_PATTERN.matcher(email).matches()) {
+            throw new IllegalArgumentException("Некорректный email");
+        }
+        if (email.length() > MAX_EMAIL_LENGTH) {
+            throw new IllegalArgumentException("Email не должен быть длиннее " + MAX_EMAIL_LENGTH + " символов");
+        }
+    }
+}
@@ -0,0 +1,298 @@
+package com.example.userservice.util;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.StampedLock;
+
+/**
+ * Потокобезопасная таблица с примитивными ключами long: без упаковки ключей в {@link Long} и без узла
+ * на каждую запись. Ключи разбиты на сегменты, в каждом — открытая адресация с линейным пробированием
+ * в параллельных массивах {@code long[]}/{@code Object[]} и свой {@link StampedLock}. Чтение обычно
+ * обходится оптимистичной проверкой без захвата блокировки, запись блокирует только свой сегмент.
+ * <p>
+ * На запись приходится 16–32 байта (ключ, ссылка и свободные ячейки при заполнении от 0.375 до 0.75)
+ * против примерно 64 у {@code HashMap<Long, V>} и {@code ConcurrentHashMap<Long, V>} с узлом и упакованным ключом.
+ * Значения null не допускаются: пустая ячейка — это null.
+ */
+public final class ConcurrentLongMap<V> {
+
+    private static final int SEGMENTS = 64;
+    private static final int INITIAL_SEGMENT_CAPACITY = 16;
+
+    private final Segment<V>[] segments;
+    private final LongAdder size = new LongAdder();
+
+    @SuppressWarnings("unchecked")
+    public ConcurrentLongMap() {
+        segments = (Segment<V>[]) new Segment<?>[SEGMENTS];
+        for (int i = 0; i < SEGMENTS; i++) {
+            segments[i] = new Segment<>(size);
+        }
+    }
+
+    public V get(long key) {
+        int hash = hash(key);
+        return segmentFor(hash).get(key, hash);
+    }
+
+    public boolean containsKey(long key) {
+        return get(key) != null;
+    }
+
+    /**
+     * @return предыдущее значение или null
+     */
+    public V put(long key, V value) {
+        requireValue(value);
+        int hash = hash(key);
+        return segmentFor(hash).put(key, hash, value, false);
+    }
+
+    /**
+     * @return текущее значение, если ключ уже есть (тогда таблица не меняется), иначе null
+     */
+    public V putIfAbsent(long key, V value) {
+        requireValue(value);
+        int hash = hash(key);
+        return segmentFor(hash).put(key, hash, value, true);
+    }
+
+    /**
+     * @return удалённое значение или null
+     */
+    public V remove(long key) {
+        int hash = hash(key);
+        return segmentFor(hash).remove(key, hash, null);
+    }
+
+    /**
+     * Удаляет запись, только если ключ сейчас связан именно с этим значением (сравнение по ссылке).
+     */
+    public boolean remove(long key, V expected) {
+        requireValue(expected);
+        int hash = hash(key);
+        return segmentFor(hash).remove(key, hash, expected) != null;
+    }
+
+    /**
+     * Заменяет значение, только если ключ сейчас связан именно с {@code expected} (сравнение по ссылке).
+     */
+    public boolean replace(long key, V expected, V value) {
+        requireValue(expected);
+        requireValue(value);
+        int hash = hash(key);
+        return segmentFor(hash).replace(key, hash, expected, value);
+    }
+
+    public long size() {
+        return size.sum();
+    }
+
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+
+    /**
+     * Снимок значений в произвольном порядке; каждый сегмент копируется под своей блокировкой,
+     * поэтому изменения, идущие во время обхода, могут попасть в снимок частично.
+     */
+    public List<V> values() {
+        List<V> result = new ArrayList<>((int) Math.min(size(), Integer.MAX_VALUE));
+        for (Segment<V> segment : segments) {
+            segment.copyValuesTo(result);
+        }
+        return result;
+    }
+
+    private Segment<V> segmentFor(int hash) {
+        // старшие биты выбирают сегмент, младшие — ячейку внутри него
+        return segments[hash >>> 26];
+    }
+
+    static int hash(long key) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+
+    private static void requireValue(Object value) {
+        if (value == null) {
+            throw new NullPointerException("Значение не может быть null");
+        }
+    }
+
+    private static final class Segment<V> {
+        private final StampedLock lock = new StampedLock();
+        private final LongAdder size;
+        private long[] keys = new long[INITIAL_SEGMENT_CAPACITY];
+        private Object[] values = new Object[INITIAL_SEGMENT_CAPACITY];
+        private int count;
+
+        Segment(LongAdder size) {
+            this.size = size;
+        }
+
+        V get(long key, int hash) {
+            long stamp = lock.tryOptimisticRead();
+            if (stamp != 0) {
+                V value = find(key, hash);
+                if (lock.validate(stamp)) {
+                    return value;
+                }
+            }
+            stamp = lock.readLock();
+            try {
+                return find(key, hash);
+            } finally {
+                lock.unlockRead(stamp);
+            }
+        }
+
+        // при оптимистичном чтении массивы могут быть в промежуточном состоянии:
+        // результат тогда отбрасывается после validate, важно лишь не выйти за границы
+        @SuppressWarnings("unchecked")
+        private V find(long key, int hash) {
+            long[] k = keys;
+            Object[] v = values;
+            if (k.length != v.length) {
+                return null;
+            }
+            int mask = k.length - 1;
+            for (int i = hash & mask, probes = 0; probes <= mask; i = (i + 1) & mask, probes++) {
+                Object value = v[i];
+                if (value == null) {
+                    return null;
+                }
+                if (k[i] == key) {
+                    return (V) value;
+                }
+            }
+            return null;
+        }
+
+        @SuppressWarnings("unchecked")
+        V put(long key, int hash, V value, boolean onlyIfAbsent) {
+            long stamp = lock.writeLock();
+            try {
+                int mask = keys.length - 1;
+                int i = hash & mask;
+                while (values[i] != null) {
+                    if (keys[i] == key) {
+                        V previous = (V) values[i];
+                        if (!onlyIfAbsent) {
+                            values[i] = value;
+                        }
+                        return previous;
+                    }
+                    i = (i + 1) & mask;
+                }
+                keys[i] = key;
+                values[i] = value;
+                count++;
+                size.increment();
+                if (count * 4L > keys.length * 3L) {
+                    resize();
+                }
+                return null;
+            } finally {
+                lock.unlockWrite(stamp);
+            }
+        }
+
+        boolean replace(long key, int hash, V expected, V value) {
+            long stamp = lock.writeLock();
+            try {
+                int i = indexOf(key, hash);
+                if (i < 0 || values[i] != expected) {
+                    return false;
+                }
+                values[i] = value;
+                return true;
+            } finally {
+                lock.unlockWrite(stamp);
+            }
+        }
+
+        @SuppressWarnings("unchecked")
+        V remove(long key, int hash, V expected) {
+            long stamp = lock.writeLock();
+            try {
+                int i = indexOf(key, hash);
+                if (i < 0 || (expected != null && values[i] != expected)) {
+                    return null;
+                }
+                V removed = (V) values[i];
+                deleteAt(i);
+                count--;
+                size.decrement();
+                return removed;
+            } finally {
+                lock.unlockWrite(stamp);
+            }
+        }
+
+        void copyValuesTo(List<V> target) {
+            long stamp = lock.readLock();
+            try {
+                for (Object value : values) {
+                    if (value != null) {
+                        @SuppressWarnings("unchecked")
+                        V typed = (V) value;
+                        target.add(typed);
+                    }
+                }
+            } finally {
+                lock.unlockRead(stamp);
+            }
+        }
+
+        // вызывается под блокировкой записи
+        private int indexOf(long key, int hash) {
+            int mask = keys.length - 1;
+            for (int i = hash & mask; values[i] != null; i = (i + 1) & mask) {
+                if (keys[i] == key) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+
+        // удаление со сдвигом следующих записей назад, без надгробий
+        private void deleteAt(int hole) {
+            int mask = keys.length - 1;
+            values[hole] = null;
+            for (int j = (hole + 1) & mask; values[j] != null; j = (j + 1) & mask) {
+                int home = hash(keys[j]) & mask;
+                // запись в j можно перенести в hole, если её домашняя ячейка не лежит в (hole, j]
+                boolean between = hole <= j ? (home > hole && home <= j) : (home > hole || home <= j);
+                if (!between) {
+                    keys[hole] = keys[j];
+                    values[hole] = values[j];
+                    values[j] = null;
+                    hole = j;
+                }
+            }
+        }
+
+        private void resize() {
+            long[] oldKeys = keys;
+            Object[] oldValues = values;
+            long[] newKeys = new long[oldKeys.length * 2];
+            Object[] newValues = new Object[oldValues.length * 2];
+            int mask = newKeys.length - 1;
+            for (int j = 0; j < oldKeys.length; j++) {
+                if (oldValues[j] != null) {
+                    int i = hash(oldKeys[j]) & mask;
+                    while (newValues[i] != null) {
+                        i = (i + 1) & mask;
+                    }
+                    newKeys[i] = oldKeys[j];
+                    newValues[i] = oldValues[j];
+                }
+            }
+            // порядок присваивания не важен: оптимистичный читатель всё равно не пройдёт validate
+            keys = newKeys;
+            values = newValues;
+        }
+    }
+}
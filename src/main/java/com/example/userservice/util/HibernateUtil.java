@@ -1,25 +1,150 @@
 package com.example.userservice.util;
 
 import org.hibernate.SessionFactory;
+import org.hibernate.cfg.AvailableSettings;
 import org.hibernate.cfg.Configuration;
+import org.hibernate.cfg.JdbcSettings;
+import org.hibernate.engine.jdbc.connections.spi.ConnectionProvider;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.stat.CacheRegionStatistics;
+import org.hibernate.stat.Statistics;
+
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeMap;
 
 public class HibernateUtil {
+    // адрес реплики только для чтения; не задан — реплики нет и все запросы идут в основную базу
+    public static final String REPLICA_URL = "hibernate.userservice.replica.url";
+    public static final String REPLICA_USER = "hibernate.userservice.replica.username";
+    public static final String REPLICA_PASS = "hibernate.userservice.replica.password";
+
     private static final SessionFactory sessionFactory = buildSessionFactory();
+    private static final SessionFactory replicaSessionFactory = buildReplicaSessionFactory();
 
     private static SessionFactory buildSessionFactory() {
         try {
-            return new Configuration().configure().buildSessionFactory();
+            Configuration configuration = new Configuration().configure();
+            applySystemOverrides(configuration);
+            if (Boolean.parseBoolean(configuration.getProperties().getProperty(SchemaMigrations.ENABLED, "true"))) {
+                SchemaMigrations.migrate(
+                        jdbcProperty(configuration, JdbcSettings.JAKARTA_JDBC_URL, PooledConnectionProvider.LEGACY_URL),
+                        jdbcProperty(configuration, JdbcSettings.JAKARTA_JDBC_USER, PooledConnectionProvider.LEGACY_USER),
+                        jdbcProperty(configuration, JdbcSettings.JAKARTA_JDBC_PASSWORD,
+                                PooledConnectionProvider.LEGACY_PASSWORD));
+            }
+            return configuration.buildSessionFactory();
         } catch (Throwable ex) {
             throw new ExceptionInInitializerError(ex);
         }
     }
 
+    private static SessionFactory buildReplicaSessionFactory() {
+        try {
+            Configuration configuration = new Configuration().configure();
+            applySystemOverrides(configuration);
+            String url = configuration.getProperty(REPLICA_URL);
+            if (url == null || url.isBlank()) {
+                return null;
+            }
+            // jakarta-ключи пул читает раньше старых hibernate.connection.*, так что они перекрывают основную базу
+            configuration.setProperty(JdbcSettings.JAKARTA_JDBC_URL, url);
+            copyProperty(configuration, REPLICA_USER, JdbcSettings.JAKARTA_JDBC_USER);
+            copyProperty(configuration, REPLICA_PASS, JdbcSettings.JAKARTA_JDBC_PASSWORD);
+            // схему реплики ведёт основная база
+            configuration.setProperty(AvailableSettings.HBM2DDL_AUTO, "none");
+            // отдельный кэш второго уровня не узнал бы об изменениях в основной базе
+            configuration.setProperty(AvailableSettings.USE_SECOND_LEVEL_CACHE, "false");
+            configuration.setProperty(AvailableSettings.USE_QUERY_CACHE, "false");
+            configuration.setProperty(PooledConnectionProvider.HIKARI_PREFIX + "readOnly", "true");
+            configuration.setProperty(PooledConnectionProvider.HIKARI_PREFIX + "poolName",
+                    configuration.getProperties().getProperty(PooledConnectionProvider.HIKARI_PREFIX + "poolName",
+                            "user-service") + "-replica");
+            // недоступная при старте реплика не должна мешать запуску: чтения уйдут в основную базу
+            configuration.setProperty(PooledConnectionProvider.HIKARI_PREFIX + "initializationFailTimeout", "-1");
+            return configuration.buildSessionFactory();
+        } catch (Throwable ex) {
+            throw new ExceptionInInitializerError(ex);
+        }
+    }
+
+    private static void copyProperty(Configuration configuration, String from, String to) {
+        String value = configuration.getProperty(from);
+        if (value != null) {
+            configuration.setProperty(to, value);
+        }
+    }
+
+    private static String jdbcProperty(Configuration configuration, String key, String legacyKey) {
+        String value = configuration.getProperty(key);
+        return value != null ? value : configuration.getProperty(legacyKey);
+    }
+
+    // hibernate.cfg.xml перекрывает системные свойства, поэтому -Dhibernate.* применяем поверх явно
+    private static void applySystemOverrides(Configuration configuration) {
+        for (String name : System.getProperties().stringPropertyNames()) {
+            if (name.startsWith("hibernate.")) {
+                configuration.setProperty(name, System.getProperty(name));
+            }
+        }
+    }
+
     public static SessionFactory getSessionFactory() {
         return sessionFactory;
     }
 
+    public static Optional<SessionFactory> getReplicaSessionFactory() {
+        return Optional.ofNullable(replicaSessionFactory);
+    }
+
+    public static Optional<PoolMetrics> getPoolMetrics() {
+        return getPoolMetrics(sessionFactory);
+    }
+
+    public static Optional<PoolMetrics> getPoolMetrics(SessionFactory factory) {
+        return pooledProvider(factory).map(PooledConnectionProvider::metrics);
+    }
+
+    private static Optional<PooledConnectionProvider> pooledProvider(SessionFactory factory) {
+        ConnectionProvider provider = factory.unwrap(SessionFactoryImplementor.class)
+                .getServiceRegistry()
+                .getService(ConnectionProvider.class);
+        if (provider != null && provider.isUnwrappableAs(PooledConnectionProvider.class)) {
+            return Optional.of(provider.unwrap(PooledConnectionProvider.class));
+        }
+        return Optional.empty();
+    }
+
+    public static Optional<SqlStatistics> getSqlStatistics() {
+        return getSqlStatistics(sessionFactory);
+    }
+
+    public static Optional<SqlStatistics> getSqlStatistics(SessionFactory factory) {
+        return pooledProvider(factory).map(PooledConnectionProvider::sqlStatistics);
+    }
+
+    public static Map<String, CacheRegionStatistics> getCacheStatistics() {
+        return getCacheStatistics(sessionFactory);
+    }
+
+    // статистика по регионам второго уровня кэша; пусто, если hibernate.generate_statistics выключен
+    public static Map<String, CacheRegionStatistics> getCacheStatistics(SessionFactory factory) {
+        Statistics statistics = factory.getStatistics();
+        Map<String, CacheRegionStatistics> regions = new TreeMap<>();
+        if (!statistics.isStatisticsEnabled()) {
+            return regions;
+        }
+        for (String region : statistics.getSecondLevelCacheRegionNames()) {
+            CacheRegionStatistics regionStatistics = statistics.getCacheRegionStatistics(region);
+            if (regionStatistics != null) {
+                regions.put(region, regionStatistics);
+            }
+        }
+        return regions;
+    }
+
     public static void shutdown() {
+        getReplicaSessionFactory().ifPresent(SessionFactory::close);
         getSessionFactory().close();
     }
 }
-
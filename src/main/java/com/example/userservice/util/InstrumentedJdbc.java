@@ -0,0 +1,128 @@
+package com.example.userservice.util;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Обёртки JDBC для {@link SqlStatistics}. Соединение — динамический прокси: через него идут только
+ * подготовка запросов, транзакции и close, а это несколько вызовов на запрос. Statement и PreparedStatement
+ * ({@link InstrumentedStatement}, {@link InstrumentedPreparedStatement}) и ResultSet ({@link CountingResultSet})
+ * написаны руками: на них приходятся вызовы на каждый параметр и каждую ячейку, и рефлексия там заметна.
+ * Новым Statement сразу ставится таймаут по {@link QueryDeadline} потока, если он задан.
+ * Вызовы процедур (prepareCall) приложение не делает; они получают только таймаут и не замеряются.
+ * Всё остальное, включая {@code unwrap} до драйвера, вызывается у исходного объекта.
+ * equals/hashCode — по ссылке на обёртку: Hibernate держит свои Statement и ResultSet в хеш-таблицах.
+ */
+final class InstrumentedJdbc {
+
+    private InstrumentedJdbc() {
+    }
+
+    static Connection wrap(Connection connection, SqlStatistics statistics) {
+        ConnectionHandler handler = new ConnectionHandler(connection, statistics);
+        handler.self = proxy(Connection.class, handler);
+        return handler.self;
+    }
+
+    private static <T> T proxy(Class<T> type, InvocationHandler handler) {
+        return type.cast(Proxy.newProxyInstance(InstrumentedJdbc.class.getClassLoader(), new Class<?>[]{type}, handler));
+    }
+
+    private static Object invoke(Object target, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+
+    // null — метод не из Object, его нужно обработать как обычно
+    private static Object objectMethod(Object proxy, Object target, Method method, Object[] args) {
+        return switch (method.getName()) {
+            case "equals" -> method.getParameterCount() == 1 ? proxy == args[0] : null;
+            case "hashCode" -> method.getParameterCount() == 0 ? System.identityHashCode(proxy) : null;
+            case "toString" -> method.getParameterCount() == 0 ? target.toString() : null;
+            default -> null;
+        };
+    }
+
+    private static Statement withDeadline(Statement statement) throws SQLException {
+        int timeout = QueryDeadline.queryTimeoutSeconds();
+        if (timeout > 0) {
+            statement.setQueryTimeout(timeout);
+        }
+        return statement;
+    }
+
+    static final class ConnectionHandler implements InvocationHandler {
+        private final Connection target;
+        final SqlStatistics statistics;
+        // сколько раз каждая форма SELECT выполнялась за время использования соединения
+        private final Map<SqlStatistics.StatementStats, Integer> queries = new HashMap<>();
+        Connection self;
+        private boolean closed;
+
+        ConnectionHandler(Connection target, SqlStatistics statistics) {
+            this.target = target;
+            this.statistics = statistics;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            Object result = objectMethod(proxy, target, method, args);
+            if (result != null) {
+                return result;
+            }
+            switch (method.getName()) {
+                case "prepareStatement" -> {
+                    PreparedStatement statement =
+                            (PreparedStatement) withDeadline((Statement) InstrumentedJdbc.invoke(target, method, args));
+                    return new InstrumentedPreparedStatement(statement, this, (String) args[0]);
+                }
+                case "createStatement" -> {
+                    Statement statement = withDeadline((Statement) InstrumentedJdbc.invoke(target, method, args));
+                    return new InstrumentedStatement(statement, this, null);
+                }
+                case "prepareCall" -> {
+                    return withDeadline((Statement) InstrumentedJdbc.invoke(target, method, args));
+                }
+                case "close" -> {
+                    finishLease();
+                    return InstrumentedJdbc.invoke(target, method, args);
+                }
+                default -> {
+                    return InstrumentedJdbc.invoke(target, method, args);
+                }
+            }
+        }
+
+        void queryExecuted(SqlStatistics.StatementStats stats) {
+            synchronized (queries) {
+                queries.merge(stats, 1, Integer::sum);
+            }
+        }
+
+        private void finishLease() {
+            Map<SqlStatistics.StatementStats, Integer> executions;
+            synchronized (queries) {
+                if (closed) {
+                    return;
+                }
+                closed = true;
+                executions = new HashMap<>(queries);
+                queries.clear();
+            }
+            if (!executions.isEmpty()) {
+                statistics.leaseFinished(executions);
+            }
+        }
+    }
+}
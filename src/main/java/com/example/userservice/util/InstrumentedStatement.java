@@ -0,0 +1,382 @@
+package com.example.userservice.util;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.SQLWarning;
+import java.sql.Statement;
+
+/**
+ * Statement для {@link InstrumentedJdbc}, написанный руками, как и {@link CountingResultSet}: execute*
+ * замеряются и попадают в {@link SqlStatistics}, ResultSet оборачивается для подсчёта строк,
+ * {@code getConnection()} отдаёт обёртку соединения. Текстом батча обычного Statement считается первый
+ * {@code addBatch(String)}. Остальное вызывается у исходного Statement. equals/hashCode — по ссылке:
+ * Hibernate держит свои Statement в хеш-таблицах.
+ */
+class InstrumentedStatement implements Statement {
+
+    final Statement target;
+    final InstrumentedJdbc.ConnectionHandler connection;
+    final SqlStatistics statistics;
+    // SQL подготовленного запроса; для обычного Statement — null, текст приходит в execute*
+    final String preparedSql;
+    // для обычного Statement: первый текст текущего батча и последний выполненный текст
+    private String batchSql;
+    private String lastSql;
+
+    InstrumentedStatement(Statement target, InstrumentedJdbc.ConnectionHandler connection, String preparedSql) {
+        this.target = target;
+        this.connection = connection;
+        this.statistics = connection.statistics;
+        this.preparedSql = preparedSql;
+    }
+
+    @FunctionalInterface
+    interface SqlCall<R> {
+        R call() throws SQLException;
+    }
+
+    final ResultSet query(String sql, SqlCall<ResultSet> call) throws SQLException {
+        lastSql = sql;
+        SqlStatistics.StatementStats stats = statistics.statsFor(sql);
+        long started = System.nanoTime();
+        ResultSet resultSet = call.call();
+        statistics.executed(stats, sql, System.nanoTime() - started, 0);
+        connection.queryExecuted(stats);
+        return new CountingResultSet(resultSet, this, stats.rows);
+    }
+
+    // sql == null — текст батча неизвестен, такой запрос не замеряется
+    final <R> R update(String sql, SqlCall<R> call) throws SQLException {
+        if (sql == null) {
+            return call.call();
+        }
+        lastSql = sql;
+        SqlStatistics.StatementStats stats = statistics.statsFor(sql);
+        long started = System.nanoTime();
+        R result = call.call();
+        statistics.executed(stats, sql, System.nanoTime() - started, rowsChanged(result));
+        return result;
+    }
+
+    private static long rowsChanged(Object result) {
+        if (result instanceof Integer count) {
+            return count;
+        }
+        if (result instanceof Long count) {
+            return count;
+        }
+        long rows = 0;
+        if (result instanceof int[] counts) {
+            for (int count : counts) {
+                rows += Math.max(count, 0);
+            }
+        } else if (result instanceof long[] counts) {
+            for (long count : counts) {
+                rows += Math.max(count, 0);
+            }
+        }
+        return rows;
+    }
+
+    @Override
+    public ResultSet executeQuery(String sql) throws SQLException {
+        return query(sql, () -> target.executeQuery(sql));
+    }
+
+    @Override
+    public int executeUpdate(String sql) throws SQLException {
+        return update(sql, () -> target.executeUpdate(sql));
+    }
+
+    @Override
+    public void close() throws SQLException {
+        target.close();
+    }
+
+    @Override
+    public int getMaxFieldSize() throws SQLException {
+        return target.getMaxFieldSize();
+    }
+
+    @Override
+    public void setMaxFieldSize(int max) throws SQLException {
+        target.setMaxFieldSize(max);
+    }
+
+    @Override
+    public int getMaxRows() throws SQLException {
+        return target.getMaxRows();
+    }
+
+    @Override
+    public void setMaxRows(int max) throws SQLException {
+        target.setMaxRows(max);
+    }
+
+    @Override
+    public void setEscapeProcessing(boolean enable) throws SQLException {
+        target.setEscapeProcessing(enable);
+    }
+
+    @Override
+    public int getQueryTimeout() throws SQLException {
+        return target.getQueryTimeout();
+    }
+
+    @Override
+    public void setQueryTimeout(int seconds) throws SQLException {
+        target.setQueryTimeout(seconds);
+    }
+
+    @Override
+    public void cancel() throws SQLException {
+        target.cancel();
+    }
+
+    @Override
+    public SQLWarning getWarnings() throws SQLException {
+        return target.getWarnings();
+    }
+
+    @Override
+    public void clearWarnings() throws SQLException {
+        target.clearWarnings();
+    }
+
+    @Override
+    public void setCursorName(String name) throws SQLException {
+        target.setCursorName(name);
+    }
+
+    @Override
+    public boolean execute(String sql) throws SQLException {
+        return update(sql, () -> target.execute(sql));
+    }
+
+    @Override
+    public ResultSet getResultSet() throws SQLException {
+        ResultSet resultSet = target.getResultSet();
+        String sql = preparedSql != null ? preparedSql : lastSql;
+        return resultSet == null || sql == null
+                ? resultSet
+                : new CountingResultSet(resultSet, this, statistics.statsFor(sql).rows);
+    }
+
+    @Override
+    public int getUpdateCount() throws SQLException {
+        return target.getUpdateCount();
+    }
+
+    @Override
+    public boolean getMoreResults() throws SQLException {
+        return target.getMoreResults();
+    }
+
+    @Override
+    public void setFetchDirection(int direction) throws SQLException {
+        target.setFetchDirection(direction);
+    }
+
+    @Override
+    public int getFetchDirection() throws SQLException {
+        return target.getFetchDirection();
+    }
+
+    @Override
+    public void setFetchSize(int rows) throws SQLException {
+        target.setFetchSize(rows);
+    }
+
+    @Override
+    public int getFetchSize() throws SQLException {
+        return target.getFetchSize();
+    }
+
+    @Override
+    public int getResultSetConcurrency() throws SQLException {
+        return target.getResultSetConcurrency();
+    }
+
+    @Override
+    public int getResultSetType() throws SQLException {
+        return target.getResultSetType();
+    }
+
+    @Override
+    public void addBatch(String sql) throws SQLException {
+        if (batchSql == null) {
+            batchSql = sql;
+        }
+        target.addBatch(sql);
+    }
+
+    @Override
+    public void clearBatch() throws SQLException {
+        batchSql = null;
+        target.clearBatch();
+    }
+
+    @Override
+    public int[] executeBatch() throws SQLException {
+        try {
+            return update(preparedSql != null ? preparedSql : batchSql, target::executeBatch);
+        } finally {
+            batchSql = null;
+        }
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        return connection.self;
+    }
+
+    @Override
+    public boolean getMoreResults(int current) throws SQLException {
+        return target.getMoreResults(current);
+    }
+
+    @Override
+    public ResultSet getGeneratedKeys() throws SQLException {
+        return target.getGeneratedKeys();
+    }
+
+    @Override
+    public int executeUpdate(String sql, int autoGeneratedKeys) throws SQLException {
+        return update(sql, () -> target.executeUpdate(sql, autoGeneratedKeys));
+    }
+
+    @Override
+    public int executeUpdate(String sql, int[] columnIndexes) throws SQLException {
+        return update(sql, () -> target.executeUpdate(sql, columnIndexes));
+    }
+
+    @Override
+    public int executeUpdate(String sql, String[] columnNames) throws SQLException {
+        return update(sql, () -> target.executeUpdate(sql, columnNames));
+    }
+
+    @Override
+    public boolean execute(String sql, int autoGeneratedKeys) throws SQLException {
+        return update(sql, () -> target.execute(sql, autoGeneratedKeys));
+    }
+
+    @Override
+    public boolean execute(String sql, int[] columnIndexes) throws SQLException {
+        return update(sql, () -> target.execute(sql, columnIndexes));
+    }
+
+    @Override
+    public boolean execute(String sql, String[] columnNames) throws SQLException {
+        return update(sql, () -> target.execute(sql, columnNames));
+    }
+
+    @Override
+    public int getResultSetHoldability() throws SQLException {
+        return target.getResultSetHoldability();
+    }
+
+    @Override
+    public boolean isClosed() throws SQLException {
+        return target.isClosed();
+    }
+
+    @Override
+    public void setPoolable(boolean poolable) throws SQLException {
+        target.setPoolable(poolable);
+    }
+
+    @Override
+    public boolean isPoolable() throws SQLException {
+        return target.isPoolable();
+    }
+
+    @Override
+    public void closeOnCompletion() throws SQLException {
+        target.closeOnCompletion();
+    }
+
+    @Override
+    public boolean isCloseOnCompletion() throws SQLException {
+        return target.isCloseOnCompletion();
+    }
+
+    @Override
+    public long getLargeUpdateCount() throws SQLException {
+        return target.getLargeUpdateCount();
+    }
+
+    @Override
+    public void setLargeMaxRows(long max) throws SQLException {
+        target.setLargeMaxRows(max);
+    }
+
+    @Override
+    public long getLargeMaxRows() throws SQLException {
+        return target.getLargeMaxRows();
+    }
+
+    @Override
+    public long[] executeLargeBatch() throws SQLException {
+        try {
+            return update(preparedSql != null ? preparedSql : batchSql, target::executeLargeBatch);
+        } finally {
+            batchSql = null;
+        }
+    }
+
+    @Override
+    public long executeLargeUpdate(String sql) throws SQLException {
+        return update(sql, () -> target.executeLargeUpdate(sql));
+    }
+
+    @Override
+    public long executeLargeUpdate(String sql, int autoGeneratedKeys) throws SQLException {
+        return update(sql, () -> target.executeLargeUpdate(sql, autoGeneratedKeys));
+    }
+
+    @Override
+    public long executeLargeUpdate(String sql, int[] columnIndexes) throws SQLException {
+        return update(sql, () -> target.executeLargeUpdate(sql, columnIndexes));
+    }
+
+    @Override
+    public long executeLargeUpdate(String sql, String[] columnNames) throws SQLException {
+        return update(sql, () -> target.executeLargeUpdate(sql, columnNames));
+    }
+
+    @Override
+    public String enquoteLiteral(String val) throws SQLException {
+        return target.enquoteLiteral(val);
+    }
+
+    @Override
+    public String enquoteIdentifier(String identifier, boolean alwaysQuote) throws SQLException {
+        return target.enquoteIdentifier(identifier, alwaysQuote);
+    }
+
+    @Override
+    public boolean isSimpleIdentifier(String identifier) throws SQLException {
+        return target.isSimpleIdentifier(identifier);
+    }
+
+    @Override
+    public String enquoteNCharLiteral(String val) throws SQLException {
+        return target.enquoteNCharLiteral(val);
+    }
+
+    @Override
+    public <T> T unwrap(Class<T> iface) throws SQLException {
+        return target.unwrap(iface);
+    }
+
+    @Override
+    public boolean isWrapperFor(Class<?> iface) throws SQLException {
+        return target.isWrapperFor(iface);
+    }
+
+    @Override
+    public String toString() {
+        return target.toString();
+    }
+}
@@ -0,0 +1,126 @@
+package com.example.userservice.util;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Лог-линейная гистограмма задержек в наносекундах.
+ * Каждая степень двойки делится на 8 корзин (погрешность ~12%).
+ * Запись идёт в одну из полос (stripe), выбранную по id потока,
+ * поэтому параллельные записи почти не конкурируют за одни и те же ячейки.
+ */
+public class LatencyHistogram {
+
+    private static final int SUB_BUCKET_BITS = 3;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int BUCKETS = (64 - SUB_BUCKET_BITS) * SUB_BUCKETS;
+    private static final int SUM_SLOT = BUCKETS;
+    private static final int MAX_SLOT = BUCKETS + 1;
+    private static final int MAX_STRIPES = 16;
+
+    private final AtomicLongArray[] stripes;
+    private final int stripeMask;
+
+    public LatencyHistogram() {
+        int stripeCount = Integer.highestOneBit(Math.min(MAX_STRIPES, Runtime.getRuntime().availableProcessors()));
+        this.stripes = new AtomicLongArray[stripeCount];
+        for (int i = 0; i < stripeCount; i++) {
+            stripes[i] = new AtomicLongArray(BUCKETS + 2);
+        }
+        this.stripeMask = stripeCount - 1;
+    }
+
+    public void record(long nanos) {
+        if (nanos < 0) {
+            nanos = 0;
+        }
+        AtomicLongArray stripe = stripes[(int) Thread.currentThread().threadId() & stripeMask];
+        stripe.incrementAndGet(bucketIndex(nanos));
+        stripe.addAndGet(SUM_SLOT, nanos);
+        long max;
+        while (nanos > (max = stripe.get(MAX_SLOT))) {
+            if (stripe.compareAndSet(MAX_SLOT, max, nanos)) {
+                break;
+            }
+        }
+    }
+
+    public Snapshot snapshot() {
+        long[] counts = new long[BUCKETS];
+        long count = 0;
+        long sum = 0;
+        long max = 0;
+        for (AtomicLongArray stripe : stripes) {
+            for (int i = 0; i < BUCKETS; i++) {
+                long c = stripe.get(i);
+                counts[i] += c;
+                count += c;
+            }
+            sum += stripe.get(SUM_SLOT);
+            max = Math.max(max, stripe.get(MAX_SLOT));
+        }
+        return new Snapshot(counts, count, sum, max);
+    }
+
+    static int bucketIndex(long value) {
+        if (value < SUB_BUCKETS) {
+            return (int) value;
+        }
+        int exponent = 63 - Long.numberOfLeadingZeros(value);
+        int sub = (int) (value >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+        return (exponent - SUB_BUCKET_BITS + 1) * SUB_BUCKETS + sub;
+    }
+
+    static long bucketUpperBound(int index) {
+        if (index < SUB_BUCKETS) {
+            return index;
+        }
+        int exponent = index / SUB_BUCKETS + SUB_BUCKET_BITS - 1;
+        long sub = index % SUB_BUCKETS;
+        long lower = (SUB_BUCKETS + sub) << (exponent - SUB_BUCKET_BITS);
+        return lower + (1L << (exponent - SUB_BUCKET_BITS)) - 1;
+    }
+
+    public static final class Snapshot {
+        private final long[] counts;
+        private final long count;
+        private final long sum;
+        private final long max;
+
+        private Snapshot(long[] counts, long count, long sum, long max) {
+            this.counts = counts;
+            this.count = count;
+            this.sum = sum;
+            this.max = max;
+        }
+
+        public long count() {
+            return count;
+        }
+
+        public long max() {
+            return max;
+        }
+
+        public double mean() {
+            return count == 0 ? 0 : (double) sum / count;
+        }
+
+        /**
+         * Верхняя граница корзины, в которую попадает квантиль {@code q} (0..1).
+         */
+        public long percentile(double q) {
+            if (count == 0) {
+                return 0;
+            }
+            long rank = Math.max(1, (long) Math.ceil(q * count));
+            long seen = 0;
+            for (int i = 0; i < counts.length; i++) {
+                seen += counts[i];
+                if (seen >= rank) {
+                    return Math.min(bucketUpperBound(i), max);
+                }
+            }
+            return max;
+        }
+    }
+}
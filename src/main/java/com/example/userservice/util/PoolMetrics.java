@@ -0,0 +1,32 @@
+package com.example.userservice.util;
+
+import java.util.concurrent.TimeUnit;
+
+public record PoolMetrics(int active,
+                          int idle,
+                          int total,
+                          int waiting,
+                          int maxSize,
+                          long timeouts,
+                          LatencyHistogram.Snapshot acquireTime) {
+
+    @Override
+    public String toString() {
+        return "PoolMetrics{" +
+                "active=" + active +
+                ", idle=" + idle +
+                ", total=" + total +
+                ", waiting=" + waiting +
+                ", maxSize=" + maxSize +
+                ", timeouts=" + timeouts +
+                ", acquires=" + acquireTime.count() +
+                ", acquireP50=" + micros(acquireTime.percentile(0.50)) + "us" +
+                ", acquireP99=" + micros(acquireTime.percentile(0.99)) + "us" +
+                ", acquireMax=" + micros(acquireTime.max()) + "us" +
+                '}';
+    }
+
+    private static long micros(long nanos) {
+        return TimeUnit.NANOSECONDS.toMicros(nanos);
+    }
+}
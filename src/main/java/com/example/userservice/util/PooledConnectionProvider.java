@@ -0,0 +1,153 @@
+package com.example.userservice.util;
+
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.HikariPoolMXBean;
+import com.zaxxer.hikari.metrics.IMetricsTracker;
+import org.hibernate.HibernateException;
+import org.hibernate.cfg.JdbcSettings;
+import org.hibernate.engine.jdbc.connections.spi.ConnectionProvider;
+import org.hibernate.service.UnknownUnwrapTypeException;
+import org.hibernate.service.spi.Configurable;
+import org.hibernate.service.spi.Stoppable;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Пул соединений на HikariCP вместо встроенного DriverManager-пула Hibernate.
+ * Подключается через {@code hibernate.connection.provider_class}; параметры пула
+ * задаются свойствами {@code hibernate.hikari.*} (имена как у {@link HikariConfig}).
+ * Выдаваемые соединения обёрнуты для сбора {@link SqlStatistics}.
+ */
+public class PooledConnectionProvider implements ConnectionProvider, Configurable, Stoppable {
+
+    public static final String HIKARI_PREFIX = "hibernate.hikari.";
+
+    // устаревшие ключи hibernate.connection.*: их по-прежнему задают hibernate.cfg.xml и -D переопределения,
+    // поэтому читаются, если не задан соответствующий jakarta.persistence.jdbc.*
+    @SuppressWarnings("deprecation")
+    static final String LEGACY_URL = JdbcSettings.URL;
+    @SuppressWarnings("deprecation")
+    static final String LEGACY_USER = JdbcSettings.USER;
+    @SuppressWarnings("deprecation")
+    static final String LEGACY_PASSWORD = JdbcSettings.PASS;
+    @SuppressWarnings("deprecation")
+    static final String LEGACY_DRIVER = JdbcSettings.DRIVER;
+
+    private final LatencyHistogram acquireTime = new LatencyHistogram();
+    private final LongAdder timeouts = new LongAdder();
+
+    private HikariDataSource dataSource;
+    private SqlStatistics sqlStatistics;
+
+    @Override
+    public void configure(Map<String, Object> settings) {
+        try {
+            HikariConfig config = new HikariConfig(toHikariProperties(settings));
+            config.setMetricsTrackerFactory((poolName, poolStats) -> new IMetricsTracker() {
+                @Override
+                public void recordConnectionAcquiredNanos(long elapsedAcquiredNanos) {
+                    acquireTime.record(elapsedAcquiredNanos);
+                }
+
+                @Override
+                public void recordConnectionTimeout() {
+                    timeouts.increment();
+                }
+            });
+            sqlStatistics = SqlStatistics.fromSettings(settings);
+            dataSource = new HikariDataSource(config);
+        } catch (Exception e) {
+            throw new HibernateException("Не удалось инициализировать пул соединений", e);
+        }
+    }
+
+    static Properties toHikariProperties(Map<String, Object> settings) {
+        Properties props = new Properties();
+        copy(settings, JdbcSettings.JAKARTA_JDBC_URL, LEGACY_URL, props, "jdbcUrl");
+        copy(settings, JdbcSettings.JAKARTA_JDBC_USER, LEGACY_USER, props, "username");
+        copy(settings, JdbcSettings.JAKARTA_JDBC_PASSWORD, LEGACY_PASSWORD, props, "password");
+        copy(settings, JdbcSettings.JAKARTA_JDBC_DRIVER, LEGACY_DRIVER, props, "driverClassName");
+        copy(settings, JdbcSettings.AUTOCOMMIT, null, props, "autoCommit");
+        for (Map.Entry<String, Object> entry : settings.entrySet()) {
+            if (entry.getKey().startsWith(HIKARI_PREFIX) && entry.getValue() != null) {
+                props.setProperty(entry.getKey().substring(HIKARI_PREFIX.length()), entry.getValue().toString());
+            }
+        }
+        return props;
+    }
+
+    private static void copy(Map<String, Object> settings, String key, String legacyKey, Properties props,
+                             String hikariKey) {
+        Object value = settings.get(key);
+        if (value == null && legacyKey != null) {
+            value = settings.get(legacyKey);
+        }
+        if (value != null) {
+            props.setProperty(hikariKey, value.toString());
+        }
+    }
+
+    public PoolMetrics metrics() {
+        HikariPoolMXBean pool = dataSource.getHikariPoolMXBean();
+        return new PoolMetrics(
+                pool.getActiveConnections(),
+                pool.getIdleConnections(),
+                pool.getTotalConnections(),
+                pool.getThreadsAwaitingConnection(),
+                dataSource.getMaximumPoolSize(),
+                timeouts.sum(),
+                acquireTime.snapshot());
+    }
+
+    public SqlStatistics sqlStatistics() {
+        return sqlStatistics;
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        return sqlStatistics.instrument(dataSource.getConnection());
+    }
+
+    @Override
+    public void closeConnection(Connection conn) throws SQLException {
+        conn.close();
+    }
+
+    @Override
+    public boolean supportsAggressiveRelease() {
+        return false;
+    }
+
+    @Override
+    public boolean isUnwrappableAs(Class<?> unwrapType) {
+        return ConnectionProvider.class.equals(unwrapType)
+                || PooledConnectionProvider.class.isAssignableFrom(unwrapType)
+                || DataSource.class.isAssignableFrom(unwrapType);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> T unwrap(Class<T> unwrapType) {
+        if (ConnectionProvider.class.equals(unwrapType)
+                || PooledConnectionProvider.class.isAssignableFrom(unwrapType)) {
+            return (T) this;
+        }
+        if (DataSource.class.isAssignableFrom(unwrapType)) {
+            return (T) dataSource;
+        }
+        throw new UnknownUnwrapTypeException(unwrapType);
+    }
+
+    @Override
+    public void stop() {
+        if (dataSource != null) {
+            dataSource.close();
+        }
+    }
+}
@@ -0,0 +1,58 @@
+package com.example.userservice.util;
+
+import java.time.Duration;
+import java.util.Optional;
+import java.util.function.Supplier;
+
+/**
+ * Дедлайн текущего потока для запросов к базе. Соединения из {@link PooledConnectionProvider} ставят
+ * каждому создаваемому Statement {@link java.sql.Statement#setQueryTimeout} по оставшемуся времени:
+ * запрос, не успевший к дедлайну, отменяет сама база (драйвер шлёт cancel отдельным соединением),
+ * а рабочее соединение остаётся целым и возвращается в пул. Прерывать поток для этого не нужно.
+ * <p>
+ * Действует только в потоке вызова: загрузки, которые {@code BatchingUserDao} выполняет в своём пуле,
+ * дедлайн вызывающего не наследуют.
+ */
+public final class QueryDeadline {
+
+    private static final ThreadLocal<Long> deadline = new ThreadLocal<>();
+
+    private QueryDeadline() {
+    }
+
+    /**
+     * Выполняет {@code call} с дедлайном {@code deadlineNanos} (по {@link System#nanoTime()}).
+     * Вложенный вызов действует до своего завершения, затем восстанавливается внешний дедлайн.
+     */
+    public static <T> T call(long deadlineNanos, Supplier<T> call) {
+        Long outer = deadline.get();
+        deadline.set(deadlineNanos);
+        try {
+            return call.get();
+        } finally {
+            if (outer == null) {
+                deadline.remove();
+            } else {
+                deadline.set(outer);
+            }
+        }
+    }
+
+    /**
+     * Сколько осталось до дедлайна текущего потока (не меньше нуля); пусто — дедлайна нет.
+     */
+    public static Optional<Duration> remaining() {
+        Long until = deadline.get();
+        return until == null ? Optional.empty() : Optional.of(Duration.ofNanos(Math.max(0, until - System.nanoTime())));
+    }
+
+    /**
+     * Таймаут для {@link java.sql.Statement#setQueryTimeout} в целых секундах с округлением вверх,
+     * не меньше 1 (0 у JDBC означает «без ограничения»); 0 — дедлайна нет.
+     */
+    static int queryTimeoutSeconds() {
+        return remaining()
+                .map(left -> Math.clamp(Math.ceilDiv(left.toNanos(), 1_000_000_000L), 1, Integer.MAX_VALUE))
+                .orElse(0);
+    }
+}
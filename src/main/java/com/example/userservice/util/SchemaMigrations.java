@@ -0,0 +1,41 @@
+package com.example.userservice.util;
+
+import org.flywaydb.core.Flyway;
+import org.flywaydb.core.api.output.MigrateResult;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Схему ведут миграции Flyway из {@code db/migration}, а не hbm2ddl: {@code update} не умеет ни заполнить
+ * новую NOT NULL колонку в непустой таблице, ни поменять шаг последовательности.
+ * <p>
+ * База, которую раньше создавал hbm2ddl, истории миграций не имеет; её таблица соответствует V0,
+ * поэтому такая база принимается за версию 0 и получает только V1 и дальше. Пустая база проходит все миграции.
+ * Миграции запускаются до создания {@code SessionFactory}; отключаются свойством {@link #ENABLED},
+ * если схему обновляют отдельно от приложения.
+ */
+public final class SchemaMigrations {
+
+    private static final Logger log = LoggerFactory.getLogger(SchemaMigrations.class);
+
+    public static final String ENABLED = "hibernate.userservice.migrations.enabled";
+    static final String LOCATION = "classpath:db/migration";
+    static final String BASELINE_VERSION = "0";
+
+    private SchemaMigrations() {
+    }
+
+    public static void migrate(String url, String user, String password) {
+        MigrateResult result = Flyway.configure()
+                .dataSource(url, user, password)
+                .locations(LOCATION)
+                .baselineOnMigrate(true)
+                .baselineVersion(BASELINE_VERSION)
+                .load()
+                .migrate();
+        if (result.migrationsExecuted > 0) {
+            log.info("Схема обновлена до версии {}: применено миграций {}", result.targetSchemaVersion,
+                    result.migrationsExecuted);
+        }
+    }
+}
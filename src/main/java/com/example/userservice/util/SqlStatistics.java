@@ -0,0 +1,181 @@
+package com.example.userservice.util;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.sql.Connection;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.regex.Pattern;
+
+/**
+ * Статистика SQL по «форме» запроса: литералы заменены на ?, списки параметров IN свёрнуты, пробелы
+ * нормализованы, так что один и тот же запрос с разными значениями попадает в одну строку.
+ * По каждой форме — число выполнений, суммарное и максимальное время, строки (прочитанные или изменённые)
+ * и число подозрений на N+1. Замеры снимает обёртка над JDBC-соединениями из {@link PooledConnectionProvider}.
+ * <p>
+ * Запросы дольше порога пишутся в логгер {@value #SLOW_LOGGER}. Если один и тот же SELECT выполняется
+ * за одно использование соединения (обычно это одна транзакция) не меньше заданного числа раз,
+ * в тот же логгер уходит предупреждение о возможном N+1.
+ */
+public class SqlStatistics {
+
+    public static final String SLOW_QUERY_MS = "hibernate.userservice.slow_query_ms";
+    public static final String N_PLUS_ONE_THRESHOLD = "hibernate.userservice.n_plus_one_threshold";
+    static final String SLOW_LOGGER = "com.example.userservice.sql";
+
+    static final long DEFAULT_SLOW_QUERY_MS = 200;
+    static final int DEFAULT_N_PLUS_ONE_THRESHOLD = 10;
+    // защита от неограниченного роста: запросы со склеенными в текст значениями дают бесконечно много форм
+    static final int MAX_SHAPES = 2_000;
+    static final String OTHER_SHAPE = "<прочие запросы>";
+    private static final int MAX_LOGGED_SQL_CHARS = 2_000;
+
+    private static final Logger slowLog = LoggerFactory.getLogger(SLOW_LOGGER);
+
+    private static final Pattern STRING_LITERAL = Pattern.compile("'(?:[^']|'')*'");
+    private static final Pattern NUMBER_LITERAL = Pattern.compile("(?<![\\w$.])-?\\d+(?:\\.\\d+)?\\b");
+    private static final Pattern PARAMETER_LIST = Pattern.compile("\\(\\s*\\?(?:\\s*,\\s*\\?)+\\s*\\)");
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+
+    private final long slowThresholdNanos;
+    private final int nPlusOneThreshold;
+    private final ConcurrentHashMap<String, StatementStats> byShape = new ConcurrentHashMap<>();
+    // текст запроса -> его статистика; Hibernate переиспользует одни и те же строки SQL,
+    // так что нормализация выполняется один раз на текст
+    private final ConcurrentHashMap<String, StatementStats> bySql = new ConcurrentHashMap<>();
+
+    public SqlStatistics(Duration slowThreshold, int nPlusOneThreshold) {
+        if (nPlusOneThreshold < 2) {
+            throw new IllegalArgumentException("Порог N+1 должен быть не меньше 2");
+        }
+        this.slowThresholdNanos = slowThreshold.toNanos();
+        this.nPlusOneThreshold = nPlusOneThreshold;
+    }
+
+    static SqlStatistics fromSettings(Map<String, Object> settings) {
+        Object slow = settings.get(SLOW_QUERY_MS);
+        Object nPlusOne = settings.get(N_PLUS_ONE_THRESHOLD);
+        return new SqlStatistics(
+                Duration.ofMillis(slow == null ? DEFAULT_SLOW_QUERY_MS : Long.parseLong(slow.toString().trim())),
+                nPlusOne == null ? DEFAULT_N_PLUS_ONE_THRESHOLD : Integer.parseInt(nPlusOne.toString().trim()));
+    }
+
+    /**
+     * Оборачивает соединение так, чтобы все выполняемые через него запросы попадали в статистику.
+     */
+    public Connection instrument(Connection connection) {
+        return InstrumentedJdbc.wrap(connection, this);
+    }
+
+    static String shapeOf(String sql) {
+        String shape = STRING_LITERAL.matcher(sql).replaceAll("?");
+        shape = NUMBER_LITERAL.matcher(shape).replaceAll("?");
+        shape = PARAMETER_LIST.matcher(shape).replaceAll("(?...)");
+        return WHITESPACE.matcher(shape).replaceAll(" ").trim();
+    }
+
+    StatementStats statsFor(String sql) {
+        StatementStats stats = bySql.get(sql);
+        if (stats != null) {
+            return stats;
+        }
+        String shape = shapeOf(sql);
+        stats = byShape.get(shape);
+        if (stats == null) {
+            stats = byShape.computeIfAbsent(byShape.size() < MAX_SHAPES ? shape : OTHER_SHAPE, StatementStats::new);
+        }
+        if (bySql.size() < MAX_SHAPES * 4) {
+            bySql.putIfAbsent(sql, stats);
+        }
+        return stats;
+    }
+
+    void executed(StatementStats stats, String sql, long nanos, long rowsChanged) {
+        stats.count.increment();
+        stats.totalNanos.add(nanos);
+        stats.maxNanos.accumulate(nanos);
+        if (rowsChanged > 0) {
+            stats.rows.add(rowsChanged);
+        }
+        if (nanos >= slowThresholdNanos && slowLog.isInfoEnabled()) {
+            slowLog.info("Медленный запрос: {} мс{}: {}", TimeUnit.NANOSECONDS.toMillis(nanos),
+                    rowsChanged > 0 ? ", строк " + rowsChanged : "", truncate(sql));
+        }
+    }
+
+    /**
+     * Вызывается при возврате соединения: {@code executions} — сколько раз каждая форма SELECT
+     * выполнялась за время его использования.
+     */
+    void leaseFinished(Map<StatementStats, Integer> executions) {
+        executions.forEach((stats, count) -> {
+            if (count >= nPlusOneThreshold && stats.readsTable) {
+                stats.nPlusOneSuspects.increment();
+                slowLog.warn("Возможный N+1: запрос выполнен {} раз за одно использование соединения: {}",
+                        count, stats.shape);
+            }
+        });
+    }
+
+    int nPlusOneThreshold() {
+        return nPlusOneThreshold;
+    }
+
+    public List<Snapshot> snapshot() {
+        List<Snapshot> result = new ArrayList<>(byShape.size());
+        byShape.values().forEach(stats -> result.add(stats.snapshot()));
+        result.sort(Comparator.comparingLong(Snapshot::totalNanos).reversed());
+        return result;
+    }
+
+    /**
+     * Текстовая сводка по {@code limit} самым затратным по суммарному времени формам запросов.
+     */
+    public String dump(int limit) {
+        StringBuilder sb = new StringBuilder(String.format("%9s %10s %9s %10s %6s  %s%n",
+                "выполн.", "всего мс", "max мс", "строк", "N+1", "запрос"));
+        snapshot().stream().limit(limit).forEach(s -> sb.append(String.format("%9d %10d %9d %10d %6d  %s%n",
+                s.count(), TimeUnit.NANOSECONDS.toMillis(s.totalNanos()), TimeUnit.NANOSECONDS.toMillis(s.maxNanos()),
+                s.rows(), s.nPlusOneSuspects(), s.shape())));
+        return sb.toString();
+    }
+
+    private static String truncate(String sql) {
+        return sql.length() <= MAX_LOGGED_SQL_CHARS ? sql : sql.substring(0, MAX_LOGGED_SQL_CHARS) + "...";
+    }
+
+    public record Snapshot(String shape, long count, long totalNanos, long maxNanos, long rows,
+                           long nPlusOneSuspects) {
+    }
+
+    static final class StatementStats {
+        final String shape;
+        // SELECT без FROM (nextval, now()) повторяется по делу, на N+1 не проверяется
+        final boolean readsTable;
+        final LongAdder count = new LongAdder();
+        final LongAdder totalNanos = new LongAdder();
+        final LongAccumulator maxNanos = new LongAccumulator(Math::max, 0);
+        final LongAdder rows = new LongAdder();
+        final LongAdder nPlusOneSuspects = new LongAdder();
+
+        StatementStats(String shape) {
+            this.shape = shape;
+            String lower = shape.toLowerCase(Locale.ROOT);
+            this.readsTable = lower.startsWith("select") && lower.contains(" from ");
+        }
+
+        Snapshot snapshot() {
+            return new Snapshot(shape, count.sum(), totalNanos.sum(), maxNanos.get(), rows.sum(),
+                    nPlusOneSuspects.sum());
+        }
+    }
+}
@@ -0,0 +1,86 @@
+package com.example.userservice.util;
+
+import com.example.userservice.entity.User;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+
+/**
+ * Запись и разбор плоского JSON-объекта пользователя ({"id": ..., "name": ..., "email": ..., "age": ..., "createdAt": ...}).
+ * Строковый фасад над {@link UserJsonWriter} и {@link UserJsonReader}; там, где есть поток байтов,
+ * удобнее пользоваться ими напрямую.
+ */
+public final class UserJson {
+
+    private UserJson() {
+    }
+
+    public static User parse(String json) {
+        return UserJsonReader.read(json.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static String write(User user) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(128);
+        try {
+            new UserJsonWriter(bytes, 256).writeUser(user).flush();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return bytes.toString(StandardCharsets.UTF_8);
+    }
+
+    public static String writeError(String message) {
+        StringBuilder sb = new StringBuilder(32 + message.length());
+        sb.append("{\"error\":");
+        appendString(sb, message);
+        return sb.append('}').toString();
+    }
+
+    public static String writeCount(long count) {
+        return "{\"count\":" + count + '}';
+    }
+
+    /**
+     * Объект «ключ → число» (гистограммы, ряды по дням); ключи записываются через toString в порядке обхода.
+     */
+    public static String writeCounts(Map<?, Long> counts) {
+        StringBuilder sb = new StringBuilder(2 + counts.size() * 24).append('{');
+        counts.forEach((key, count) -> {
+            if (sb.length() > 1) {
+                sb.append(',');
+            }
+            appendString(sb, key.toString());
+            sb.append(':').append(count);
+        });
+        return sb.append('}').toString();
+    }
+
+    private static void appendString(StringBuilder out, String value) {
+        if (value == null) {
+            out.append("null");
+            return;
+        }
+        out.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"' -> out.append("\\\"");
+                case '\\' -> out.append("\\\\");
+                case '\n' -> out.append("\\n");
+                case '\r' -> out.append("\\r");
+                case '\t' -> out.append("\\t");
+                default -> {
+                    if (c < 0x20) {
+                        out.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        out.append(c);
+                    }
+                }
+            }
+        }
+        out.append('"');
+    }
+}
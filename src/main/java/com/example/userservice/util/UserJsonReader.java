@@ -0,0 +1,276 @@
+package com.example.userservice.util;
+
+import com.example.userservice.entity.User;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Разбор плоского JSON-объекта пользователя прямо из байтов UTF-8, без декодирования всего документа в строку:
+ * строки создаются только для значений name и email. Поля id и createdAt, как и неизвестные поля,
+ * пропускаются — их назначает сервер. Вложенные объекты и массивы не поддерживаются.
+ */
+public final class UserJsonReader {
+
+    private final byte[] data;
+    private final int end;
+    private int pos;
+
+    private UserJsonReader(byte[] data, int from, int to) {
+        this.data = data;
+        this.pos = from;
+        this.end = to;
+    }
+
+    public static User read(byte[] json) {
+        return read(json, 0, json.length);
+    }
+
+    public static User read(byte[] json, int from, int to) {
+        if (from < 0 || to > json.length || from > to) {
+            throw new IndexOutOfBoundsException("Диапазон [" + from + ", " + to + ") вне массива длины " + json.length);
+        }
+        return new UserJsonReader(json, from, to).parseUser();
+    }
+
+    private User parseUser() {
+        String name = null;
+        String email = null;
+        Integer age = null;
+        skipWhitespace();
+        expect('{');
+        skipWhitespace();
+        if (peek() == '}') {
+            pos++;
+        } else {
+            while (true) {
+                skipWhitespace();
+                Field field = parseFieldName();
+                skipWhitespace();
+                expect(':');
+                skipWhitespace();
+                switch (field) {
+                    case NAME -> name = parseNullableString();
+                    case EMAIL -> email = parseNullableString();
+                    case AGE -> age = parseNullableInt();
+                    case OTHER -> skipValue();
+                }
+                skipWhitespace();
+                byte c = next();
+                if (c == '}') {
+                    break;
+                }
+                if (c != ',') {
+                    throw error("ожидалась ',' или '}'");
+                }
+            }
+        }
+        skipWhitespace();
+        if (pos != end) {
+            throw error("лишние символы после объекта");
+        }
+        return new User(name, email, age);
+    }
+
+    private enum Field { NAME, EMAIL, AGE, OTHER }
+
+    // имя поля сравнивается с известными ключами по байтам, без создания строки
+    private Field parseFieldName() {
+        int start = pos + 1;
+        String escaped = parseString();
+        if (escaped != null) {
+            return switch (escaped) {
+                case "name" -> Field.NAME;
+                case "email" -> Field.EMAIL;
+                case "age" -> Field.AGE;
+                default -> Field.OTHER;
+            };
+        }
+        int length = pos - 1 - start;
+        if (matches(start, length, "name")) {
+            return Field.NAME;
+        }
+        if (matches(start, length, "email")) {
+            return Field.EMAIL;
+        }
+        if (matches(start, length, "age")) {
+            return Field.AGE;
+        }
+        return Field.OTHER;
+    }
+
+    private boolean matches(int start, int length, String key) {
+        if (length != key.length()) {
+            return false;
+        }
+        for (int i = 0; i < length; i++) {
+            if (data[start + i] != key.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private String parseNullableString() {
+        if (peek() == 'n') {
+            expectLiteral("null");
+            return null;
+        }
+        int start = pos + 1;
+        String escaped = parseString();
+        return escaped != null ? escaped : new String(data, start, pos - 1 - start, StandardCharsets.UTF_8);
+    }
+
+    private Integer parseNullableInt() {
+        if (peek() == 'n') {
+            expectLiteral("null");
+            return null;
+        }
+        boolean negative = false;
+        if (peek() == '-') {
+            negative = true;
+            pos++;
+        }
+        int start = pos;
+        long value = 0;
+        while (pos < end && data[pos] >= '0' && data[pos] <= '9') {
+            value = value * 10 + (data[pos++] - '0');
+            if (value > (long) Integer.MAX_VALUE + 1) {
+                throw error("некорректное целое число");
+            }
+        }
+        if (pos == start) {
+            throw error("некорректное целое число");
+        }
+        value = negative ? -value : value;
+        if (value > Integer.MAX_VALUE) {
+            throw error("некорректное целое число");
+        }
+        return (int) value;
+    }
+
+    /**
+     * Пропускает строку в кавычках. Если в ней нет escape-последовательностей, возвращает null —
+     * значение лежит в data между открывающей кавычкой и pos - 1; иначе возвращает раскодированную строку.
+     */
+    private String parseString() {
+        expect('"');
+        int start = pos;
+        while (true) {
+            byte c = next();
+            if (c == '"') {
+                return null;
+            }
+            if (c == '\\') {
+                pos--;
+                return parseEscapedString(start);
+            }
+        }
+    }
+
+    private String parseEscapedString(int start) {
+        StringBuilder sb = new StringBuilder(pos - start + 16);
+        int runStart = start;
+        while (true) {
+            byte c = next();
+            if (c == '"') {
+                appendRun(sb, runStart, pos - 1);
+                return sb.toString();
+            }
+            if (c != '\\') {
+                continue;
+            }
+            appendRun(sb, runStart, pos - 1);
+            byte e = next();
+            switch (e) {
+                case '"', '\\', '/' -> sb.append((char) e);
+                case 'b' -> sb.append('\b');
+                case 'f' -> sb.append('\f');
+                case 'n' -> sb.append('\n');
+                case 'r' -> sb.append('\r');
+                case 't' -> sb.append('\t');
+                case 'u' -> sb.append(parseHexChar());
+                default -> throw error("неизвестная escape-последовательность");
+            }
+            runStart = pos;
+        }
+    }
+
+    private void appendRun(StringBuilder sb, int from, int to) {
+        if (to > from) {
+            sb.append(new String(data, from, to - from, StandardCharsets.UTF_8));
+        }
+    }
+
+    private char parseHexChar() {
+        if (pos + 4 > end) {
+            throw error("обрезанная \\u-последовательность");
+        }
+        int value = 0;
+        for (int i = 0; i < 4; i++) {
+            int digit = Character.digit(data[pos + i], 16);
+            if (digit < 0) {
+                throw error("некорректная \\u-последовательность");
+            }
+            value = (value << 4) | digit;
+        }
+        pos += 4;
+        return (char) value;
+    }
+
+    private void skipValue() {
+        byte c = peek();
+        if (c == '"') {
+            parseString();
+        } else if (c == '{' || c == '[') {
+            throw error("вложенные значения не поддерживаются");
+        } else {
+            while (pos < end && !isDelimiter(data[pos])) {
+                pos++;
+            }
+        }
+    }
+
+    private static boolean isDelimiter(byte c) {
+        return c == ',' || c == '}' || isWhitespace(c);
+    }
+
+    private static boolean isWhitespace(byte c) {
+        return c == ' ' || c == '\t' || c == '\r' || c == '\n';
+    }
+
+    private void expectLiteral(String literal) {
+        if (!matches(pos, Math.min(literal.length(), end - pos), literal)) {
+            throw error("ожидалось " + literal);
+        }
+        pos += literal.length();
+    }
+
+    private void skipWhitespace() {
+        while (pos < end && isWhitespace(data[pos])) {
+            pos++;
+        }
+    }
+
+    private void expect(char expected) {
+        if (next() != expected) {
+            throw error("ожидался символ '" + expected + "'");
+        }
+    }
+
+    private byte peek() {
+        if (pos >= end) {
+            throw error("неожиданный конец строки");
+        }
+        return data[pos];
+    }
+
+    private byte next() {
+        byte c = peek();
+        pos++;
+        return c;
+    }
+
+    private IllegalArgumentException error(String message) {
+        return new IllegalArgumentException("Некорректный JSON (позиция " + pos + "): " + message);
+    }
+}
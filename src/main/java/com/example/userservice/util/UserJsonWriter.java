@@ -0,0 +1,347 @@
+package com.example.userservice.util;
+
+import com.example.userservice.entity.User;
+import com.example.userservice.entity.UserView;
+
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.Iterator;
+
+/**
+ * Запись пользователей в JSON напрямую в {@link OutputStream}: символы кодируются в UTF-8 во внутренний
+ * буфер, который сбрасывается в поток по мере заполнения, поэтому промежуточных строк и отражения нет.
+ * Формат — плоский объект {"id", "name", "email", "age", "createdAt"}, дата как в {@link Instant#toString()}.
+ * <p>
+ * Массив можно писать по одному элементу ({@link #beginArray()}, {@link #writeUser}, {@link #endArray()}),
+ * не собирая список целиком, — например, прямо из курсора DAO. Писатель не потокобезопасен
+ * и не закрывает поток: вызывающий отвечает за {@link #flush()} и закрытие.
+ */
+public final class UserJsonWriter implements Flushable {
+
+    static final int DEFAULT_BUFFER_SIZE = 8 * 1024;
+    // самый длинный неделимый фрагмент: long или дата в ISO-8601
+    private static final int MIN_BUFFER_SIZE = 64;
+
+    private static final byte[] ID = ascii("{\"id\":");
+    private static final byte[] NAME = ascii(",\"name\":");
+    private static final byte[] EMAIL = ascii(",\"email\":");
+    private static final byte[] AGE = ascii(",\"age\":");
+    private static final byte[] CREATED_AT = ascii(",\"createdAt\":");
+    private static final byte[] NULL = ascii("null");
+    private static final byte[] HEX = ascii("0123456789abcdef");
+
+    private static final long SECONDS_PER_DAY = 86_400;
+    // дней от 0000-03-01 до 1970-01-01
+    private static final long DAYS_0000_TO_1970 = 719_468;
+    private static final long DAYS_PER_400_YEARS = 146_097;
+
+    private final OutputStream out;
+    private final byte[] buf;
+    private int pos;
+    private boolean inArray;
+    private boolean arrayEmpty;
+
+    public UserJsonWriter(OutputStream out) {
+        this(out, DEFAULT_BUFFER_SIZE);
+    }
+
+    public UserJsonWriter(OutputStream out, int bufferSize) {
+        if (bufferSize < MIN_BUFFER_SIZE) {
+            throw new IllegalArgumentException("Размер буфера должен быть не меньше " + MIN_BUFFER_SIZE + " байт");
+        }
+        this.out = out;
+        this.buf = new byte[bufferSize];
+    }
+
+    public UserJsonWriter writeUser(User user) throws IOException {
+        return writeUser(user.getId(), user.getName(), user.getEmail(), user.getAge(), user.getCreatedAt());
+    }
+
+    /**
+     * Пишет пользователя по отдельным полям — для курсоров, где сущность не нужна.
+     */
+    public UserJsonWriter writeUser(Long id, String name, String email, Integer age, Instant createdAt)
+            throws IOException {
+        writeFieldsUpToCreatedAt(id, name, email, age);
+        if (createdAt == null) {
+            writeRaw(NULL);
+        } else {
+            writeByte('"');
+            writeInstant(createdAt.getEpochSecond(), createdAt.getNano());
+            writeByte('"');
+        }
+        writeByte('}');
+        return this;
+    }
+
+    /**
+     * Пишет проекцию; время создания форматируется прямо из микросекунд, без {@link Instant}.
+     */
+    public UserJsonWriter writeUser(UserView user) throws IOException {
+        writeFieldsUpToCreatedAt(user.id(), user.name(), user.email(), user.age());
+        long micros = user.createdAtEpochMicros();
+        writeByte('"');
+        writeInstant(Math.floorDiv(micros, 1_000_000L), (int) Math.floorMod(micros, 1_000_000L) * 1_000);
+        writeByte('"');
+        writeByte('}');
+        return this;
+    }
+
+    private void writeFieldsUpToCreatedAt(Long id, String name, String email, Integer age) throws IOException {
+        if (inArray) {
+            if (arrayEmpty) {
+                arrayEmpty = false;
+            } else {
+                writeByte(',');
+            }
+        }
+        writeRaw(ID);
+        writeNullableLong(id);
+        writeRaw(NAME);
+        writeString(name);
+        writeRaw(EMAIL);
+        writeString(email);
+        writeRaw(AGE);
+        writeNullableLong(age == null ? null : age.longValue());
+        writeRaw(CREATED_AT);
+    }
+
+    public UserJsonWriter beginArray() throws IOException {
+        if (inArray) {
+            throw new IllegalStateException("Массив уже открыт");
+        }
+        writeByte('[');
+        inArray = true;
+        arrayEmpty = true;
+        return this;
+    }
+
+    public UserJsonWriter endArray() throws IOException {
+        if (!inArray) {
+            throw new IllegalStateException("Массив не открыт");
+        }
+        writeByte(']');
+        inArray = false;
+        return this;
+    }
+
+    /**
+     * Пишет массив, забирая пользователей из итератора по одному.
+     *
+     * @return число записанных пользователей
+     */
+    public long writeArray(Iterator<User> users) throws IOException {
+        beginArray();
+        long count = 0;
+        while (users.hasNext()) {
+            writeUser(users.next());
+            count++;
+        }
+        endArray();
+        return count;
+    }
+
+    /**
+     * То же, что {@link #writeArray}, для проекций.
+     *
+     * @return число записанных пользователей
+     */
+    public long writeViewArray(Iterator<UserView> users) throws IOException {
+        beginArray();
+        long count = 0;
+        while (users.hasNext()) {
+            writeUser(users.next());
+            count++;
+        }
+        endArray();
+        return count;
+    }
+
+    /**
+     * Перевод строки между записями NDJSON.
+     */
+    public UserJsonWriter newLine() throws IOException {
+        writeByte('\n');
+        return this;
+    }
+
+    @Override
+    public void flush() throws IOException {
+        flushBuffer();
+        out.flush();
+    }
+
+    private void flushBuffer() throws IOException {
+        if (pos > 0) {
+            out.write(buf, 0, pos);
+            pos = 0;
+        }
+    }
+
+    private void ensure(int bytes) throws IOException {
+        if (pos + bytes > buf.length) {
+            flushBuffer();
+        }
+    }
+
+    private void writeByte(char c) throws IOException {
+        ensure(1);
+        buf[pos++] = (byte) c;
+    }
+
+    private void writeRaw(byte[] bytes) throws IOException {
+        ensure(bytes.length);
+        System.arraycopy(bytes, 0, buf, pos, bytes.length);
+        pos += bytes.length;
+    }
+
+    private void writeString(String value) throws IOException {
+        if (value == null) {
+            writeRaw(NULL);
+            return;
+        }
+        writeByte('"');
+        int length = value.length();
+        for (int i = 0; i < length; i++) {
+            char c = value.charAt(i);
+            if (c < 0x80) {
+                if (c >= 0x20 && c != '"' && c != '\\') {
+                    ensure(1);
+                    buf[pos++] = (byte) c;
+                } else {
+                    writeEscaped(c);
+                }
+            } else if (c < 0x800) {
+                ensure(2);
+                buf[pos++] = (byte) (0xC0 | (c >> 6));
+                buf[pos++] = (byte) (0x80 | (c & 0x3F));
+            } else if (Character.isHighSurrogate(c) && i + 1 < length && Character.isLowSurrogate(value.charAt(i + 1))) {
+                int cp = Character.toCodePoint(c, value.charAt(++i));
+                ensure(4);
+                buf[pos++] = (byte) (0xF0 | (cp >> 18));
+                buf[pos++] = (byte) (0x80 | ((cp >> 12) & 0x3F));
+                buf[pos++] = (byte) (0x80 | ((cp >> 6) & 0x3F));
+                buf[pos++] = (byte) (0x80 | (cp & 0x3F));
+            } else if (Character.isSurrogate(c)) {
+                // непарный суррогат: как String.getBytes(UTF_8)
+                ensure(1);
+                buf[pos++] = '?';
+            } else {
+                ensure(3);
+                buf[pos++] = (byte) (0xE0 | (c >> 12));
+                buf[pos++] = (byte) (0x80 | ((c >> 6) & 0x3F));
+                buf[pos++] = (byte) (0x80 | (c & 0x3F));
+            }
+        }
+        writeByte('"');
+    }
+
+    private void writeEscaped(char c) throws IOException {
+        ensure(6);
+        buf[pos++] = '\\';
+        switch (c) {
+            case '"' -> buf[pos++] = '"';
+            case '\\' -> buf[pos++] = '\\';
+            case '\n' -> buf[pos++] = 'n';
+            case '\r' -> buf[pos++] = 'r';
+            case '\t' -> buf[pos++] = 't';
+            default -> {
+                buf[pos++] = 'u';
+                buf[pos++] = '0';
+                buf[pos++] = '0';
+                buf[pos++] = HEX[c >> 4];
+                buf[pos++] = HEX[c & 0xF];
+            }
+        }
+    }
+
+    private void writeNullableLong(Long value) throws IOException {
+        if (value == null) {
+            writeRaw(NULL);
+        } else {
+            writeLong(value);
+        }
+    }
+
+    private void writeLong(long value) throws IOException {
+        if (value == Long.MIN_VALUE) {
+            writeRaw(ascii(Long.toString(value)));
+            return;
+        }
+        ensure(20);
+        if (value < 0) {
+            buf[pos++] = '-';
+            value = -value;
+        }
+        int digits = 1;
+        for (long rest = value / 10; rest > 0; rest /= 10) {
+            digits++;
+        }
+        for (int i = pos + digits - 1; i >= pos; i--) {
+            buf[i] = (byte) ('0' + value % 10);
+            value /= 10;
+        }
+        pos += digits;
+    }
+
+    /**
+     * То же, что {@link Instant#toString()}: yyyy-MM-ddTHH:mm:ss, дробная часть группами по три цифры, Z.
+     */
+    private void writeInstant(long epochSecond, int nano) throws IOException {
+        long secondOfDay = Math.floorMod(epochSecond, SECONDS_PER_DAY);
+        // гражданская дата по числу дней (алгоритм days_from_civil в обратную сторону)
+        long z = Math.floorDiv(epochSecond, SECONDS_PER_DAY) + DAYS_0000_TO_1970;
+        long era = Math.floorDiv(z, DAYS_PER_400_YEARS);
+        long dayOfEra = z - era * DAYS_PER_400_YEARS;
+        long yearOfEra = (dayOfEra - dayOfEra / 1460 + dayOfEra / 36524 - dayOfEra / 146096) / 365;
+        long dayOfYear = dayOfEra - (365 * yearOfEra + yearOfEra / 4 - yearOfEra / 100);
+        long mp = (5 * dayOfYear + 2) / 153;
+        int day = (int) (dayOfYear - (153 * mp + 2) / 5 + 1);
+        int month = (int) (mp < 10 ? mp + 3 : mp - 9);
+        long year = yearOfEra + era * 400 + (month <= 2 ? 1 : 0);
+        if (year < 0 || year > 9999) {
+            // знак и расширенный год — редкость, отдаём стандартному форматтеру
+            writeRaw(ascii(Instant.ofEpochSecond(epochSecond, nano).toString()));
+            return;
+        }
+        ensure(30);
+        writeDigits((int) year, 4);
+        buf[pos++] = '-';
+        writeDigits(month, 2);
+        buf[pos++] = '-';
+        writeDigits(day, 2);
+        buf[pos++] = 'T';
+        writeDigits((int) (secondOfDay / 3600), 2);
+        buf[pos++] = ':';
+        writeDigits((int) (secondOfDay / 60 % 60), 2);
+        buf[pos++] = ':';
+        writeDigits((int) (secondOfDay % 60), 2);
+        if (nano > 0) {
+            buf[pos++] = '.';
+            if (nano % 1_000_000 == 0) {
+                writeDigits(nano / 1_000_000, 3);
+            } else if (nano % 1_000 == 0) {
+                writeDigits(nano / 1_000, 6);
+            } else {
+                writeDigits(nano, 9);
+            }
+        }
+        buf[pos++] = 'Z';
+    }
+
+    // место в буфере проверяет вызывающий
+    private void writeDigits(int value, int width) {
+        for (int i = pos + width - 1; i >= pos; i--) {
+            buf[i] = (byte) ('0' + value % 10);
+            value /= 10;
+        }
+        pos += width;
+    }
+
+    private static byte[] ascii(String s) {
+        return s.getBytes(StandardCharsets.US_ASCII);
+    }
+}
@@ -0,0 +1,9 @@
+-- Исходная таблица — такая, какой её создавал hbm2ddl до перехода на миграции.
+-- На существующей базе не выполняется: SchemaMigrations принимает её за базовую версию 0.
+CREATE TABLE IF NOT EXISTS users (
+    id SERIAL PRIMARY KEY,
+    name VARCHAR(200) NOT NULL,
+    email VARCHAR(255) NOT NULL UNIQUE,
+    age INTEGER,
+    created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP NOT NULL
+);
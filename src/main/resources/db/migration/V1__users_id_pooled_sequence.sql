@@ -0,0 +1,7 @@
+-- Переход с IDENTITY/SERIAL на последовательность с шагом 50 (pooled-оптимизатор Hibernate).
+-- Шаг должен совпадать с allocationSize в User, иначе Hibernate не стартует.
+ALTER TABLE users ALTER COLUMN id DROP IDENTITY IF EXISTS;
+CREATE SEQUENCE IF NOT EXISTS users_id_seq;
+ALTER SEQUENCE users_id_seq INCREMENT BY 50 OWNED BY users.id;
+SELECT setval('users_id_seq', (SELECT coalesce(max(id), 0) + 1 FROM users));
+ALTER TABLE users ALTER COLUMN id SET DEFAULT nextval('users_id_seq');
@@ -0,0 +1,10 @@
+-- Регистронезависимые поиск и уникальность email: нормализованная копия (trim + lower),
+-- которую заполняет User.setEmail, и уникальный индекс uk_users_email на ней вместо индекса на email.
+-- Если в таблице уже есть адреса, различающиеся только регистром, ADD CONSTRAINT упадёт —
+-- такие дубликаты нужно разобрать до миграции.
+ALTER TABLE users ADD COLUMN IF NOT EXISTS email_normalized VARCHAR(255);
+UPDATE users SET email_normalized = lower(trim(email)) WHERE email_normalized IS NULL;
+ALTER TABLE users ALTER COLUMN email_normalized SET NOT NULL;
+ALTER TABLE users DROP CONSTRAINT IF EXISTS uk_users_email;
+ALTER TABLE users DROP CONSTRAINT IF EXISTS users_email_key;
+ALTER TABLE users ADD CONSTRAINT uk_users_email UNIQUE (email_normalized);
@@ -0,0 +1,3 @@
+-- Версия строки для оптимистической блокировки (@Version в User): каждый UPDATE увеличивает её на 1.
+-- Существующие строки получают 0; вставки, которые не указывают колонку (COPY в UserImporter), — тоже.
+ALTER TABLE users ADD COLUMN IF NOT EXISTS version BIGINT NOT NULL DEFAULT 0;
@@ -0,0 +1,7 @@
+-- Индексы для UserDao.search. Составные (колонка, id) отдают страницу keyset-пагинации
+-- прямо из индекса в порядке сортировки; триграммный GIN обслуживает ilike по началу и подстроке имени.
+-- На большой таблице индексы лучше строить вручную с CREATE INDEX CONCURRENTLY до выкладки.
+CREATE EXTENSION IF NOT EXISTS pg_trgm;
+CREATE INDEX IF NOT EXISTS idx_users_created_at ON users (created_at, id);
+CREATE INDEX IF NOT EXISTS idx_users_name ON users (name, id);
+CREATE INDEX IF NOT EXISTS idx_users_name_trgm ON users USING gin (name gin_trgm_ops);
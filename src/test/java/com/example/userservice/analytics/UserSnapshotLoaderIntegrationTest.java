@@ -0,0 +1,80 @@
+package com.example.userservice.analytics;
+
+import com.example.userservice.dao.UserDao;
+import com.example.userservice.dao.UserDaoImpl;
+import com.example.userservice.entity.User;
+import com.example.userservice.util.HibernateUtil;
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+import org.hibernate.Transaction;
+import org.junit.jupiter.api.*;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.sql.Connection;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@Testcontainers
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+class UserSnapshotLoaderIntegrationTest {
+
+    @Container
+    private static final PostgreSQLContainer<?> postgres =
+            new PostgreSQLContainer<>("postgres:15.3")
+                    .withDatabaseName("testdb")
+                    .withUsername("test")
+                    .withPassword("test");
+
+    private SessionFactory sessionFactory;
+    private List<User> users;
+
+    @BeforeAll
+    void setUp() throws Exception {
+        try (Connection conn = postgres.createConnection("");
+             Statement stmt = conn.createStatement()) {
+            String schemaSql = Files.readString(Paths.get("src/test/resources/schema.sql"));
+            stmt.execute(schemaSql);
+        }
+
+        System.setProperty("hibernate.connection.url", postgres.getJdbcUrl());
+        System.setProperty("hibernate.connection.username", postgres.getUsername());
+        System.setProperty("hibernate.connection.password", postgres.getPassword());
+
+        sessionFactory = HibernateUtil.getSessionFactory();
+        try (Session session = sessionFactory.openSession()) {
+            Transaction tx = session.beginTransaction();
+            session.createNativeQuery("TRUNCATE TABLE users CASCADE").executeUpdate();
+            tx.commit();
+        }
+        users = new ArrayList<>();
+        for (int i = 0; i < 250; i++) {
+            users.add(new User("User " + (i % 20), "user" + i + "@example.com", i % 5 == 0 ? null : 18 + i % 40));
+        }
+        UserDao userDao = new UserDaoImpl(sessionFactory);
+        userDao.createAll(users);
+    }
+
+    @Test
+    void load_ReadsWholeTableIntoColumnsOrderedById() {
+        UserSnapshot snapshot = new UserSnapshotLoader(sessionFactory).load();
+
+        assertEquals(users.size(), snapshot.size());
+        for (int row = 0; row < snapshot.size(); row++) {
+            User expected = users.get(row);
+            assertEquals(expected.getId().longValue(), snapshot.id(row));
+            assertEquals(expected.getName(), snapshot.name(row));
+            assertEquals(expected.getEmail(), snapshot.email(row));
+            assertEquals(expected.getAge(), snapshot.age(row));
+            assertEquals(expected.getCreatedAt().getEpochSecond(), snapshot.createdAt(row).getEpochSecond());
+        }
+        assertEquals(50, snapshot.countWithoutAge());
+        assertEquals(users.size(), snapshot.signupsByDay().values().stream().mapToLong(Long::longValue).sum());
+    }
+}
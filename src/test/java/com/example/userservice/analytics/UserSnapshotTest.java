@@ -0,0 +1,118 @@
+package com.example.userservice.analytics;
+
+import com.example.userservice.entity.User;
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class UserSnapshotTest {
+
+    private static final Instant DAY_ONE = Instant.parse("2024-03-01T00:00:00Z");
+
+    // 5000 строк: больше начальной ёмкости построителя и достаточно, чтобы стрим разбился на части
+    private static List<User> users() {
+        List<User> users = new ArrayList<>();
+        for (int i = 0; i < 5_000; i++) {
+            Integer age = i % 10 == 0 ? null : i % 100;
+            Instant createdAt = i % 7 == 0 ? null : DAY_ONE.plusSeconds(i * 60L).plusNanos(123_000);
+            String email = i == 1 ? null : "user" + i + "@пример.рф";
+            users.add(new User((long) i + 1, "Имя " + (i % 50), email, age, createdAt));
+        }
+        return users;
+    }
+
+    @Test
+    void aggregates_MatchComputationOverUserObjects() {
+        List<User> users = users();
+        UserSnapshot snapshot = UserSnapshot.from(users.stream());
+
+        assertEquals(users.size(), snapshot.size());
+        assertEquals(users.stream().filter(u -> u.getAge() == null).count(), snapshot.countWithoutAge());
+        assertEquals(users.stream().filter(u -> u.getAge() != null).mapToInt(User::getAge).average(),
+                snapshot.averageAge());
+        assertEquals(users.stream().filter(u -> u.getAge() != null && u.getAge() >= 18 && u.getAge() <= 30).count(),
+                snapshot.countAgeBetween(18, 30));
+        assertArrayEquals(users.stream()
+                        .filter(u -> u.getAge() != null && u.getAge() >= 90)
+                        .mapToLong(User::getId).toArray(),
+                snapshot.idsWithAgeBetween(90, Integer.MAX_VALUE));
+
+        Map<Integer, Long> expectedHistogram = users.stream()
+                .filter(u -> u.getAge() != null)
+                .collect(Collectors.groupingBy(u -> u.getAge() / 25 * 25, Collectors.counting()));
+        assertEquals(expectedHistogram, snapshot.ageHistogram(25));
+
+        Map<LocalDate, Long> expectedByDay = users.stream()
+                .filter(u -> u.getCreatedAt() != null)
+                .collect(Collectors.groupingBy(u -> LocalDate.ofInstant(u.getCreatedAt(), ZoneOffset.UTC),
+                        Collectors.counting()));
+        SortedMap<LocalDate, Long> byDay = snapshot.signupsByDay();
+        assertEquals(expectedByDay, byDay);
+        assertEquals(LocalDate.of(2024, 3, 1), byDay.firstKey());
+    }
+
+    @Test
+    void countCreatedBetween_UsesSecondPrecisionAndHalfOpenRange() {
+        UserSnapshot snapshot = UserSnapshot.from(users().stream());
+        Instant from = DAY_ONE.plusSeconds(60);
+        // строки 1..9, из них строка 7 без даты
+        assertEquals(8, snapshot.countCreatedBetween(from, DAY_ONE.plusSeconds(600)));
+        // дробная граница: строка 10 (ровно 600 с после усечения) попадает в диапазон
+        assertEquals(9, snapshot.countCreatedBetween(from, DAY_ONE.plusSeconds(600).plusMillis(1)));
+    }
+
+    @Test
+    void rows_AreDecodedBackFromColumns() {
+        List<User> users = users();
+        UserSnapshot snapshot = UserSnapshot.from(users.stream());
+
+        for (int row : new int[]{0, 1, 7, 49, 50, 4_999}) {
+            User expected = users.get(row);
+            User actual = snapshot.user(row);
+            assertEquals(expected.getId(), actual.getId());
+            assertEquals(expected.getName(), actual.getName());
+            assertEquals(expected.getEmail(), actual.getEmail());
+            assertEquals(expected.getAge(), actual.getAge());
+            assertEquals(expected.getCreatedAt() == null ? null : Instant.ofEpochSecond(expected.getCreatedAt().getEpochSecond()),
+                    actual.getCreatedAt());
+        }
+        assertNull(snapshot.email(1));
+        // 50 различных имён хранятся словарём, а не по строке на пользователя
+        assertTrue(snapshot.memoryBytes() < users.size() * 64L);
+    }
+
+    @Test
+    void emptySnapshot_ReturnsEmptyAggregates() {
+        UserSnapshot snapshot = UserSnapshot.builder().build();
+
+        assertEquals(0, snapshot.size());
+        assertTrue(snapshot.averageAge().isEmpty());
+        assertTrue(snapshot.ageHistogram(10).isEmpty());
+        assertTrue(snapshot.signupsByDay().isEmpty());
+        assertEquals(0, snapshot.idsWithAgeBetween(0, 100).length);
+        assertThrows(IllegalArgumentException.class, () -> snapshot.ageHistogram(0));
+    }
+
+    @Test
+    void outliers_DoNotBlowUpHistogramRange() {
+        Instant farFuture = Instant.parse("+100000-01-01T00:00:00Z");
+        UserSnapshot snapshot = UserSnapshot.builder()
+                .add(1, "Min", "min@example.com", Integer.MIN_VALUE, Instant.EPOCH)
+                .add(2, "Zero", "zero@example.com", 0, DAY_ONE)
+                .add(3, "Max", "max@example.com", Integer.MAX_VALUE, farFuture)
+                .build();
+
+        assertEquals(Map.of(Integer.MIN_VALUE, 1L, 0, 1L, Integer.MAX_VALUE, 1L), snapshot.ageHistogram(1));
+        assertEquals(Map.of(LocalDate.EPOCH, 1L, LocalDate.of(2024, 3, 1), 1L,
+                LocalDate.ofInstant(farFuture, ZoneOffset.UTC), 1L), snapshot.signupsByDay());
+    }
+}
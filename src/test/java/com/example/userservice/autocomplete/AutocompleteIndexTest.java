@@ -0,0 +1,103 @@
+package com.example.userservice.autocomplete;
+
+import com.example.userservice.entity.User;
+import com.example.userservice.entity.UserPatch;
+import com.example.userservice.entity.UserView;
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AutocompleteIndexTest {
+
+    private static final Instant CREATED = Instant.parse("2024-01-01T00:00:00Z");
+
+    private static AutocompleteIndex index() {
+        return AutocompleteIndex.build(Stream.of(
+                new User(3L, "Алексей Иванов", "a.ivanov@example.com", 30, CREATED),
+                new User(1L, "Alex Smith", "alex@example.com", 25, CREATED),
+                new User(2L, "Alexandra Stone", "sasha.stone@mail.ru", null, CREATED),
+                new User(4L, "Bob", "bob@example.com", 40, CREATED)));
+    }
+
+    private static List<Long> ids(List<UserView> users) {
+        return users.stream().map(UserView::id).toList();
+    }
+
+    @Test
+    void suggest_MatchesWordPrefixesOfNameAndEmail() {
+        AutocompleteIndex index = index();
+
+        // "alex" — слово имени и email пользователя 1 — раньше продолжения "alexandra"
+        assertEquals(List.of(1L, 2L), ids(index.suggest("ALEX", 10)));
+        assertEquals(List.of(3L), ids(index.suggest("ива", 10)));
+        assertEquals(List.of(2L), ids(index.suggest("sasha.st", 10)));
+        assertEquals(List.of(2L), ids(index.suggest("stone", 10)));
+        assertEquals(List.of(), ids(index.suggest("example", 10)));
+        assertEquals(List.of(1L), ids(index.suggest("al", 1)));
+        assertEquals(List.of(), index.suggest("  ", 10));
+        assertEquals(25, index.suggest("alex smith", 10).get(0).age());
+    }
+
+    @Test
+    void suggest_EveryQueryWordMustMatch() {
+        AutocompleteIndex index = index();
+
+        assertEquals(List.of(2L), ids(index.suggest("st alex", 10)));
+        assertEquals(List.of(1L), ids(index.suggest("alex sm", 10)));
+        assertEquals(List.of(), ids(index.suggest("alex bob", 10)));
+    }
+
+    @Test
+    void changes_UpdateTermsOfUser() {
+        AutocompleteIndex index = index();
+        int terms = index.termCount();
+
+        index.userSaved(new User(5L, "Carol", "carol@example.com", null, CREATED));
+        assertEquals(List.of(5L), ids(index.suggest("car", 10)));
+
+        index.userPatched(4L, UserPatch.create().name("Robert"));
+        assertEquals(List.of(4L), ids(index.suggest("rob", 10)));
+        assertEquals("bob@example.com", index.suggest("rob", 10).get(0).email());
+        assertEquals(40, index.suggest("rob", 10).get(0).age());
+
+        // полная запись без времени создания сохраняет прежнее
+        index.userSaved(new User(4L, "Bob", "robert@example.com", 41, null));
+        assertEquals(CREATED, index.suggest("robert", 10).get(0).createdAt());
+        assertEquals(List.of(4L), ids(index.suggest("bob", 10)));
+
+        index.userDeleted(5L);
+        index.userDeleted(4L);
+        index.userPatched(4L, UserPatch.create().name("Ghost"));
+        assertEquals(List.of(), index.suggest("car", 10));
+        assertEquals(List.of(), index.suggest("ghost", 10));
+        assertEquals(3, index.size());
+        assertEquals(terms - 2, index.termCount());
+    }
+
+    @Test
+    void suggest_InvalidLimit_Throws() {
+        assertThrows(IllegalArgumentException.class, () -> index().suggest("a", 0));
+        assertThrows(IllegalArgumentException.class, () -> index().suggest("a", AutocompleteIndex.MAX_LIMIT + 1));
+    }
+
+    @Test
+    void memoryBytes_GrowsWithContent() {
+        AutocompleteIndex empty = new AutocompleteIndex();
+        assertEquals(0, empty.memoryBytes());
+
+        List<User> users = new ArrayList<>();
+        for (int i = 0; i < 1_000; i++) {
+            users.add(new User((long) i, "User " + i, "user" + i + "@example.com", null, CREATED));
+        }
+        AutocompleteIndex index = AutocompleteIndex.build(users.stream());
+
+        assertEquals(1_000, index.size());
+        assertTrue(index.memoryBytes() > 1_000L * ("user999@example.com".length() * 2));
+        assertEquals(10, index.suggest("user", 10).size());
+    }
+}
@@ -0,0 +1,136 @@
+package com.example.userservice.bulk;
+
+import com.example.userservice.dao.DaoException;
+import com.example.userservice.dao.UserDao;
+import com.example.userservice.dao.UserDaoImpl;
+import com.example.userservice.entity.User;
+import com.example.userservice.util.HibernateUtil;
+import com.example.userservice.util.UserJson;
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+import org.hibernate.Transaction;
+import org.junit.jupiter.api.*;
+import org.junit.jupiter.api.io.TempDir;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.sql.Connection;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@Testcontainers
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+class UserExporterIntegrationTest {
+
+    @Container
+    private static final PostgreSQLContainer<?> postgres =
+            new PostgreSQLContainer<>("postgres:15.3")
+                    .withDatabaseName("testdb")
+                    .withUsername("test")
+                    .withPassword("test");
+
+    private SessionFactory sessionFactory;
+    private List<Long> ids;
+
+    @TempDir
+    Path tempDir;
+
+    @BeforeAll
+    void setUp() throws Exception {
+        try (Connection conn = postgres.createConnection("");
+             Statement stmt = conn.createStatement()) {
+            String schemaSql = Files.readString(Paths.get("src/test/resources/schema.sql"));
+            stmt.execute(schemaSql);
+        }
+
+        System.setProperty("hibernate.connection.url", postgres.getJdbcUrl());
+        System.setProperty("hibernate.connection.username", postgres.getUsername());
+        System.setProperty("hibernate.connection.password", postgres.getPassword());
+
+        sessionFactory = HibernateUtil.getSessionFactory();
+        try (Session session = sessionFactory.openSession()) {
+            Transaction tx = session.beginTransaction();
+            session.createNativeQuery("TRUNCATE TABLE users CASCADE").executeUpdate();
+            tx.commit();
+        }
+        UserDao userDao = new UserDaoImpl(sessionFactory);
+        List<User> users = new ArrayList<>();
+        for (int i = 0; i < 300; i++) {
+            users.add(new User("User \"" + i + "\"", "user" + i + "@example.com", i % 2 == 0 ? null : i));
+        }
+        ids = userDao.createAll(users);
+    }
+
+    @Test
+    void exportCsv_SingleFile_ContainsAllRowsOrderedById() throws Exception {
+        Path target = tempDir.resolve("users.csv");
+
+        ExportReport report = new UserExporter(sessionFactory, 3)
+                .export(target, FileFormat.CSV, UserExporter.Layout.SINGLE_FILE);
+
+        List<String> lines = Files.readAllLines(target);
+        assertEquals(300, report.rows());
+        assertEquals(301, lines.size());
+        assertEquals(UserExporter.CSV_HEADER.trim(), lines.get(0));
+        List<Long> exportedIds = lines.stream().skip(1).map(l -> Long.parseLong(l.substring(0, l.indexOf(',')))).toList();
+        assertEquals(ids.stream().sorted().toList(), exportedIds);
+        assertTrue(lines.get(1).contains("\"User \"\"0\"\"\""));
+        try (var files = Files.list(tempDir)) {
+            assertEquals(1, files.count());
+        }
+    }
+
+    @Test
+    void exportNdjson_Sharded_WritesOneFilePerNonEmptyRange() throws Exception {
+        Path target = tempDir.resolve("users.ndjson");
+
+        ExportReport report = new UserExporter(sessionFactory, 2)
+                .export(target, FileFormat.NDJSON, UserExporter.Layout.SHARDED);
+
+        assertEquals(300, report.rows());
+        assertTrue(report.files().size() > 1);
+        long lines = 0;
+        for (Path file : report.files()) {
+            for (String line : Files.readAllLines(file)) {
+                User user = UserJson.parse(line);
+                assertTrue(user.getName().startsWith("User \""));
+                lines++;
+            }
+        }
+        assertEquals(300, lines);
+    }
+
+    @Test
+    void exportSharded_FailedRange_LeavesNoShardFiles() throws Exception {
+        Path dir = Files.createDirectory(tempDir.resolve("failed"));
+        Path target = dir.resolve("users.ndjson");
+        // второй шард не откроется: на его месте каталог
+        Path blocker = Files.createDirectory(dir.resolve("users-00001.ndjson"));
+
+        assertThrows(DaoException.class, () -> new UserExporter(sessionFactory, 2)
+                .export(target, FileFormat.NDJSON, UserExporter.Layout.SHARDED));
+
+        assertTrue(Files.isDirectory(blocker));
+        try (var files = Files.list(dir)) {
+            assertEquals(List.of(blocker), files.toList());
+        }
+    }
+
+    @Test
+    void split_CoversWholeRangeWithoutOverlap() {
+        List<UserExporter.IdRange> ranges = UserExporter.split(5, 104, 8);
+
+        assertEquals(5, ranges.get(0).from());
+        assertEquals(105, ranges.get(ranges.size() - 1).to());
+        for (int i = 1; i < ranges.size(); i++) {
+            assertEquals(ranges.get(i - 1).to(), ranges.get(i).from());
+        }
+    }
+}
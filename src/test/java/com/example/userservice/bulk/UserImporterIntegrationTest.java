@@ -0,0 +1,161 @@
+package com.example.userservice.bulk;
+
+import com.example.userservice.dao.UserDao;
+import com.example.userservice.dao.UserDaoImpl;
+import com.example.userservice.entity.User;
+import com.example.userservice.util.HibernateUtil;
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+import org.hibernate.Transaction;
+import org.junit.jupiter.api.*;
+import org.junit.jupiter.api.io.TempDir;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.sql.Connection;
+import java.sql.Statement;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@Testcontainers
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+class UserImporterIntegrationTest {
+
+    @Container
+    private static final PostgreSQLContainer<?> postgres =
+            new PostgreSQLContainer<>("postgres:15.3")
+                    .withDatabaseName("testdb")
+                    .withUsername("test")
+                    .withPassword("test");
+
+    private SessionFactory sessionFactory;
+    private UserDao userDao;
+    private UserImporter importer;
+
+    @TempDir
+    Path tempDir;
+
+    @BeforeAll
+    void setUp() throws Exception {
+        try (Connection conn = postgres.createConnection("");
+             Statement stmt = conn.createStatement()) {
+            String schemaSql = Files.readString(Paths.get("src/test/resources/schema.sql"));
+            stmt.execute(schemaSql);
+        }
+
+        System.setProperty("hibernate.connection.url", postgres.getJdbcUrl());
+        System.setProperty("hibernate.connection.username", postgres.getUsername());
+        System.setProperty("hibernate.connection.password", postgres.getPassword());
+
+        sessionFactory = HibernateUtil.getSessionFactory();
+        userDao = new UserDaoImpl(sessionFactory);
+        importer = new UserImporter(sessionFactory);
+    }
+
+    @BeforeEach
+    void cleanDatabase() {
+        try (Session session = sessionFactory.openSession()) {
+            Transaction tx = session.beginTransaction();
+            session.createNativeQuery("TRUNCATE TABLE users CASCADE").executeUpdate();
+            tx.commit();
+        }
+    }
+
+    @Test
+    void importCsv_LoadsValidRowsAndRejectsInvalid() throws Exception {
+        Path source = tempDir.resolve("users.csv");
+        Files.writeString(source, """
+                name,email,age
+                Alex,alex@example.com,25
+                "Smith, John",john@example.com,
+                B,short@example.com,30
+                Bob,bad-email,40
+                Carl,carl@example.com,abc
+                """);
+        Path errors = tempDir.resolve("users.errors");
+
+        ImportReport report = importer.importFile(source, errors, UserImporter.ConflictPolicy.SKIP);
+
+        assertEquals(5, report.read());
+        assertEquals(3, report.rejected());
+        assertEquals(2, report.inserted());
+        assertEquals(3, Files.readAllLines(errors).size());
+        User john = userDao.findByEmail("john@example.com").orElseThrow();
+        assertEquals("Smith, John", john.getName());
+        assertNull(john.getAge());
+        assertNotNull(john.getCreatedAt());
+    }
+
+    @Test
+    void importCsv_QuotedLineBreak_ContinuesRecord() throws Exception {
+        Path source = tempDir.resolve("multiline.csv");
+        Files.writeString(source, """
+                name,email,age
+                "Anna
+                Maria ""Mia""\",anna@example.com,30
+                Bob,bob@example.com,40
+                "Broken,broken@example.com,50
+                """);
+        Path errors = tempDir.resolve("multiline.errors");
+
+        ImportReport report = importer.importFile(source, errors, UserImporter.ConflictPolicy.SKIP);
+
+        assertEquals(3, report.read());
+        assertEquals(2, report.inserted());
+        assertEquals(1, report.rejected());
+        assertEquals("Anna\nMaria \"Mia\"", userDao.findByEmail("anna@example.com").orElseThrow().getName());
+        assertEquals("Bob", userDao.findByEmail("bob@example.com").orElseThrow().getName());
+        List<String> rejected = Files.readAllLines(errors);
+        assertEquals(1, rejected.size());
+        assertTrue(rejected.get(0).startsWith("5\t"), rejected.get(0));
+    }
+
+    @Test
+    void importNdjson_ExistingEmail_SkippedOrUpdatedByPolicy() throws Exception {
+        Long existingId = userDao.create(new User("Alex", "alex@example.com", 25)).getId();
+        Path source = tempDir.resolve("users.ndjson");
+        Files.writeString(source, """
+                {"name": "Alex New", "email": "alex@example.com", "age": 26}
+                {"name": "Bob", "email": "bob@example.com", "age": null}
+                {"name": "Bob Last", "email": "bob@example.com", "age": 31}
+                """);
+
+        ImportReport skipped = importer.importFile(source, tempDir.resolve("e1"), UserImporter.ConflictPolicy.SKIP);
+
+        assertEquals(1, skipped.duplicatesInFile());
+        assertEquals(1, skipped.inserted());
+        assertEquals(1, skipped.skippedExisting());
+        assertEquals("Alex", userDao.findById(existingId).orElseThrow().getName());
+        assertEquals("Bob Last", userDao.findByEmail("bob@example.com").orElseThrow().getName());
+
+        ImportReport updated = importer.importFile(source, tempDir.resolve("e2"), UserImporter.ConflictPolicy.UPDATE);
+
+        assertEquals(0, updated.inserted());
+        assertEquals(2, updated.updated());
+        assertEquals("Alex New", userDao.findById(existingId).orElseThrow().getName());
+    }
+
+    @Test
+    void importCsv_IdsDoNotCollideWithHibernateAllocations() throws Exception {
+        userDao.create(new User("Before", "before@example.com", 20));
+        StringBuilder csv = new StringBuilder("name,email,age\n");
+        for (int i = 0; i < 120; i++) {
+            csv.append("User").append(i).append(",user").append(i).append("@example.com,").append(i).append('\n');
+        }
+        Path source = tempDir.resolve("many.csv");
+        Files.writeString(source, csv);
+
+        ImportReport report = importer.importFile(source, tempDir.resolve("e"), UserImporter.ConflictPolicy.SKIP);
+        userDao.create(new User("After", "after@example.com", 20));
+
+        assertEquals(120, report.inserted());
+        List<User> all = userDao.findAll();
+        assertEquals(122, all.size());
+        assertTrue(all.stream().allMatch(u -> u.getId() > 0));
+    }
+}
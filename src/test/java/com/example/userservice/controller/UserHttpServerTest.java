@@ -0,0 +1,296 @@
+package com.example.userservice.controller;
+
+import com.example.userservice.autocomplete.AutocompleteIndex;
+import com.example.userservice.dao.DaoException;
+import com.example.userservice.dao.UserQuery;
+import com.example.userservice.dao.UserSearchPage;
+import com.example.userservice.entity.User;
+import com.example.userservice.entity.UserPatch;
+import com.example.userservice.entity.UserView;
+import com.example.userservice.service.UserService;
+import org.hibernate.ObjectNotFoundException;
+import org.hibernate.StaleObjectStateException;
+import org.hibernate.exception.ConstraintViolationException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class UserHttpServerTest {
+
+    @Mock
+    private UserService userService;
+
+    private UserHttpServer server;
+    private final HttpClient client = HttpClient.newHttpClient();
+
+    @BeforeEach
+    void setUp() throws Exception {
+        server = new UserHttpServer(new UserController(userService), new InetSocketAddress("127.0.0.1", 0), 1);
+        server.start();
+    }
+
+    @AfterEach
+    void tearDown() {
+        server.close();
+    }
+
+    private HttpRequest.Builder request(String path) {
+        return HttpRequest.newBuilder(URI.create("http://127.0.0.1:" + server.port() + path));
+    }
+
+    private HttpResponse<String> send(HttpRequest request) throws Exception {
+        return client.send(request, HttpResponse.BodyHandlers.ofString());
+    }
+
+    private static User alex() {
+        return new User(1L, "Alex", "alex@example.com", 25, Instant.parse("2024-01-01T00:00:00Z"));
+    }
+
+    @Test
+    void getUser_Exists_Returns200WithJsonAndVersionETag() throws Exception {
+        User alex = alex();
+        alex.setVersion(3L);
+        when(userService.getUserById(1L)).thenReturn(Optional.of(alex));
+
+        HttpResponse<String> response = send(request("/users/1").GET().build());
+
+        assertEquals(200, response.statusCode());
+        assertTrue(response.body().contains("\"name\":\"Alex\""));
+        assertEquals("\"3\"", response.headers().firstValue("ETag").orElseThrow());
+    }
+
+    @Test
+    void getUser_Missing_Returns404() throws Exception {
+        when(userService.getUserById(2L)).thenReturn(Optional.empty());
+
+        assertEquals(404, send(request("/users/2").GET().build()).statusCode());
+        assertEquals(404, send(request("/users/abc").GET().build()).statusCode());
+    }
+
+    @Test
+    void createUser_Returns201WithLocation() throws Exception {
+        when(userService.createUser(any(User.class))).thenReturn(alex());
+
+        HttpResponse<String> response = send(request("/users")
+                .POST(HttpRequest.BodyPublishers.ofString("{\"name\":\"Alex\",\"email\":\"alex@example.com\",\"age\":25}"))
+                .build());
+
+        assertEquals(201, response.statusCode());
+        assertEquals("/users/1", response.headers().firstValue("Location").orElseThrow());
+    }
+
+    @Test
+    void createUser_InvalidJson_Returns400() throws Exception {
+        HttpResponse<String> response = send(request("/users")
+                .POST(HttpRequest.BodyPublishers.ofString("{\"name\":")).build());
+
+        assertEquals(400, response.statusCode());
+        assertTrue(response.body().startsWith("{\"error\":"));
+        verify(userService, never()).createUser(any());
+    }
+
+    @Test
+    void listUsers_PassesPagingParameters() throws Exception {
+        when(userService.getUserViewsPage(10L, 5)).thenReturn(List.of(UserView.of(alex())));
+
+        HttpResponse<String> response = send(request("/users?afterId=10&limit=5").GET().build());
+
+        assertEquals(200, response.statusCode());
+        assertEquals("[{\"id\":1,\"name\":\"Alex\",\"email\":\"alex@example.com\",\"age\":25,"
+                + "\"createdAt\":\"2024-01-01T00:00:00Z\"}]", response.body());
+    }
+
+    @Test
+    void search_PassesFiltersAndReturnsNextPageToken() throws Exception {
+        ArgumentCaptor<UserQuery> captor = ArgumentCaptor.forClass(UserQuery.class);
+        when(userService.searchUsers(captor.capture()))
+                .thenReturn(new UserSearchPage(List.of(UserView.of(alex())), "token"));
+
+        HttpResponse<String> response = send(request(
+                "/users/search?name=al&minAge=18&createdFrom=2024-01-01T00:00:00Z&sort=created_at&order=desc&limit=1")
+                .GET().build());
+
+        assertEquals(200, response.statusCode());
+        assertEquals("token", response.headers().firstValue(UserHttpServer.NEXT_PAGE_HEADER).orElseThrow());
+        assertTrue(response.body().startsWith("[{\"id\":1,"));
+        UserQuery query = captor.getValue();
+        assertEquals("al", query.getNameContains().orElseThrow());
+        assertEquals(18, query.getMinAge().orElseThrow());
+        assertEquals(UserQuery.SortBy.CREATED_AT, query.getSortBy());
+        assertTrue(query.isDescending());
+        assertEquals(1, query.getLimit());
+        assertEquals(400, send(request("/users/search?sort=email").GET().build()).statusCode());
+    }
+
+    @Test
+    void suggest_ReturnsMatchesFromIndex_Or404WithoutIndex() throws Exception {
+        assertEquals(404, send(request("/users/suggest?q=al").GET().build()).statusCode());
+
+        AutocompleteIndex index = AutocompleteIndex.build(Stream.of(alex()));
+        try (UserHttpServer withIndex = new UserHttpServer(new UserController(userService, index),
+                new InetSocketAddress("127.0.0.1", 0), 1)) {
+            withIndex.start();
+            String base = "http://127.0.0.1:" + withIndex.port();
+
+            HttpResponse<String> response = send(HttpRequest.newBuilder(URI.create(base + "/users/suggest?q=Al&limit=5"))
+                    .GET().build());
+
+            assertEquals(200, response.statusCode());
+            assertTrue(response.body().startsWith("[{\"id\":1,\"name\":\"Alex\""));
+            assertEquals(400, send(HttpRequest.newBuilder(URI.create(base + "/users/suggest?q=al&limit=0"))
+                    .GET().build()).statusCode());
+        }
+        verifyNoInteractions(userService);
+    }
+
+    @Test
+    void stats_ReturnAggregatesFromService() throws Exception {
+        when(userService.countUsers()).thenReturn(12L);
+        when(userService.countByAgeRange(18, Integer.MAX_VALUE)).thenReturn(7L);
+        when(userService.getAgeHistogram(5)).thenReturn(new TreeMap<>(Map.of(20, 3L, 25, 1L)));
+        when(userService.getSignupsByDay(Instant.parse("2024-01-01T00:00:00Z"), null))
+                .thenReturn(new TreeMap<>(Map.of(LocalDate.parse("2024-01-02"), 4L)));
+
+        assertEquals("{\"count\":12}", send(request("/users/stats/count").GET().build()).body());
+        assertEquals("{\"count\":7}", send(request("/users/stats/count?minAge=18").GET().build()).body());
+        assertEquals("{\"20\":3,\"25\":1}", send(request("/users/stats/ages?bucket=5").GET().build()).body());
+        assertEquals("{\"2024-01-02\":4}",
+                send(request("/users/stats/signups?from=2024-01-01T00:00:00Z").GET().build()).body());
+        assertEquals(404, send(request("/users/stats/other").GET().build()).statusCode());
+    }
+
+    @Test
+    void listAll_StreamsEveryUserFromCursor() throws Exception {
+        when(userService.streamAllUsers(UserHttpServer.STREAM_FETCH_SIZE)).thenReturn(Stream.of(
+                alex(), new User(2L, "Bob", "bob@example.com", 30, Instant.parse("2024-01-02T00:00:00Z"))));
+
+        HttpResponse<String> response = send(request("/users/all").GET().build());
+
+        assertEquals(200, response.statusCode());
+        assertTrue(response.body().startsWith("[{\"id\":1,"));
+        assertTrue(response.body().endsWith("\"createdAt\":\"2024-01-02T00:00:00Z\"}]"));
+    }
+
+    @Test
+    void updateUser_PatchesWithoutReadingAndPassesIfMatchVersion() throws Exception {
+        when(userService.patchUser(eq(1L), any(UserPatch.class))).thenReturn(true);
+
+        HttpResponse<String> response = send(request("/users/1")
+                .header("If-Match", "\"4\"")
+                .PUT(HttpRequest.BodyPublishers.ofString("{\"name\":\"Alex\",\"email\":\"alex@example.com\"}"))
+                .build());
+
+        assertEquals(204, response.statusCode());
+        assertEquals("\"5\"", response.headers().firstValue("ETag").orElseThrow());
+        ArgumentCaptor<UserPatch> patch = ArgumentCaptor.forClass(UserPatch.class);
+        verify(userService).patchUser(eq(1L), patch.capture());
+        assertEquals(Optional.of(4L), patch.getValue().getExpectedVersion());
+        assertEquals(Optional.of("Alex"), patch.getValue().getName());
+        assertTrue(patch.getValue().isAgeSet());
+        assertNull(patch.getValue().getAge());
+        verify(userService, never()).getUserById(any());
+    }
+
+    @Test
+    void updateUser_WithoutIfMatchOrMissing() throws Exception {
+        when(userService.patchUser(eq(2L), any(UserPatch.class))).thenReturn(false);
+
+        HttpResponse<String> missing = send(request("/users/2")
+                .PUT(HttpRequest.BodyPublishers.ofString("{\"name\":\"Alex\",\"email\":\"alex@example.com\"}"))
+                .build());
+        HttpResponse<String> badTag = send(request("/users/2")
+                .header("If-Match", "v4")
+                .PUT(HttpRequest.BodyPublishers.ofString("{\"name\":\"Alex\",\"email\":\"alex@example.com\"}"))
+                .build());
+
+        assertEquals(404, missing.statusCode());
+        assertEquals(400, badTag.statusCode());
+        ArgumentCaptor<UserPatch> patch = ArgumentCaptor.forClass(UserPatch.class);
+        verify(userService).patchUser(eq(2L), patch.capture());
+        assertTrue(patch.getValue().getExpectedVersion().isEmpty());
+    }
+
+    @Test
+    void daoErrors_MappedToClientStatuses() throws Exception {
+        when(userService.createUser(any(User.class))).thenThrow(new DaoException("Ошибка при создании пользователя",
+                new ConstraintViolationException("дубликат", null, "uk_users_email")));
+        when(userService.patchUser(eq(1L), any(UserPatch.class))).thenThrow(new DaoException(
+                "Пользователь с ID 1 уже изменён", new StaleObjectStateException(User.class.getName(), 1L)));
+        when(userService.patchUser(eq(2L), any(UserPatch.class))).thenThrow(new DaoException(
+                "Ошибка при обновлении пользователя", new ObjectNotFoundException(User.class.getName(), 2L)));
+        when(userService.patchUser(eq(3L), any(UserPatch.class))).thenThrow(new DaoException(
+                "Ошибка при обновлении пользователя", new IllegalStateException("сбой")));
+        String json = "{\"name\":\"Alex\",\"email\":\"alex@example.com\"}";
+
+        assertEquals(409, send(request("/users").POST(HttpRequest.BodyPublishers.ofString(json)).build()).statusCode());
+        assertEquals(412, send(request("/users/1").header("If-Match", "\"0\"")
+                .PUT(HttpRequest.BodyPublishers.ofString(json)).build()).statusCode());
+        assertEquals(404, send(request("/users/2").PUT(HttpRequest.BodyPublishers.ofString(json)).build()).statusCode());
+        assertEquals(500, send(request("/users/3").PUT(HttpRequest.BodyPublishers.ofString(json)).build()).statusCode());
+    }
+
+    @Test
+    void deleteUser_Returns204Or404() throws Exception {
+        when(userService.deleteUser(1L)).thenReturn(true);
+        when(userService.deleteUser(2L)).thenReturn(false);
+
+        assertEquals(204, send(request("/users/1").DELETE().build()).statusCode());
+        assertEquals(404, send(request("/users/2").DELETE().build()).statusCode());
+    }
+
+    @Test
+    void unsupportedMethod_Returns405() throws Exception {
+        HttpResponse<String> response = send(request("/users").DELETE().build());
+
+        assertEquals(405, response.statusCode());
+        assertEquals("GET, POST", response.headers().firstValue("Allow").orElseThrow());
+    }
+
+    @Test
+    void overLimit_Returns429() throws Exception {
+        CountDownLatch entered = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        when(userService.getUserById(1L)).thenAnswer(invocation -> {
+            entered.countDown();
+            release.await();
+            return Optional.of(alex());
+        });
+
+        CompletableFuture<HttpResponse<String>> slow =
+                client.sendAsync(request("/users/1").GET().build(), HttpResponse.BodyHandlers.ofString());
+        assertTrue(entered.await(5, TimeUnit.SECONDS));
+        HttpResponse<String> rejected = send(request("/users/1").GET().build());
+        release.countDown();
+
+        assertEquals(429, rejected.statusCode());
+        assertEquals("1", rejected.headers().firstValue("Retry-After").orElseThrow());
+        assertEquals(200, slow.get(5, TimeUnit.SECONDS).statusCode());
+        assertEquals(1, server.rejectedRequests());
+    }
+}
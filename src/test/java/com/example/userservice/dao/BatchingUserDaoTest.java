@@ -0,0 +1,145 @@
+package com.example.userservice.dao;
+
+import com.example.userservice.entity.User;
+import com.example.userservice.entity.UserPatch;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class BatchingUserDaoTest {
+
+    @Mock
+    private UserDao delegate;
+
+    private BatchingUserDao batchingDao;
+
+    @AfterEach
+    void tearDown() {
+        batchingDao.close();
+    }
+
+    private static User user(long id) {
+        return new User(id, "User" + id, "user" + id + "@example.com", 20, Instant.now());
+    }
+
+    private void stubFindByIds() {
+        when(delegate.findByIds(anyCollection())).thenAnswer(invocation -> {
+            Collection<Long> ids = invocation.getArgument(0);
+            // id 13 в базе нет
+            return ids.stream().filter(id -> id != 13).map(BatchingUserDaoTest::user).toList();
+        });
+    }
+
+    private List<Optional<User>> findConcurrently(List<Long> ids) throws Exception {
+        CountDownLatch start = new CountDownLatch(1);
+        try (ExecutorService callers = Executors.newVirtualThreadPerTaskExecutor()) {
+            List<Future<Optional<User>>> futures = new ArrayList<>();
+            for (Long id : ids) {
+                futures.add(callers.submit(() -> {
+                    start.await();
+                    return batchingDao.findById(id);
+                }));
+            }
+            start.countDown();
+            List<Optional<User>> results = new ArrayList<>();
+            for (Future<Optional<User>> future : futures) {
+                results.add(future.get());
+            }
+            return results;
+        }
+    }
+
+    @Test
+    void concurrentLookups_MergedIntoSingleQuery() throws Exception {
+        batchingDao = new BatchingUserDao(delegate, 100, Duration.ofMillis(50));
+        stubFindByIds();
+
+        List<Optional<User>> results = findConcurrently(List.of(1L, 2L, 3L, 13L));
+
+        assertEquals("User1", results.get(0).orElseThrow().getName());
+        assertEquals("User3", results.get(2).orElseThrow().getName());
+        assertTrue(results.get(3).isEmpty());
+        verify(delegate, times(1)).findByIds(anyCollection());
+        verify(delegate, never()).findById(anyLong());
+    }
+
+    @Test
+    void duplicateIds_LoadedOnceAndReturnedAsSeparateCopies() throws Exception {
+        batchingDao = new BatchingUserDao(delegate, 100, Duration.ofMillis(50));
+        stubFindByIds();
+
+        List<Optional<User>> results = findConcurrently(List.of(7L, 7L, 7L));
+
+        verify(delegate).findByIds(List.of(7L));
+        assertNotSame(results.get(0).orElseThrow(), results.get(1).orElseThrow());
+        assertEquals(7L, results.get(2).orElseThrow().getId());
+    }
+
+    @Test
+    void fullBatch_DispatchedWithoutWaitingForWindow() throws Exception {
+        batchingDao = new BatchingUserDao(delegate, 2, Duration.ofMinutes(1));
+        stubFindByIds();
+
+        List<Optional<User>> results = findConcurrently(List.of(1L, 2L, 3L, 4L));
+
+        assertTrue(results.stream().allMatch(Optional::isPresent));
+        verify(delegate, times(2)).findByIds(anyCollection());
+    }
+
+    @Test
+    void queryFailure_PropagatedToEveryCaller() {
+        batchingDao = new BatchingUserDao(delegate, 100, Duration.ofMillis(1));
+        when(delegate.findByIds(anyCollection())).thenThrow(new DaoException("boom", new RuntimeException()));
+
+        DaoException ex = assertThrows(DaoException.class, () -> batchingDao.findById(1L));
+
+        assertEquals("boom", ex.getMessage());
+    }
+
+    @Test
+    void lookupAfterWrite_DoesNotJoinReadDispatchedBeforeIt() throws Exception {
+        batchingDao = new BatchingUserDao(delegate, 100, Duration.ofMillis(1));
+        CountDownLatch dispatched = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        when(delegate.findByIds(anyCollection()))
+                .thenAnswer(invocation -> {
+                    dispatched.countDown();
+                    release.await();
+                    return List.of(user(1));
+                })
+                .thenReturn(List.of(user(1)));
+        when(delegate.patch(eq(1L), any())).thenReturn(1);
+
+        try (ExecutorService callers = Executors.newVirtualThreadPerTaskExecutor()) {
+            Future<Optional<User>> before = callers.submit(() -> batchingDao.findById(1L));
+            assertTrue(dispatched.await(1, TimeUnit.SECONDS));
+            batchingDao.patch(1L, UserPatch.create().name("Changed"));
+
+            Future<Optional<User>> after = callers.submit(() -> batchingDao.findById(1L));
+            after.get(1, TimeUnit.SECONDS);
+            release.countDown();
+            before.get(1, TimeUnit.SECONDS);
+        }
+
+        verify(delegate, times(2)).findByIds(anyCollection());
+    }
+}
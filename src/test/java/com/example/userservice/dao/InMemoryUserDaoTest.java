@@ -0,0 +1,186 @@
+package com.example.userservice.dao;
+
+import com.example.userservice.entity.User;
+import com.example.userservice.entity.UserPatch;
+import com.example.userservice.entity.UserView;
+import org.hibernate.StaleObjectStateException;
+import org.hibernate.exception.ConstraintViolationException;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class InMemoryUserDaoTest {
+
+    private final InMemoryUserDao dao = new InMemoryUserDao();
+
+    @Test
+    void create_AssignsIdAndCreatedAt_AndReturnsCopiesOnRead() {
+        User user = new User("Alex", "alex@example.com", 25);
+
+        User created = dao.create(user);
+
+        assertSame(user, created);
+        assertNotNull(created.getId());
+        assertNotNull(created.getCreatedAt());
+        User found = dao.findById(created.getId()).orElseThrow();
+        assertNotSame(created, found);
+        found.setName("Changed");
+        assertEquals("Alex", dao.findById(created.getId()).orElseThrow().getName());
+    }
+
+    @Test
+    void aggregates_CountStoredUsers() {
+        dao.createAll(List.of(new User("A", "a@example.com", 10), new User("B", "b@example.com", 15),
+                new User("C", "c@example.com", null), new User("D", "d@example.com", 42)));
+        LocalDate today = LocalDate.ofInstant(dao.findById(1L).orElseThrow().getCreatedAt(), ZoneOffset.UTC);
+
+        assertEquals(4, dao.count());
+        assertEquals(2, dao.countByAgeBetween(0, 20));
+        assertEquals(Map.of(10, 2L, 40, 1L), dao.ageHistogram(10));
+        assertEquals(Map.of(today, 4L), dao.signupsByDay(null, null));
+        assertEquals(Map.of(), dao.signupsByDay(today.plusDays(1).atStartOfDay().toInstant(ZoneOffset.UTC), null));
+    }
+
+    @Test
+    void create_DuplicateEmailIgnoringCase_ThrowsConstraintViolation() {
+        dao.create(new User("Alex", "alex@example.com", 25));
+
+        DaoException ex = assertThrows(DaoException.class,
+                () -> dao.create(new User("Other", " ALEX@example.com", 30)));
+
+        ConstraintViolationException cause = assertInstanceOf(ConstraintViolationException.class, ex.getCause());
+        assertEquals("uk_users_email", cause.getConstraintName());
+        assertEquals(1, dao.size());
+    }
+
+    @Test
+    void createAll_DuplicateInBatch_RollsBackWholeBatch() {
+        List<User> batch = List.of(new User("A", "a@x.com", 1), new User("B", "b@x.com", 2), new User("C", "A@X.com", 3));
+
+        assertThrows(DaoException.class, () -> dao.createAll(batch));
+
+        assertEquals(0, dao.size());
+        assertTrue(dao.findByEmail("a@x.com").isEmpty());
+    }
+
+    @Test
+    void update_ChangesEmailIndex() {
+        User user = dao.create(new User("Alex", "alex@example.com", 25));
+        User other = dao.create(new User("Bob", "bob@example.com", 30));
+
+        dao.update(new User(user.getId(), "Alex", "alexey@example.com", 26, null));
+
+        assertTrue(dao.findByEmail("alex@example.com").isEmpty());
+        User updated = dao.findByEmail("ALEXEY@example.com").orElseThrow();
+        assertEquals(26, updated.getAge());
+        assertEquals(user.getCreatedAt(), updated.getCreatedAt());
+        assertThrows(DaoException.class,
+                () -> dao.update(new User(other.getId(), "Bob", "alexey@example.com", 30, null)));
+        assertEquals("bob@example.com", dao.findById(other.getId()).orElseThrow().getEmail());
+    }
+
+    @Test
+    void patch_ChangesOnlyGivenFieldsAndChecksVersion() {
+        User user = dao.create(new User("Alex", "alex@example.com", 25));
+        assertEquals(0L, user.getVersion());
+
+        assertEquals(1, dao.patch(user.getId(), UserPatch.create().email("alexey@example.com").expectedVersion(0)));
+
+        User patched = dao.findByEmail("alexey@example.com").orElseThrow();
+        assertEquals("Alex", patched.getName());
+        assertEquals(25, patched.getAge());
+        assertEquals(1L, patched.getVersion());
+        DaoException ex = assertThrows(DaoException.class,
+                () -> dao.patch(user.getId(), UserPatch.create().age(null).expectedVersion(0)));
+        assertInstanceOf(StaleObjectStateException.class, ex.getCause());
+        assertEquals(25, dao.findById(user.getId()).orElseThrow().getAge());
+        assertEquals(0, dao.patch(user.getId() + 100, UserPatch.create().name("Bob")));
+    }
+
+    @Test
+    void search_PagesByKeysetInSortOrder() {
+        for (int i = 0; i < 10; i++) {
+            dao.create(new User("User" + i, "user" + i + "@example.com", i % 3 == 0 ? null : 20 + i));
+        }
+        UserQuery query = UserQuery.create().nameStartsWith("user").ageBetween(21, null)
+                .sortBy(UserQuery.SortBy.NAME, true).limit(3);
+
+        UserSearchPage first = dao.search(query);
+        UserSearchPage second = dao.search(query.after(first.next()));
+
+        assertEquals(List.of("User8", "User7", "User5"), first.users().stream().map(UserView::name).toList());
+        assertEquals(List.of("User4", "User2", "User1"), second.users().stream().map(UserView::name).toList());
+        assertFalse(second.hasNext());
+        assertThrows(IllegalArgumentException.class, () -> dao.search(UserQuery.create().after("garbage")));
+    }
+
+    @Test
+    void deleteById_FreesEmail() {
+        User user = dao.create(new User("Alex", "alex@example.com", 25));
+
+        assertEquals(1, dao.deleteById(user.getId()));
+        assertEquals(0, dao.deleteById(user.getId()));
+
+        assertTrue(dao.findById(user.getId()).isEmpty());
+        assertNotNull(dao.create(new User("Alex", "alex@example.com", 25)).getId());
+    }
+
+    @Test
+    void findPageAndStreamAll_OrderedByIdSkippingDeleted() {
+        List<Long> ids = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            ids.add(dao.create(new User("User" + i, "user" + i + "@example.com", i)).getId());
+        }
+        // почти все удалены — findPage переходит на полный проход
+        for (int i = 0; i < 45; i++) {
+            dao.deleteById(ids.get(i));
+        }
+
+        List<User> page = dao.findPage(null, 3);
+        assertEquals(ids.subList(45, 48), page.stream().map(User::getId).toList());
+        assertEquals(ids.subList(48, 50), dao.findPage(ids.get(47), 10).stream().map(User::getId).toList());
+        try (Stream<User> all = dao.streamAll(2)) {
+            assertEquals(ids.subList(45, 50), all.map(User::getId).toList());
+        }
+    }
+
+    @Test
+    void concurrentCreatesWithSameEmail_ExactlyOneWins() throws Exception {
+        int threads = 16;
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<Boolean>> results = new ArrayList<>();
+        try (ExecutorService executor = Executors.newFixedThreadPool(threads)) {
+            for (int i = 0; i < threads; i++) {
+                int n = i;
+                results.add(executor.submit(() -> {
+                    start.await();
+                    try {
+                        dao.create(new User("User" + n, n % 2 == 0 ? "same@example.com" : "SAME@example.com", n));
+                        return true;
+                    } catch (DaoException e) {
+                        return false;
+                    }
+                }));
+            }
+            start.countDown();
+        }
+
+        long winners = 0;
+        for (Future<Boolean> result : results) {
+            winners += result.get() ? 1 : 0;
+        }
+        assertEquals(1, winners);
+        assertEquals(1, dao.findAll().size());
+    }
+}
@@ -0,0 +1,75 @@
+package com.example.userservice.dao;
+
+import com.example.userservice.entity.User;
+import com.example.userservice.metrics.MetricsRegistry;
+import com.example.userservice.metrics.OperationMetrics;
+import org.hibernate.exception.ConstraintViolationException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.Map;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class MetricsUserDaoTest {
+
+    @Mock
+    private UserDao delegate;
+
+    private MetricsRegistry registry;
+    private MetricsUserDao metricsDao;
+
+    @BeforeEach
+    void setUp() {
+        registry = new MetricsRegistry();
+        metricsDao = new MetricsUserDao(delegate, registry);
+    }
+
+    private OperationMetrics.Snapshot snapshot(String name) {
+        return registry.snapshot().stream().filter(op -> op.name().equals(name)).findFirst().orElseThrow();
+    }
+
+    @Test
+    void calls_AreDelegatedAndCounted() {
+        User user = new User("Alex", "alex@example.com", 25);
+        when(delegate.findById(1L)).thenReturn(Optional.of(user));
+        when(delegate.deleteById(2L)).thenReturn(1);
+
+        assertSame(user, metricsDao.findById(1L).orElseThrow());
+        metricsDao.findById(1L);
+        assertEquals(1, metricsDao.deleteById(2L));
+        metricsDao.update(user);
+
+        verify(delegate).update(user);
+        assertEquals(2, snapshot("UserDao.findById").calls());
+        assertEquals(1, snapshot("UserDao.deleteById").calls());
+        assertEquals(1, snapshot("UserDao.update").calls());
+        assertEquals(0, snapshot("UserDao.findAll").calls());
+    }
+
+    @Test
+    void errors_AreCountedByDaoExceptionCause() {
+        User user = new User("Alex", "alex@example.com", 25);
+        when(delegate.create(user))
+                .thenThrow(new DaoException("Ошибка при создании пользователя",
+                        new ConstraintViolationException("дубликат", null, "uk_users_email")))
+                .thenThrow(new DaoException("Ошибка при создании пользователя", new IllegalStateException("сбой")))
+                .thenThrow(new IllegalArgumentException("некорректно"));
+
+        for (int i = 0; i < 3; i++) {
+            assertThrows(RuntimeException.class, () -> metricsDao.create(user));
+        }
+
+        OperationMetrics.Snapshot create = snapshot("UserDao.create");
+        assertEquals(3, create.calls());
+        assertEquals(3, create.errors());
+        assertEquals(Map.of("ConstraintViolationException", 1L, "IllegalStateException", 1L,
+                "IllegalArgumentException", 1L), create.errorsByCause());
+    }
+}
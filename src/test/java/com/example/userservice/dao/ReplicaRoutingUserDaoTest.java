@@ -0,0 +1,103 @@
+package com.example.userservice.dao;
+
+import com.example.userservice.entity.User;
+import com.example.userservice.entity.UserPatch;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ReplicaRoutingUserDaoTest {
+
+    @Mock
+    private UserDao primary;
+    @Mock
+    private UserDao replica;
+
+    private final AtomicLong clock = new AtomicLong();
+    private ReplicaRoutingUserDao dao;
+    private User user;
+
+    @BeforeEach
+    void setUp() {
+        dao = new ReplicaRoutingUserDao(primary, replica, Duration.ofSeconds(2), Duration.ofSeconds(5), clock::get);
+        user = new User(1L, "Alex", "alex@example.com", 25, Instant.now());
+    }
+
+    @Test
+    void readsGoToReplica_WritesToPrimary() {
+        when(replica.findById(1L)).thenReturn(Optional.of(user));
+
+        assertEquals(Optional.of(user), dao.findById(1L));
+        dao.deleteById(2L);
+
+        verify(primary).deleteById(2L);
+        verify(primary, never()).findById(anyLong());
+        verify(replica, never()).deleteById(anyLong());
+        assertEquals(1, dao.replicaReads());
+    }
+
+    @Test
+    void writtenUser_ReadFromPrimaryByAnyThreadUntilWindowPasses() throws Exception {
+        when(primary.create(user)).thenReturn(user);
+        when(primary.findById(1L)).thenReturn(Optional.of(user));
+        when(primary.findByEmail("ALEX@example.com")).thenReturn(Optional.of(user));
+        when(replica.findById(anyLong())).thenReturn(Optional.empty());
+
+        dao.create(user);
+        // следующий запрос клиента приходит в другом потоке
+        assertEquals(Optional.of(user), CompletableFuture.supplyAsync(() -> dao.findById(1L)).get());
+        assertEquals(Optional.of(user), dao.findByEmail("ALEX@example.com"));
+        // чужие пользователи читаются из реплики
+        assertEquals(Optional.empty(), dao.findById(2L));
+
+        clock.addAndGet(Duration.ofSeconds(2).toNanos());
+        assertEquals(Optional.empty(), dao.findById(1L));
+
+        assertEquals(2, dao.primaryReads());
+        assertEquals(2, dao.replicaReads());
+    }
+
+    @Test
+    void patchedUser_ReadFromPrimaryInMultiGet() {
+        when(primary.patch(eq(3L), any())).thenReturn(1);
+        when(primary.findByIds(List.of(1L, 3L))).thenReturn(List.of(user));
+
+        dao.patch(3L, UserPatch.create().name("Bob"));
+
+        assertEquals(List.of(user), dao.findByIds(List.of(1L, 3L)));
+        verify(replica, never()).findByIds(anyCollection());
+    }
+
+    @Test
+    void replicaFailure_FallsBackToPrimaryForRetryPeriod() {
+        when(replica.findById(1L))
+                .thenThrow(new DaoException("Ошибка при поиске пользователя по ID", new RuntimeException("timeout")))
+                .thenReturn(Optional.of(user));
+        when(primary.findById(1L)).thenReturn(Optional.of(user));
+
+        assertEquals(Optional.of(user), dao.findById(1L));
+        assertEquals(Optional.of(user), dao.findById(1L));
+        verify(replica, times(1)).findById(1L);
+
+        clock.addAndGet(Duration.ofSeconds(5).toNanos());
+        assertEquals(Optional.of(user), dao.findById(1L));
+
+        verify(replica, times(2)).findById(1L);
+        verify(primary, times(2)).findById(1L);
+        assertEquals(1, dao.fallbacks());
+    }
+}
@@ -1,10 +1,16 @@
 package com.example.userservice.dao;
 
 import com.example.userservice.entity.User;
+import com.example.userservice.entity.UserPatch;
+import com.example.userservice.entity.UserView;
 import com.example.userservice.util.HibernateUtil;
+import org.hibernate.ObjectNotFoundException;
 import org.hibernate.Session;
 import org.hibernate.SessionFactory;
+import org.hibernate.StaleObjectStateException;
 import org.hibernate.Transaction;
+import org.hibernate.exception.ConstraintViolationException;
+import org.hibernate.stat.CacheRegionStatistics;
 import org.junit.jupiter.api.*;
 import org.testcontainers.containers.PostgreSQLContainer;
 import org.testcontainers.junit.jupiter.Container;
@@ -14,8 +20,18 @@ import java.nio.file.Files;
 import java.nio.file.Paths;
 import java.sql.Connection;
 import java.sql.Statement;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.TreeMap;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -53,7 +69,7 @@ class UserDaoImplAutonomousIntegrationTest {
     void cleanDatabase() {
         try (Session session = sessionFactory.openSession()) {
             Transaction tx = session.beginTransaction();
-            session.createNativeQuery("TRUNCATE TABLE users RESTART IDENTITY CASCADE").executeUpdate();
+            session.createNativeQuery("TRUNCATE TABLE users CASCADE").executeUpdate();
             tx.commit();
         }
     }
@@ -61,7 +77,7 @@ class UserDaoImplAutonomousIntegrationTest {
     @Test
     void createUser_PersistsInDatabase() {
         User user = new User("Alex", "alex@example.com", 25);
-        Long id = userDao.create(user);
+        Long id = userDao.create(user).getId();
 
         assertNotNull(id);
         Optional<User> fromDb = userDao.findById(id);
@@ -69,6 +85,50 @@ class UserDaoImplAutonomousIntegrationTest {
         assertEquals("Alex", fromDb.get().getName());
     }
 
+    @Test
+    void create_ReturnsUserMatchingDatabaseRow() {
+        User created = userDao.create(new User("Alex", "alex@example.com", 25));
+
+        assertNotNull(created.getId());
+        assertNotNull(created.getCreatedAt());
+        sessionFactory.getCache().evictEntityData(User.class);
+        User fromDb = userDao.findById(created.getId()).orElseThrow();
+        assertEquals(fromDb.getCreatedAt(), created.getCreatedAt());
+    }
+
+    @Test
+    void findByIds_ReturnsOnlyExistingUsers() {
+        Long first = userDao.create(new User("Alex", "alex@example.com", 25)).getId();
+        Long second = userDao.create(new User("Bob", "bob@example.com", 30)).getId();
+
+        List<User> found = userDao.findByIds(List.of(first, second, second + 1000));
+
+        assertEquals(2, found.size());
+        assertTrue(found.stream().anyMatch(u -> u.getName().equals("Bob")));
+        assertTrue(userDao.findByIds(List.of()).isEmpty());
+    }
+
+    @Test
+    void findByIds_MoreIdsThanOneChunk_ReturnsAll() {
+        List<User> users = new ArrayList<>();
+        for (int i = 0; i < 2500; i++) {
+            users.add(new User("User" + i, "chunk" + i + "@example.com", 20));
+        }
+        List<Long> ids = userDao.createAll(users);
+
+        assertEquals(2500, userDao.findByIds(ids).size());
+    }
+
+    @Test
+    void findByEmails_IgnoresCaseAndMissingEmails() {
+        userDao.create(new User("Alex", "alex@example.com", 25));
+        userDao.create(new User("Bob", "Bob@Example.com", 30));
+
+        List<User> found = userDao.findByEmails(List.of("ALEX@example.com", "bob@example.com", "none@example.com"));
+
+        assertEquals(2, found.size());
+    }
+
     @Test
     void findByEmail_ReturnsCorrectUser() {
         userDao.create(new User("Alex", "alex@example.com", 25));
@@ -78,9 +138,46 @@ class UserDaoImplAutonomousIntegrationTest {
         assertEquals("alex@example.com", found.get().getEmail());
     }
 
+    @Test
+    void findByEmail_IgnoresCaseAndSurroundingSpaces() {
+        userDao.create(new User("Alex", "Alex@Example.com", 25));
+
+        Optional<User> found = userDao.findByEmail("  ALEX@example.COM ");
+        assertTrue(found.isPresent());
+        assertEquals("Alex@Example.com", found.get().getEmail());
+    }
+
+    @Test
+    void create_EmailDifferingOnlyInCase_Rejected() {
+        userDao.create(new User("Alex", "alex@example.com", 25));
+
+        assertThrows(DaoException.class, () -> userDao.create(new User("Alex 2", "ALEX@example.com", 30)));
+    }
+
+    @Test
+    void findByEmail_UsesUniqueIndex() {
+        List<User> users = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            users.add(new User("User" + i, "user" + i + "@example.com", 20));
+        }
+        userDao.createAll(users);
+
+        try (Session session = sessionFactory.openSession()) {
+            session.doWork(connection -> {
+                try (Statement stmt = connection.createStatement()) {
+                    stmt.execute("ANALYZE users");
+                }
+            });
+            List<String> plan = session.createNativeQuery(
+                            "EXPLAIN SELECT * FROM users WHERE email_normalized = 'user500@example.com'", String.class)
+                    .list();
+            assertTrue(plan.get(0).contains("uk_users_email"), String.join("\n", plan));
+        }
+    }
+
     @Test
     void updateUser_ChangesPersisted() {
-        Long id = userDao.create(new User("Alex", "alex@example.com", 25));
+        Long id = userDao.create(new User("Alex", "alex@example.com", 25)).getId();
 
         User user = userDao.findById(id).orElseThrow();
         user.setName("Alex Updated");
@@ -91,14 +188,222 @@ class UserDaoImplAutonomousIntegrationTest {
         assertEquals("Alex Updated", updated.get().getName());
     }
 
+    @Test
+    void patch_UpdatesOnlyGivenFieldsAndBumpsVersion() {
+        User created = userDao.create(new User("Alex", "alex@example.com", 25));
+        assertEquals(0L, created.getVersion());
+
+        assertEquals(1, userDao.patch(created.getId(), UserPatch.create().age(null).expectedVersion(0)));
+
+        User patched = userDao.findById(created.getId()).orElseThrow();
+        assertEquals("Alex", patched.getName());
+        assertEquals("alex@example.com", patched.getEmail());
+        assertNull(patched.getAge());
+        assertEquals(1L, patched.getVersion());
+        assertEquals(0, userDao.patch(created.getId() + 1000, UserPatch.create().name("Bob")));
+    }
+
+    @Test
+    void patch_DuplicateEmail_RolledBackWithConstraintCause() {
+        userDao.create(new User("Alex", "alex@example.com", 25));
+        User bob = userDao.create(new User("Bob", "bob@example.com", 30));
+
+        DaoException ex = assertThrows(DaoException.class,
+                () -> userDao.patch(bob.getId(), UserPatch.create().name("Robert").email("ALEX@example.com")));
+
+        ConstraintViolationException violation = assertInstanceOf(ConstraintViolationException.class, ex.getCause());
+        assertEquals("uk_users_email", violation.getConstraintName());
+        assertEquals("Bob", userDao.findById(bob.getId()).orElseThrow().getName());
+    }
+
+    @Test
+    void update_MissingUser_ReportsObjectNotFound() {
+        User missing = new User(1000L, "Ghost", "ghost@example.com", 20, Instant.now());
+
+        DaoException ex = assertThrows(DaoException.class, () -> userDao.update(missing));
+
+        assertInstanceOf(ObjectNotFoundException.class, ex.getCause());
+    }
+
+    @Test
+    void patchAndUpdate_StaleVersion_Rejected() {
+        User created = userDao.create(new User("Alex", "alex@example.com", 25));
+        User first = userDao.findById(created.getId()).orElseThrow();
+        User second = userDao.findById(created.getId()).orElseThrow();
+
+        first.setName("First");
+        userDao.update(first);
+        assertEquals(1L, first.getVersion());
+
+        second.setName("Second");
+        DaoException ex = assertThrows(DaoException.class, () -> userDao.update(second));
+        assertInstanceOf(StaleObjectStateException.class, ex.getCause());
+        assertThrows(DaoException.class,
+                () -> userDao.patch(created.getId(), UserPatch.create().name("Third").expectedVersion(0)));
+        assertEquals("First", userDao.findById(created.getId()).orElseThrow().getName());
+    }
+
+    @Test
+    void views_MatchEntitiesWithoutLoadingThem() {
+        User alex = userDao.create(new User("Alex", "alex@example.com", null));
+        User bob = userDao.create(new User("Bob", "bob@example.com", 30));
+        sessionFactory.getStatistics().clear();
+
+        assertEquals(Optional.of(UserView.of(alex)), userDao.findViewById(alex.getId()));
+        assertEquals(List.of(UserView.of(bob)), userDao.findViewPage(alex.getId(), 10));
+        assertTrue(userDao.findViewById(bob.getId() + 1000).isEmpty());
+        assertEquals(0, sessionFactory.getStatistics().getEntityLoadCount());
+    }
+
+    @Test
+    void search_FiltersAndContinuesAfterLastRow() {
+        List<User> users = new ArrayList<>();
+        for (int i = 0; i < 30; i++) {
+            users.add(new User((i % 2 == 0 ? "Anna_" : "Boris_") + i, "user" + i + "@example.com", 20 + i));
+        }
+        userDao.createAll(users);
+        UserQuery query = UserQuery.create()
+                .nameContains("NA_")
+                .ageBetween(22, 40)
+                .sortBy(UserQuery.SortBy.NAME, true)
+                .limit(4);
+
+        List<String> names = new ArrayList<>();
+        UserSearchPage page = userDao.search(query);
+        names.addAll(page.users().stream().map(UserView::name).toList());
+        while (page.hasNext()) {
+            page = userDao.search(query.after(page.next()));
+            names.addAll(page.users().stream().map(UserView::name).toList());
+        }
+
+        // возраст 22..40 у Anna_ — это Anna_2 .. Anna_20
+        List<String> expected = users.stream().map(User::getName)
+                .filter(name -> name.startsWith("Anna_") && Integer.parseInt(name.substring(5)) >= 2
+                        && Integer.parseInt(name.substring(5)) <= 20)
+                .sorted(Comparator.reverseOrder())
+                .toList();
+        assertEquals(expected, names);
+        assertThrows(IllegalArgumentException.class,
+                () -> userDao.search(UserQuery.create().sortBy(UserQuery.SortBy.CREATED_AT, false).after(
+                        userDao.search(UserQuery.create().limit(1)).next())));
+    }
+
+    @Test
+    void search_ByCreatedAtReadsIndexInOrder() {
+        List<User> users = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            users.add(new User("User" + i, "user" + i + "@example.com", 20));
+        }
+        userDao.createAll(users);
+
+        try (Session session = sessionFactory.openSession()) {
+            session.doWork(connection -> {
+                try (Statement stmt = connection.createStatement()) {
+                    stmt.execute("ANALYZE users");
+                }
+            });
+            List<String> plan = session.createNativeQuery("EXPLAIN SELECT * FROM users "
+                            + "WHERE created_at >= localtimestamp - interval '1 day' ORDER BY created_at DESC, id DESC LIMIT 51",
+                    String.class).list();
+            assertTrue(String.join("\n", plan).contains("idx_users_created_at"), String.join("\n", plan));
+            assertFalse(String.join("\n", plan).contains("Sort"), String.join("\n", plan));
+        }
+        UserSearchPage first = userDao.search(UserQuery.create().sortBy(UserQuery.SortBy.CREATED_AT, true).limit(600));
+        UserSearchPage second = userDao.search(UserQuery.create().sortBy(UserQuery.SortBy.CREATED_AT, true)
+                .limit(600).after(first.next()));
+        assertEquals(600, first.users().size());
+        assertEquals(400, second.users().size());
+        assertFalse(second.hasNext());
+    }
+
+    @Test
+    void aggregates_MatchCountsOverLoadedRows() {
+        userDao.createAll(List.of(
+                new User("A", "a@example.com", 10),
+                new User("B", "b@example.com", 15),
+                new User("C", "c@example.com", 27),
+                new User("D", "d@example.com", null),
+                new User("E", "e@example.com", 35)));
+        try (Session session = sessionFactory.openSession()) {
+            Transaction tx = session.beginTransaction();
+            session.createNativeQuery("UPDATE users SET created_at = created_at - (id % 3) * interval '1 day'")
+                    .executeUpdate();
+            tx.commit();
+        }
+        List<User> rows = userDao.findAll();
+        Instant newest = rows.stream().map(User::getCreatedAt).max(Comparator.naturalOrder()).orElseThrow();
+        Instant from = newest.minus(1, ChronoUnit.DAYS);
+
+        assertEquals(5, userDao.count());
+        assertEquals(3, userDao.countByAgeBetween(10, 27));
+        assertEquals(Map.of(10, 2L, 20, 1L, 30, 1L), userDao.ageHistogram(10));
+        assertEquals(signupsByDay(rows.stream()), userDao.signupsByDay(null, null));
+        assertEquals(signupsByDay(rows.stream().filter(u -> !u.getCreatedAt().isBefore(from))),
+                userDao.signupsByDay(from, null));
+        assertEquals(Map.of(), userDao.signupsByDay(null, from.minus(3, ChronoUnit.DAYS)));
+    }
+
+    private static Map<LocalDate, Long> signupsByDay(Stream<User> users) {
+        return users.collect(Collectors.groupingBy(u -> LocalDate.ofInstant(u.getCreatedAt(), ZoneOffset.UTC),
+                TreeMap::new, Collectors.counting()));
+    }
+
     @Test
     void deleteUser_RemovesFromDatabase() {
-        Long id = userDao.create(new User("Alex", "alex@example.com", 25));
+        Long id = userDao.create(new User("Alex", "alex@example.com", 25)).getId();
 
-        userDao.deleteById(id);
+        assertEquals(1, userDao.deleteById(id));
 
         Optional<User> deleted = userDao.findById(id);
         assertTrue(deleted.isEmpty());
+        assertEquals(0, userDao.deleteById(id));
+    }
+
+    @Test
+    void deleteById_EvictsOnlyDeletedUserFromCache() {
+        Long id = userDao.create(new User("Alex", "alex@example.com", 25)).getId();
+        Long otherId = userDao.create(new User("Bob", "bob@example.com", 30)).getId();
+        userDao.findById(id);
+        userDao.findById(otherId);
+        userDao.findByEmail("alex@example.com");
+        userDao.findByEmail("bob@example.com");
+        CacheRegionStatistics queries = sessionFactory.getStatistics()
+                .getCacheRegionStatistics(User.EMAIL_QUERY_CACHE_REGION);
+
+        userDao.deleteById(id);
+        long hitsBefore = queries.getHitCount();
+
+        assertTrue(userDao.findById(id).isEmpty());
+        assertTrue(sessionFactory.getCache().containsEntity(User.class, otherId));
+        assertTrue(userDao.findByEmail("alex@example.com").isEmpty());
+        assertEquals("Bob", userDao.findByEmail("bob@example.com").orElseThrow().getName());
+        assertEquals(hitsBefore + 2, queries.getHitCount());
+
+        userDao.create(new User("Alex", "alex@example.com", 26));
+        assertEquals(26, userDao.findByEmail("alex@example.com").orElseThrow().getAge());
+    }
+
+    @Test
+    void deleteById_LoadStartedBeforeCommitDoesNotCacheDeletedRow() {
+        Long id = userDao.create(new User("Gone", "gone@example.com", 30)).getId();
+        sessionFactory.getCache().evictEntityData(User.class);
+
+        try (Session reader = sessionFactory.openSession()) {
+            reader.doWork(connection -> connection.setTransactionIsolation(Connection.TRANSACTION_REPEATABLE_READ));
+            try {
+                Transaction tx = reader.beginTransaction();
+                reader.createNativeQuery("select count(*) from users", Long.class).getSingleResult();
+
+                userDao.deleteById(id);
+
+                assertNotNull(reader.get(User.class, id));
+                tx.commit();
+            } finally {
+                reader.doWork(connection -> connection.setTransactionIsolation(Connection.TRANSACTION_READ_COMMITTED));
+            }
+        }
+
+        assertTrue(userDao.findById(id).isEmpty());
     }
 
     @Test
@@ -109,4 +414,163 @@ class UserDaoImplAutonomousIntegrationTest {
         List<User> users = userDao.findAll();
         assertEquals(2, users.size());
     }
-}
\ No newline at end of file
+
+    @Test
+    void streamAll_ReturnsAllUsersOrderedById() {
+        for (int i = 0; i < 25; i++) {
+            userDao.create(new User("User" + i, "user" + i + "@example.com", 20 + i));
+        }
+
+        List<Long> ids;
+        try (Stream<User> users = userDao.streamAll(10)) {
+            ids = users.map(User::getId).toList();
+        }
+
+        assertEquals(25, ids.size());
+        assertEquals(ids.stream().sorted().toList(), ids);
+    }
+
+    @Test
+    void findPage_ReturnsUsersAfterGivenId() {
+        for (int i = 0; i < 5; i++) {
+            userDao.create(new User("User" + i, "user" + i + "@example.com", 20 + i));
+        }
+
+        List<User> first = userDao.findPage(null, 2);
+        List<User> second = userDao.findPage(first.get(1).getId(), 2);
+        List<User> last = userDao.findPage(second.get(1).getId(), 2);
+
+        assertEquals(List.of("User0", "User1"), first.stream().map(User::getName).toList());
+        assertEquals(List.of("User2", "User3"), second.stream().map(User::getName).toList());
+        assertEquals(List.of("User4"), last.stream().map(User::getName).toList());
+    }
+
+    @Test
+    void createAll_PersistsAllUsersInBatches() {
+        List<User> users = new ArrayList<>();
+        for (int i = 0; i < 120; i++) {
+            users.add(new User("User" + i, "batch" + i + "@example.com", 20));
+        }
+
+        List<Long> ids = userDao.createAll(users);
+
+        assertEquals(120, ids.size());
+        assertEquals(120, ids.stream().distinct().count());
+        assertEquals(120, userDao.findAll().size());
+        assertEquals("User119", userDao.findById(ids.get(119)).orElseThrow().getName());
+    }
+
+    @Test
+    void findById_SecondLookupServedFromSecondLevelCache() {
+        User user = new User("Cached", "cached@example.com", 30);
+        Long id = userDao.create(user).getId();
+        CacheRegionStatistics region = sessionFactory.getStatistics().getCacheRegionStatistics(User.CACHE_REGION);
+        sessionFactory.getCache().evictEntityData(User.class);
+
+        userDao.findById(id);
+        long hitsBefore = region.getHitCount();
+        Optional<User> cached = userDao.findById(id);
+
+        assertTrue(cached.isPresent());
+        assertEquals("Cached", cached.get().getName());
+        assertEquals(hitsBefore + 1, region.getHitCount());
+    }
+
+    @Test
+    void findByEmail_RepeatedQueryServedFromQueryCache() {
+        userDao.create(new User("Query", "query@example.com", 30));
+
+        userDao.findByEmail("query@example.com");
+        CacheRegionStatistics region = sessionFactory.getStatistics()
+                .getCacheRegionStatistics(User.EMAIL_QUERY_CACHE_REGION);
+        long hitsBefore = region.getHitCount();
+        Optional<User> found = userDao.findByEmail("query@example.com");
+
+        assertTrue(found.isPresent());
+        assertEquals(hitsBefore + 1, region.getHitCount());
+    }
+
+    @Test
+    void update_InvalidatesCachedEntity() {
+        User user = new User("Before", "before@example.com", 30);
+        Long id = userDao.create(user).getId();
+        userDao.findById(id);
+
+        user.setName("After");
+        userDao.update(user);
+
+        assertEquals("After", userDao.findById(id).orElseThrow().getName());
+        assertEquals("After", userDao.findByEmail("before@example.com").orElseThrow().getName());
+    }
+
+    @Test
+    void updateAndPatch_EvictOnlyChangedUserFromCache() {
+        User changed = userDao.create(new User("Changed", "changed@example.com", 30));
+        Long otherId = userDao.create(new User("Other", "other@example.com", 40)).getId();
+        userDao.findById(changed.getId());
+        userDao.findById(otherId);
+
+        changed.setAge(31);
+        userDao.update(changed);
+        assertEquals(31, userDao.findById(changed.getId()).orElseThrow().getAge());
+        assertTrue(sessionFactory.getCache().containsEntity(User.class, otherId));
+
+        userDao.patch(changed.getId(), UserPatch.create().name("Patched"));
+        assertTrue(sessionFactory.getCache().containsEntity(User.class, otherId));
+        assertEquals("Patched", userDao.findById(changed.getId()).orElseThrow().getName());
+        assertEquals(31, userDao.findById(changed.getId()).orElseThrow().getAge());
+    }
+
+    @Test
+    void update_LoadStartedBeforeCommitDoesNotCacheOldRow() {
+        User user = userDao.create(new User("Before", "race@example.com", 30));
+        sessionFactory.getCache().evictEntityData(User.class);
+
+        // снимок читающей транзакции сделан до обновления, а сущность она загружает уже после коммита
+        try (Session reader = sessionFactory.openSession()) {
+            reader.doWork(connection -> connection.setTransactionIsolation(Connection.TRANSACTION_REPEATABLE_READ));
+            try {
+                Transaction tx = reader.beginTransaction();
+                reader.createNativeQuery("select count(*) from users", Long.class).getSingleResult();
+
+                user.setName("After");
+                userDao.update(user);
+
+                assertEquals("Before", reader.get(User.class, user.getId()).getName());
+                tx.commit();
+            } finally {
+                reader.doWork(connection -> connection.setTransactionIsolation(Connection.TRANSACTION_READ_COMMITTED));
+            }
+        }
+
+        assertEquals("After", userDao.findById(user.getId()).orElseThrow().getName());
+    }
+
+    @Test
+    void update_WithSameEmailKeepsEmailQueryCached() {
+        User user = userDao.create(new User("Same", "Same@Example.com", 30));
+        userDao.findByEmail("same@example.com");
+        CacheRegionStatistics region = sessionFactory.getStatistics()
+                .getCacheRegionStatistics(User.EMAIL_QUERY_CACHE_REGION);
+
+        user.setAge(31);
+        userDao.update(user);
+        long hitsBefore = region.getHitCount();
+
+        assertEquals(31, userDao.findByEmail("same@example.com").orElseThrow().getAge());
+        assertEquals(hitsBefore + 1, region.getHitCount());
+    }
+
+    @Test
+    void update_WithNewEmailInvalidatesEmailQuery() {
+        User user = userDao.create(new User("Moved", "old@example.com", 30));
+        userDao.findByEmail("old@example.com");
+        userDao.findByEmail("new@example.com");
+
+        user.setEmail("new@example.com");
+        userDao.update(user);
+
+        assertTrue(userDao.findByEmail("old@example.com").isEmpty());
+        assertEquals("Moved", userDao.findByEmail("new@example.com").orElseThrow().getName());
+    }
+}
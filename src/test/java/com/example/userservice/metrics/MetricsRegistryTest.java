@@ -0,0 +1,78 @@
+package com.example.userservice.metrics;
+
+import com.example.userservice.dao.DaoException;
+import org.junit.jupiter.api.Test;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MetricsRegistryTest {
+
+    @Test
+    void concurrentRecords_AreAllCounted() throws Exception {
+        MetricsRegistry registry = new MetricsRegistry();
+        OperationMetrics op = registry.operation("UserDao.findById");
+        assertSame(op, registry.operation("UserDao.findById"));
+
+        ExecutorService pool = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < 8; t++) {
+                futures.add(pool.submit(() -> {
+                    for (int i = 0; i < 10_000; i++) {
+                        op.record(() -> 1);
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+
+        assertEquals(80_000, op.snapshot().calls());
+        assertEquals(0, op.snapshot().errors());
+    }
+
+    @Test
+    void dump_ListsOperationsWithCallsAndErrorCauses() {
+        MetricsRegistry registry = new MetricsRegistry();
+        registry.operation("UserService.getUserById").record(() -> "ok");
+        OperationMetrics create = registry.operation("UserDao.create");
+        assertThrows(DaoException.class, () -> create.record(() -> {
+            throw new DaoException("Ошибка при создании пользователя", new IllegalStateException("сбой"));
+        }));
+        registry.operation("UserDao.findAll");
+
+        String dump = registry.dump();
+
+        assertTrue(dump.contains("UserService.getUserById"));
+        assertTrue(dump.contains("UserDao.create"));
+        assertTrue(dump.contains("ошибки: {IllegalStateException=1}"));
+        // операции без вызовов в сводку не попадают
+        assertFalse(dump.contains("UserDao.findAll"));
+    }
+
+    @Test
+    void exposeViaJmx_RegistersExistingAndNewOperations() throws Exception {
+        MetricsRegistry registry = new MetricsRegistry();
+        registry.operation("UserDao.findByEmail").record(() -> null);
+        registry.exposeViaJmx();
+        registry.operation("UserDao.findPage").record(() -> null);
+
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        assertEquals(1L, server.getAttribute(MetricsRegistry.objectName("UserDao.findByEmail"), "Calls"));
+        assertEquals(1L, server.getAttribute(MetricsRegistry.objectName("UserDao.findPage"), "Calls"));
+        assertEquals(0L, server.getAttribute(MetricsRegistry.objectName("UserDao.findPage"), "Errors"));
+        assertFalse(server.queryNames(new ObjectName(MetricsRegistry.JMX_DOMAIN + ":type=Operation,*"), null).isEmpty());
+    }
+}
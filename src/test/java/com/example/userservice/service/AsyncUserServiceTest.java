@@ -0,0 +1,193 @@
+package com.example.userservice.service;
+
+import com.example.userservice.entity.User;
+import com.example.userservice.util.QueryDeadline;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class AsyncUserServiceTest {
+
+    @Mock
+    private UserService delegate;
+
+    private AsyncUserService asyncService;
+
+    @BeforeEach
+    void setUp() {
+        asyncService = new AsyncUserService(delegate, 2, Duration.ofSeconds(5));
+    }
+
+    @AfterEach
+    void tearDown() {
+        asyncService.close();
+    }
+
+    @Test
+    void getUserById_CompletesWithDelegateResult() throws Exception {
+        User user = new User("Alex", "alex@example.com", 25);
+        when(delegate.getUserById(1L)).thenReturn(Optional.of(user));
+
+        Optional<User> result = asyncService.getUserById(1L).get(1, TimeUnit.SECONDS);
+
+        assertEquals("Alex", result.orElseThrow().getName());
+        assertEquals(2, asyncService.availablePermits());
+    }
+
+    @Test
+    void delegateException_CompletesFutureExceptionally() {
+        when(delegate.deleteUser(1L)).thenThrow(new IllegalStateException("boom"));
+
+        ExecutionException ex = assertThrows(ExecutionException.class,
+                () -> asyncService.deleteUser(1L).get(1, TimeUnit.SECONDS));
+
+        assertInstanceOf(IllegalStateException.class, ex.getCause());
+    }
+
+    @Test
+    void concurrentCalls_LimitedByPermits() throws Exception {
+        AtomicInteger inFlight = new AtomicInteger();
+        AtomicInteger maxInFlight = new AtomicInteger();
+        when(delegate.getUserById(anyLong())).thenAnswer(invocation -> {
+            maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+            Thread.sleep(20);
+            inFlight.decrementAndGet();
+            return Optional.empty();
+        });
+
+        List<CompletableFuture<Optional<User>>> futures = new ArrayList<>();
+        for (long id = 1; id <= 20; id++) {
+            futures.add(asyncService.getUserById(id));
+        }
+        CompletableFuture.allOf(futures.toArray(CompletableFuture[]::new)).get(5, TimeUnit.SECONDS);
+
+        assertEquals(2, maxInFlight.get());
+        verify(delegate, times(20)).getUserById(anyLong());
+    }
+
+    @Test
+    void deadlineExceeded_FailsWithTimeoutWithoutInterruptingCall() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicBoolean interrupted = new AtomicBoolean();
+        AtomicReference<Optional<Duration>> remaining = new AtomicReference<>();
+        when(delegate.getUserById(1L)).thenAnswer(invocation -> {
+            remaining.set(QueryDeadline.remaining());
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                interrupted.set(true);
+            }
+            return Optional.empty();
+        });
+
+        CompletableFuture<Optional<User>> future = asyncService.getUserById(1L, Duration.ofMillis(50));
+
+        ExecutionException ex = assertThrows(ExecutionException.class, () -> future.get(1, TimeUnit.SECONDS));
+        assertInstanceOf(TimeoutException.class, ex.getCause());
+        assertTrue(remaining.get().isPresent());
+        assertTrue(remaining.get().orElseThrow().compareTo(Duration.ofMillis(50)) <= 0);
+        // вызов держит разрешение, пока не вернётся сам
+        assertEquals(1, asyncService.availablePermits());
+
+        release.countDown();
+        awaitPermits(2);
+        assertFalse(interrupted.get());
+    }
+
+    @Test
+    void waitingForPermit_CountsTowardsDeadline() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        when(delegate.getUserById(1L)).thenAnswer(invocation -> {
+            release.await();
+            return Optional.empty();
+        });
+        asyncService.getUserById(1L);
+        asyncService.getUserById(1L);
+
+        CompletableFuture<Optional<User>> queued = asyncService.getUserById(2L, Duration.ofMillis(50));
+
+        ExecutionException ex = assertThrows(ExecutionException.class, () -> queued.get(1, TimeUnit.SECONDS));
+        assertInstanceOf(TimeoutException.class, ex.getCause());
+        verify(delegate, never()).getUserById(2L);
+        release.countDown();
+    }
+
+    @Test
+    void cancel_CompletesImmediatelyAndReleasesPermitAfterCall() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicBoolean interrupted = new AtomicBoolean();
+        when(delegate.getUserByEmail("alex@example.com")).thenAnswer(invocation -> {
+            started.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                interrupted.set(true);
+            }
+            return Optional.empty();
+        });
+
+        CompletableFuture<Optional<User>> future = asyncService.getUserByEmail("alex@example.com");
+        assertTrue(started.await(1, TimeUnit.SECONDS));
+        future.cancel(true);
+
+        assertThrows(CancellationException.class, future::join);
+        assertEquals(1, asyncService.availablePermits());
+
+        release.countDown();
+        awaitPermits(2);
+        assertFalse(interrupted.get());
+    }
+
+    @Test
+    void cancelWhileWaitingForPermit_NeverCallsDelegate() throws Exception {
+        CountDownLatch started = new CountDownLatch(2);
+        CountDownLatch release = new CountDownLatch(1);
+        when(delegate.getUserById(1L)).thenAnswer(invocation -> {
+            started.countDown();
+            release.await();
+            return Optional.empty();
+        });
+        asyncService.getUserById(1L);
+        asyncService.getUserById(1L);
+        assertTrue(started.await(1, TimeUnit.SECONDS));
+
+        CompletableFuture<Optional<User>> queued = asyncService.getUserById(2L);
+        queued.cancel(true);
+        release.countDown();
+
+        assertThrows(CancellationException.class, queued::join);
+        awaitPermits(2);
+        verify(delegate, never()).getUserById(2L);
+    }
+
+    private void awaitPermits(int expected) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(1);
+        while (asyncService.availablePermits() < expected && System.nanoTime() < deadline) {
+            Thread.sleep(5);
+        }
+        assertEquals(expected, asyncService.availablePermits());
+    }
+}
@@ -0,0 +1,204 @@
+package com.example.userservice.service;
+
+import com.example.userservice.entity.User;
+import com.example.userservice.entity.UserPatch;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class CachingUserServiceTest {
+
+    @Mock
+    private UserService delegate;
+
+    private CachingUserService cachingService;
+
+    private User testUser;
+
+    @BeforeEach
+    void setUp() {
+        cachingService = new CachingUserService(delegate, 100, Duration.ofMinutes(1));
+        testUser = new User("Alex", "Alex@Example.com", 25);
+    }
+
+    private User createdUser() {
+        User saved = new User(1L, testUser.getName(), testUser.getEmail(), testUser.getAge(), Instant.now());
+        when(delegate.createUser(testUser)).thenReturn(saved);
+        return cachingService.createUser(testUser);
+    }
+
+    private User cachedUser() {
+        User created = createdUser();
+        when(delegate.getUserById(1L)).thenReturn(Optional.of(created));
+        cachingService.getUserById(1L);
+        return created;
+    }
+
+    @Test
+    void getUserById_SecondCall_ServedFromCache() {
+        when(delegate.getUserById(1L)).thenReturn(Optional.of(testUser));
+
+        cachingService.getUserById(1L);
+        Optional<User> second = cachingService.getUserById(1L);
+
+        assertEquals("Alex", second.orElseThrow().getName());
+        verify(delegate, times(1)).getUserById(1L);
+        assertEquals(1, cachingService.idCacheStats().hitCount());
+    }
+
+    @Test
+    void aggregates_CachedOnlyWhenTtlGiven() {
+        SortedMap<Integer, Long> histogram = new TreeMap<>(Map.of(20, 3L));
+        when(delegate.countUsers()).thenReturn(5L);
+        when(delegate.getAgeHistogram(10)).thenReturn(histogram);
+        CachingUserService withAggregates = new CachingUserService(delegate, 100, Duration.ofMinutes(1),
+                Duration.ofSeconds(30));
+
+        assertEquals(5, withAggregates.countUsers());
+        assertEquals(5, withAggregates.countUsers());
+        assertEquals(histogram, withAggregates.getAgeHistogram(10));
+        assertThrows(UnsupportedOperationException.class, () -> withAggregates.getAgeHistogram(10).clear());
+        cachingService.countUsers();
+
+        verify(delegate, times(2)).countUsers();
+        verify(delegate, times(1)).getAgeHistogram(10);
+        assertEquals(2, withAggregates.aggregateCacheStats().hitCount());
+    }
+
+    @Test
+    void getUserById_ReturnsCopy_CallerChangesDoNotLeakIntoCache() {
+        when(delegate.getUserById(1L)).thenReturn(Optional.of(testUser));
+
+        cachingService.getUserById(1L).orElseThrow().setName("Changed");
+
+        assertEquals("Alex", cachingService.getUserById(1L).orElseThrow().getName());
+    }
+
+    @Test
+    void getUserById_NotFound_IsNotCached() {
+        when(delegate.getUserById(2L)).thenReturn(Optional.empty());
+
+        cachingService.getUserById(2L);
+        cachingService.getUserById(2L);
+
+        verify(delegate, times(2)).getUserById(2L);
+    }
+
+    @Test
+    void getUserByEmail_AfterCreate_LoadedByIdCaseInsensitive() {
+        User created = createdUser();
+        when(delegate.getUserById(1L)).thenReturn(Optional.of(created));
+
+        cachingService.getUserByEmail(" alex@example.COM");
+        Optional<User> found = cachingService.getUserByEmail("alex@example.com");
+
+        assertTrue(found.isPresent());
+        verify(delegate, never()).getUserByEmail(any());
+        verify(delegate, times(1)).getUserById(1L);
+    }
+
+    @Test
+    void getUserByEmail_DeletedWhileLoading_IsNotCached() {
+        User alex = new User(1L, "Alex", "alex@example.com", 25, Instant.now());
+        when(delegate.getUserByEmail("alex@example.com")).thenAnswer(invocation -> {
+            // удаление успевает завершиться между ответом базы и возвратом из делегата
+            cachingService.deleteUser(1L);
+            return Optional.of(alex);
+        });
+        when(delegate.deleteUser(1L)).thenReturn(true);
+        when(delegate.getUserById(1L)).thenReturn(Optional.empty());
+
+        cachingService.getUserByEmail("alex@example.com");
+
+        assertTrue(cachingService.getUserById(1L).isEmpty());
+    }
+
+    @Test
+    void updateUser_InvalidatesCachedUser() {
+        User created = cachedUser();
+        when(delegate.updateUser(created)).thenReturn(created);
+
+        cachingService.updateUser(created);
+        cachingService.getUserById(1L);
+
+        verify(delegate, times(2)).getUserById(1L);
+    }
+
+    @Test
+    void patchUser_InvalidatesCachedUser() {
+        cachedUser();
+        UserPatch changes = UserPatch.create().name("Bob");
+        when(delegate.patchUser(1L, changes)).thenReturn(true);
+
+        assertTrue(cachingService.patchUser(1L, changes));
+        cachingService.getUserById(1L);
+
+        verify(delegate, times(2)).getUserById(1L);
+    }
+
+    @Test
+    void deleteUser_InvalidatesCachedUserAndEmail() {
+        createdUser();
+        when(delegate.deleteUser(1L)).thenReturn(true);
+        when(delegate.getUserByEmail("alex@example.com")).thenReturn(Optional.empty());
+
+        assertTrue(cachingService.deleteUser(1L));
+
+        assertTrue(cachingService.getUserByEmail("alex@example.com").isEmpty());
+        verify(delegate).getUserByEmail("alex@example.com");
+    }
+
+    @Test
+    void getUsersByIds_LoadsOnlyMissingIds() {
+        cachedUser();
+        User bob = new User(2L, "Bob", "bob@example.com", 30, Instant.now());
+        when(delegate.getUsersByIds(Set.of(2L, 3L))).thenReturn(Map.of(2L, bob));
+
+        Map<Long, User> users = cachingService.getUsersByIds(List.of(1L, 2L, 3L));
+
+        assertEquals(Set.of(1L, 2L), users.keySet());
+        assertEquals("Alex", users.get(1L).getName());
+        verify(delegate).getUsersByIds(Set.of(2L, 3L));
+    }
+
+    @Test
+    void getUsersByIds_UserDeletedDuringLoadNotCached() {
+        User bob = new User(2L, "Bob", "bob@example.com", 30, Instant.now());
+        when(delegate.deleteUser(2L)).thenReturn(true);
+        when(delegate.getUsersByIds(Set.of(2L))).thenAnswer(invocation -> {
+            cachingService.deleteUser(2L);
+            return Map.of(2L, bob);
+        });
+        when(delegate.getUserById(2L)).thenReturn(Optional.empty());
+
+        assertEquals(Set.of(2L), cachingService.getUsersByIds(List.of(2L)).keySet());
+
+        assertTrue(cachingService.getUserById(2L).isEmpty());
+    }
+
+    @Test
+    void getUsersByEmails_CachedEmailsNotRequested() {
+        cachedUser();
+        when(delegate.getUsersByEmails(List.of("bob@example.com"))).thenReturn(Map.of());
+
+        Map<String, User> users = cachingService.getUsersByEmails(List.of("ALEX@example.com", "bob@example.com"));
+
+        assertEquals(Set.of("ALEX@example.com"), users.keySet());
+        verify(delegate).getUsersByEmails(List.of("bob@example.com"));
+    }
+}
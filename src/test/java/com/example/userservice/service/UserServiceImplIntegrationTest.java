@@ -57,7 +57,7 @@ class UserServiceImplIntegrationTest {
     void cleanDatabase() {
         try (Session session = sessionFactory.openSession()) {
             Transaction tx = session.beginTransaction();
-            session.createNativeQuery("TRUNCATE TABLE users RESTART IDENTITY CASCADE").executeUpdate();
+            session.createNativeQuery("TRUNCATE TABLE users CASCADE").executeUpdate();
             tx.commit();
         }
     }
@@ -2,6 +2,7 @@ package com.example.userservice.service;
 
 import com.example.userservice.dao.UserDao;
 import com.example.userservice.entity.User;
+import com.example.userservice.entity.UserPatch;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
@@ -9,7 +10,10 @@ import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 
+import java.time.Instant;
+import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 import static org.junit.jupiter.api.Assertions.*;
@@ -34,15 +38,14 @@ class UserServiceImplTest {
 
     @Test
     void createUser_ValidData_ReturnsUser() {
-        when(userDao.create(any(User.class))).thenReturn(1L);
-        when(userDao.findById(1L)).thenReturn(Optional.of(testUser));
+        when(userDao.create(testUser)).thenReturn(testUser);
 
         User created = userService.createUser(testUser);
 
         assertNotNull(created);
         assertEquals("Alex", created.getName());
         verify(userDao).create(testUser);
-        verify(userDao).findById(1L);
+        verify(userDao, never()).findById(anyLong());
     }
 
     @Test
@@ -79,22 +82,23 @@ class UserServiceImplTest {
 
     @Test
     void deleteUser_UserExists_ReturnsTrue() {
-        when(userDao.findById(1L)).thenReturn(Optional.of(testUser));
+        when(userDao.deleteById(1L)).thenReturn(1);
 
         boolean deleted = userService.deleteUser(1L);
 
         assertTrue(deleted);
         verify(userDao).deleteById(1L);
+        verify(userDao, never()).findById(anyLong());
     }
 
     @Test
     void deleteUser_UserNotFound_ReturnsFalse() {
-        when(userDao.findById(99L)).thenReturn(Optional.empty());
+        when(userDao.deleteById(99L)).thenReturn(0);
 
         boolean deleted = userService.deleteUser(99L);
 
         assertFalse(deleted);
-        verify(userDao, never()).deleteById(anyLong());
+        verify(userDao).deleteById(99L);
     }
 
     @Test
@@ -107,4 +111,136 @@ class UserServiceImplTest {
         assertEquals("Alex", users.get(0).getName());
         verify(userDao).findAll();
     }
-}
\ No newline at end of file
+
+    @Test
+    void getUsersPage_ValidLimit_DelegatesToDao() {
+        when(userDao.findPage(10L, 20)).thenReturn(List.of(testUser));
+
+        List<User> page = userService.getUsersPage(10L, 20);
+
+        assertEquals(1, page.size());
+        verify(userDao).findPage(10L, 20);
+    }
+
+    @Test
+    void getUsersPage_LimitTooLarge_ThrowsException() {
+        assertThrows(IllegalArgumentException.class,
+                () -> userService.getUsersPage(null, UserServiceImpl.MAX_PAGE_SIZE + 1));
+
+        verify(userDao, never()).findPage(any(), anyInt());
+    }
+
+    @Test
+    void createUsers_ValidData_CreatesInOneCall() {
+        User other = new User("Bob", "bob@example.com", 30);
+        when(userDao.createAll(List.of(testUser, other))).thenReturn(List.of(1L, 2L));
+
+        List<User> created = userService.createUsers(List.of(testUser, other));
+
+        assertEquals(2, created.size());
+        verify(userDao).createAll(List.of(testUser, other));
+        verify(userDao, never()).create(any());
+    }
+
+    @Test
+    void createUsers_InvalidUser_ThrowsExceptionBeforeInsert() {
+        User invalid = new User("Bob", "invalid-email", 30);
+
+        assertThrows(IllegalArgumentException.class,
+                () -> userService.createUsers(List.of(testUser, invalid)));
+
+        verify(userDao, never()).createAll(any());
+    }
+
+    @Test
+    void getUsersByIds_KeyedByRequestedIdSkippingInvalidAndMissing() {
+        User bob = new User(2L, "Bob", "bob@example.com", 30, null);
+        when(userDao.findByIds(List.of(2L, 3L))).thenReturn(List.of(bob));
+
+        Map<Long, User> users = userService.getUsersByIds(Arrays.asList(2L, null, -1L, 3L));
+
+        assertEquals(Map.of(2L, bob), users);
+    }
+
+    @Test
+    void getUsersByEmails_KeyedByEmailAsRequested() {
+        User bob = new User(2L, "Bob", "bob@example.com", 30, null);
+        when(userDao.findByEmails(List.of("Bob@Example.com", "nobody@example.com"))).thenReturn(List.of(bob));
+
+        Map<String, User> users = userService.getUsersByEmails(List.of("Bob@Example.com", " ", "nobody@example.com"));
+
+        assertEquals(Map.of("Bob@Example.com", bob), users);
+    }
+
+    @Test
+    void patchUser_PassesOnlyChangedFieldsToDao() {
+        UserPatch changes = UserPatch.create().age(null).expectedVersion(3);
+        when(userDao.patch(1L, changes)).thenReturn(1);
+
+        assertTrue(userService.patchUser(1L, changes));
+        verify(userDao, never()).findById(anyLong());
+        verify(userDao, never()).update(any());
+    }
+
+    @Test
+    void patchUser_MissingUser_ReturnsFalse() {
+        UserPatch changes = UserPatch.create().name("Bob");
+        when(userDao.patch(99L, changes)).thenReturn(0);
+
+        assertFalse(userService.patchUser(99L, changes));
+    }
+
+    @Test
+    void patchUser_InvalidField_ThrowsExceptionBeforeUpdate() {
+        assertThrows(IllegalArgumentException.class,
+                () -> userService.patchUser(1L, UserPatch.create().email("invalid-email")));
+        assertThrows(IllegalArgumentException.class,
+                () -> userService.patchUser(0L, UserPatch.create().name("Bob")));
+        verifyNoInteractions(userDao);
+    }
+
+    @Test
+    void aggregates_InvalidArguments_ThrowBeforeQuery() {
+        assertThrows(IllegalArgumentException.class, () -> userService.countByAgeRange(30, 20));
+        assertThrows(IllegalArgumentException.class, () -> userService.getAgeHistogram(0));
+        Instant now = Instant.now();
+        assertThrows(IllegalArgumentException.class, () -> userService.getSignupsByDay(now, now));
+        verifyNoInteractions(userDao);
+
+        when(userDao.count()).thenReturn(7L);
+        assertEquals(7, userService.countUsers());
+    }
+
+    @Test
+    void changeListeners_NotifiedAfterSuccessfulWrites() {
+        UserChangeListener failing = mock(UserChangeListener.class);
+        UserChangeListener listener = mock(UserChangeListener.class);
+        doThrow(new IllegalStateException("сбой подписчика")).when(failing).userSaved(any());
+        userService.addChangeListener(failing);
+        userService.addChangeListener(listener);
+        when(userDao.create(testUser)).thenReturn(testUser);
+        UserPatch changes = UserPatch.create().name("Bob");
+        when(userDao.patch(1L, changes)).thenReturn(1);
+        when(userDao.patch(2L, changes)).thenReturn(0);
+        when(userDao.deleteById(1L)).thenReturn(1);
+        when(userDao.deleteById(2L)).thenReturn(0);
+
+        userService.createUser(testUser);
+        userService.patchUser(1L, changes);
+        userService.patchUser(2L, changes);
+        userService.deleteUser(1L);
+        userService.deleteUser(2L);
+
+        verify(listener).userSaved(testUser);
+        verify(listener).userPatched(1L, changes);
+        verify(listener).userDeleted(1L);
+        verifyNoMoreInteractions(listener);
+    }
+
+    @Test
+    void getUsersByIds_OnlyInvalidIds_DoesNotQueryDao() {
+        assertTrue(userService.getUsersByIds(List.of(0L, -5L)).isEmpty());
+
+        verify(userDao, never()).findByIds(any());
+    }
+}
@@ -0,0 +1,81 @@
+package com.example.userservice.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ConcurrentLongMapTest {
+
+    @Test
+    void randomOperations_MatchHashMap() {
+        ConcurrentLongMap<String> map = new ConcurrentLongMap<>();
+        Map<Long, String> reference = new HashMap<>();
+        Random random = new Random(42);
+        for (int i = 0; i < 200_000; i++) {
+            // узкий диапазон ключей: много коллизий, удалений и повторных вставок
+            long key = random.nextInt(5_000) - 100;
+            switch (random.nextInt(4)) {
+                case 0, 1 -> assertEquals(reference.put(key, "v" + i), map.put(key, "v" + i));
+                case 2 -> assertEquals(reference.remove(key), map.remove(key));
+                default -> assertEquals(reference.get(key), map.get(key));
+            }
+        }
+        assertEquals(reference.size(), map.size());
+        for (Map.Entry<Long, String> entry : reference.entrySet()) {
+            assertEquals(entry.getValue(), map.get(entry.getKey()));
+        }
+        assertEquals(reference.size(), map.values().size());
+    }
+
+    @Test
+    void conditionalOperations_CompareByReference() {
+        ConcurrentLongMap<String> map = new ConcurrentLongMap<>();
+        String first = new String("a");
+        map.put(1, first);
+
+        assertEquals(first, map.putIfAbsent(1, "b"));
+        assertFalse(map.replace(1, new String("a"), "c"));
+        assertTrue(map.replace(1, first, "c"));
+        assertFalse(map.remove(1, first));
+        assertEquals("c", map.get(1));
+        assertThrows(NullPointerException.class, () -> map.put(2, null));
+    }
+
+    @Test
+    void concurrentWriters_AllEntriesVisible() throws Exception {
+        ConcurrentLongMap<Long> map = new ConcurrentLongMap<>();
+        int threads = 8;
+        int perThread = 50_000;
+        try (ExecutorService executor = Executors.newFixedThreadPool(threads)) {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                long base = (long) t * perThread;
+                futures.add(executor.submit(() -> {
+                    for (long k = base; k < base + perThread; k++) {
+                        map.put(k, k);
+                        assertEquals(Long.valueOf(k), map.get(k));
+                    }
+                    for (long k = base; k < base + perThread; k += 2) {
+                        map.remove(k);
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        }
+
+        assertEquals(threads * perThread / 2, map.size());
+        assertNull(map.get(0));
+        assertEquals(Long.valueOf(1), map.get(1));
+    }
+}
@@ -0,0 +1,43 @@
+package com.example.userservice.util;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LatencyHistogramTest {
+
+    @Test
+    void bucketUpperBound_CoversRecordedValue() {
+        for (long v : new long[]{0, 1, 7, 8, 15, 16, 1_000, 123_456_789, Long.MAX_VALUE / 2}) {
+            int index = LatencyHistogram.bucketIndex(v);
+            assertTrue(LatencyHistogram.bucketUpperBound(index) >= v, "value " + v);
+            if (index > 0) {
+                assertTrue(LatencyHistogram.bucketUpperBound(index - 1) < v, "value " + v);
+            }
+        }
+    }
+
+    @Test
+    void snapshot_ReturnsPercentilesWithinPrecision() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int i = 1; i <= 1000; i++) {
+            histogram.record(i * 1_000L);
+        }
+
+        LatencyHistogram.Snapshot snapshot = histogram.snapshot();
+
+        assertEquals(1000, snapshot.count());
+        assertEquals(1_000_000, snapshot.max());
+        assertEquals(500_500, snapshot.mean(), 0.001);
+        assertEquals(500_000, snapshot.percentile(0.5), 500_000 * 0.125);
+        assertEquals(990_000, snapshot.percentile(0.99), 990_000 * 0.125);
+    }
+
+    @Test
+    void snapshot_Empty_ReturnsZeros() {
+        LatencyHistogram.Snapshot snapshot = new LatencyHistogram().snapshot();
+
+        assertEquals(0, snapshot.count());
+        assertEquals(0, snapshot.percentile(0.99));
+    }
+}
@@ -0,0 +1,40 @@
+package com.example.userservice.util;
+
+import org.hibernate.cfg.JdbcSettings;
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+import java.util.Properties;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PooledConnectionProviderTest {
+
+    @Test
+    void toHikariProperties_JakartaSettingsPreferredOverLegacy() {
+        Properties props = PooledConnectionProvider.toHikariProperties(Map.of(
+                JdbcSettings.JAKARTA_JDBC_URL, "jdbc:postgresql://primary/db",
+                PooledConnectionProvider.LEGACY_URL, "jdbc:postgresql://legacy/db",
+                JdbcSettings.JAKARTA_JDBC_USER, "app",
+                PooledConnectionProvider.HIKARI_PREFIX + "maximumPoolSize", 7));
+
+        assertEquals("jdbc:postgresql://primary/db", props.getProperty("jdbcUrl"));
+        assertEquals("app", props.getProperty("username"));
+        assertEquals("7", props.getProperty("maximumPoolSize"));
+        assertNull(props.getProperty("password"));
+    }
+
+    @Test
+    void toHikariProperties_LegacySettingsUsedAsFallback() {
+        Properties props = PooledConnectionProvider.toHikariProperties(Map.of(
+                PooledConnectionProvider.LEGACY_URL, "jdbc:postgresql://legacy/db",
+                PooledConnectionProvider.LEGACY_USER, "legacy_user",
+                PooledConnectionProvider.LEGACY_PASSWORD, "secret",
+                PooledConnectionProvider.LEGACY_DRIVER, "org.postgresql.Driver"));
+
+        assertEquals("jdbc:postgresql://legacy/db", props.getProperty("jdbcUrl"));
+        assertEquals("legacy_user", props.getProperty("username"));
+        assertEquals("secret", props.getProperty("password"));
+        assertEquals("org.postgresql.Driver", props.getProperty("driverClassName"));
+    }
+}
@@ -0,0 +1,113 @@
+package com.example.userservice.util;
+
+import org.junit.jupiter.api.*;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@Testcontainers
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+class SchemaMigrationsIntegrationTest {
+
+    @Container
+    private static final PostgreSQLContainer<?> postgres =
+            new PostgreSQLContainer<>("postgres:15.3")
+                    .withDatabaseName("testdb")
+                    .withUsername("test")
+                    .withPassword("test");
+
+    // каждая проверка — в своей схеме, чтобы не зависеть от таблицы users других тестов;
+    // pg_trgm заранее ставится в public, иначе V4 создал бы его в схеме теста и удалил вместе с ней
+    private static final String LEGACY = "migrations_legacy";
+    private static final String EMPTY = "migrations_empty";
+
+    @BeforeEach
+    void recreateSchemas() throws SQLException {
+        dropSchemas();
+        try (Connection conn = postgres.createConnection("");
+             Statement stmt = conn.createStatement()) {
+            stmt.execute("CREATE EXTENSION IF NOT EXISTS pg_trgm SCHEMA public");
+            stmt.execute("CREATE SCHEMA " + LEGACY);
+            stmt.execute("CREATE SCHEMA " + EMPTY);
+        }
+    }
+
+    @AfterAll
+    void dropSchemas() throws SQLException {
+        try (Connection conn = postgres.createConnection("");
+             Statement stmt = conn.createStatement()) {
+            stmt.execute("DROP SCHEMA IF EXISTS " + LEGACY + " CASCADE");
+            stmt.execute("DROP SCHEMA IF EXISTS " + EMPTY + " CASCADE");
+        }
+    }
+
+    private static String url(String schema) {
+        String url = postgres.getJdbcUrl();
+        return url + (url.contains("?") ? "&" : "?") + "currentSchema=" + schema + ",public";
+    }
+
+    private static Connection connect(String schema) throws SQLException {
+        return DriverManager.getConnection(url(schema), postgres.getUsername(), postgres.getPassword());
+    }
+
+    private static long queryLong(Statement stmt, String sql) throws SQLException {
+        try (ResultSet rs = stmt.executeQuery(sql)) {
+            assertTrue(rs.next());
+            return rs.getLong(1);
+        }
+    }
+
+    @Test
+    void migrate_TableCreatedByHbm2ddl_UpgradedInPlace() throws SQLException {
+        try (Connection conn = connect(LEGACY);
+             Statement stmt = conn.createStatement()) {
+            stmt.execute("""
+                    CREATE TABLE users (
+                        id SERIAL PRIMARY KEY,
+                        name VARCHAR(200) NOT NULL,
+                        email VARCHAR(255) NOT NULL UNIQUE,
+                        age INTEGER,
+                        created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP NOT NULL
+                    )""");
+            stmt.execute("INSERT INTO users (name, email, age) VALUES ('Alex', ' Alex@Example.com ', 25), ('Bob', 'bob@example.com', 30)");
+        }
+
+        SchemaMigrations.migrate(url(LEGACY), postgres.getUsername(), postgres.getPassword());
+
+        try (Connection conn = connect(LEGACY);
+             Statement stmt = conn.createStatement()) {
+            assertEquals(0, queryLong(stmt, "SELECT count(*) FROM users WHERE email_normalized IS NULL"));
+            assertEquals(1, queryLong(stmt, "SELECT count(*) FROM users WHERE email_normalized = 'alex@example.com'"));
+            assertEquals(0, queryLong(stmt, "SELECT min(version) FROM users"));
+            assertEquals(50, queryLong(stmt, "SELECT increment_by FROM pg_sequences WHERE schemaname = '"
+                    + LEGACY + "' AND sequencename = 'users_id_seq'"));
+            long maxId = queryLong(stmt, "SELECT max(id) FROM users");
+            assertTrue(queryLong(stmt, "SELECT nextval('users_id_seq')") > maxId);
+            assertThrows(SQLException.class, () -> stmt.execute(
+                    "INSERT INTO users (name, email, email_normalized) VALUES ('Copy', 'BOB@example.com', 'bob@example.com')"));
+        }
+    }
+
+    @Test
+    void migrate_EmptySchema_CreatesTableAndIsRepeatable() throws SQLException {
+        SchemaMigrations.migrate(url(EMPTY), postgres.getUsername(), postgres.getPassword());
+        SchemaMigrations.migrate(url(EMPTY), postgres.getUsername(), postgres.getPassword());
+
+        try (Connection conn = connect(EMPTY);
+             Statement stmt = conn.createStatement()) {
+            stmt.execute("INSERT INTO users (name, email, email_normalized) VALUES ('Alex', 'Alex@Example.com', 'alex@example.com')");
+            assertEquals(0, queryLong(stmt, "SELECT version FROM users"));
+            assertEquals(5, queryLong(stmt, "SELECT count(*) FROM flyway_schema_history WHERE success"));
+            assertEquals(1, queryLong(stmt, "SELECT count(*) FROM pg_indexes WHERE schemaname = '"
+                    + EMPTY + "' AND indexname = 'idx_users_name_trgm'"));
+        }
+    }
+}
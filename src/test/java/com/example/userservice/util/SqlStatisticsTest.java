@@ -0,0 +1,177 @@
+package com.example.userservice.util;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.postgresql.PGConnection;
+
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Types;
+import java.time.Duration;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class SqlStatisticsTest {
+
+    private static final String SELECT_BY_ID = "select u.id, u.name from users u where u.id=?";
+
+    @Mock
+    private Connection connection;
+    @Mock
+    private PreparedStatement statement;
+    @Mock
+    private ResultSet resultSet;
+
+    private final SqlStatistics statistics = new SqlStatistics(Duration.ofSeconds(10), 3);
+
+    @Test
+    void shapeOf_ReplacesLiteralsAndCollapsesParameterLists() {
+        assertEquals("select * from users where id in (?...) and name = ? limit ?",
+                SqlStatistics.shapeOf("select *\n  from users where id in (?, ?,?) and name = 'O''Neil' limit 10"));
+        assertEquals("select u1_0.id from users u1_0 where u1_0.id=?",
+                SqlStatistics.shapeOf("select u1_0.id from users u1_0 where u1_0.id=?"));
+    }
+
+    @Test
+    void preparedQuery_CountsExecutionsAndRowsPerShape() throws Exception {
+        when(connection.prepareStatement(SELECT_BY_ID)).thenReturn(statement);
+        when(statement.executeQuery()).thenReturn(resultSet);
+        when(resultSet.next()).thenReturn(true, true, false);
+
+        Connection instrumented = statistics.instrument(connection);
+        try (PreparedStatement ps = instrumented.prepareStatement(SELECT_BY_ID);
+             ResultSet rs = ps.executeQuery()) {
+            while (rs.next()) {
+                rs.getLong(1);
+            }
+            assertSame(ps, rs.getStatement());
+            assertSame(instrumented, ps.getConnection());
+        }
+
+        List<SqlStatistics.Snapshot> snapshot = statistics.snapshot();
+        assertEquals(1, snapshot.size());
+        assertEquals(SELECT_BY_ID, snapshot.get(0).shape());
+        assertEquals(1, snapshot.get(0).count());
+        assertEquals(2, snapshot.get(0).rows());
+        verify(resultSet).close();
+        verify(statement).close();
+    }
+
+    @Test
+    void queryDeadline_SetsQueryTimeoutOnStatements() throws Exception {
+        when(connection.prepareStatement(SELECT_BY_ID)).thenReturn(statement);
+
+        Connection instrumented = statistics.instrument(connection);
+        instrumented.prepareStatement(SELECT_BY_ID);
+        verify(statement, never()).setQueryTimeout(anyInt());
+
+        QueryDeadline.call(System.nanoTime() + Duration.ofMillis(1500).toNanos(),
+                () -> {
+                    try {
+                        return instrumented.prepareStatement(SELECT_BY_ID);
+                    } catch (SQLException e) {
+                        throw new IllegalStateException(e);
+                    }
+                });
+        verify(statement).setQueryTimeout(2);
+    }
+
+    @Test
+    void sameSelectManyTimesPerLease_IsReportedAsNPlusOne() throws Exception {
+        when(connection.prepareStatement(anyString())).thenReturn(statement);
+        when(statement.executeQuery()).thenReturn(resultSet);
+
+        Connection instrumented = statistics.instrument(connection);
+        for (int i = 0; i < 3; i++) {
+            instrumented.prepareStatement(SELECT_BY_ID).executeQuery();
+        }
+        instrumented.prepareStatement("select count(*) from users").executeQuery();
+        for (int i = 0; i < 3; i++) {
+            instrumented.prepareStatement("select nextval('users_id_seq')").executeQuery();
+        }
+        instrumented.close();
+        // повторное закрытие не учитывает аренду второй раз
+        instrumented.close();
+
+        for (SqlStatistics.Snapshot s : statistics.snapshot()) {
+            assertEquals(s.shape().equals(SELECT_BY_ID) ? 1 : 0, s.nPlusOneSuspects(), s.shape());
+        }
+    }
+
+    @Test
+    void batchAndPlainStatements_CountChangedRows() throws Exception {
+        Statement plain = mock(Statement.class);
+        when(connection.createStatement()).thenReturn(plain);
+        when(plain.executeUpdate("delete from users where id = 42")).thenReturn(1);
+        when(connection.prepareStatement("insert into users (name) values (?)")).thenReturn(statement);
+        when(statement.executeBatch()).thenReturn(new int[]{1, 1, Statement.SUCCESS_NO_INFO});
+
+        Connection instrumented = statistics.instrument(connection);
+        instrumented.createStatement().executeUpdate("delete from users where id = 42");
+        PreparedStatement insert = instrumented.prepareStatement("insert into users (name) values (?)");
+        insert.addBatch();
+        insert.addBatch();
+        insert.executeBatch();
+
+        assertEquals(Set.of("delete from users where id = ?:1:1", "insert into users (name) values (?):1:2"),
+                new HashSet<>(statistics.snapshot().stream()
+                        .map(s -> s.shape() + ":" + s.count() + ":" + s.rows())
+                        .toList()));
+    }
+
+    @Test
+    void plainStatementBatch_ReportedUnderFirstAddedSql() throws Exception {
+        Statement plain = mock(Statement.class);
+        when(connection.createStatement()).thenReturn(plain);
+        when(plain.executeBatch()).thenReturn(new int[]{1, 1});
+
+        Statement batch = statistics.instrument(connection).createStatement();
+        batch.addBatch("delete from users where id = 1");
+        batch.addBatch("delete from users where id = 2");
+        batch.executeBatch();
+
+        assertFalse(Proxy.isProxyClass(batch.getClass()));
+        assertEquals(List.of("delete from users where id = ?:1:2"), statistics.snapshot().stream()
+                .map(s -> s.shape() + ":" + s.count() + ":" + s.rows())
+                .toList());
+        verify(plain).addBatch("delete from users where id = 2");
+    }
+
+    @Test
+    void preparedStatement_ParametersGoStraightToDriver() throws Exception {
+        when(connection.prepareStatement(SELECT_BY_ID)).thenReturn(statement);
+
+        PreparedStatement ps = statistics.instrument(connection).prepareStatement(SELECT_BY_ID);
+        ps.setLong(1, 42L);
+        ps.setNull(2, Types.INTEGER);
+
+        assertFalse(Proxy.isProxyClass(ps.getClass()));
+        verify(statement).setLong(1, 42L);
+        verify(statement).setNull(2, Types.INTEGER);
+        assertTrue(statistics.snapshot().isEmpty());
+    }
+
+    @Test
+    void wrappers_DelegateUnwrapAndCompareByIdentity() throws Exception {
+        PGConnection pg = mock(PGConnection.class);
+        when(connection.unwrap(PGConnection.class)).thenReturn(pg);
+
+        Connection instrumented = statistics.instrument(connection);
+
+        assertSame(pg, instrumented.unwrap(PGConnection.class));
+        assertEquals(instrumented, instrumented);
+        assertNotEquals(instrumented, statistics.instrument(connection));
+        assertEquals(System.identityHashCode(instrumented), instrumented.hashCode());
+    }
+}
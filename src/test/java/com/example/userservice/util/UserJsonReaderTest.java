@@ -0,0 +1,71 @@
+package com.example.userservice.util;
+
+import com.example.userservice.entity.User;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class UserJsonReaderTest {
+
+    private static User read(String json) {
+        return UserJsonReader.read(json.getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void read_ParsesFieldsAndSkipsServerAssigned() {
+        User user = read(" {\"id\": 5, \"name\": \"Алексей\", \"email\":\"a@example.com\",\n"
+                + " \"age\": 30, \"createdAt\": \"2024-01-01T00:00:00Z\", \"extra\": true } ");
+
+        assertNull(user.getId());
+        assertNull(user.getCreatedAt());
+        assertEquals("Алексей", user.getName());
+        assertEquals("a@example.com", user.getEmail());
+        assertEquals(Integer.valueOf(30), user.getAge());
+    }
+
+    @Test
+    void read_DecodesEscapes() {
+        User user = read("{\"na\\u006de\":\"a\\\"b\\\\c\\n\\u0416ж\\/\",\"age\":-1}");
+
+        assertEquals("a\"b\\c\nЖж/", user.getName());
+        assertEquals(Integer.valueOf(-1), user.getAge());
+    }
+
+    @Test
+    void read_Nulls() {
+        User user = read("{\"name\":null,\"email\":null,\"age\":null}");
+
+        assertNull(user.getName());
+        assertNull(user.getEmail());
+        assertNull(user.getAge());
+    }
+
+    @Test
+    void read_Range_IgnoresBytesOutside() {
+        byte[] bytes = "xx{\"name\":\"A\"}yy".getBytes(StandardCharsets.US_ASCII);
+
+        assertEquals("A", UserJsonReader.read(bytes, 2, bytes.length - 2).getName());
+    }
+
+    @Test
+    void read_RoundTripsWriterOutput() {
+        User original = new User(1L, "Имя \"в\" кавычках\t😀", "x@y.z", 99, null);
+
+        User parsed = UserJson.parse(UserJson.write(original));
+
+        assertEquals(original.getName(), parsed.getName());
+        assertEquals(original.getEmail(), parsed.getEmail());
+        assertEquals(original.getAge(), parsed.getAge());
+    }
+
+    @Test
+    void read_Malformed_ThrowsIllegalArgument() {
+        for (String json : new String[]{"", "{", "{\"name\":", "{\"name\":\"a\"", "{\"age\":}", "{\"age\":2147483648}",
+                "{\"age\":-}", "{\"a\":[1]}", "{\"name\":\"\\x\"}", "{\"name\":nul}", "{} x"}) {
+            assertThrows(IllegalArgumentException.class, () -> read(json), json);
+        }
+        assertEquals(Integer.valueOf(Integer.MIN_VALUE), read("{\"age\":-2147483648}").getAge());
+    }
+}
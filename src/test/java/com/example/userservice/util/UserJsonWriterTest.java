@@ -0,0 +1,110 @@
+package com.example.userservice.util;
+
+import com.example.userservice.entity.User;
+import com.example.userservice.entity.UserView;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class UserJsonWriterTest {
+
+    private static String write(int bufferSize, Writes writes) throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        UserJsonWriter writer = new UserJsonWriter(out, bufferSize);
+        writes.apply(writer);
+        writer.flush();
+        return out.toString(StandardCharsets.UTF_8);
+    }
+
+    private interface Writes {
+        void apply(UserJsonWriter writer) throws Exception;
+    }
+
+    @Test
+    void writeUser_WritesAllFields() throws Exception {
+        User user = new User(42L, "Alex", "alex@example.com", 25, Instant.parse("2024-01-02T03:04:05Z"));
+
+        String json = write(64, writer -> writer.writeUser(user));
+
+        assertEquals("{\"id\":42,\"name\":\"Alex\",\"email\":\"alex@example.com\",\"age\":25,"
+                + "\"createdAt\":\"2024-01-02T03:04:05Z\"}", json);
+    }
+
+    @Test
+    void writeUser_NullsAndEscapes() throws Exception {
+        String json = write(64, writer -> writer.writeUser(null, "a\"b\\c\n\t\u0001", null, null, null));
+
+        assertEquals("{\"id\":null,\"name\":\"a\\\"b\\\\c\\n\\t\\u0001\",\"email\":null,\"age\":null,"
+                + "\"createdAt\":null}", json);
+    }
+
+    @Test
+    void writeUser_NonAsciiEncodedAsUtf8AcrossBufferBoundaries() throws Exception {
+        String name = "Алексей ü € 😀 ".repeat(20) + "\uD800";
+
+        String json = write(64, writer -> writer.writeUser(1L, name, "a@b.c", -7, null));
+
+        // непарный суррогат заменяется так же, как в String.getBytes
+        String expectedName = new String(name.getBytes(StandardCharsets.UTF_8), StandardCharsets.UTF_8);
+        assertTrue(json.contains("\"name\":\"" + expectedName + "\""), json);
+        assertTrue(json.contains("\"age\":-7"));
+    }
+
+    @Test
+    void writeUser_InstantMatchesInstantToString() throws Exception {
+        for (String value : List.of("1970-01-01T00:00:00Z", "1969-12-31T23:59:59.999Z", "2000-02-29T12:00:00.000001Z",
+                "2024-12-31T23:59:59.123456789Z", "0001-01-01T00:00:00Z", "9999-12-31T23:59:59.5Z",
+                "+10000-01-01T00:00:00Z", "-0001-06-15T10:20:30Z")) {
+            Instant instant = Instant.parse(value);
+
+            String json = write(64, writer -> writer.writeUser(1L, "n", "e", 1, instant));
+
+            assertTrue(json.endsWith("\"createdAt\":\"" + instant + "\"}"), json);
+        }
+    }
+
+    @Test
+    void writeUserView_SameJsonAsEntity() throws Exception {
+        for (String value : List.of("2024-01-02T03:04:05Z", "1969-12-31T23:59:59.999999Z", "2000-02-29T12:00:00.120Z")) {
+            User user = new User(7L, "Alex", "alex@example.com", null, Instant.parse(value));
+
+            assertEquals(write(64, writer -> writer.writeUser(user)),
+                    write(64, writer -> writer.writeUser(UserView.of(user))));
+        }
+    }
+
+    @Test
+    void writeArray_SeparatesElementsAndCounts() throws Exception {
+        List<User> users = List.of(new User(1L, "A", "a@x", 1, null), new User(2L, "B", "b@x", 2, null));
+        long[] count = new long[1];
+
+        String json = write(64, writer -> count[0] = writer.writeArray(users.iterator()));
+
+        assertEquals(2, count[0]);
+        assertTrue(json.startsWith("[{\"id\":1,"));
+        assertTrue(json.contains("},{\"id\":2,"));
+        assertTrue(json.endsWith("}]"));
+        assertEquals("[]", write(64, writer -> writer.writeArray(List.<User>of().iterator())));
+    }
+
+    @Test
+    void newLine_ProducesNdjson() throws Exception {
+        String json = write(64, writer -> writer
+                .writeUser(1L, "A", "a@x", 1, null).newLine()
+                .writeUser(2L, "B", "b@x", 2, null).newLine());
+
+        assertEquals(2, json.lines().count());
+        assertEquals(Integer.valueOf(2), UserJson.parse(json.lines().toList().get(1)).getAge());
+    }
+
+    @Test
+    void endArray_WithoutBegin_Throws() {
+        assertThrows(IllegalStateException.class, () -> write(64, UserJsonWriter::endArray));
+        assertThrows(IllegalArgumentException.class, () -> new UserJsonWriter(new ByteArrayOutputStream(), 8));
+    }
+}
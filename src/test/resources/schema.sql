@@ -1,7 +1,19 @@
+CREATE SEQUENCE IF NOT EXISTS users_id_seq INCREMENT BY 50;
+
 CREATE TABLE IF NOT EXISTS users (
-    id SERIAL PRIMARY KEY,
+    id BIGINT PRIMARY KEY DEFAULT nextval('users_id_seq'),
     name VARCHAR(200) NOT NULL,
-    email VARCHAR(255) NOT NULL UNIQUE,
+    email VARCHAR(255) NOT NULL,
+    email_normalized VARCHAR(255) NOT NULL,
     age INTEGER,
-    created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP NOT NULL
-);
\ No newline at end of file
+    created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP NOT NULL,
+    version BIGINT DEFAULT 0 NOT NULL,
+    CONSTRAINT uk_users_email UNIQUE (email_normalized)
+);
+
+ALTER SEQUENCE users_id_seq OWNED BY users.id;
+
+CREATE EXTENSION IF NOT EXISTS pg_trgm;
+CREATE INDEX IF NOT EXISTS idx_users_created_at ON users (created_at, id);
+CREATE INDEX IF NOT EXISTS idx_users_name ON users (name, id);
+CREATE INDEX IF NOT EXISTS idx_users_name_trgm ON users USING gin (name gin_trgm_ops);
\ No newline at end of file